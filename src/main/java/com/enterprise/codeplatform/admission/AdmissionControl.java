@@ -0,0 +1,222 @@
+package com.enterprise.codeplatform.admission;
+
+import com.enterprise.codeplatform.dto.AdmissionStats;
+import com.enterprise.codeplatform.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for CPU-heavy endpoints. Each {@link Workload} has a global concurrency
+ * limit and a per-user token bucket; a request costs one token plus one per
+ * {@code bytes-per-token} of request body, capped at the bucket size so any single request
+ * can eventually be admitted. Buckets live in a concurrent map and are updated lock-free,
+ * and buckets that have been full for {@code bucket-idle-ms} are dropped periodically, so
+ * memory follows the number of active users.
+ */
+@Component
+public class AdmissionControl {
+
+    /**
+     * Admitted request; must be released exactly once when it completes.
+     */
+    public static final class Permit {
+        // Null when admission control is disabled and no permit was taken
+        private final Limits limits;
+        private boolean released;
+
+        private Permit(Limits limits) {
+            this.limits = limits;
+        }
+
+        public void release() {
+            if (!released && limits != null) {
+                released = true;
+                limits.permits.release();
+            }
+        }
+    }
+
+    private static final class Limits {
+        final int maxConcurrent;
+        final double burst;
+        final double tokensPerNano;
+        final Semaphore permits;
+        final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+        Limits(int maxConcurrent, double burst, double refillPerSecond) {
+            this.maxConcurrent = maxConcurrent;
+            this.burst = Math.max(1, burst);
+            this.tokensPerNano = refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.permits = new Semaphore(maxConcurrent);
+        }
+    }
+
+    private static final class Counters {
+        final Workload workload;
+        final LongAdder admitted = new LongAdder();
+        final LongAdder rateLimited = new LongAdder();
+        final LongAdder concurrencyLimited = new LongAdder();
+
+        Counters(Workload workload) {
+            this.workload = workload;
+        }
+    }
+
+    private final Map<Workload, Limits> limits = new EnumMap<>(Workload.class);
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.admission.bytes-per-token:8192}")
+    private long bytesPerToken;
+
+    @Value("${app.admission.queue-timeout-ms:100}")
+    private long queueTimeoutMs;
+
+    @Value("${app.admission.bucket-idle-ms:60000}")
+    private long bucketIdleMs;
+
+    public AdmissionControl(MeterRegistry meterRegistry,
+            @Value("${app.admission.compile.max-concurrent:0}") int compileConcurrent,
+            @Value("${app.admission.compile.burst:20}") double compileBurst,
+            @Value("${app.admission.compile.refill-per-second:2}") double compileRefill,
+            @Value("${app.admission.analysis.max-concurrent:0}") int analysisConcurrent,
+            @Value("${app.admission.analysis.burst:60}") double analysisBurst,
+            @Value("${app.admission.analysis.refill-per-second:10}") double analysisRefill,
+            @Value("${app.admission.transfer.max-concurrent:2}") int transferConcurrent,
+            @Value("${app.admission.transfer.burst:4}") double transferBurst,
+            @Value("${app.admission.transfer.refill-per-second:0.1}") double transferRefill,
+            @Value("${app.admission.execute.max-concurrent:0}") int executeConcurrent,
+            @Value("${app.admission.execute.burst:20}") double executeBurst,
+            @Value("${app.admission.execute.refill-per-second:1}") double executeRefill) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        limits.put(Workload.COMPILE, new Limits(compileConcurrent > 0 ? compileConcurrent : processors,
+                compileBurst, compileRefill));
+        limits.put(Workload.ANALYSIS, new Limits(analysisConcurrent > 0 ? analysisConcurrent : 2 * processors,
+                analysisBurst, analysisRefill));
+        limits.put(Workload.TRANSFER, new Limits(Math.max(1, transferConcurrent), transferBurst, transferRefill));
+        // Workers are single-threaded processes, so runs are bounded like compilations
+        limits.put(Workload.EXECUTE, new Limits(executeConcurrent > 0 ? executeConcurrent : processors,
+                executeBurst, executeRefill));
+
+        this.meterRegistry = meterRegistry;
+        limits.forEach((workload, workloadLimits) -> Gauge.builder("admission.in.flight", workloadLimits,
+                        l -> l.maxConcurrent - l.permits.availablePermits())
+                .tag("workload", workload.name())
+                .register(meterRegistry));
+    }
+
+    /**
+     * Admits the request or throws {@link TooManyRequestsException}. The concurrency permit
+     * is taken first, so a user is not charged tokens for a request the server turns away.
+     *
+     * @param endpoint  label the counters are kept under
+     * @param user      bucket key, the authenticated user or the client address
+     * @param bodyBytes request body size, or a negative value when unknown
+     */
+    public Permit admit(Workload workload, String endpoint, String user, long bodyBytes) {
+        Limits workloadLimits = limits.get(workload);
+        Counters endpointCounters = counters.computeIfAbsent(endpoint, e -> register(e, new Counters(workload)));
+        if (!enabled) {
+            endpointCounters.admitted.increment();
+            return new Permit(null);
+        }
+
+        boolean acquired;
+        try {
+            acquired = workloadLimits.permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for admission");
+        }
+        if (!acquired) {
+            endpointCounters.concurrencyLimited.increment();
+            throw new TooManyRequestsException("Server is busy with " + workload.name().toLowerCase()
+                    + " requests, please retry shortly", 1);
+        }
+
+        long now = System.nanoTime();
+        double cost = Math.min(workloadLimits.burst, 1 + Math.max(0, bodyBytes) / (double) bytesPerToken);
+        long waitNanos;
+        while (true) {
+            TokenBucket bucket = workloadLimits.buckets
+                    .computeIfAbsent(user, u -> new TokenBucket(workloadLimits.burst, now));
+            waitNanos = bucket.tryTake(cost, workloadLimits.burst, workloadLimits.tokensPerNano, now);
+            if (waitNanos != TokenBucket.RETIRED) {
+                break;
+            }
+            // Evicted between lookup and take; make sure the next lookup creates a new bucket
+            workloadLimits.buckets.remove(user, bucket);
+        }
+        if (waitNanos > 0) {
+            workloadLimits.permits.release();
+            endpointCounters.rateLimited.increment();
+            throw new TooManyRequestsException("Rate limit exceeded for " + workload.name().toLowerCase()
+                    + " requests", Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)));
+        }
+        endpointCounters.admitted.increment();
+        return new Permit(workloadLimits);
+    }
+
+    private Counters register(String endpoint, Counters endpointCounters) {
+        String workload = endpointCounters.workload.name();
+        FunctionCounter.builder("admission.requests", endpointCounters.admitted, LongAdder::sum)
+                .tags("endpoint", endpoint, "workload", workload, "outcome", "admitted")
+                .register(meterRegistry);
+        FunctionCounter.builder("admission.requests", endpointCounters.rateLimited, LongAdder::sum)
+                .tags("endpoint", endpoint, "workload", workload, "outcome", "rate_limited")
+                .register(meterRegistry);
+        FunctionCounter.builder("admission.requests", endpointCounters.concurrencyLimited, LongAdder::sum)
+                .tags("endpoint", endpoint, "workload", workload, "outcome", "concurrency_limited")
+                .register(meterRegistry);
+        return endpointCounters;
+    }
+
+    @Scheduled(fixedDelayString = "${app.admission.cleanup-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(bucketIdleMs);
+        for (Limits workloadLimits : limits.values()) {
+            workloadLimits.buckets.forEach((user, bucket) -> {
+                if (bucket.retireIfIdle(workloadLimits.burst, workloadLimits.tokensPerNano, now, idleNanos)) {
+                    workloadLimits.buckets.remove(user, bucket);
+                }
+            });
+        }
+    }
+
+    public List<AdmissionStats> stats() {
+        List<AdmissionStats> stats = new ArrayList<>();
+        counters.forEach((endpoint, c) -> {
+            Limits workloadLimits = limits.get(c.workload);
+            stats.add(AdmissionStats.builder()
+                    .endpoint(endpoint)
+                    .workload(c.workload.name())
+                    .admitted(c.admitted.sum())
+                    .rateLimited(c.rateLimited.sum())
+                    .concurrencyLimited(c.concurrencyLimited.sum())
+                    .inFlight(workloadLimits.maxConcurrent - workloadLimits.permits.availablePermits())
+                    .maxConcurrent(workloadLimits.maxConcurrent)
+                    .activeUsers(workloadLimits.buckets.size())
+                    .build());
+        });
+        stats.sort(Comparator.comparing(AdmissionStats::getEndpoint));
+        return stats;
+    }
+}
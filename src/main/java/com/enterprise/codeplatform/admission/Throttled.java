@@ -0,0 +1,20 @@
+package com.enterprise.codeplatform.admission;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Puts a handler method under admission control for its workload: the caller pays tokens
+ * from a per-user bucket and the request holds one of the workload's concurrency permits
+ * until it completes.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Throttled {
+
+    Workload value();
+}
@@ -0,0 +1,69 @@
+package com.enterprise.codeplatform.admission;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token bucket updated with compare-and-set on an immutable state, so concurrent requests
+ * of one user never block each other. Tokens are refilled lazily on every take.
+ *
+ * A bucket is retired with the same compare-and-set before it is removed from its map, and
+ * a retired bucket refuses takes. A take that raced with eviction therefore retries on the
+ * map's current bucket instead of spending tokens nobody will see again.
+ */
+final class TokenBucket {
+
+    /** Returned by {@link #tryTake} when the bucket was retired. */
+    static final long RETIRED = -1;
+
+    private record State(double tokens, long refilledAt) {
+    }
+
+    private static final State RETIRED_STATE = new State(0, Long.MAX_VALUE);
+
+    private final AtomicReference<State> state;
+
+    TokenBucket(double capacity, long now) {
+        this.state = new AtomicReference<>(new State(capacity, now));
+    }
+
+    /**
+     * Takes {@code cost} tokens and returns 0, returns the nanoseconds until enough tokens
+     * will be available and takes nothing, or returns {@link #RETIRED}.
+     */
+    long tryTake(double cost, double capacity, double tokensPerNano, long now) {
+        while (true) {
+            State current = state.get();
+            if (current == RETIRED_STATE) {
+                return RETIRED;
+            }
+            long time = Math.max(now, current.refilledAt());
+            double tokens = Math.min(capacity, current.tokens() + (time - current.refilledAt()) * tokensPerNano);
+            if (tokens < cost) {
+                return Math.max(1, (long) Math.ceil((cost - tokens) / tokensPerNano));
+            }
+            if (state.compareAndSet(current, new State(tokens - cost, time))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Retires the bucket if it is full and nothing was taken from it for {@code idleNanos}.
+     * A full bucket behaves exactly like a new one, so the caller may then drop it.
+     */
+    boolean retireIfIdle(double capacity, double tokensPerNano, long now, long idleNanos) {
+        while (true) {
+            State current = state.get();
+            if (current == RETIRED_STATE) {
+                return true;
+            }
+            long idle = now - current.refilledAt();
+            if (idle < idleNanos || current.tokens() + idle * tokensPerNano < capacity) {
+                return false;
+            }
+            if (state.compareAndSet(current, RETIRED_STATE)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.enterprise.codeplatform.admission;
+
+/**
+ * Endpoint classes that share a concurrency limit and a per-user token bucket.
+ */
+public enum Workload {
+    // javac runs: synchronous, batch and queued validation
+    COMPILE,
+    // Diff, blame, clone lookup and regex search over stored history
+    ANALYSIS,
+    // Bulk export and import streams
+    TRANSFER,
+    // Snippet runs in the sandbox worker pool
+    EXECUTE
+}
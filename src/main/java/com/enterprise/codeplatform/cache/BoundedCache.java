@@ -0,0 +1,239 @@
+package com.enterprise.codeplatform.cache;
+
+import com.enterprise.codeplatform.dto.CacheStats;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * Thread-safe LRU cache bounded by total entry weight, with a default time-to-live and
+ * optional per-entry expiry. Values are loaded outside the lock, so a slow loader never
+ * blocks readers of other keys. Concurrent misses on one key share a single load, and a
+ * load that overlaps an invalidation of its key is returned but not cached.
+ */
+public class BoundedCache<K, V> {
+
+    private static final class Entry<V> {
+        final V value;
+        final long weight;
+        final long expiresAt;
+
+        Entry(V value, long weight, long expiresAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final String name;
+    private final long maxWeight;
+    private final long ttlMillis;
+    private final ToLongBiFunction<K, V> weigher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    BoundedCache(String name, long maxWeight, long ttlMillis, ToLongBiFunction<K, V> weigher) {
+        this.name = name;
+        this.maxWeight = maxWeight;
+        this.ttlMillis = ttlMillis;
+        this.weigher = weigher;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public V get(K key) {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                hits.increment();
+                return entry.value;
+            }
+            if (entry != null) {
+                remove(key);
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        return null;
+    }
+
+    public V get(K key, Function<K, V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> running = loading.putIfAbsent(key, load);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            // The previous load may have finished between the miss and taking over
+            value = peek(key);
+            if (value == null) {
+                value = loader.apply(key);
+                if (value != null && loading.get(key) == load) {
+                    put(key, value);
+                }
+            }
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    private V peek(K key) {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            return entry != null && entry.expiresAt > now ? entry.value : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    public void put(K key, V value) {
+        put(key, value, System.currentTimeMillis() + ttlMillis);
+    }
+
+    // Expiry is capped by the cache TTL
+    public void put(K key, V value, long expiresAt) {
+        long entryWeight = Math.max(1, weigher.applyAsLong(key, value));
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        Entry<V> entry = new Entry<>(value, entryWeight,
+                Math.min(expiresAt, System.currentTimeMillis() + ttlMillis));
+        lock.lock();
+        try {
+            remove(key);
+            entries.put(key, entry);
+            weight += entryWeight;
+
+            Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+            while (weight > maxWeight && eldest.hasNext()) {
+                weight -= eldest.next().getValue().weight;
+                eldest.remove();
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        loading.remove(key);
+        lock.lock();
+        try {
+            remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateIf(Predicate<K> predicate) {
+        loading.keySet().removeIf(predicate);
+        invalidateWhere((key, value) -> predicate.test(key));
+    }
+
+    // Values still being loaded are unknown, so none of them is cached
+    public void invalidateValues(Predicate<V> predicate) {
+        loading.clear();
+        invalidateWhere((key, value) -> predicate.test(value));
+    }
+
+    private void invalidateWhere(BiPredicate<K, V> predicate) {
+        lock.lock();
+        try {
+            Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<K, Entry<V>> entry = it.next();
+                if (predicate.test(entry.getKey(), entry.getValue().value)) {
+                    weight -= entry.getValue().weight;
+                    it.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CacheStats stats() {
+        lock.lock();
+        try {
+            return CacheStats.builder()
+                    .name(name)
+                    .size(entries.size())
+                    .weight(weight)
+                    .maxWeight(maxWeight)
+                    .hits(hits.sum())
+                    .misses(misses.sum())
+                    .evictions(evictions.sum())
+                    .build();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long hitCount() {
+        return hits.sum();
+    }
+
+    long missCount() {
+        return misses.sum();
+    }
+
+    long evictionCount() {
+        return evictions.sum();
+    }
+
+    private void remove(K key) {
+        Entry<V> previous = entries.remove(key);
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.enterprise.codeplatform.cache;
+
+import com.enterprise.codeplatform.dto.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToLongBiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Creates the application's in-memory caches and keeps track of them for reporting. Each
+ * cache is published under the standard Micrometer cache meter names, so hit ratios can be
+ * derived from {@code cache.gets} by result.
+ */
+@Component
+public class CacheRegistry {
+
+    private final List<BoundedCache<?, ?>> caches = new CopyOnWriteArrayList<>();
+    private final MeterRegistry meterRegistry;
+
+    public CacheRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <K, V> BoundedCache<K, V> create(String name, long maxWeight, Duration ttl,
+            ToLongBiFunction<K, V> weigher) {
+        BoundedCache<K, V> cache = new BoundedCache<>(name, maxWeight, ttl.toMillis(), weigher);
+        caches.add(cache);
+        bind(cache);
+        return cache;
+    }
+
+    // Counters read the cache's own adders at scrape time, so lookups pay nothing extra
+    private void bind(BoundedCache<?, ?> cache) {
+        String name = cache.getName();
+        FunctionCounter.builder("cache.gets", cache, BoundedCache::hitCount)
+                .tags("cache", name, "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", cache, BoundedCache::missCount)
+                .tags("cache", name, "result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", cache, BoundedCache::evictionCount)
+                .tag("cache", name)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", cache, c -> c.stats().getSize())
+                .tag("cache", name)
+                .register(meterRegistry);
+        Gauge.builder("cache.weight", cache, c -> c.stats().getWeight())
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    public List<BoundedCache<?, ?>> getCaches() {
+        return caches;
+    }
+
+    public List<CacheStats> stats() {
+        return caches.stream().map(BoundedCache::stats).collect(Collectors.toList());
+    }
+}
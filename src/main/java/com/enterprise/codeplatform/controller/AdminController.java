@@ -0,0 +1,50 @@
+package com.enterprise.codeplatform.controller;
+
+import com.enterprise.codeplatform.admission.AdmissionControl;
+import com.enterprise.codeplatform.cache.CacheRegistry;
+import com.enterprise.codeplatform.dto.AdmissionStats;
+import com.enterprise.codeplatform.dto.AuditStats;
+import com.enterprise.codeplatform.dto.CacheStats;
+import com.enterprise.codeplatform.dto.StorageReport;
+import com.enterprise.codeplatform.service.AuditService;
+import com.enterprise.codeplatform.service.BlobCompressionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminController {
+
+    private final BlobCompressionService blobCompressionService;
+    private final CacheRegistry cacheRegistry;
+    private final AuditService auditService;
+    private final AdmissionControl admissionControl;
+
+    @GetMapping("/storage")
+    public ResponseEntity<StorageReport> getStorageReport() {
+        return ResponseEntity.ok(blobCompressionService.report());
+    }
+
+    @GetMapping("/caches")
+    public ResponseEntity<List<CacheStats>> getCacheStats() {
+        return ResponseEntity.ok(cacheRegistry.stats());
+    }
+
+    @GetMapping("/audit")
+    public ResponseEntity<AuditStats> getAuditStats() {
+        return ResponseEntity.ok(auditService.stats());
+    }
+
+    @GetMapping("/admission")
+    public ResponseEntity<List<AdmissionStats>> getAdmissionStats() {
+        return ResponseEntity.ok(admissionControl.stats());
+    }
+}
@@ -1,17 +1,46 @@
 package com.enterprise.codeplatform.controller;
 
+import com.enterprise.codeplatform.admission.Throttled;
+import com.enterprise.codeplatform.admission.Workload;
+import com.enterprise.codeplatform.dto.BlameResponse;
+import com.enterprise.codeplatform.dto.DiffResponse;
+import com.enterprise.codeplatform.dto.ImportReport;
 import com.enterprise.codeplatform.dto.RollbackRequest;
+import com.enterprise.codeplatform.dto.RunRequest;
+import com.enterprise.codeplatform.dto.RunResponse;
+import com.enterprise.codeplatform.dto.SearchResponse;
+import com.enterprise.codeplatform.dto.SimilarSnippetsResponse;
 import com.enterprise.codeplatform.dto.SnippetRequest;
+import com.enterprise.codeplatform.dto.SnippetPage;
+import com.enterprise.codeplatform.dto.SnippetPatchRequest;
 import com.enterprise.codeplatform.dto.SnippetResponse;
+import com.enterprise.codeplatform.dto.VersionPage;
+import com.enterprise.codeplatform.service.BlameService;
+import com.enterprise.codeplatform.service.CloneDetectionService;
+import com.enterprise.codeplatform.service.SearchService;
+import com.enterprise.codeplatform.service.SnippetExportService;
+import com.enterprise.codeplatform.service.SnippetImportService;
+import com.enterprise.codeplatform.service.SnippetRunService;
 import com.enterprise.codeplatform.service.SnippetService;
 import com.enterprise.codeplatform.service.DiffService;
 import com.enterprise.codeplatform.service.CompilerService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/v1/snippets")
@@ -20,8 +49,24 @@ public class SnippetController {
 
     private final SnippetService snippetService;
     private final DiffService diffService;
+    private final BlameService blameService;
+    private final SearchService searchService;
+    private final CloneDetectionService cloneDetectionService;
+    private final SnippetExportService exportService;
+    private final SnippetImportService importService;
+    private final SnippetRunService runService;
     private final CompilerService compilerService;
 
+    // Mutable resources may be stored but are revalidated with If-None-Match on every read
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable();
+
+    @Value("${app.validation.sync-max-chars:50000}")
+    private int syncValidationMaxChars;
+
+    @Value("${app.transfer.export-timeout-ms:3600000}")
+    private long exportTimeoutMs;
+
     @PostMapping
     public ResponseEntity<SnippetResponse> createSnippet(@RequestBody SnippetRequest request,
             Authentication authentication) {
@@ -34,27 +79,122 @@ public class SnippetController {
         return ResponseEntity.ok(snippetService.updateSnippet(id, request, authentication.getName()));
     }
 
+    @PatchMapping("/{id}")
+    public ResponseEntity<SnippetResponse> patchSnippet(@PathVariable Long id,
+            @RequestBody SnippetPatchRequest request,
+            @RequestParam(defaultValue = "false") boolean includeContent, Authentication authentication) {
+        return ResponseEntity.ok(snippetService.patchSnippet(id, request, includeContent, authentication.getName()));
+    }
+
+    @Throttled(Workload.ANALYSIS)
+    @GetMapping("/search")
+    public ResponseEntity<SearchResponse> search(@RequestParam String q,
+            @RequestParam(defaultValue = "false") boolean regex,
+            @RequestParam(defaultValue = "false") boolean caseSensitive,
+            @RequestParam(defaultValue = "20") int limit, Authentication authentication) {
+        return ResponseEntity.ok(searchService.search(q, regex, caseSensitive, limit, authentication.getName()));
+    }
+
+    // Exports stream for as long as the client reads, so they get their own async timeout
+    // instead of the container default that bounds every other async request
+    @Throttled(Workload.TRANSFER)
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> exportSnippets(Authentication authentication, HttpServletResponse response) {
+        Long userId = snippetService.currentUserId(authentication.getName());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"snippets.ndjson\"");
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        return new WebAsyncTask<>(exportTimeoutMs, () -> {
+            exportService.export(userId, response.getOutputStream());
+            response.flushBuffer();
+            return null;
+        });
+    }
+
+    @Throttled(Workload.TRANSFER)
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.APPLICATION_OCTET_STREAM_VALUE })
+    public ResponseEntity<ImportReport> importSnippets(InputStream body, Authentication authentication) {
+        Long userId = snippetService.currentUserId(authentication.getName());
+        return ResponseEntity.ok(importService.importSnippets(body, userId, authentication.getName()));
+    }
+
     @GetMapping
     public ResponseEntity<List<SnippetResponse>> getAllSnippets(Authentication authentication) {
         return ResponseEntity.ok(snippetService.getAllSnippets(authentication.getName()));
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<SnippetPage> getSnippetPage(@RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size, @RequestParam(defaultValue = "updatedAt") String sort,
+            @RequestParam(defaultValue = "false") boolean includeContent, Authentication authentication) {
+        return ResponseEntity.ok(snippetService.getSnippetPage(authentication.getName(), cursor, size, sort,
+                includeContent));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<SnippetResponse> getSnippet(@PathVariable Long id, Authentication authentication) {
-        return ResponseEntity.ok(snippetService.getSnippet(id, authentication.getName()));
+    public ResponseEntity<SnippetResponse> getSnippet(@PathVariable Long id, WebRequest request,
+            Authentication authentication) {
+        String etag = snippetService.snippetETag(id, authentication.getName());
+        if (etag != null && request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+        }
+        SnippetResponse snippet = snippetService.getSnippet(id, authentication.getName());
+        return ResponseEntity.ok()
+                .eTag(snippetService.snippetETag(snippet))
+                .cacheControl(REVALIDATE)
+                .body(snippet);
     }
 
+    @Throttled(Workload.COMPILE)
     @PostMapping("/validate")
     public ResponseEntity<List<String>> validateSnippet(@RequestBody SnippetRequest request) {
+        // Large sources go through /validate/jobs so they don't hold a request thread for the whole javac run
+        if (request.getContent() != null && request.getContent().length() > syncValidationMaxChars) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Source too large for synchronous validation, submit it to /api/v1/snippets/validate/jobs");
+        }
         return ResponseEntity.ok(compilerService.validateSyntax(request.getContent()));
     }
 
+    @Throttled(Workload.EXECUTE)
+    @PostMapping("/run")
+    public ResponseEntity<RunResponse> run(@RequestBody RunRequest request) {
+        return ResponseEntity.ok(runService.run(request.getContent(), request.getStdin()));
+    }
+
+    @Throttled(Workload.EXECUTE)
+    @PostMapping("/{id}/run")
+    public ResponseEntity<RunResponse> runSnippet(@PathVariable Long id,
+            @RequestBody(required = false) RunRequest request, Authentication authentication) {
+        return ResponseEntity.ok(runService.runSnippet(id, request == null ? null : request.getStdin(),
+                authentication.getName()));
+    }
+
+    @Throttled(Workload.ANALYSIS)
     @GetMapping("/{id}/diff")
-    public ResponseEntity<DiffService.DiffResult> getDiff(@PathVariable Long id, @RequestParam int v1,
-            @RequestParam int v2, Authentication authentication) {
-        String content1 = snippetService.getVersionContent(id, v1, authentication.getName());
-        String content2 = snippetService.getVersionContent(id, v2, authentication.getName());
-        return ResponseEntity.ok(diffService.compare(content1, content2));
+    public ResponseEntity<DiffResponse> getDiff(@PathVariable Long id, @RequestParam int v1,
+            @RequestParam int v2, @RequestParam(defaultValue = "MYERS") DiffService.Algorithm algorithm,
+            @RequestParam(defaultValue = "false") boolean includeText, Authentication authentication) {
+        return ResponseEntity.ok(diffService.diff(id, v1, v2, algorithm, includeText, authentication.getName()));
+    }
+
+    @Throttled(Workload.ANALYSIS)
+    @GetMapping("/{id}/blame")
+    public ResponseEntity<BlameResponse> getBlame(@PathVariable Long id,
+            @RequestParam(required = false) Integer version, Authentication authentication) {
+        return ResponseEntity.ok(blameService.blame(id, version, authentication.getName()));
+    }
+
+    @Throttled(Workload.ANALYSIS)
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<SimilarSnippetsResponse> getSimilar(@PathVariable Long id,
+            @RequestParam(required = false) Integer version,
+            @RequestParam(defaultValue = "0.8") double threshold,
+            @RequestParam(defaultValue = "20") int limit, Authentication authentication) {
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+        return ResponseEntity.ok(cloneDetectionService.findSimilar(id, version, threshold, limit, admin,
+                authentication.getName()));
     }
 
     @PostMapping("/{id}/rollback")
@@ -65,8 +205,39 @@ public class SnippetController {
 
     @GetMapping("/{id}/versions")
     public ResponseEntity<List<com.enterprise.codeplatform.dto.VersionResponse>> getVersions(@PathVariable Long id,
+            WebRequest request, Authentication authentication) {
+        String etag = snippetService.versionsETag(id, authentication.getName());
+        if (etag != null && request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+        }
+        List<com.enterprise.codeplatform.dto.VersionResponse> versions =
+                snippetService.getSnippetVersions(id, authentication.getName());
+        return ResponseEntity.ok()
+                .eTag(snippetService.versionsETag(id, versions))
+                .cacheControl(REVALIDATE)
+                .body(versions);
+    }
+
+    @GetMapping("/{id}/history")
+    public ResponseEntity<VersionPage> getHistory(@PathVariable Long id,
+            @RequestParam(required = false) Integer before, @RequestParam(defaultValue = "50") int size,
             Authentication authentication) {
-        return ResponseEntity.ok(snippetService.getSnippetVersions(id, authentication.getName()));
+        return ResponseEntity.ok(snippetService.getVersionHistory(id, before, size, authentication.getName()));
+    }
+
+    @GetMapping("/{id}/versions/{versionNumber}")
+    public ResponseEntity<com.enterprise.codeplatform.dto.VersionResponse> getVersion(@PathVariable Long id,
+            @PathVariable int versionNumber, WebRequest request, Authentication authentication) {
+        String etag = snippetService.versionETag(id, versionNumber, authentication.getName());
+        if (etag != null && request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(IMMUTABLE).build();
+        }
+        com.enterprise.codeplatform.dto.VersionResponse version =
+                snippetService.getVersion(id, versionNumber, authentication.getName());
+        return ResponseEntity.ok()
+                .eTag(SnippetService.versionETag(version.getId()))
+                .cacheControl(IMMUTABLE)
+                .body(version);
     }
 
     @DeleteMapping("/{id}/versions/{versionNumber}")
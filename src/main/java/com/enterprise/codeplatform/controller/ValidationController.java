@@ -0,0 +1,56 @@
+package com.enterprise.codeplatform.controller;
+
+import com.enterprise.codeplatform.admission.Throttled;
+import com.enterprise.codeplatform.admission.Workload;
+import com.enterprise.codeplatform.dto.BatchValidationRequest;
+import com.enterprise.codeplatform.dto.BatchValidationResult;
+import com.enterprise.codeplatform.dto.SnippetRequest;
+import com.enterprise.codeplatform.dto.ValidationJobResponse;
+import com.enterprise.codeplatform.service.BatchValidationService;
+import com.enterprise.codeplatform.service.ValidationJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.net.URI;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/snippets/validate")
+@RequiredArgsConstructor
+public class ValidationController {
+
+    private final ValidationJobService validationJobService;
+    private final BatchValidationService batchValidationService;
+
+    @Throttled(Workload.COMPILE)
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchValidationResult>> validateBatch(@RequestBody BatchValidationRequest request,
+            Authentication authentication) {
+        return ResponseEntity.ok(batchValidationService.validate(request, authentication.getName()));
+    }
+
+    @Throttled(Workload.COMPILE)
+    @PostMapping("/jobs")
+    public ResponseEntity<ValidationJobResponse> submitJob(@RequestBody SnippetRequest request,
+            Authentication authentication) {
+        ValidationJobResponse job = validationJobService.submit(request.getContent(), authentication.getName());
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(URI.create("/api/v1/snippets/validate/jobs/" + job.getJobId()))
+                .body(job);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ValidationJobResponse> getJob(@PathVariable String jobId, Authentication authentication) {
+        return ResponseEntity.ok(validationJobService.getJob(jobId, authentication.getName()));
+    }
+
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJob(@PathVariable String jobId, Authentication authentication) {
+        return validationJobService.subscribe(jobId, authentication.getName());
+    }
+}
@@ -0,0 +1,17 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class AdmissionStats {
+    private String endpoint;
+    private String workload;
+    private long admitted;
+    private long rateLimited;
+    private long concurrencyLimited;
+    private int inFlight;
+    private int maxConcurrent;
+    private int activeUsers;
+}
@@ -0,0 +1,20 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class AuditStats {
+    private String mode;
+    private int queueDepth;
+    private int queueCapacity;
+    private long recorded;
+    private long written;
+    private long overflowWrites;
+    private long failedBatches;
+    private long flushes;
+    private double averageFlushMillis;
+    private double maxFlushMillis;
+    private long walBytes;
+}
@@ -0,0 +1,19 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchValidationRequest {
+    // Raw sources, reported back by their index
+    private List<String> sources;
+    // Snippets whose current content should be validated
+    private List<Long> snippetIds;
+}
@@ -0,0 +1,16 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BatchValidationResult {
+    // Set for entries from "sources"
+    private Integer index;
+    // Set for entries from "snippetIds"
+    private Long snippetId;
+    private List<String> errors;
+}
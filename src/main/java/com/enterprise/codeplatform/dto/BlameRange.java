@@ -0,0 +1,17 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Consecutive lines (1-based) introduced by the same version
+@Data
+@Builder
+public class BlameRange {
+    private int startLine;
+    private int lineCount;
+    private int originVersion;
+    private String commitMessage;
+    private LocalDateTime createdAt;
+}
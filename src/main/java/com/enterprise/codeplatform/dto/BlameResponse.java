@@ -0,0 +1,15 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BlameResponse {
+    private Long snippetId;
+    private int versionNumber;
+    private int lineCount;
+    private List<BlameRange> ranges;
+}
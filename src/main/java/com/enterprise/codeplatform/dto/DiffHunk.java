@@ -0,0 +1,22 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One changed region. Line numbers are 1-based; a hunk that only inserts has no source
+ * lines and starts after the given source line, and likewise for deletions.
+ */
+@Data
+@Builder
+public class DiffHunk {
+    private String type;
+    private int sourceStart;
+    private int sourceLines;
+    private int targetStart;
+    private int targetLines;
+    private List<String> removed;
+    private List<String> added;
+}
@@ -0,0 +1,21 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class DiffResponse {
+    private Long snippetId;
+    private int fromVersion;
+    private int toVersion;
+    private String algorithm;
+    private int linesAdded;
+    private int linesRemoved;
+    private List<DiffHunk> hunks;
+    // Only filled when the full texts are requested
+    private String original;
+    private String revised;
+}
@@ -0,0 +1,14 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ImportReport {
+    private long snippets;
+    private long versions;
+    private long metrics;
+    private long elapsedMs;
+    private long rowsPerSecond;
+}
@@ -0,0 +1,16 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RunRequest {
+    // Ignored when running a stored snippet
+    private String content;
+    private String stdin;
+}
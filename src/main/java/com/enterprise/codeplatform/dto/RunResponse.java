@@ -0,0 +1,21 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class RunResponse {
+    // COMPILE_ERROR, or how the run ended: OK, EXCEPTION, TIMEOUT, OUTPUT_LIMIT, MEMORY_LIMIT, ERROR
+    private String status;
+    private List<String> compileErrors;
+    private String stdout;
+    private String stderr;
+    // Uncaught exception or limit that ended the run
+    private String error;
+    private long compileTimeMs;
+    private long cpuTimeMs;
+    private long wallTimeMs;
+}
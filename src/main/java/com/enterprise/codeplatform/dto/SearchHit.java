@@ -0,0 +1,18 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class SearchHit {
+    private Long snippetId;
+    private String title;
+    private String language;
+    private LocalDateTime updatedAt;
+    // First matching line of the content; null when only the title or description matched
+    private Integer lineNumber;
+    private String line;
+}
@@ -0,0 +1,18 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class SearchResponse {
+    private String query;
+    private boolean regex;
+    private List<SearchHit> hits;
+    // Snippets the index could not rule out, before checking their text
+    private int candidates;
+    // More matches exist than the limit, or the time budget ran out before all were checked
+    private boolean truncated;
+}
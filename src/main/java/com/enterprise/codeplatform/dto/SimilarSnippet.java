@@ -0,0 +1,16 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SimilarSnippet {
+    private Long snippetId;
+    private String title;
+    private String authorName;
+    // Most similar version of that snippet
+    private int versionNumber;
+    // Estimated Jaccard similarity of the normalized token shingles
+    private double similarity;
+}
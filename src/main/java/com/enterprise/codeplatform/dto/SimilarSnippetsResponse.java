@@ -0,0 +1,15 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class SimilarSnippetsResponse {
+    private Long snippetId;
+    private int versionNumber;
+    private double threshold;
+    private List<SimilarSnippet> matches;
+}
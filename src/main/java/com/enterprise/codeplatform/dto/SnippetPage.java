@@ -0,0 +1,14 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class SnippetPage {
+    private List<SnippetSummary> snippets;
+    // Opaque cursor for the next page; null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,34 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Update expressed as a change to a known version: either a unified diff or a list of
+ * character range edits, both relative to the content of {@code baseVersion}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnippetPatchRequest {
+    private Integer baseVersion;
+    private String title;
+    private String description;
+    private String unifiedDiff;
+    private List<RangeEdit> edits;
+
+    // Replaces the characters [start, end) of the base content with text
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RangeEdit {
+        private int start;
+        private int end;
+        private String text;
+    }
+}
@@ -0,0 +1,31 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnippetSummary {
+    private Long id;
+    private String title;
+    private String description;
+    private String language;
+    private String authorName;
+    private Integer activeVersionNumber;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    // Only filled when the listing is requested with includeContent
+    private String currentContent;
+
+    // Used by the listing projection queries, which never select content
+    public SnippetSummary(Long id, String title, String description, String language, String authorName,
+            Integer activeVersionNumber, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, title, description, language, authorName, activeVersionNumber, createdAt, updatedAt, null);
+    }
+}
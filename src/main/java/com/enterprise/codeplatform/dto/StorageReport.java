@@ -0,0 +1,23 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class StorageReport {
+    private String codec;
+    private List<TableUsage> tables;
+
+    @Data
+    @Builder
+    public static class TableUsage {
+        private String table;
+        private long rows;
+        private long uncompressedBytes;
+        private long storedBytes;
+        private long savedBytes;
+    }
+}
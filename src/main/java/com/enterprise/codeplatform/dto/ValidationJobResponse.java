@@ -0,0 +1,18 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+public class ValidationJobResponse {
+    private String jobId;
+    private String status;
+    private List<String> errors;
+    private String failure;
+    private LocalDateTime submittedAt;
+    private LocalDateTime finishedAt;
+}
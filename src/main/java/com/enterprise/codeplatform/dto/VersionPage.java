@@ -0,0 +1,15 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class VersionPage {
+    private List<VersionSummary> versions;
+    private int activeVersionNumber;
+    // Pass as "before" to fetch the next page; null when there are no older versions
+    private Integer nextCursor;
+}
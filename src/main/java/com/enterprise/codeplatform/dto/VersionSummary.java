@@ -0,0 +1,26 @@
+package com.enterprise.codeplatform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersionSummary {
+    private Long id;
+    private Integer versionNumber;
+    private String commitMessage;
+    private LocalDateTime createdAt;
+    private Long contentSize;
+    private Integer loc;
+    private Integer cyclomaticComplexity;
+    private Integer keywordCount;
+
+    // READY, PENDING while the background analysis has not run yet, or FAILED
+    private String metricsStatus;
+}
@@ -6,6 +6,9 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -24,4 +27,23 @@ public class CodeMetrics {
     private int loc;
     private int cyclomaticComplexity;
     private int keywordCount;
+
+    // Structural metrics measured on the javac syntax tree; absent when the compiler was unavailable
+    private Integer methodCount;
+    private Integer decisionPoints;
+    private Integer maxNestingDepth;
+    private Integer maxMethodLength;
+    private Integer halsteadDistinctOperators;
+    private Integer halsteadDistinctOperands;
+    private Integer halsteadTotalOperators;
+    private Integer halsteadTotalOperands;
+    private Double halsteadVolume;
+    private Double halsteadDifficulty;
+    private Double halsteadEffort;
+
+    @Builder.Default
+    @ElementCollection
+    @CollectionTable(name = "code_method_metrics", joinColumns = @JoinColumn(name = "metrics_id"))
+    @OrderColumn(name = "method_index")
+    private List<MethodMetrics> methods = new ArrayList<>();
 }
@@ -18,21 +18,25 @@ import java.util.List;
 @AllArgsConstructor
 @Entity
 @EntityListeners(AuditingEntityListener.class)
-@Table(name = "code_snippets")
+@Table(name = "code_snippets", indexes = {
+        @Index(name = "idx_snippet_author_updated", columnList = "user_id, updated_at, id"),
+        @Index(name = "idx_snippet_author_title", columnList = "user_id, title, id")
+})
 public class CodeSnippet {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false)
+    @Column(name = "title", nullable = false)
     private String title;
 
     @Column(columnDefinition = "TEXT")
     private String description;
 
-    @Column(columnDefinition = "LONGTEXT", nullable = false)
-    private String currentContent;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "current_blob_hash", nullable = false)
+    private ContentBlob currentBlob;
 
     @Column(nullable = false)
     private String language;
@@ -48,6 +52,7 @@ public class CodeSnippet {
     private LocalDateTime createdAt;
 
     @LastModifiedDate
+    @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
     private int activeVersionNumber;
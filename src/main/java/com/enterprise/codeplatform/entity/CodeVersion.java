@@ -16,7 +16,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Entity
 @EntityListeners(AuditingEntityListener.class)
-@Table(name = "code_versions")
+@Table(name = "code_versions", indexes = {
+        @Index(name = "idx_version_snippet_number", columnList = "snippet_id, version_number", unique = true),
+        @Index(name = "idx_version_content_hash", columnList = "snippet_id, content_hash")
+})
 public class CodeVersion {
 
     @Id
@@ -27,14 +30,38 @@ public class CodeVersion {
     @JoinColumn(name = "snippet_id", nullable = false)
     private CodeSnippet snippet;
 
-    @Column(columnDefinition = "LONGTEXT", nullable = false)
-    private String content;
+    // Full source for keyframes, serialized line delta for DELTA rows
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "blob_hash", nullable = false)
+    private ContentBlob blob;
 
-    @Column(nullable = false)
+    // SHA-256 of the full source, used to reuse storage for identical versions
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // Length of the full source, so history listings never need to load content
+    private Long contentSize;
+
+    @Column(name = "version_number", nullable = false)
     private int versionNumber;
 
     private String commitMessage;
 
+    // Legacy rows written before delta storage have no storage type and hold full content
+    @Enumerated(EnumType.STRING)
+    private StorageType storageType;
+
+    // Version number of the keyframe a DELTA row applies to
+    private Integer baseVersionNumber;
+
     @CreatedDate
     private LocalDateTime createdAt;
+
+    public boolean isKeyframe() {
+        return storageType != StorageType.DELTA;
+    }
+
+    public enum StorageType {
+        FULL, DELTA
+    }
 }
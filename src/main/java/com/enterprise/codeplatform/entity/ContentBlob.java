@@ -0,0 +1,51 @@
+package com.enterprise.codeplatform.entity;
+
+import com.enterprise.codeplatform.storage.CompressedText;
+import com.enterprise.codeplatform.storage.CompressedTextConverter;
+import com.enterprise.codeplatform.storage.ContentCodec;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Content-addressed storage for snippet and version text. Rows are keyed by the SHA-256
+ * of their content and shared by every snippet or version that stores the same text.
+ * Reference counts are maintained with native updates in ContentBlobRepository, so the
+ * entity itself is read-only.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Immutable
+@Table(name = "content_blobs")
+public class ContentBlob {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    // Compressed with the codec recorded in the first byte, decompressed on first read
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "LONGBLOB", nullable = false)
+    private CompressedText data;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private ContentCodec codec;
+
+    // Uncompressed and stored size in bytes
+    private long size;
+
+    private long storedSize;
+
+    private int refCount;
+
+    public String getContent() {
+        return data.text();
+    }
+}
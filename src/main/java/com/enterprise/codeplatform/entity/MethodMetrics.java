@@ -0,0 +1,24 @@
+package com.enterprise.codeplatform.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class MethodMetrics {
+    @Column(name = "method_name")
+    private String name;
+
+    private int startLine;
+    private int length;
+    private int cyclomaticComplexity;
+    private int maxNestingDepth;
+    private double halsteadVolume;
+}
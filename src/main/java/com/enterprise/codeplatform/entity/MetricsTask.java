@@ -0,0 +1,49 @@
+package com.enterprise.codeplatform.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox entry recording that a version still needs its metrics computed. It is written in
+ * the same transaction as the version and deleted together with the stored metrics.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@EntityListeners(AuditingEntityListener.class)
+@Table(name = "metrics_tasks", indexes = {
+        @Index(name = "idx_metrics_task_due", columnList = "failed, next_attempt_at")
+})
+public class MetricsTask {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "version_id", nullable = false, unique = true)
+    private CodeVersion version;
+
+    private int attempts;
+
+    // Also serves as the claim lease: a claimed task becomes due again if its worker dies
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "failed", nullable = false)
+    private boolean failed;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @CreatedDate
+    private LocalDateTime createdAt;
+}
@@ -1,5 +1,6 @@
 package com.enterprise.codeplatform.entity;
 
+import com.enterprise.codeplatform.security.UserCacheListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -17,6 +18,7 @@ import java.util.Collections;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@EntityListeners(UserCacheListener.class)
 @Table(name = "users")
 public class User implements UserDetails {
 
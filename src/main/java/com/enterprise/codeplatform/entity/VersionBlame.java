@@ -0,0 +1,35 @@
+package com.enterprise.codeplatform.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Origin version of every line of a version, stored as varint (origin, run length) pairs.
+ * Rows are derived data and written once; a missing row is recomputed from the nearest
+ * earlier one.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "version_blames")
+public class VersionBlame {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "version_id", nullable = false, unique = true)
+    private CodeVersion version;
+
+    @Column(name = "line_count", nullable = false)
+    private int lineCount;
+
+    @Lob
+    @Column(columnDefinition = "MEDIUMBLOB", nullable = false)
+    private byte[] data;
+}
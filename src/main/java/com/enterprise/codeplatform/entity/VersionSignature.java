@@ -0,0 +1,34 @@
+package com.enterprise.codeplatform.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * MinHash signature of a version's normalized token shingles, used to find near-duplicate
+ * code. Versions too short to form a shingle get a row with an empty signature, so they
+ * are not picked up again.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "version_signatures")
+public class VersionSignature {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "version_id", nullable = false, unique = true)
+    private CodeVersion version;
+
+    @Column(name = "shingle_count", nullable = false)
+    private int shingleCount;
+
+    @Column(nullable = false, length = 512)
+    private byte[] minhash;
+}
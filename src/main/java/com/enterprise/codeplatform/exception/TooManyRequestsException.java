@@ -0,0 +1,20 @@
+package com.enterprise.codeplatform.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a request is rejected because a bounded resource is saturated.
+ * Mapped to 429 with a Retry-After header.
+ */
+@Getter
+public class TooManyRequestsException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
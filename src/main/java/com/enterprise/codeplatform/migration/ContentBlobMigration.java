@@ -0,0 +1,114 @@
+package com.enterprise.codeplatform.migration;
+
+import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.service.ContentBlobService;
+import com.enterprise.codeplatform.service.LineDeltaCodec;
+import com.enterprise.codeplatform.storage.ContentCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves inline LONGTEXT content of code_versions and code_snippets into the
+ * content_blobs table, compresses blobs written before compression existed and drops
+ * the old columns. Runs before the delta storage
+ * migration, which works on blob payloads.
+ */
+@Slf4j
+@Component
+@Order(1)
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.versions.migrate-on-startup", havingValue = "true", matchIfMissing = true)
+public class ContentBlobMigration implements ApplicationRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ContentBlobService blobService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (columnExists("content_blobs", "content")) {
+            List<String> hashes = jdbcTemplate.queryForList(
+                    "SELECT hash FROM content_blobs WHERE data IS NULL OR LENGTH(data) = 0", String.class);
+            log.info("Compressing {} uncompressed content blobs", hashes.size());
+            for (String hash : hashes) {
+                String content = jdbcTemplate.queryForObject("SELECT content FROM content_blobs WHERE hash = ?",
+                        String.class, hash);
+                byte[] data = blobService.getCodec().encode(content);
+                jdbcTemplate.update(
+                        "UPDATE content_blobs SET data = ?, codec = ?, size = ?, stored_size = ? WHERE hash = ?",
+                        data, blobService.getCodec().name(), ContentCodec.rawLength(data), data.length, hash);
+            }
+            jdbcTemplate.execute("ALTER TABLE content_blobs DROP COLUMN content");
+        }
+
+        if (columnExists("code_versions", "content")) {
+            List<Long> snippetIds = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT snippet_id FROM code_versions WHERE blob_hash IS NULL OR blob_hash = ''",
+                    Long.class);
+            log.info("Moving version content of {} snippets into content blobs", snippetIds.size());
+            for (Long snippetId : snippetIds) {
+                transactionTemplate.executeWithoutResult(status -> migrateVersions(snippetId));
+            }
+            jdbcTemplate.execute("ALTER TABLE code_versions DROP COLUMN content");
+        }
+
+        if (columnExists("code_snippets", "current_content")) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                    "SELECT id, current_content FROM code_snippets WHERE current_blob_hash IS NULL OR current_blob_hash = ''");
+            log.info("Moving current content of {} snippets into content blobs", rows.size());
+            for (Map<String, Object> row : rows) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    String hash = blobService.store((String) row.get("current_content")).getHash();
+                    jdbcTemplate.update("UPDATE code_snippets SET current_blob_hash = ? WHERE id = ?", hash,
+                            row.get("id"));
+                });
+            }
+            jdbcTemplate.execute("ALTER TABLE code_snippets DROP COLUMN current_content");
+        }
+    }
+
+    private void migrateVersions(Long snippetId) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, version_number, storage_type, base_version_number, content FROM code_versions "
+                        + "WHERE snippet_id = ? ORDER BY version_number",
+                snippetId);
+
+        Map<Integer, String> keyframes = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            if (!CodeVersion.StorageType.DELTA.name().equals(row.get("storage_type"))) {
+                keyframes.put(((Number) row.get("version_number")).intValue(), (String) row.get("content"));
+            }
+        }
+
+        for (Map<String, Object> row : rows) {
+            String payload = (String) row.get("content");
+            String content = payload;
+            if (CodeVersion.StorageType.DELTA.name().equals(row.get("storage_type"))) {
+                int base = ((Number) row.get("base_version_number")).intValue();
+                content = LineDeltaCodec.apply(keyframes.get(base), payload);
+            }
+            String blobHash = blobService.store(payload).getHash();
+            jdbcTemplate.update("UPDATE code_versions SET blob_hash = ?, content_hash = ? WHERE id = ?",
+                    blobHash, ContentBlobService.hash(content), row.get("id"));
+        }
+    }
+
+    private boolean columnExists(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns "
+                        + "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?",
+                Integer.class, table, column);
+        return count != null && count > 0;
+    }
+}
@@ -0,0 +1,43 @@
+package com.enterprise.codeplatform.migration;
+
+import com.enterprise.codeplatform.repository.CodeVersionRepository;
+import com.enterprise.codeplatform.service.VersionStorageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Converts versions written before delta storage (rows without a storage type) into
+ * keyframes and deltas. Each snippet is converted in its own transaction, so the
+ * migration can be interrupted and re-run safely.
+ */
+@Slf4j
+@Component
+@Order(2)
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.versions.migrate-on-startup", havingValue = "true", matchIfMissing = true)
+public class VersionStorageMigration implements ApplicationRunner {
+
+    private final CodeVersionRepository versionRepository;
+    private final VersionStorageService versionStorageService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<Long> snippetIds = versionRepository.findSnippetIdsWithLegacyStorage();
+        log.info("Converting versions of {} snippets to delta storage", snippetIds.size());
+
+        for (Long snippetId : snippetIds) {
+            transactionTemplate.executeWithoutResult(status -> versionStorageService
+                    .reencode(versionRepository.findBySnippetIdOrderByVersionNumberAsc(snippetId)));
+        }
+        log.info("Version storage migration finished");
+    }
+}
@@ -0,0 +1,50 @@
+package com.enterprise.codeplatform.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timer split by input size. One timer per size bucket is registered up front, so recording
+ * only picks an array slot and adds to a histogram; percentiles are computed by Prometheus
+ * from the published buckets instead of being tracked in the application.
+ */
+public final class SizedTimer {
+
+    private static final long[] LIMITS = { 1024, 10 * 1024, 100 * 1024 };
+    private static final String[] LABELS = { "0-1k", "1k-10k", "10k-100k", "100k+" };
+
+    private final Timer[] timers = new Timer[LABELS.length];
+
+    /**
+     * @param tags additional key/value pairs shared by all size buckets
+     */
+    public SizedTimer(MeterRegistry registry, String name, String description, Duration min, Duration max,
+            String... tags) {
+        for (int i = 0; i < LABELS.length; i++) {
+            timers[i] = Timer.builder(name)
+                    .description(description)
+                    .tags(tags)
+                    .tag("size", LABELS[i])
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(min)
+                    .maximumExpectedValue(max)
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Records the time since {@code startNanos}, taken from {@link System#nanoTime()}.
+     *
+     * @param size input size in characters
+     */
+    public void record(long size, long startNanos) {
+        int bucket = 0;
+        while (bucket < LIMITS.length && size > LIMITS[bucket]) {
+            bucket++;
+        }
+        timers[bucket].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
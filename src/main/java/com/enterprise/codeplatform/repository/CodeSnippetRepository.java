@@ -1,9 +1,65 @@
 package com.enterprise.codeplatform.repository;
 
+import com.enterprise.codeplatform.dto.SnippetSummary;
 import com.enterprise.codeplatform.entity.CodeSnippet;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface CodeSnippetRepository extends JpaRepository<CodeSnippet, Long> {
     List<CodeSnippet> findByAuthorId(Long authorId);
+
+    // Serializes writes to a snippet's history, so a save sees the previous one's version as active
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from CodeSnippet s where s.id = :id")
+    Optional<CodeSnippet> findByIdForUpdate(@Param("id") Long id);
+
+    String SUMMARY_SELECT = "select new com.enterprise.codeplatform.dto.SnippetSummary(s.id, s.title, "
+            + "s.description, s.language, a.username, s.activeVersionNumber, s.createdAt, s.updatedAt) "
+            + "from CodeSnippet s join s.author a ";
+
+    // Keyset pages ordered by most recently updated; the first page starts after (max date, max id)
+    @Query(SUMMARY_SELECT + "where a.email = :email and (s.updatedAt < :updatedAt "
+            + "or (s.updatedAt = :updatedAt and s.id < :id)) order by s.updatedAt desc, s.id desc")
+    List<SnippetSummary> findSummariesByUpdatedAt(@Param("email") String email,
+            @Param("updatedAt") LocalDateTime updatedAt, @Param("id") Long id, Pageable pageable);
+
+    // Keyset pages ordered by title; the first page starts after ("", 0)
+    @Query(SUMMARY_SELECT + "where a.email = :email and (s.title > :title "
+            + "or (s.title = :title and s.id > :id)) order by s.title asc, s.id asc")
+    List<SnippetSummary> findSummariesByTitle(@Param("email") String email, @Param("title") String title,
+            @Param("id") Long id, Pageable pageable);
+
+    // ETag validators without touching content: owner email, active version, current blob hash, updatedAt
+    @Query("select a.email, s.activeVersionNumber, s.currentBlob.hash, s.updatedAt from CodeSnippet s "
+            + "join s.author a where s.id = :id")
+    List<Object[]> findValidators(@Param("id") Long id);
+
+    @Query("select s.id, b from CodeSnippet s join s.currentBlob b where s.id in :ids")
+    List<Object[]> findCurrentBlobs(@Param("ids") Collection<Long> ids);
+
+    @Query("select s.id, b from CodeSnippet s join s.currentBlob b where s.id in :ids and s.author.email = :email")
+    List<Object[]> findCurrentBlobsOwnedBy(@Param("ids") Collection<Long> ids, @Param("email") String email);
+
+    // Search index rows: id, author id, title, description, language, updatedAt, current blob
+    @Query("select s.id, s.author.id, s.title, s.description, s.language, s.updatedAt, b "
+            + "from CodeSnippet s join s.currentBlob b where s.id in :ids")
+    List<Object[]> findSearchRows(@Param("ids") Collection<Long> ids);
+
+    @Query("select s.id from CodeSnippet s where s.id > :after order by s.id")
+    List<Long> findIdsAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query("select s.id from CodeSnippet s where s.updatedAt >= :since")
+    List<Long> findIdsUpdatedSince(@Param("since") LocalDateTime since);
+
+    @Query("select s.id from CodeSnippet s")
+    List<Long> findAllIds();
 }
@@ -1,11 +1,73 @@
 package com.enterprise.codeplatform.repository;
 
+import com.enterprise.codeplatform.dto.VersionSummary;
 import com.enterprise.codeplatform.entity.CodeVersion;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface CodeVersionRepository extends JpaRepository<CodeVersion, Long> {
     List<CodeVersion> findBySnippetIdOrderByVersionNumberDesc(Long snippetId);
 
+    List<CodeVersion> findBySnippetIdOrderByVersionNumberAsc(Long snippetId);
+
     CodeVersion findBySnippetIdAndVersionNumber(Long snippetId, int versionNumber);
+
+    List<CodeVersion> findBySnippetIdAndVersionNumberBetweenOrderByVersionNumberAsc(Long snippetId, int from,
+            int to);
+
+    List<CodeVersion> findBySnippetIdAndVersionNumberIn(Long snippetId, Collection<Integer> versionNumbers);
+
+    @Query("select count(v) from CodeVersion v where v.snippet.id = :snippetId "
+            + "and v.snippet.author.email = :email and v.versionNumber in :versionNumbers")
+    long countOwnedVersions(@Param("snippetId") Long snippetId,
+            @Param("versionNumbers") Collection<Integer> versionNumbers, @Param("email") String email);
+
+    Optional<CodeVersion> findFirstBySnippetIdAndStorageTypeOrderByVersionNumberDesc(Long snippetId,
+            CodeVersion.StorageType storageType);
+
+    Optional<CodeVersion> findFirstBySnippetIdAndContentHashOrderByVersionNumberDesc(Long snippetId,
+            String contentHash);
+
+    List<CodeVersion> findBySnippetIdAndBaseVersionNumberOrderByVersionNumberAsc(Long snippetId,
+            Integer baseVersionNumber);
+
+    // Lets a caller lock the snippet before the version and its snippet are loaded
+    @Query("select v.snippet.id from CodeVersion v where v.id = :id")
+    Optional<Long> findSnippetIdById(@Param("id") Long id);
+
+    @Query("select distinct v.snippet.id from CodeVersion v where v.storageType is null or v.contentSize is null")
+    List<Long> findSnippetIdsWithLegacyStorage();
+
+    // Keyset page of history entries below the given version number, without touching content
+    @Query("select new com.enterprise.codeplatform.dto.VersionSummary(v.id, v.versionNumber, v.commitMessage, "
+            + "v.createdAt, v.contentSize, m.loc, m.cyclomaticComplexity, m.keywordCount, "
+            + "case when m.id is not null then 'READY' when t.failed = true then 'FAILED' "
+            + "when t.id is not null then 'PENDING' end) "
+            + "from CodeVersion v left join CodeMetrics m on m.version = v "
+            + "left join MetricsTask t on t.version = v "
+            + "where v.snippet.id = :snippetId and v.versionNumber < :before "
+            + "order by v.versionNumber desc")
+    List<VersionSummary> findSummaries(@Param("snippetId") Long snippetId, @Param("before") int before,
+            Pageable pageable);
+
+    // Versions are immutable, so count, max and sum of ids identify the set; rows: owner email, count, max, sum
+    @Query("select a.email, count(v), max(v.id), sum(v.id) from CodeVersion v join v.snippet s join s.author a "
+            + "where s.id = :snippetId group by a.email")
+    List<Object[]> findListValidators(@Param("snippetId") Long snippetId);
+
+    @Query("select a.email, v.id from CodeVersion v join v.snippet s join s.author a "
+            + "where s.id = :snippetId and v.versionNumber = :versionNumber")
+    List<Object[]> findVersionValidator(@Param("snippetId") Long snippetId,
+            @Param("versionNumber") int versionNumber);
+
+    // Clone result rows: version id, version number, snippet id, title, author display name
+    @Query("select v.id, v.versionNumber, s.id, s.title, a.username from CodeVersion v join v.snippet s "
+            + "join s.author a where v.id in :ids")
+    List<Object[]> findCloneRows(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,42 @@
+package com.enterprise.codeplatform.repository;
+
+import com.enterprise.codeplatform.entity.ContentBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+
+    @Modifying
+    @Query(value = "UPDATE content_blobs SET ref_count = ref_count + 1 WHERE hash = :hash", nativeQuery = true)
+    int retain(@Param("hash") String hash);
+
+    @Modifying
+    @Query(value = "INSERT INTO content_blobs (hash, data, codec, size, stored_size, ref_count) "
+            + "VALUES (:hash, :data, :codec, :size, :storedSize, 1) "
+            + "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1", nativeQuery = true)
+    void insertOrRetain(@Param("hash") String hash, @Param("data") byte[] data, @Param("codec") String codec,
+            @Param("size") long size, @Param("storedSize") long storedSize);
+
+    // Flushes first so that rows which stopped referencing the blob are written before it can be deleted
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE content_blobs SET ref_count = ref_count - 1 WHERE hash = :hash", nativeQuery = true)
+    int release(@Param("hash") String hash);
+
+    @Modifying
+    @Query(value = "DELETE FROM content_blobs WHERE hash = :hash AND ref_count <= 0", nativeQuery = true)
+    int deleteIfUnreferenced(@Param("hash") String hash);
+
+    @Query(value = "SELECT hash FROM content_blobs WHERE codec IS NULL OR codec <> :codec LIMIT :limit",
+            nativeQuery = true)
+    List<String> findHashesNotEncodedWith(@Param("codec") String codec, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE content_blobs SET data = :data, codec = :codec, stored_size = :storedSize "
+            + "WHERE hash = :hash", nativeQuery = true)
+    int updateEncoding(@Param("hash") String hash, @Param("data") byte[] data, @Param("codec") String codec,
+            @Param("storedSize") long storedSize);
+}
@@ -0,0 +1,38 @@
+package com.enterprise.codeplatform.repository;
+
+import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.entity.MetricsTask;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface MetricsTaskRepository extends JpaRepository<MetricsTask, Long> {
+
+    // Rows locked by another instance's claim are skipped rather than waited for
+    @Query(value = "SELECT id FROM metrics_tasks WHERE failed = false AND next_attempt_at <= :now "
+            + "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> findDueIds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("update MetricsTask t set t.nextAttemptAt = :until where t.id in :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("until") LocalDateTime until);
+
+    @Query("select t from MetricsTask t join fetch t.version v join fetch v.snippet where t.id in :ids")
+    List<MetricsTask> findWithVersions(@Param("ids") Collection<Long> ids);
+
+    // Serializes storing results with version deletion, which removes the task first
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from MetricsTask t where t.id in :ids")
+    List<MetricsTask> lockAll(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from MetricsTask t where t.version = :version")
+    void deleteByVersion(@Param("version") CodeVersion version);
+}
@@ -0,0 +1,31 @@
+package com.enterprise.codeplatform.repository;
+
+import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.entity.VersionBlame;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface VersionBlameRepository extends JpaRepository<VersionBlame, Long> {
+
+    // Nearest stored blame at or below the given version
+    @Query("select b from VersionBlame b join fetch b.version v where v.snippet.id = :snippetId "
+            + "and v.versionNumber <= :versionNumber order by v.versionNumber desc")
+    List<VersionBlame> findLatest(@Param("snippetId") Long snippetId, @Param("versionNumber") int versionNumber,
+            Pageable pageable);
+
+    // Concurrent requests may compute the same blame; the first one wins
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO version_blames (version_id, line_count, data) "
+            + "VALUES (:versionId, :lineCount, :data)", nativeQuery = true)
+    void insertIfAbsent(@Param("versionId") Long versionId, @Param("lineCount") int lineCount,
+            @Param("data") byte[] data);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from VersionBlame b where b.version = :version")
+    void deleteByVersion(@Param("version") CodeVersion version);
+}
@@ -0,0 +1,38 @@
+package com.enterprise.codeplatform.repository;
+
+import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.entity.VersionSignature;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface VersionSignatureRepository extends JpaRepository<VersionSignature, Long> {
+
+    Optional<VersionSignature> findByVersionId(Long versionId);
+
+    // Index rows: signature id, version id, snippet id, author id, minhash
+    @Query("select sig.id, v.id, s.id, s.author.id, sig.minhash from VersionSignature sig join sig.version v "
+            + "join v.snippet s where sig.id > :after and sig.shingleCount > 0 order by sig.id")
+    List<Object[]> findIndexRows(@Param("after") Long after, Pageable pageable);
+
+    @Query("select v from CodeVersion v join fetch v.snippet s join fetch s.author where not exists "
+            + "(select 1 from VersionSignature sig where sig.version = v) order by v.id")
+    List<CodeVersion> findUnsignedVersions(Pageable pageable);
+
+    // The metrics outbox and the backfill may sign the same version; the first one wins.
+    // Versions deleted meanwhile fail the foreign key, which IGNORE turns into a warning.
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO version_signatures (version_id, shingle_count, minhash) "
+            + "VALUES (:versionId, :shingleCount, :minhash)", nativeQuery = true)
+    void insertIfAbsent(@Param("versionId") Long versionId, @Param("shingleCount") int shingleCount,
+            @Param("minhash") byte[] minhash);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from VersionSignature sig where sig.version = :version")
+    void deleteByVersion(@Param("version") CodeVersion version);
+}
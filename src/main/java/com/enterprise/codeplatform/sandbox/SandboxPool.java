@@ -0,0 +1,475 @@
+package com.enterprise.codeplatform.sandbox;
+
+import com.enterprise.codeplatform.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Pool of warm {@link SandboxWorker} JVMs. Workers are started ahead of time with a small
+ * heap, one active processor, an empty working directory and no environment, and are
+ * warmed with a trivial run. On top of the worker's own checks each worker is normally launched
+ * through prlimit (no file writes, no core dumps, few descriptors), in its own network, IPC,
+ * UTS and PID namespaces through unshare, and, when a user is configured, as that user
+ * through setpriv; a worker that cannot be launched that way is not started, so execution
+ * fails closed. A run borrows an idle worker, ships the compiled classes over the worker's
+ * stdin and reads the result from its stdout; a watchdog kills the process if no answer
+ * arrives within the wall-clock limit. Workers are replaced after a fixed number of runs,
+ * after breaking a limit and after any protocol failure.
+ * <p>
+ * On startup the launcher is probed once with {@code java -version}. When it fails, or the
+ * worker runtime is JDK 24 or later, where the security manager the worker relies on can no
+ * longer be enabled, the pool stays disabled and runs are answered with 503 and the reason.
+ */
+@Slf4j
+@Component
+public class SandboxPool {
+
+    public enum Status {
+        OK, EXCEPTION, TIMEOUT, OUTPUT_LIMIT, MEMORY_LIMIT, ERROR
+    }
+
+    public record Result(Status status, String error, String stdout, String stderr, long cpuNanos, long wallNanos) {
+    }
+
+    private static final class Worker {
+        final Process process;
+        final DataOutputStream out;
+        final DataInputStream in;
+        int runs;
+
+        Worker(Process process) {
+            this.process = process;
+            this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+    }
+
+    private static final int WARMUP_RUNS = 3;
+    // JEP 486: from this release on the security manager cannot be enabled at all
+    private static final int FIRST_RUNTIME_WITHOUT_SECURITY_MANAGER = 24;
+    private static final Pattern JAVA_VERSION = Pattern.compile("version \"(\\d+)(?:\\.(\\d+))?");
+    private static final long MAX_RETRY_SECONDS = 300;
+
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final ExecutorService spawner = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "sandbox-spawner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "sandbox-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<Status, Timer> runTimers = new EnumMap<>(Status.class);
+    // Started and not yet discarded, whether idle or running
+    private final AtomicInteger live = new AtomicInteger();
+
+    private Path baseDir;
+    private Map<String, byte[]> warmupClasses;
+    private volatile boolean closed;
+    private volatile String unavailableReason;
+    private volatile String launchFailure;
+    // Only touched by the spawner thread
+    private int launchFailures;
+
+    @Value("${app.sandbox.enabled:true}")
+    private volatile boolean enabled;
+
+    @Value("${app.sandbox.pool-size:2}")
+    private int poolSize;
+
+    @Value("${app.sandbox.max-runs-per-worker:100}")
+    private int maxRunsPerWorker;
+
+    @Value("${app.sandbox.heap-mb:64}")
+    private int heapMb;
+
+    @Value("${app.sandbox.cpu-time-ms:2000}")
+    private long cpuTimeMs;
+
+    @Value("${app.sandbox.wall-time-ms:5000}")
+    private long wallTimeMs;
+
+    @Value("${app.sandbox.output-limit-bytes:65536}")
+    private int outputLimitBytes;
+
+    @Value("${app.sandbox.acquire-timeout-ms:2000}")
+    private long acquireTimeoutMs;
+
+    @Value("${app.sandbox.java-command:}")
+    private String javaCommand;
+
+    @Value("${app.sandbox.max-threads:16}")
+    private int maxThreads;
+
+    @Value("${app.sandbox.os-isolation:true}")
+    private boolean osIsolation;
+
+    @Value("${app.sandbox.namespaces:true}")
+    private boolean namespaces;
+
+    @Value("${app.sandbox.user:}")
+    private String user;
+
+    @Value("${app.sandbox.group:}")
+    private String group;
+
+    @Value("${app.sandbox.max-open-files:128}")
+    private int maxOpenFiles;
+
+    @Value("${app.sandbox.max-processes:256}")
+    private int maxProcesses;
+
+    public SandboxPool(MeterRegistry meterRegistry) {
+        for (Status status : Status.values()) {
+            runTimers.put(status, Timer.builder("sandbox.runs")
+                    .description("Wall-clock time of snippet runs including the worker round trip")
+                    .tag("status", status.name())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(meterRegistry));
+        }
+        Gauge.builder("sandbox.workers.idle", idle, BlockingQueue::size).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            baseDir = Files.createTempDirectory("sandbox");
+            // The worker user only needs to read its class files
+            Files.setPosixFilePermissions(baseDir, PosixFilePermissions.fromString("rwxr-xr-x"));
+            warmupClasses = Map.of(SandboxWorker.WARMUP_CLASS, extractWorkerClasses(baseDir.resolve("classes")));
+        } catch (IOException e) {
+            log.error("Could not prepare sandbox workers, snippet execution is disabled", e);
+            enabled = false;
+            return;
+        }
+        String problem = probe();
+        if (problem != null) {
+            log.error("Snippet execution is disabled: {}", problem);
+            unavailableReason = problem;
+            enabled = false;
+            return;
+        }
+        for (int i = 0; i < poolSize; i++) {
+            spawner.execute(this::replenish);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs {@code main} of the given class in a pooled worker.
+     *
+     * @param classes compiled classes by binary name
+     */
+    public Result run(Map<String, byte[]> classes, String mainClass, String stdin) {
+        if (!enabled) {
+            String reason = unavailableReason;
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    reason == null ? "Snippet execution is disabled" : "Snippet execution is unavailable: " + reason);
+        }
+        // Waiting only helps when some worker exists to be returned
+        String failure = launchFailure;
+        if (failure != null && live.get() == 0) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "No sandbox worker can be started: " + failure);
+        }
+        Worker worker;
+        try {
+            worker = idle.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a sandbox worker");
+        }
+        if (worker == null) {
+            throw new TooManyRequestsException("All sandbox workers are busy, please retry shortly", 1);
+        }
+
+        Result result;
+        boolean retire;
+        long started = System.nanoTime();
+        Worker current = worker;
+        // The worker enforces the limits itself; this only catches a worker that stopped answering
+        ScheduledFuture<?> kill = watchdog.schedule(() -> current.process.destroyForcibly(),
+                wallTimeMs + 2000, TimeUnit.MILLISECONDS);
+        try {
+            send(worker, classes, mainClass, stdin.getBytes(StandardCharsets.UTF_8));
+            result = new Result(Status.values()[worker.in.readInt()], worker.in.readUTF(), readText(worker.in),
+                    readText(worker.in), worker.in.readLong(), worker.in.readLong());
+            retire = worker.in.readBoolean();
+        } catch (IOException e) {
+            boolean killed = kill.isDone();
+            log.warn("Sandbox worker {} failed{}", worker.process.pid(), killed ? " to answer in time" : "", e);
+            result = killed
+                    ? new Result(Status.TIMEOUT, "Run exceeded the time limit", "", "", 0, wallTimeMs * 1_000_000)
+                    : new Result(Status.ERROR, "Sandbox worker failed", "", "", 0, 0);
+            retire = true;
+        } finally {
+            kill.cancel(false);
+        }
+        runTimers.get(result.status()).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+
+        worker.runs++;
+        if (retire || worker.runs >= maxRunsPerWorker) {
+            discard(worker);
+        } else {
+            idle.add(worker);
+        }
+        return result;
+    }
+
+    private void send(Worker worker, Map<String, byte[]> classes, String mainClass, byte[] stdin)
+            throws IOException {
+        DataOutputStream out = worker.out;
+        out.writeInt(classes.size());
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            out.write(entry.getValue());
+        }
+        out.writeUTF(mainClass);
+        out.writeInt(stdin.length);
+        out.write(stdin);
+        out.writeLong(TimeUnit.MILLISECONDS.toNanos(cpuTimeMs));
+        out.writeLong(TimeUnit.MILLISECONDS.toNanos(wallTimeMs));
+        out.writeInt(outputLimitBytes);
+        out.writeInt(maxThreads);
+        out.flush();
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void discard(Worker worker) {
+        live.decrementAndGet();
+        worker.process.destroyForcibly();
+        if (!closed) {
+            spawner.execute(this::replenish);
+        }
+    }
+
+    // Starts and warms one worker; retried with a growing delay so a broken setup does not spin
+    private void replenish() {
+        if (closed) {
+            return;
+        }
+        try {
+            long startedAt = System.nanoTime();
+            Worker worker = new Worker(spawn());
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                send(worker, warmupClasses, SandboxWorker.WARMUP_CLASS, new byte[0]);
+                Status status = Status.values()[worker.in.readInt()];
+                String error = worker.in.readUTF();
+                readText(worker.in);
+                readText(worker.in);
+                worker.in.readLong();
+                worker.in.readLong();
+                if (worker.in.readBoolean() || status != Status.OK) {
+                    throw new IOException("Warm-up run failed with " + status + " " + error);
+                }
+            }
+            log.debug("Started sandbox worker {} in {} ms", worker.process.pid(),
+                    (System.nanoTime() - startedAt) / 1_000_000);
+            live.incrementAndGet();
+            idle.add(worker);
+            launchFailures = 0;
+            launchFailure = null;
+        } catch (IOException e) {
+            long delay = Math.min(5L << Math.min(launchFailures++, 6), MAX_RETRY_SECONDS);
+            launchFailure = String.valueOf(e.getMessage());
+            log.error("Could not start a sandbox worker through {}, retrying in {} s", launcher(), delay, e);
+            watchdog.schedule(() -> spawner.execute(this::replenish), delay, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Runs {@code java -version} through the launcher. Returns why workers cannot run, or
+     * null when they can.
+     */
+    String probe() {
+        List<String> command = launcher();
+        String launcher = command.isEmpty() ? javaCommand() : "the worker launcher " + String.join(" ", command);
+        command.addAll(List.of(javaCommand(), "-version"));
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            // The few lines of output fit in the pipe, so the process never blocks on them
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return launcher + " did not finish in 30 s";
+            }
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).strip();
+            if (process.exitValue() != 0) {
+                return launcher + " failed: " + lastLine(output)
+                        + (osIsolation ? "; check the app.sandbox OS isolation settings" : "");
+            }
+            Matcher version = JAVA_VERSION.matcher(output);
+            if (!version.find()) {
+                return "could not read the worker Java version from: " + lastLine(output);
+            }
+            int feature = Integer.parseInt(version.group(1).equals("1") && version.group(2) != null
+                    ? version.group(2) : version.group(1));
+            if (feature >= FIRST_RUNTIME_WITHOUT_SECURITY_MANAGER) {
+                return "the worker runtime is Java " + feature + ", which cannot enable the security manager the"
+                        + " sandbox relies on; run the workers on Java 17 to 23";
+            }
+            return null;
+        } catch (IOException e) {
+            return "could not launch " + String.join(" ", command) + ": " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted while probing the worker launcher";
+        }
+    }
+
+    private static String lastLine(String output) {
+        return output.isEmpty() ? "no output" : output.substring(output.lastIndexOf('\n') + 1);
+    }
+
+    private String javaCommand() {
+        return javaCommand == null || javaCommand.isBlank()
+                ? Path.of(System.getProperty("java.home"), "bin", "java").toString() : javaCommand;
+    }
+
+    private Process spawn() throws IOException {
+        Path workDir = Files.createDirectories(baseDir.resolve("work"));
+        List<String> command = launcher();
+        command.addAll(List.of(javaCommand(),
+                "-Xmx" + heapMb + "m",
+                "-Xss512k",
+                "-XX:MaxMetaspaceSize=64m",
+                "-XX:+UseSerialGC",
+                "-XX:TieredStopAtLevel=1",
+                "-XX:ActiveProcessorCount=1",
+                "-XX:-UsePerfData",
+                "-Xshare:auto",
+                "-Djava.security.manager=allow",
+                // Parallel streams and async tasks then run in threads of the run, where CPU is counted
+                "-Djava.util.concurrent.ForkJoinPool.common.parallelism=0",
+                "-Dfile.encoding=UTF-8",
+                "-Djava.io.tmpdir=" + workDir,
+                "-cp", baseDir.resolve("classes").toString(),
+                SandboxWorker.class.getName()));
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+        builder.environment().clear();
+        return builder.start();
+    }
+
+    /**
+     * Command prefix that applies the OS-level limits. The process limit counts every thread
+     * of the user, so it is only set for a dedicated user. Without one, the namespaces are
+     * created in a new user namespace, which needs no privileges.
+     */
+    List<String> launcher() {
+        if (!osIsolation) {
+            return new ArrayList<>();
+        }
+        List<String> prefix = new ArrayList<>(List.of("prlimit", "--nofile=" + maxOpenFiles, "--fsize=0",
+                "--core=0"));
+        boolean dedicatedUser = user != null && !user.isBlank();
+        if (dedicatedUser) {
+            prefix.add("--nproc=" + maxProcesses);
+        }
+        prefix.add("--");
+        if (namespaces) {
+            prefix.add("unshare");
+            if (!dedicatedUser) {
+                prefix.add("--user");
+            }
+            // The forked worker is killed with unshare, which is the process the pool holds
+            prefix.addAll(List.of("--net", "--ipc", "--uts", "--pid", "--fork", "--kill-child", "--"));
+        }
+        if (dedicatedUser) {
+            prefix.addAll(List.of("setpriv", "--reuid=" + user, "--regid=" + (group == null || group.isBlank()
+                    ? user : group), "--clear-groups", "--no-new-privs", "--"));
+        }
+        return prefix;
+    }
+
+    // Copies the worker's class files out of the application jar; returns the warm-up class bytes
+    private static byte[] extractWorkerClasses(Path classesDir) throws IOException {
+        String packagePath = SandboxWorker.class.getPackageName().replace('.', '/');
+        Path target = Files.createDirectories(classesDir.resolve(packagePath));
+        byte[] warmup = null;
+        for (String name : SandboxWorker.CLASS_FILES) {
+            try (InputStream in = SandboxWorker.class.getClassLoader()
+                    .getResourceAsStream(packagePath + "/" + name + ".class")) {
+                if (in == null) {
+                    throw new IOException("Missing worker class " + name);
+                }
+                byte[] bytes = in.readAllBytes();
+                Files.write(target.resolve(name + ".class"), bytes);
+                if (SandboxWorker.WARMUP_CLASS.endsWith(name)) {
+                    warmup = bytes;
+                }
+            }
+        }
+        return warmup;
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        spawner.shutdownNow();
+        watchdog.shutdownNow();
+        idle.forEach(worker -> worker.process.destroyForcibly());
+        idle.clear();
+        if (baseDir != null) {
+            try (Stream<Path> paths = Files.walk(baseDir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            } catch (IOException e) {
+                log.debug("Could not delete {}", baseDir, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.enterprise.codeplatform.sandbox;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.security.Permission;
+import java.security.Permissions;
+import java.security.Policy;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PropertyPermission;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Entry point of a sandbox worker JVM. Reads run requests as length-prefixed frames from
+ * stdin and answers each with one frame on stdout, so the parent can keep the JVM warm
+ * across runs. Every run gets a fresh class loader, captured and capped System.out and
+ * System.err, and its own thread group. CPU time is measured per thread; when a run breaks a
+ * limit or leaves threads behind, the worker answers and then halts, and the parent starts
+ * a replacement.
+ * <p>
+ * Snippet classes are defined in a protection domain holding only a few property reads, and
+ * the security manager checks every frame on the stack, so snippet code has no other
+ * permission in any thread, during or after its run: no files, sockets, processes,
+ * System.exit, reflective access to private members, or threads outside its own group. The
+ * worker and the JDK are granted everything by the policy. The parent adds the OS-level
+ * limits, see {@link SandboxPool}.
+ * <p>
+ * This class runs outside Spring from a directory holding only its own class files, so it
+ * must depend on nothing but the JDK and must not gain anonymous classes.
+ */
+@SuppressWarnings("removal")
+public final class SandboxWorker {
+
+    static final int STATUS_OK = 0;
+    static final int STATUS_EXCEPTION = 1;
+    static final int STATUS_TIMEOUT = 2;
+    static final int STATUS_OUTPUT_LIMIT = 3;
+    static final int STATUS_MEMORY_LIMIT = 4;
+    static final int STATUS_ERROR = 5;
+
+    static final String WARMUP_CLASS = SandboxWorker.class.getName() + "$Warmup";
+
+    static final String[] CLASS_FILES = { "SandboxWorker", "SandboxWorker$SnippetClassLoader",
+            "SandboxWorker$WorkerPolicy", "SandboxWorker$Guard", "SandboxWorker$CappedStream",
+            "SandboxWorker$Warmup" };
+
+    private static final long POLL_NANOS = 2_000_000;
+
+    private static final String[] READABLE_PROPERTIES = { "java.version", "java.vendor",
+            "java.specification.version", "java.vm.name", "os.name", "os.arch", "file.separator",
+            "path.separator", "line.separator" };
+
+    static final class SnippetClassLoader extends ClassLoader {
+        // Without a location, so the policy can tell snippet classes apart
+        static final CodeSource CODE_SOURCE = new CodeSource(null, (Certificate[]) null);
+
+        private final Map<String, byte[]> classes;
+        private final ProtectionDomain domain;
+
+        SnippetClassLoader(Map<String, byte[]> classes) {
+            super("snippet", ClassLoader.getPlatformClassLoader());
+            this.classes = classes;
+            Permissions permissions = new Permissions();
+            for (String property : READABLE_PROPERTIES) {
+                permissions.add(new PropertyPermission(property, "read"));
+            }
+            // Executors need it to shut down; the guard limits it to threads of the run
+            permissions.add(new RuntimePermission("modifyThread"));
+            // Static permissions: the JDK checks these without consulting the policy
+            this.domain = new ProtectionDomain(CODE_SOURCE, permissions);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length, domain);
+        }
+    }
+
+    /**
+     * Grants every permission to the worker and the JDK, and nothing to snippet classes.
+     */
+    static final class WorkerPolicy extends Policy {
+        @Override
+        public boolean implies(ProtectionDomain domain, Permission permission) {
+            return domain.getCodeSource() != SnippetClassLoader.CODE_SOURCE;
+        }
+    }
+
+    /**
+     * Keeps snippet threads inside the thread group of their run and counts the threads a
+     * run creates. Touching any other thread or group takes modifyThreadGroup, which snippet
+     * code never holds. Everything else is the standard stack-based check against the policy.
+     */
+    static final class Guard extends SecurityManager {
+        private static final RuntimePermission MODIFY_THREAD_GROUP = new RuntimePermission("modifyThreadGroup");
+
+        private final AtomicInteger created = new AtomicInteger();
+        private volatile ThreadGroup run;
+        private volatile int maxThreads;
+
+        void open(ThreadGroup group, int maxThreads) {
+            created.set(0);
+            this.maxThreads = maxThreads;
+            this.run = group;
+        }
+
+        void close() {
+            run = null;
+        }
+
+        @Override
+        public void checkAccess(Thread thread) {
+            // A terminated thread has no group and nothing left to modify
+            ThreadGroup group = thread.getThreadGroup();
+            if (group != null && !inRun(group)) {
+                checkPermission(MODIFY_THREAD_GROUP);
+            }
+        }
+
+        @Override
+        public void checkAccess(ThreadGroup group) {
+            if (!inRun(group)) {
+                checkPermission(MODIFY_THREAD_GROUP);
+                return;
+            }
+            // Every Thread constructor checks access to its group, so this sees each new thread
+            Class<?>[] callers = getClassContext();
+            if (callers.length > 2 && callers[1] == ThreadGroup.class && callers[2] == Thread.class
+                    && created.incrementAndGet() > maxThreads) {
+                throw new SecurityException("A run may not create more than " + maxThreads + " threads");
+            }
+        }
+
+        private boolean inRun(ThreadGroup group) {
+            ThreadGroup current = run;
+            return current != null && current.parentOf(group);
+        }
+    }
+
+    /**
+     * Sent by the pool through the normal run path right after a worker starts, so class
+     * loading, reflection and output capture are warm before the first real run.
+     */
+    public static final class Warmup {
+        public static void main(String[] args) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 100; i++) {
+                text.append(Integer.toHexString(i * 31)).append(' ');
+            }
+            System.out.println(text.length());
+        }
+    }
+
+    static final class CappedStream extends OutputStream {
+        private final byte[] buffer;
+        private int size;
+        private volatile boolean overflowed;
+
+        CappedStream(int limit) {
+            this.buffer = new byte[limit];
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (size == buffer.length) {
+                overflowed = true;
+                return;
+            }
+            buffer[size++] = (byte) b;
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            int accepted = Math.min(len, buffer.length - size);
+            System.arraycopy(b, off, buffer, size, accepted);
+            size += accepted;
+            if (accepted < len) {
+                overflowed = true;
+            }
+        }
+
+        synchronized String text() {
+            return new String(buffer, 0, size, StandardCharsets.UTF_8);
+        }
+    }
+
+    private SandboxWorker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        // The protocol owns the real stdin/stdout; snippets only ever see the captured streams
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        // Threads a run leaves behind must not reach the real stdout once the streams are swapped back
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        InputStream noInput = InputStream.nullInputStream();
+        System.setOut(discard);
+        System.setErr(discard);
+        System.setIn(noInput);
+
+        Guard guard = new Guard();
+        Policy.setPolicy(new WorkerPolicy());
+        System.setSecurityManager(guard);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        while (true) {
+            Map<String, byte[]> classes = new HashMap<>();
+            String mainClass;
+            byte[] input;
+            long cpuLimitNanos;
+            long wallLimitNanos;
+            int outputLimit;
+            int maxThreads;
+            try {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String name = in.readUTF();
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    classes.put(name, bytes);
+                }
+                mainClass = in.readUTF();
+                input = new byte[in.readInt()];
+                in.readFully(input);
+                cpuLimitNanos = in.readLong();
+                wallLimitNanos = in.readLong();
+                outputLimit = in.readInt();
+                maxThreads = in.readInt();
+            } catch (EOFException e) {
+                return;
+            }
+
+            CappedStream capturedOut = new CappedStream(outputLimit);
+            CappedStream capturedErr = new CappedStream(outputLimit);
+            Throwable[] failure = new Throwable[1];
+            ThreadGroup group = new ThreadGroup("snippet");
+            guard.open(group, maxThreads);
+            Thread runner = new Thread(group, () -> {
+                try {
+                    Method main = Class.forName(mainClass, true, new SnippetClassLoader(classes))
+                            .getMethod("main", String[].class);
+                    if (!Modifier.isStatic(main.getModifiers())) {
+                        throw new NoSuchMethodException("main must be static");
+                    }
+                    // The class declaring main need not be public in a single-file snippet
+                    main.setAccessible(true);
+                    main.invoke(null, (Object) new String[0]);
+                } catch (InvocationTargetException e) {
+                    failure[0] = e.getCause();
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            }, "main");
+
+            System.setIn(new ByteArrayInputStream(input));
+            System.setOut(new PrintStream(capturedOut, true, StandardCharsets.UTF_8));
+            System.setErr(new PrintStream(capturedErr, true, StandardCharsets.UTF_8));
+            long started = System.nanoTime();
+            runner.start();
+
+            int status = STATUS_OK;
+            long cpuNanos = 0;
+            Map<Long, Long> cpuByThread = new HashMap<>();
+            while (true) {
+                boolean alive = false;
+                Thread[] live = new Thread[group.activeCount() + 4];
+                int n = group.enumerate(live, true);
+                for (int i = 0; i < n; i++) {
+                    long cpu = threads.getThreadCpuTime(live[i].getId());
+                    if (cpu >= 0) {
+                        cpuByThread.put(live[i].getId(), cpu);
+                    }
+                    alive |= live[i].isAlive() && !live[i].isDaemon();
+                }
+                cpuNanos = cpuByThread.values().stream().mapToLong(Long::longValue).sum();
+                if (!alive && !runner.isAlive()) {
+                    break;
+                }
+                if (cpuNanos > cpuLimitNanos || System.nanoTime() - started > wallLimitNanos) {
+                    status = STATUS_TIMEOUT;
+                    break;
+                }
+                if (capturedOut.overflowed || capturedErr.overflowed) {
+                    status = STATUS_OUTPUT_LIMIT;
+                    break;
+                }
+                try {
+                    runner.join(POLL_NANOS / 1_000_000, (int) (POLL_NANOS % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            long wallNanos = System.nanoTime() - started;
+            guard.close();
+            System.setIn(noInput);
+            System.setOut(discard);
+            System.setErr(discard);
+
+            String error = "";
+            if (status == STATUS_OK && failure[0] != null) {
+                status = failure[0] instanceof OutOfMemoryError ? STATUS_MEMORY_LIMIT : STATUS_EXCEPTION;
+                error = describe(failure[0]);
+            }
+            if (status == STATUS_OK && (capturedOut.overflowed || capturedErr.overflowed)) {
+                status = STATUS_OUTPUT_LIMIT;
+            }
+            // Leftover threads or a broken limit leave state behind that the next run must not see
+            boolean retire = status == STATUS_TIMEOUT || status == STATUS_OUTPUT_LIMIT
+                    || status == STATUS_MEMORY_LIMIT || group.activeCount() > 0;
+
+            out.writeInt(status);
+            out.writeUTF(error);
+            writeText(out, capturedOut.text());
+            writeText(out, capturedErr.text());
+            out.writeLong(cpuNanos);
+            out.writeLong(wallNanos);
+            out.writeBoolean(retire);
+            out.flush();
+            if (retire) {
+                Runtime.getRuntime().halt(0);
+            }
+        }
+    }
+
+    private static String describe(Throwable failure) {
+        StringBuilder text = new StringBuilder(failure.toString());
+        for (StackTraceElement element : failure.getStackTrace()) {
+            // Frames below the snippet belong to the worker
+            if (element.getClassName().startsWith("java.lang.reflect.")
+                    || element.getClassName().startsWith("jdk.internal.reflect.")) {
+                break;
+            }
+            text.append("\n\tat ").append(element);
+        }
+        String result = text.toString();
+        return result.length() > 8192 ? result.substring(0, 8192) : result;
+    }
+
+    // writeUTF is limited to 64 KB, so output is sent as a length-prefixed byte array
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
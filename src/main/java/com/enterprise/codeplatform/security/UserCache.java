@@ -0,0 +1,50 @@
+package com.enterprise.codeplatform.security;
+
+import com.enterprise.codeplatform.cache.BoundedCache;
+import com.enterprise.codeplatform.cache.CacheRegistry;
+import com.enterprise.codeplatform.entity.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Snapshots of users by login identifier (email or username), so authenticating a request
+ * does not hit the users table. Entries expire after a TTL and are evicted when the user row
+ * changes through JPA; bulk updates that bypass the entity must call {@link #evict(User)}.
+ */
+@Component
+public class UserCache {
+
+    private final BoundedCache<String, AuthenticatedUser> users;
+
+    @Autowired
+    public UserCache(CacheRegistry cacheRegistry,
+            @Value("${app.security.user-cache.max-entries:10000}") long maxEntries,
+            @Value("${app.security.user-cache.ttl-minutes:5}") long ttlMinutes) {
+        this(cacheRegistry, maxEntries, Duration.ofMinutes(ttlMinutes));
+    }
+
+    UserCache(CacheRegistry cacheRegistry, long maxEntries, Duration ttl) {
+        this.users = cacheRegistry.create("users", maxEntries, ttl, (key, user) -> 1);
+    }
+
+    /**
+     * The cached snapshot of the user, loading the row on a miss. Returns null when the
+     * loader finds no user; that is not cached.
+     */
+    public AuthenticatedUser get(String identifier, Function<String, User> loader) {
+        return users.get(identifier, key -> {
+            User user = loader.apply(key);
+            return user == null ? null : AuthenticatedUser.of(user);
+        });
+    }
+
+    // By id, since the identifiers the entry was cached under may have changed
+    public void evict(User user) {
+        users.invalidateValues(cached -> Objects.equals(cached.id(), user.getId()));
+    }
+}
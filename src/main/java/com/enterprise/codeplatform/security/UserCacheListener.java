@@ -0,0 +1,35 @@
+package com.enterprise.codeplatform.security;
+
+import com.enterprise.codeplatform.entity.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Evicts a user from the {@link UserCache} when a role, password or other change is
+ * flushed. The entry is evicted again after the transaction completes, so a request that
+ * reloaded the old row before the commit cannot leave it cached.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserCacheListener {
+
+    private final UserCache userCache;
+
+    @PostUpdate
+    @PostRemove
+    public void evict(User user) {
+        userCache.evict(user);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    userCache.evict(user);
+                }
+            });
+        }
+    }
+}
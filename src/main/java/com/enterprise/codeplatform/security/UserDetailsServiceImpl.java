@@ -12,11 +12,16 @@ import org.springframework.stereotype.Service;
 public class UserDetailsServiceImpl implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final UserCache userCache;
 
     @Override
     public UserDetails loadUserByUsername(String identifier) throws UsernameNotFoundException {
-        return userRepository.findByEmail(identifier)
-                .or(() -> userRepository.findByUsername(identifier))
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with identifier: " + identifier));
+        AuthenticatedUser user = userCache.get(identifier, key -> userRepository.findByEmail(key)
+                .or(() -> userRepository.findByUsername(key))
+                .orElse(null));
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found with identifier: " + identifier);
+        }
+        return user;
     }
 }
@@ -0,0 +1,355 @@
+package com.enterprise.codeplatform.service;
+
+import com.sun.source.tree.*;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreeScanner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Walks a javac syntax tree once and collects cyclomatic complexity, nesting depth,
+ * method length and Halstead operator/operand counts, for the whole unit and per method.
+ * Decision points are if, loops, non-default case labels, catch, ?: and && / ||.
+ */
+class AstMetricsScanner extends TreeScanner<Void, Void> {
+
+    private static final class Counter {
+        final Set<String> operators = new HashSet<>();
+        final Set<String> operands = new HashSet<>();
+        int totalOperators;
+        int totalOperands;
+        int decisionPoints;
+        int maxDepth;
+    }
+
+    private final CompilationUnitTree unit;
+    private final SourcePositions positions;
+
+    private final Counter file = new Counter();
+    private final Deque<Counter> methodCounters = new ArrayDeque<>();
+    private final List<SourceMetrics.MethodInfo> methods = new ArrayList<>();
+    private final Deque<String> classNames = new ArrayDeque<>();
+    private int depth;
+
+    private AstMetricsScanner(CompilationUnitTree unit, SourcePositions positions) {
+        this.unit = unit;
+        this.positions = positions;
+    }
+
+    static SourceMetrics measure(CompilationUnitTree unit, SourcePositions positions) {
+        AstMetricsScanner scanner = new AstMetricsScanner(unit, positions);
+        scanner.scan(unit, null);
+        Counter file = scanner.file;
+        return SourceMetrics.builder()
+                .methodCount(scanner.methods.size())
+                .decisionPoints(file.decisionPoints)
+                .maxNestingDepth(file.maxDepth)
+                .maxMethodLength(scanner.methods.stream().mapToInt(SourceMetrics.MethodInfo::getLength).max().orElse(0))
+                .distinctOperators(file.operators.size())
+                .distinctOperands(file.operands.size())
+                .totalOperators(file.totalOperators)
+                .totalOperands(file.totalOperands)
+                .methods(List.copyOf(scanner.methods))
+                .build();
+    }
+
+    @Override
+    public Void visitClass(ClassTree node, Void p) {
+        classNames.push(node.getSimpleName().toString());
+        try {
+            return super.visitClass(node, p);
+        } finally {
+            classNames.pop();
+        }
+    }
+
+    @Override
+    public Void visitMethod(MethodTree node, Void p) {
+        long start = positions.getStartPosition(unit, node);
+        long end = positions.getEndPosition(unit, node);
+        // Default constructors added by javac have no end position in the source
+        if (end < 0) {
+            return null;
+        }
+
+        Counter counter = new Counter();
+        methodCounters.push(counter);
+        int outerDepth = depth;
+        depth = 0;
+        try {
+            super.visitMethod(node, p);
+        } finally {
+            depth = outerDepth;
+            methodCounters.pop();
+        }
+
+        int startLine = (int) unit.getLineMap().getLineNumber(start);
+        int endLine = (int) unit.getLineMap().getLineNumber(end);
+        String owner = classNames.isEmpty() ? "" : classNames.peek() + ".";
+
+        methods.add(SourceMetrics.MethodInfo.builder()
+                .name(owner + node.getName())
+                .startLine(startLine)
+                .length(endLine - startLine + 1)
+                .cyclomaticComplexity(1 + counter.decisionPoints)
+                .maxNestingDepth(counter.maxDepth)
+                .halsteadVolume(SourceMetrics.volume(counter.operators.size(), counter.operands.size(),
+                        counter.totalOperators, counter.totalOperands))
+                .build());
+        return null;
+    }
+
+    // Control structures: one decision point (unless noted) and one nesting level
+
+    @Override
+    public Void visitIf(IfTree node, Void p) {
+        decision();
+        operator("if");
+        return nested(() -> super.visitIf(node, p));
+    }
+
+    @Override
+    public Void visitForLoop(ForLoopTree node, Void p) {
+        decision();
+        operator("for");
+        return nested(() -> super.visitForLoop(node, p));
+    }
+
+    @Override
+    public Void visitEnhancedForLoop(EnhancedForLoopTree node, Void p) {
+        decision();
+        operator("for");
+        return nested(() -> super.visitEnhancedForLoop(node, p));
+    }
+
+    @Override
+    public Void visitWhileLoop(WhileLoopTree node, Void p) {
+        decision();
+        operator("while");
+        return nested(() -> super.visitWhileLoop(node, p));
+    }
+
+    @Override
+    public Void visitDoWhileLoop(DoWhileLoopTree node, Void p) {
+        decision();
+        operator("do");
+        return nested(() -> super.visitDoWhileLoop(node, p));
+    }
+
+    @Override
+    public Void visitSwitch(SwitchTree node, Void p) {
+        operator("switch");
+        return nested(() -> super.visitSwitch(node, p));
+    }
+
+    @Override
+    public Void visitSwitchExpression(SwitchExpressionTree node, Void p) {
+        operator("switch");
+        return nested(() -> super.visitSwitchExpression(node, p));
+    }
+
+    @Override
+    public Void visitCase(CaseTree node, Void p) {
+        // Each label of a non-default case is a separate branch
+        for (int i = 0; i < node.getExpressions().size(); i++) {
+            decision();
+        }
+        operator("case");
+        return super.visitCase(node, p);
+    }
+
+    @Override
+    public Void visitTry(TryTree node, Void p) {
+        operator("try");
+        return nested(() -> super.visitTry(node, p));
+    }
+
+    @Override
+    public Void visitCatch(CatchTree node, Void p) {
+        decision();
+        operator("catch");
+        return nested(() -> super.visitCatch(node, p));
+    }
+
+    @Override
+    public Void visitSynchronized(SynchronizedTree node, Void p) {
+        operator("synchronized");
+        return nested(() -> super.visitSynchronized(node, p));
+    }
+
+    @Override
+    public Void visitLambdaExpression(LambdaExpressionTree node, Void p) {
+        operator("->");
+        return nested(() -> super.visitLambdaExpression(node, p));
+    }
+
+    @Override
+    public Void visitConditionalExpression(ConditionalExpressionTree node, Void p) {
+        decision();
+        operator("?:");
+        return super.visitConditionalExpression(node, p);
+    }
+
+    // Operators
+
+    @Override
+    public Void visitBinary(BinaryTree node, Void p) {
+        if (node.getKind() == Tree.Kind.CONDITIONAL_AND || node.getKind() == Tree.Kind.CONDITIONAL_OR) {
+            decision();
+        }
+        operator(node.getKind().name());
+        return super.visitBinary(node, p);
+    }
+
+    @Override
+    public Void visitUnary(UnaryTree node, Void p) {
+        operator(node.getKind().name());
+        return super.visitUnary(node, p);
+    }
+
+    @Override
+    public Void visitAssignment(AssignmentTree node, Void p) {
+        operator("=");
+        return super.visitAssignment(node, p);
+    }
+
+    @Override
+    public Void visitCompoundAssignment(CompoundAssignmentTree node, Void p) {
+        operator(node.getKind().name());
+        return super.visitCompoundAssignment(node, p);
+    }
+
+    @Override
+    public Void visitInstanceOf(InstanceOfTree node, Void p) {
+        operator("instanceof");
+        return super.visitInstanceOf(node, p);
+    }
+
+    @Override
+    public Void visitTypeCast(TypeCastTree node, Void p) {
+        operator("cast");
+        return super.visitTypeCast(node, p);
+    }
+
+    @Override
+    public Void visitMethodInvocation(MethodInvocationTree node, Void p) {
+        operator("()");
+        return super.visitMethodInvocation(node, p);
+    }
+
+    @Override
+    public Void visitNewClass(NewClassTree node, Void p) {
+        operator("new");
+        return super.visitNewClass(node, p);
+    }
+
+    @Override
+    public Void visitNewArray(NewArrayTree node, Void p) {
+        operator("new[]");
+        return super.visitNewArray(node, p);
+    }
+
+    @Override
+    public Void visitArrayAccess(ArrayAccessTree node, Void p) {
+        operator("[]");
+        return super.visitArrayAccess(node, p);
+    }
+
+    @Override
+    public Void visitReturn(ReturnTree node, Void p) {
+        operator("return");
+        return super.visitReturn(node, p);
+    }
+
+    @Override
+    public Void visitThrow(ThrowTree node, Void p) {
+        operator("throw");
+        return super.visitThrow(node, p);
+    }
+
+    @Override
+    public Void visitBreak(BreakTree node, Void p) {
+        operator("break");
+        return super.visitBreak(node, p);
+    }
+
+    @Override
+    public Void visitContinue(ContinueTree node, Void p) {
+        operator("continue");
+        return super.visitContinue(node, p);
+    }
+
+    // Operands
+
+    @Override
+    public Void visitMemberSelect(MemberSelectTree node, Void p) {
+        operator(".");
+        operand(node.getIdentifier().toString());
+        return super.visitMemberSelect(node, p);
+    }
+
+    @Override
+    public Void visitIdentifier(IdentifierTree node, Void p) {
+        operand(node.getName().toString());
+        return super.visitIdentifier(node, p);
+    }
+
+    @Override
+    public Void visitLiteral(LiteralTree node, Void p) {
+        operand(String.valueOf(node.getValue()));
+        return super.visitLiteral(node, p);
+    }
+
+    @Override
+    public Void visitVariable(VariableTree node, Void p) {
+        operand(node.getName().toString());
+        return super.visitVariable(node, p);
+    }
+
+    private Void nested(java.util.function.Supplier<Void> body) {
+        depth++;
+        file.maxDepth = Math.max(file.maxDepth, depth);
+        Counter method = methodCounters.peek();
+        if (method != null) {
+            method.maxDepth = Math.max(method.maxDepth, depth);
+        }
+        try {
+            return body.get();
+        } finally {
+            depth--;
+        }
+    }
+
+    private void decision() {
+        file.decisionPoints++;
+        Counter method = methodCounters.peek();
+        if (method != null) {
+            method.decisionPoints++;
+        }
+    }
+
+    private void operator(String operator) {
+        file.operators.add(operator);
+        file.totalOperators++;
+        Counter method = methodCounters.peek();
+        if (method != null) {
+            method.operators.add(operator);
+            method.totalOperators++;
+        }
+    }
+
+    private void operand(String operand) {
+        file.operands.add(operand);
+        file.totalOperands++;
+        Counter method = methodCounters.peek();
+        if (method != null) {
+            method.operands.add(operand);
+            method.totalOperands++;
+        }
+    }
+}
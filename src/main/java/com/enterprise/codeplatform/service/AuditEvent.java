@@ -0,0 +1,23 @@
+package com.enterprise.codeplatform.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An audit entry waiting to be written to audit_logs. The sequence number is only assigned
+ * when the entry is also appended to the write-ahead log.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+class AuditEvent {
+    private long seq;
+    private String action;
+    private String entityName;
+    private Long entityId;
+    private String performBy;
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,293 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.AuditStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes audit_logs rows. In SYNC mode each entry is inserted in the caller's transaction.
+ * In ASYNC mode entries are queued once the transaction commits and a writer thread
+ * inserts them in JDBC batches when the batch fills up or the flush interval passes; if
+ * the queue is full the entry is inserted directly. WAL mode additionally appends each
+ * entry to a local write-ahead log before queueing it and blocks instead of overflowing,
+ * so entries survive a crash and are replayed on the next start.
+ */
+@Slf4j
+@Service
+public class AuditService {
+
+    public enum Mode {
+        SYNC, ASYNC, WAL
+    }
+
+    private static final String INSERT_SQL =
+            "INSERT INTO audit_logs (action, entity_name, entity_id, perform_by, timestamp) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Mode mode;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final int maxRetries;
+    private final Path walPath;
+    private final BlockingQueue<AuditEvent> queue;
+    private final int queueCapacity;
+    private final AuditWriteAheadLog wal;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder overflowWrites = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final LongAccumulator maxFlushNanos = new LongAccumulator(Math::max, 0);
+    private final Timer flushTimer;
+
+    public AuditService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${app.audit.mode:ASYNC}") Mode mode,
+            @Value("${app.audit.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.audit.batch-size:200}") int batchSize,
+            @Value("${app.audit.flush-interval-ms:200}") long flushIntervalMs,
+            @Value("${app.audit.max-retries:3}") int maxRetries,
+            @Value("${app.audit.wal-dir:./data/audit-wal}") String walDir,
+            @Value("${app.audit.wal-segment-bytes:4194304}") long walSegmentBytes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.mode = mode;
+        this.queueCapacity = queueCapacity;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+        this.maxRetries = Math.max(1, maxRetries);
+        this.walPath = Path.of(walDir);
+        this.wal = mode == Mode.WAL ? new AuditWriteAheadLog(walPath, walSegmentBytes, objectMapper) : null;
+
+        this.flushTimer = Timer.builder("audit.flush")
+                .description("Time to insert one batch of audit entries")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+        counter(meterRegistry, "audit.entries.recorded", recorded);
+        counter(meterRegistry, "audit.entries.written", written);
+        counter(meterRegistry, "audit.entries.overflow", overflowWrites);
+        counter(meterRegistry, "audit.batches.failed", failedBatches);
+        Gauge.builder("audit.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        if (wal != null) {
+            Gauge.builder("audit.wal.size", wal, AuditWriteAheadLog::sizeBytes).baseUnit("bytes")
+                    .register(meterRegistry);
+        }
+
+        this.writer = new Thread(this::runWriter, "audit-writer");
+        this.writer.setDaemon(true);
+        if (mode != Mode.SYNC) {
+            writer.start();
+        }
+    }
+
+    private static void counter(MeterRegistry meterRegistry, String name, LongAdder adder) {
+        FunctionCounter.builder(name, adder, LongAdder::sum).register(meterRegistry);
+    }
+
+    public void record(String action, String entityName, Long entityId, String performBy) {
+        AuditEvent event = new AuditEvent(0, action, entityName, entityId, performBy, LocalDateTime.now());
+        recorded.increment();
+
+        if (mode == Mode.SYNC) {
+            insert(List.of(event));
+            written.increment();
+            return;
+        }
+        // Entries of rolled back transactions are never queued
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(event);
+                }
+            });
+        } else {
+            enqueue(event);
+        }
+    }
+
+    private void enqueue(AuditEvent event) {
+        if (mode == Mode.WAL) {
+            // Queue order must match sequence order for checkpoints to be valid
+            appendLock.lock();
+            try {
+                wal.append(event);
+                queue.put(event);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                appendLock.unlock();
+            }
+            return;
+        }
+        if (!queue.offer(event)) {
+            overflowWrites.increment();
+            try {
+                insert(List.of(event));
+                written.increment();
+            } catch (RuntimeException e) {
+                log.error("Dropping audit entry {} {} {}", event.getAction(), event.getEntityName(),
+                        event.getEntityId(), e);
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditEvent first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    AuditEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                // Shutdown drains the queue before exiting
+                running = false;
+            }
+        }
+    }
+
+    private void flush(List<AuditEvent> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                insert(batch);
+                long elapsed = System.nanoTime() - start;
+                flushes.increment();
+                flushNanos.add(elapsed);
+                maxFlushNanos.accumulate(elapsed);
+                flushTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                written.add(batch.size());
+                if (mode == Mode.WAL) {
+                    wal.checkpoint(batch.get(batch.size() - 1).getSeq());
+                }
+                return;
+            } catch (RuntimeException e) {
+                // The write-ahead log keeps entries until they are written, so WAL mode never drops them
+                if (mode != Mode.WAL && attempt >= maxRetries) {
+                    failedBatches.increment();
+                    log.error("Dropping {} audit entries after {} attempts", batch.size(), attempt, e);
+                    return;
+                }
+                log.warn("Audit flush failed, retrying", e);
+                Thread.sleep(Math.min(30_000, 500L << Math.min(attempt, 6)));
+            }
+        }
+    }
+
+    private void insert(List<AuditEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.getAction());
+            ps.setString(2, event.getEntityName());
+            if (event.getEntityId() == null) {
+                ps.setNull(3, java.sql.Types.BIGINT);
+            } else {
+                ps.setLong(3, event.getEntityId());
+            }
+            ps.setString(4, event.getPerformBy());
+            ps.setTimestamp(5, Timestamp.valueOf(event.getTimestamp()));
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayWriteAheadLog() {
+        List<Path> segments;
+        try {
+            // Leftover segments are replayed even after switching away from WAL mode
+            segments = wal != null ? wal.leftoverSegments()
+                    : Files.isDirectory(walPath) ? AuditWriteAheadLog.segments(walPath) : List.of();
+        } catch (IOException e) {
+            log.error("Cannot list audit write-ahead log segments in {}", walPath, e);
+            return;
+        }
+        for (Path segment : segments) {
+            try {
+                List<AuditEvent> events = AuditWriteAheadLog.read(segment, objectMapper);
+                for (int from = 0; from < events.size(); from += batchSize) {
+                    insert(events.subList(from, Math.min(from + batchSize, events.size())));
+                }
+                Files.delete(segment);
+                log.info("Replayed {} audit entries from {}", events.size(), segment.getFileName());
+            } catch (IOException | RuntimeException e) {
+                log.error("Cannot replay audit write-ahead log segment {}", segment, e);
+            }
+        }
+    }
+
+    public AuditStats stats() {
+        long flushCount = flushes.sum();
+        return AuditStats.builder()
+                .mode(mode.name())
+                .queueDepth(queue.size())
+                .queueCapacity(queueCapacity)
+                .recorded(recorded.sum())
+                .written(written.sum())
+                .overflowWrites(overflowWrites.sum())
+                .failedBatches(failedBatches.sum())
+                .flushes(flushCount)
+                .averageFlushMillis(flushCount == 0 ? 0 : flushNanos.sum() / 1e6 / flushCount)
+                .maxFlushMillis(maxFlushNanos.get() / 1e6)
+                .walBytes(wal == null ? 0 : wal.sizeBytes())
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (wal != null) {
+            wal.close();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.enterprise.codeplatform.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Append-only segment files holding audit entries until they are in the database. Each
+ * entry is one JSON line forced to disk before the append returns. Segments are rotated
+ * by size and deleted once every entry in them has been flushed; the open segment is
+ * truncated when the writer catches up. Segments left by a previous run are replayed on
+ * startup, so an entry may be written twice if the process died between the database
+ * commit and the checkpoint.
+ */
+class AuditWriteAheadLog implements Closeable {
+
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".wal";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final ObjectMapper objectMapper;
+    private final List<Path> leftover;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Last sequence number of every closed segment that still holds unflushed entries
+    private final TreeMap<Long, Path> closedSegments = new TreeMap<>();
+    private FileChannel current;
+    private Path currentPath;
+    private long currentIndex;
+    private long currentLastSeq;
+    private long nextSeq = 1;
+
+    AuditWriteAheadLog(Path directory, long segmentBytes, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.objectMapper = objectMapper;
+        try {
+            Files.createDirectories(directory);
+            this.leftover = segments(directory);
+            this.currentIndex = leftover.isEmpty() ? 0 : index(leftover.get(leftover.size() - 1));
+            openNextSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open audit write-ahead log in " + directory, e);
+        }
+    }
+
+    /**
+     * Segments written by a previous run, oldest first. The caller deletes them after replay.
+     */
+    List<Path> leftoverSegments() {
+        return leftover;
+    }
+
+    /**
+     * Segment files in the directory, oldest first. Used to replay a log without opening it.
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(PREFIX)
+                    && p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted((a, b) -> Long.compare(index(a), index(b)))
+                    .toList();
+        }
+    }
+
+    static List<AuditEvent> read(Path segment, ObjectMapper objectMapper) throws IOException {
+        List<AuditEvent> events = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // A torn last line from a crash mid-append was never acknowledged
+                if (!line.isBlank() && line.endsWith("}")) {
+                    events.add(objectMapper.readValue(line, AuditEvent.class));
+                }
+            }
+        }
+        return events;
+    }
+
+    long append(AuditEvent event) {
+        lock.lock();
+        try {
+            event.setSeq(nextSeq++);
+            byte[] line = (objectMapper.writeValueAsString(event) + "\n").getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                current.write(buffer);
+            }
+            current.force(false);
+            currentLastSeq = event.getSeq();
+            if (current.size() >= segmentBytes) {
+                closedSegments.put(currentLastSeq, currentPath);
+                current.close();
+                openNextSegment();
+            }
+            return event.getSeq();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to audit write-ahead log", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops everything up to and including the given sequence number.
+     */
+    void checkpoint(long flushedSeq) {
+        lock.lock();
+        try {
+            Iterator<Map.Entry<Long, Path>> closed = closedSegments.headMap(flushedSeq, true).entrySet().iterator();
+            while (closed.hasNext()) {
+                Files.deleteIfExists(closed.next().getValue());
+                closed.remove();
+            }
+            if (currentLastSeq <= flushedSeq && current.size() > 0) {
+                current.truncate(0);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot checkpoint audit write-ahead log", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long sizeBytes() {
+        lock.lock();
+        try {
+            long size = current.size();
+            for (Path segment : closedSegments.values()) {
+                size += Files.size(segment);
+            }
+            return size;
+        } catch (IOException e) {
+            return -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        currentIndex++;
+        currentPath = directory.resolve(PREFIX + currentIndex + SUFFIX);
+        current = FileChannel.open(currentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private static long index(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            current.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.enterprise.codeplatform.dto.AuthResponse;
 import com.enterprise.codeplatform.dto.RegistrationRequest;
 import com.enterprise.codeplatform.entity.User;
 import com.enterprise.codeplatform.repository.UserRepository;
+import com.enterprise.codeplatform.security.AuthenticatedUser;
 import com.enterprise.codeplatform.security.JwtUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -43,14 +44,14 @@ public class AuthService {
         }
 
         public AuthResponse login(AuthRequest request) {
-                authenticationManager.authenticate(
+                var authentication = authenticationManager.authenticate(
                                 new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword()));
-                var user = userRepository.findByEmail(request.getEmail()).orElseThrow();
+                var user = (AuthenticatedUser) authentication.getPrincipal();
                 var jwtToken = jwtUtils.generateToken(user);
                 return AuthResponse.builder()
                                 .token(jwtToken)
-                                .username(user.getDisplayUsername())
-                                .role(user.getRole())
+                                .username(user.displayUsername())
+                                .role(user.role())
                                 .build();
         }
 }
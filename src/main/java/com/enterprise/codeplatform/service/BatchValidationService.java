@@ -0,0 +1,67 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.BatchValidationRequest;
+import com.enterprise.codeplatform.dto.BatchValidationResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class BatchValidationService {
+
+    private final CompilerService compilerService;
+    private final SnippetService snippetService;
+
+    @Value("${app.validation.batch.max-sources:100}")
+    private int maxSources;
+
+    public List<BatchValidationResult> validate(BatchValidationRequest request, String username) {
+        List<String> sources = request.getSources() == null ? List.of() : request.getSources();
+        List<Long> snippetIds = request.getSnippetIds() == null ? List.of() : request.getSnippetIds();
+        if (sources.size() + snippetIds.size() > maxSources) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "A batch may contain at most " + maxSources + " sources");
+        }
+
+        Map<Long, String> snippetContents = snippetIds.isEmpty() ? Map.of()
+                : snippetService.getCurrentContents(snippetIds, username);
+
+        List<String> codes = new ArrayList<>(sources);
+        List<Long> compiledSnippets = new ArrayList<>();
+        for (Long id : snippetIds) {
+            if (snippetContents.containsKey(id)) {
+                codes.add(snippetContents.get(id));
+                compiledSnippets.add(id);
+            }
+        }
+
+        List<List<String>> errors = compilerService.validateBatch(codes);
+
+        List<BatchValidationResult> results = new ArrayList<>();
+        for (int i = 0; i < sources.size(); i++) {
+            results.add(BatchValidationResult.builder().index(i).errors(errors.get(i)).build());
+        }
+        for (int i = 0; i < compiledSnippets.size(); i++) {
+            results.add(BatchValidationResult.builder()
+                    .snippetId(compiledSnippets.get(i))
+                    .errors(errors.get(sources.size() + i))
+                    .build());
+        }
+        for (Long id : snippetIds) {
+            if (!snippetContents.containsKey(id)) {
+                results.add(BatchValidationResult.builder()
+                        .snippetId(id)
+                        .errors(List.of("Snippet not found"))
+                        .build());
+            }
+        }
+        return results;
+    }
+}
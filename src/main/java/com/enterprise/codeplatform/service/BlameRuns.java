@@ -0,0 +1,62 @@
+package com.enterprise.codeplatform.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes per-line origin versions as varint (origin, run length) pairs. Consecutive lines
+ * usually come from the same version, so a blame takes a few bytes per changed region.
+ */
+final class BlameRuns {
+
+    private BlameRuns() {
+    }
+
+    static byte[] encode(int[] origins) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < origins.length;) {
+            int run = 1;
+            while (i + run < origins.length && origins[i + run] == origins[i]) {
+                run++;
+            }
+            writeVarint(out, origins[i]);
+            writeVarint(out, run);
+            i += run;
+        }
+        return out.toByteArray();
+    }
+
+    static int[] decode(byte[] data, int lineCount) {
+        int[] origins = new int[lineCount];
+        ByteBuffer in = ByteBuffer.wrap(data);
+        int line = 0;
+        while (in.hasRemaining()) {
+            int origin = readVarint(in);
+            int run = readVarint(in);
+            for (int k = 0; k < run; k++) {
+                origins[line++] = origin;
+            }
+        }
+        return origins;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
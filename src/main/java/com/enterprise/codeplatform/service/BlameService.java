@@ -0,0 +1,140 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.BlameRange;
+import com.enterprise.codeplatform.dto.BlameResponse;
+import com.enterprise.codeplatform.entity.CodeSnippet;
+import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.entity.VersionBlame;
+import com.enterprise.codeplatform.repository.CodeVersionRepository;
+import com.enterprise.codeplatform.repository.VersionBlameRepository;
+import com.github.difflib.algorithm.Change;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Maps every line of a version to the version that introduced it. Blames are stored per
+ * version; a missing one is derived from the nearest stored predecessor by diffing each
+ * following version against the one before it, so a new version costs a single diff.
+ */
+@Service
+@RequiredArgsConstructor
+public class BlameService {
+
+    // Versions whose content is resolved at once while walking the chain
+    private static final int WINDOW = 100;
+
+    private final SnippetService snippetService;
+    private final CodeVersionRepository versionRepository;
+    private final VersionBlameRepository blameRepository;
+    private final VersionStorageService versionStorageService;
+
+    @Transactional
+    public BlameResponse blame(Long snippetId, Integer versionNumber, String username) {
+        CodeSnippet snippet = snippetService.getOwnedSnippet(snippetId, username);
+        int target = versionNumber == null ? snippet.getActiveVersionNumber() : versionNumber;
+        if (versionRepository.findBySnippetIdAndVersionNumber(snippetId, target) == null)
+            throw new RuntimeException("Version not found");
+
+        int[] origins = origins(snippetId, target);
+
+        Set<Integer> originVersions = new TreeSet<>();
+        Arrays.stream(origins).forEach(originVersions::add);
+        Map<Integer, CodeVersion> byNumber = new HashMap<>();
+        versionRepository.findBySnippetIdAndVersionNumberIn(snippetId, originVersions)
+                .forEach(v -> byNumber.put(v.getVersionNumber(), v));
+
+        List<BlameRange> ranges = new ArrayList<>();
+        for (int line = 0; line < origins.length;) {
+            int run = 1;
+            while (line + run < origins.length && origins[line + run] == origins[line]) {
+                run++;
+            }
+            // Deleted origin versions keep their number but have no message
+            CodeVersion origin = byNumber.get(origins[line]);
+            ranges.add(BlameRange.builder()
+                    .startLine(line + 1)
+                    .lineCount(run)
+                    .originVersion(origins[line])
+                    .commitMessage(origin == null ? null : origin.getCommitMessage())
+                    .createdAt(origin == null ? null : origin.getCreatedAt())
+                    .build());
+            line += run;
+        }
+
+        return BlameResponse.builder()
+                .snippetId(snippetId)
+                .versionNumber(target)
+                .lineCount(origins.length)
+                .ranges(ranges)
+                .build();
+    }
+
+    private int[] origins(Long snippetId, int target) {
+        int from = 0;
+        int[] origins = null;
+        List<VersionBlame> stored = blameRepository.findLatest(snippetId, target, PageRequest.of(0, 1));
+        if (!stored.isEmpty()) {
+            VersionBlame blame = stored.get(0);
+            origins = BlameRuns.decode(blame.getData(), blame.getLineCount());
+            from = blame.getVersion().getVersionNumber();
+            if (from == target) {
+                return origins;
+            }
+        }
+
+        List<CodeVersion> chain = versionRepository.findBySnippetIdAndVersionNumberBetweenOrderByVersionNumberAsc(
+                snippetId, from, target);
+        List<String> previous = null;
+        for (int start = 0; start < chain.size(); start += WINDOW) {
+            List<CodeVersion> window = chain.subList(start, Math.min(start + WINDOW, chain.size()));
+            Map<Long, String> contents = versionStorageService.resolveAll(window);
+            for (CodeVersion version : window) {
+                List<String> lines = LineDeltaCodec.splitLines(contents.get(version.getId()));
+                if (version.getVersionNumber() != from) {
+                    origins = previous == null
+                            ? filled(lines.size(), version.getVersionNumber())
+                            : advance(origins, previous, lines, version.getVersionNumber());
+                    blameRepository.insertIfAbsent(version.getId(), origins.length, BlameRuns.encode(origins));
+                }
+                previous = lines;
+            }
+        }
+        return origins;
+    }
+
+    // Unchanged lines keep their origin; inserted and changed lines belong to the new version
+    private static int[] advance(int[] origins, List<String> previous, List<String> lines, int versionNumber) {
+        int[] next = new int[lines.size()];
+        int oldPos = 0;
+        int newPos = 0;
+        for (Change change : new HistogramDiff<String>().computeDiff(previous, lines, null)) {
+            while (oldPos < change.startOriginal) {
+                next[newPos++] = origins[oldPos++];
+            }
+            for (int i = change.startRevised; i < change.endRevised; i++) {
+                next[newPos++] = versionNumber;
+            }
+            oldPos = change.endOriginal;
+        }
+        while (oldPos < origins.length) {
+            next[newPos++] = origins[oldPos++];
+        }
+        return next;
+    }
+
+    private static int[] filled(int length, int versionNumber) {
+        int[] origins = new int[length];
+        Arrays.fill(origins, versionNumber);
+        return origins;
+    }
+}
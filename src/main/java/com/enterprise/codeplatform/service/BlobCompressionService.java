@@ -0,0 +1,99 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.StorageReport;
+import com.enterprise.codeplatform.repository.ContentBlobRepository;
+import com.enterprise.codeplatform.storage.ContentCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Re-encodes blobs written with another codec than the configured one and reports how
+ * much space compression and sharing save per table.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BlobCompressionService {
+
+    private final ContentBlobRepository blobRepository;
+    private final ContentBlobService blobService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.storage.recompress-enabled:true}")
+    private boolean recompressEnabled;
+
+    @Value("${app.storage.recompress-batch-size:200}")
+    private int batchSize;
+
+    @Scheduled(initialDelayString = "${app.storage.recompress-interval-ms:60000}",
+            fixedDelayString = "${app.storage.recompress-interval-ms:60000}")
+    public void recompress() {
+        if (!recompressEnabled) {
+            return;
+        }
+        int total = 0;
+        int converted;
+        do {
+            converted = transactionTemplate.execute(status -> recompressBatch());
+            total += converted;
+        } while (converted == batchSize);
+
+        if (total > 0) {
+            log.info("Re-encoded {} content blobs with {}", total, blobService.getCodec());
+        }
+    }
+
+    private int recompressBatch() {
+        ContentCodec codec = blobService.getCodec();
+        List<String> hashes = blobRepository.findHashesNotEncodedWith(codec.name(), batchSize);
+        for (String hash : hashes) {
+            blobRepository.findById(hash).ifPresent(blob -> {
+                byte[] data = codec.encode(blob.getContent());
+                blobRepository.updateEncoding(blob.getHash(), data, codec.name(), data.length);
+            });
+        }
+        return hashes.size();
+    }
+
+    public StorageReport report() {
+        return StorageReport.builder()
+                .codec(blobService.getCodec().name())
+                .tables(List.of(
+                        usage("content_blobs", "SELECT COUNT(*), COALESCE(SUM(size), 0) FROM content_blobs",
+                                "SELECT COALESCE(SUM(stored_size), 0) FROM content_blobs"),
+                        usage("code_versions",
+                                "SELECT COUNT(*), COALESCE(SUM(b.size), 0) FROM code_versions v "
+                                        + "JOIN content_blobs b ON b.hash = v.blob_hash",
+                                "SELECT COALESCE(SUM(stored_size), 0) FROM content_blobs "
+                                        + "WHERE hash IN (SELECT blob_hash FROM code_versions)"),
+                        usage("code_snippets",
+                                "SELECT COUNT(*), COALESCE(SUM(b.size), 0) FROM code_snippets s "
+                                        + "JOIN content_blobs b ON b.hash = s.current_blob_hash",
+                                "SELECT COALESCE(SUM(stored_size), 0) FROM content_blobs "
+                                        + "WHERE hash IN (SELECT current_blob_hash FROM code_snippets)")))
+                .build();
+    }
+
+    // Uncompressed bytes count every referencing row, stored bytes count each distinct blob once
+    private StorageReport.TableUsage usage(String table, String rowsAndUncompressedSql, String storedSql) {
+        long[] counts = jdbcTemplate.queryForObject(rowsAndUncompressedSql,
+                (rs, n) -> new long[] { rs.getLong(1), rs.getLong(2) });
+        Long stored = jdbcTemplate.queryForObject(storedSql, Long.class);
+        long storedBytes = stored == null ? 0 : stored;
+        return StorageReport.TableUsage.builder()
+                .table(table)
+                .rows(counts[0])
+                .uncompressedBytes(counts[1])
+                .storedBytes(storedBytes)
+                .savedBytes(counts[1] - storedBytes)
+                .build();
+    }
+}
@@ -0,0 +1,235 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.SimilarSnippet;
+import com.enterprise.codeplatform.dto.SimilarSnippetsResponse;
+import com.enterprise.codeplatform.entity.CodeSnippet;
+import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.repository.CodeVersionRepository;
+import com.enterprise.codeplatform.repository.VersionSignatureRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Near-duplicate detection across all versions. The metrics outbox signs every new version
+ * with {@link MinHash} and publishes the signature, which {@link #onVersionSigned} indexes;
+ * versions created before signatures existed, or whose signing failed, are signed by a
+ * background backfill. Signatures are kept in an
+ * in-memory LSH index loaded from version_signatures on startup, so a lookup only compares
+ * against versions that share a band instead of every version.
+ */
+@Slf4j
+@Service
+public class CloneDetectionService {
+
+    private static final double MIN_THRESHOLD = 0.5;
+
+    private record Source(int versionNumber, long ownerId, int[] signature) {
+    }
+
+    private static final class Unsigned {
+        final Long versionId;
+        final Long snippetId;
+        final Long ownerId;
+        final String content;
+        MinHash.Signature signature;
+
+        Unsigned(Long versionId, Long snippetId, Long ownerId, String content) {
+            this.versionId = versionId;
+            this.snippetId = snippetId;
+            this.ownerId = ownerId;
+            this.content = content;
+        }
+    }
+
+    private final VersionSignatureRepository signatureRepository;
+    private final SnippetService snippetService;
+    private final CodeVersionRepository versionRepository;
+    private final VersionStorageService versionStorageService;
+    private final TransactionTemplate transactionTemplate;
+    private final MinHashIndex index = new MinHashIndex();
+
+    private volatile boolean ready;
+
+    @Value("${app.clones.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.clones.max-results:100}")
+    private int maxResults;
+
+    public CloneDetectionService(VersionSignatureRepository signatureRepository,
+            SnippetService snippetService, CodeVersionRepository versionRepository,
+            VersionStorageService versionStorageService, TransactionTemplate transactionTemplate) {
+        this.signatureRepository = signatureRepository;
+        this.snippetService = snippetService;
+        this.versionRepository = versionRepository;
+        this.versionStorageService = versionStorageService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Snippets with a version similar to the given version (the active one by default).
+     * Developers only see their own snippets; admins see everyone's.
+     */
+    public SimilarSnippetsResponse findSimilar(Long snippetId, Integer versionNumber, double threshold, int limit,
+            boolean allUsers, String username) {
+        if (!ready)
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Clone index is still loading");
+        if (threshold < MIN_THRESHOLD || threshold > 1)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "threshold must be between " + MIN_THRESHOLD + " and 1");
+
+        Source source = transactionTemplate.execute(status -> {
+            CodeSnippet snippet = snippetService.getOwnedSnippet(snippetId, username);
+            int target = versionNumber == null ? snippet.getActiveVersionNumber() : versionNumber;
+            CodeVersion version = versionRepository.findBySnippetIdAndVersionNumber(snippetId, target);
+            if (version == null)
+                throw new RuntimeException("Version not found");
+            // Not signed yet when the outbox has not reached it
+            int[] signature = signatureRepository.findByVersionId(version.getId())
+                    .map(s -> MinHash.fromBytes(s.getMinhash()))
+                    .orElseGet(() -> MinHash.of(versionStorageService.resolve(version)).values());
+            return new Source(target, snippet.getAuthor().getId(), signature);
+        });
+        int[] signature = source.signature();
+
+        List<SimilarSnippet> matches = new ArrayList<>();
+        if (signature.length > 0) {
+            // Best version per snippet; the index returns matches most similar first
+            Map<Long, MinHashIndex.Match> best = new LinkedHashMap<>();
+            for (MinHashIndex.Match match : index.similar(signature, threshold, snippetId,
+                    allUsers ? null : source.ownerId())) {
+                best.putIfAbsent(match.snippetId(), match);
+            }
+            List<MinHashIndex.Match> top = best.values().stream()
+                    .limit(Math.max(1, Math.min(limit, maxResults)))
+                    .collect(Collectors.toList());
+
+            Map<Long, Object[]> rows = new HashMap<>();
+            versionRepository.findCloneRows(top.stream().map(MinHashIndex.Match::versionId).toList())
+                    .forEach(row -> rows.put((Long) row[0], row));
+            for (MinHashIndex.Match match : top) {
+                Object[] row = rows.get(match.versionId());
+                if (row == null) {
+                    // Deleted and committed, but not yet dropped by onVersionsDeleted
+                    index.remove(match.versionId());
+                    continue;
+                }
+                matches.add(SimilarSnippet.builder()
+                        .snippetId((Long) row[2])
+                        .title((String) row[3])
+                        .authorName((String) row[4])
+                        .versionNumber((Integer) row[1])
+                        .similarity(match.similarity())
+                        .build());
+            }
+        }
+
+        return SimilarSnippetsResponse.builder()
+                .snippetId(snippetId)
+                .versionNumber(source.versionNumber())
+                .threshold(threshold)
+                .matches(matches)
+                .build();
+    }
+
+    // Published once the transaction storing the signature has committed
+    @EventListener
+    void onVersionSigned(VersionSignedEvent event) {
+        add(event.versionId(), event.snippetId(), event.ownerId(), event.signature());
+    }
+
+    // Deleted versions would otherwise keep taking result slots until they surfaced in a lookup
+    @TransactionalEventListener
+    public void onVersionsDeleted(VersionsDeletedEvent event) {
+        event.versionIds().forEach(index::remove);
+    }
+
+    private void add(Long versionId, Long snippetId, Long ownerId, MinHash.Signature signature) {
+        if (signature.shingles() > 0) {
+            index.put(versionId, snippetId, ownerId, signature.values());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread loader = new Thread(() -> {
+            try {
+                load();
+                ready = true;
+            } catch (RuntimeException e) {
+                log.error("Could not load the clone index", e);
+            }
+        }, "clone-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        long started = System.currentTimeMillis();
+        Long after = 0L;
+        List<Object[]> rows;
+        do {
+            rows = signatureRepository.findIndexRows(after, PageRequest.of(0, batchSize));
+            for (Object[] row : rows) {
+                index.put((Long) row[1], (Long) row[2], (Long) row[3], MinHash.fromBytes((byte[]) row[4]));
+                after = (Long) row[0];
+            }
+        } while (rows.size() == batchSize);
+        log.info("Loaded {} version signatures in {} ms", index.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Signs versions that have no signature yet, such as versions saved before clone
+     * detection existed. Finds nothing once every version is signed.
+     */
+    @Scheduled(fixedDelayString = "${app.clones.backfill-ms:60000}")
+    public void backfill() {
+        if (!ready) {
+            return;
+        }
+        List<Unsigned> batch;
+        do {
+            batch = transactionTemplate.execute(status -> loadUnsigned());
+            for (Unsigned work : batch) {
+                work.signature = MinHash.of(work.content);
+            }
+            List<Unsigned> signed = batch;
+            transactionTemplate.executeWithoutResult(status -> signed.forEach(work ->
+                    signatureRepository.insertIfAbsent(work.versionId, work.signature.shingles(),
+                            MinHash.toBytes(work.signature.values()))));
+            signed.forEach(work -> add(work.versionId, work.snippetId, work.ownerId, work.signature));
+        } while (batch.size() == batchSize);
+    }
+
+    // Resolved per snippet since delta bases are addressed by version number
+    private List<Unsigned> loadUnsigned() {
+        Map<Long, List<CodeVersion>> bySnippet = signatureRepository
+                .findUnsignedVersions(PageRequest.of(0, batchSize)).stream()
+                .collect(Collectors.groupingBy(v -> v.getSnippet().getId()));
+        List<Unsigned> batch = new ArrayList<>();
+        for (List<CodeVersion> versions : bySnippet.values()) {
+            Map<Long, String> contents = versionStorageService.resolveAll(versions);
+            for (CodeVersion version : versions) {
+                batch.add(new Unsigned(version.getId(), version.getSnippet().getId(),
+                        version.getSnippet().getAuthor().getId(), contents.get(version.getId())));
+            }
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,117 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.exception.TooManyRequestsException;
+import com.sun.source.util.JavacTask;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared javac instance with a pool of reusable file managers. A file manager keeps the
+ * JDK platform classes (the jrt image and its package index) open between tasks, which
+ * is most of the cost of a cold compilation. The pool size also caps how many
+ * compilations run at once, so CPU-heavy javac work cannot occupy every request thread.
+ */
+@Slf4j
+@Component
+public class CompileEngine {
+
+    @FunctionalInterface
+    public interface CompileJob<T> {
+        T run(JavaCompiler compiler, StandardJavaFileManager fileManager) throws IOException;
+    }
+
+    private static final String WARMUP_SOURCE = "public class Warmup { int f(int x) { return x > 0 ? x : -x; } }";
+
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    private final BlockingQueue<StandardJavaFileManager> fileManagers;
+
+    @Value("${app.compiler.acquire-timeout-ms:5000}")
+    private long acquireTimeoutMs;
+
+    @Value("${app.compiler.warmup:true}")
+    private boolean warmup;
+
+    public CompileEngine(@Value("${app.compiler.max-concurrent:0}") int maxConcurrent) {
+        int slots = maxConcurrent > 0 ? maxConcurrent : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        this.fileManagers = new ArrayBlockingQueue<>(slots);
+        if (compiler != null) {
+            for (int i = 0; i < slots; i++) {
+                fileManagers.add(compiler.getStandardFileManager(null, null, null));
+            }
+        }
+    }
+
+    public boolean isAvailable() {
+        return compiler != null;
+    }
+
+    public <T> T execute(CompileJob<T> job) {
+        return execute(job, false);
+    }
+
+    /**
+     * @param queued wait until a compiler is free instead of failing after the acquire
+     *               timeout; for background work whose concurrency is bounded elsewhere
+     */
+    public <T> T execute(CompileJob<T> job, boolean queued) {
+        StandardJavaFileManager fileManager;
+        try {
+            fileManager = queued ? fileManagers.take() : fileManagers.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the compiler");
+        }
+        if (fileManager == null) {
+            throw new TooManyRequestsException("Compiler is busy, please retry shortly", 1);
+        }
+
+        try {
+            return job.run(compiler, fileManager);
+        } catch (IOException e) {
+            throw new RuntimeException("Compilation failed: " + e.getMessage(), e);
+        } finally {
+            fileManagers.add(fileManager);
+        }
+    }
+
+    // Runs a trivial compilation on every pooled file manager so the first user request is warm.
+    // The pool is FIFO, so sequential jobs rotate through all file managers.
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!warmup || compiler == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        int slots = fileManagers.size();
+        for (int i = 0; i < slots; i++) {
+            execute((javac, fileManager) -> ((JavacTask) javac.getTask(null, fileManager, diagnostic -> {
+            }, List.of("-proc:none"), null,
+                    List.of(new CompilerService.JavaSourceFromString("Warmup", WARMUP_SOURCE)))).analyze());
+        }
+        log.info("Warmed up {} compiler slots in {} ms", slots, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @PreDestroy
+    public void close() {
+        for (StandardJavaFileManager fileManager : fileManagers) {
+            try {
+                fileManager.close();
+            } catch (IOException e) {
+                log.debug("Failed to close file manager", e);
+            }
+        }
+    }
+}
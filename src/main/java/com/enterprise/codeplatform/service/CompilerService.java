@@ -1,54 +1,414 @@
 package com.enterprise.codeplatform.service;
 
+import com.enterprise.codeplatform.cache.BoundedCache;
+import com.enterprise.codeplatform.cache.CacheRegistry;
+import com.enterprise.codeplatform.monitoring.SizedTimer;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.Trees;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
 public class CompilerService {
 
+    // Disable annotation processing for speed and to avoid warnings
+    private static final List<String> OPTIONS = List.of("-proc:none");
+
+    private static final Pattern PUBLIC_TYPE = Pattern.compile(
+            "\\bpublic\\s+(?:(?:abstract|final|sealed|non-sealed|strictfp)\\s+)*(?:class|interface|enum|record)\\s+(\\w+)");
+    private static final Pattern ANY_TYPE = Pattern.compile("\\b(?:class|interface|enum|record)\\s+(\\w+)");
+    private static final Pattern PACKAGE = Pattern.compile("\\bpackage\\s+([\\w.\\s]+?)\\s*;");
+    private static final Pattern MAIN_METHOD = Pattern.compile("\\bstatic\\s+void\\s+main\\s*\\(");
+
+    private static final String UNAVAILABLE =
+            "Java Compiler not available. Make sure you are running with JDK, not JRE.";
+
+    // Approximate per-entry overhead of the key, entry, list and metrics objects
+    private static final long ENTRY_OVERHEAD = 240;
+    private static final long METHOD_OVERHEAD = 96;
+
+    private final CompileEngine compileEngine;
+    private final BoundedCache<String, Analysis> resultCache;
+    private final BoundedCache<String, Compilation> classCache;
+    private final SizedTimer analyzeTimer;
+    private final SizedTimer parseTimer;
+    private final SizedTimer batchTimer;
+    private final SizedTimer classesTimer;
+
+    public CompilerService(CompileEngine compileEngine, CacheRegistry cacheRegistry, MeterRegistry meterRegistry,
+            @Value("${app.compiler.cache.max-bytes:16777216}") long maxBytes,
+            @Value("${app.compiler.cache.ttl-minutes:30}") long ttlMinutes) {
+        this.compileEngine = compileEngine;
+        this.resultCache = cacheRegistry.create("validation-results", maxBytes, Duration.ofMinutes(ttlMinutes),
+                (key, analysis) -> ENTRY_OVERHEAD
+                        + 2L * analysis.errors.stream().mapToLong(String::length).sum()
+                        + analysis.metrics.getMethods().stream()
+                                .mapToLong(m -> METHOD_OVERHEAD + 2L * m.getName().length()).sum());
+        this.classCache = cacheRegistry.create("compiled-classes", maxBytes, Duration.ofMinutes(ttlMinutes),
+                (key, compilation) -> ENTRY_OVERHEAD
+                        + 2L * compilation.errors.stream().mapToLong(String::length).sum()
+                        + compilation.classes.entrySet().stream()
+                                .mapToLong(e -> METHOD_OVERHEAD + 2L * e.getKey().length() + e.getValue().length)
+                                .sum());
+        // Only javac passes are timed; cached results show up in the cache metrics
+        this.analyzeTimer = javacTimer(meterRegistry, "analyze");
+        this.parseTimer = javacTimer(meterRegistry, "parse");
+        this.batchTimer = javacTimer(meterRegistry, "batch");
+        this.classesTimer = javacTimer(meterRegistry, "classes");
+    }
+
+    private static SizedTimer javacTimer(MeterRegistry meterRegistry, String operation) {
+        return new SizedTimer(meterRegistry, "compiler.javac", "Time spent in javac, excluding the wait for a compiler",
+                Duration.ofMillis(1), Duration.ofSeconds(30), "operation", operation);
+    }
+
     public List<String> validateSyntax(String code) {
 
-        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (!compileEngine.isAvailable()) {
+            return Collections.singletonList(UNAVAILABLE);
+        }
+
+        return analyze(code, false).getErrors();
+    }
 
-        if (compiler == null) {
-            return Collections.singletonList(
-                    "Java Compiler not available. Make sure you are running with JDK, not JRE.");
+    /**
+     * Like {@link #validateSyntax}, but waits for a free compiler instead of failing with
+     * 429 when all are busy. Used by validation jobs, whose worker pool bounds the wait.
+     */
+    public List<String> validateSyntaxQueued(String code) {
+        if (!compileEngine.isAvailable()) {
+            return Collections.singletonList(UNAVAILABLE);
         }
+        return analyze(code, true).getErrors();
+    }
 
-        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    private Analysis analyze(String code, boolean queued) {
+        return resultCache.get(cacheKey("Test", code),
+                k -> compile(List.of(new JavaSourceFromString("Test", code)), analyzeTimer, queued).get(0));
+    }
+
+    /**
+     * Structural metrics of the source. Takes them from a recent validation of the same
+     * source when there is one, otherwise parses it without attribution, which the metrics
+     * do not need.
+     */
+    public SourceMetrics measure(String code) {
+        Analysis validated = resultCache.get(cacheKey("Test", code));
+        if (validated != null) {
+            return validated.metrics;
+        }
+        return compileEngine.execute((compiler, fileManager) -> {
+            long started = System.nanoTime();
+            // Parse errors are part of the validation result, not of the metrics
+            JavacTask task = (JavacTask) compiler.getTask(null, fileManager, new DiagnosticCollector<>(), OPTIONS,
+                    null, List.of(new JavaSourceFromString("Test", code)));
+            CompilationUnitTree unit = task.parse().iterator().next();
+            SourceMetrics metrics = AstMetricsScanner.measure(unit, Trees.instance(task).getSourcePositions());
+            parseTimer.record(code.length(), started);
+            return metrics;
+        });
+    }
 
-        JavaFileObject file = new JavaSourceFromString("Test", code);
+    public boolean isAvailable() {
+        return compileEngine.isAvailable();
+    }
 
-        List<String> options = List.of("-proc:none"); // Disable annotation processing for speed and to avoid warnings
+    /**
+     * Compiles the source to class files in memory for execution. The main class is the
+     * public top-level type, or the first declared type when there is none. Results are
+     * cached like validation results, so re-running an unchanged snippet skips javac.
+     */
+    public Compilation compileClasses(String code) {
+        if (!compileEngine.isAvailable()) {
+            return new Compilation(List.of(UNAVAILABLE), Map.of(), null);
+        }
+        Matcher firstType = ANY_TYPE.matcher(code);
+        String fileName = publicTypeName(code).orElse(firstType.find() ? firstType.group(1) : "Main");
+        String mainType = mainTypeName(code).orElse(fileName);
+        return classCache.get(cacheKey("classes:" + fileName, code), k -> compileEngine.execute((compiler, fm) -> {
+            long started = System.nanoTime();
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            ClassCollector collector = new ClassCollector(fm);
+            boolean success = compiler.getTask(null, collector, diagnostics, OPTIONS, null,
+                    List.of(new JavaSourceFromString(fileName, code))).call();
+            classesTimer.record(code.length(), started);
+            List<String> errors = diagnostics.getDiagnostics().stream()
+                    .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                    .map(d -> "Line " + d.getLineNumber() + ": " + d.getMessage(null))
+                    .collect(Collectors.toList());
+            if (!success) {
+                return new Compilation(errors.isEmpty() ? List.of("Compilation failed") : errors, Map.of(), null);
+            }
+            Map<String, byte[]> classes = collector.classes();
+            String mainClass = classes.keySet().stream()
+                    .filter(name -> name.equals(mainType) || name.endsWith("." + mainType)
+                            || name.endsWith("$" + mainType))
+                    .findFirst().orElse(mainType);
+            return new Compilation(List.of(), classes, mainClass);
+        }));
+    }
 
-        JavaCompiler.CompilationTask task = compiler.getTask(
-                null,
+    /**
+     * Validates many sources with as few javac tasks as possible, giving each the verdict
+     * {@link #validateSyntax} gives it. Every source is compiled as Test.java, like a single
+     * validation, and shares a task only with sources that neither declare a name it uses
+     * nor use a name it declares, so no input can resolve a type or package from another.
+     * A parse error in one file stops javac from attributing the others, so a shared task
+     * that reports any error is compiled again one source at a time. Results are cached
+     * under the same keys as single validations.
+     */
+    public List<List<String>> validateBatch(List<String> codes) {
+        if (!compileEngine.isAvailable()) {
+            return codes.stream()
+                    .map(code -> Collections.singletonList(UNAVAILABLE))
+                    .collect(Collectors.toList());
+        }
+
+        Map<String, Analysis> analyses = new HashMap<>();
+        List<List<JavaSourceFromString>> groups = new ArrayList<>();
+        List<Set<String>> groupDeclared = new ArrayList<>();
+        List<Set<String>> groupUsed = new ArrayList<>();
+        for (String code : codes) {
+            if (analyses.containsKey(code)) {
+                continue;
+            }
+            Analysis cached = resultCache.get(cacheKey("Test", code));
+            analyses.put(code, cached);
+            if (cached != null) {
+                continue;
+            }
+
+            Set<String> used = JavaSourceScanner.identifiers(code);
+            Set<String> declared = declaredNames(code);
+            int group = 0;
+            while (group < groups.size() && !(Collections.disjoint(groupDeclared.get(group), used)
+                    && Collections.disjoint(groupUsed.get(group), declared))) {
+                group++;
+            }
+            if (group == groups.size()) {
+                groups.add(new ArrayList<>());
+                groupDeclared.add(new HashSet<>());
+                groupUsed.add(new HashSet<>());
+            }
+            // Distinct paths keep the files apart; all of them are name-compatible with Test
+            groups.get(group).add(new JavaSourceFromString("Test", code, "batch" + analyses.size()));
+            groupDeclared.get(group).addAll(declared);
+            groupUsed.get(group).addAll(used);
+        }
+
+        if (!groups.isEmpty()) {
+            compileEngine.execute((compiler, fileManager) -> {
+                for (List<JavaSourceFromString> group : groups) {
+                    List<Analysis> results = analyzeFiles(compiler, fileManager, group, batchTimer);
+                    if (group.size() > 1 && results.stream().anyMatch(result -> !result.errors.isEmpty())) {
+                        results = new ArrayList<>(group.size());
+                        for (JavaSourceFromString file : group) {
+                            results.add(analyzeFiles(compiler, fileManager, List.of(file), batchTimer).get(0));
+                        }
+                    }
+                    for (int n = 0; n < group.size(); n++) {
+                        String code = group.get(n).code;
+                        analyses.put(code, results.get(n));
+                        resultCache.put(cacheKey("Test", code), results.get(n));
+                    }
+                }
+                return null;
+            });
+        }
+        return codes.stream().map(code -> analyses.get(code).errors).collect(Collectors.toList());
+    }
+
+    // Declared type names and the parts of the package name; a superset, so sharing stays safe
+    private static Set<String> declaredNames(String code) {
+        Set<String> names = JavaSourceScanner.declaredTypeNames(code);
+        Matcher pkg = PACKAGE.matcher(code);
+        while (pkg.find()) {
+            names.addAll(List.of(pkg.group(1).split("\\s*\\.\\s*")));
+        }
+        return names;
+    }
+
+    // Results depend only on the source, the file name it is compiled under and the compiler options
+    private String cacheKey(String fileName, String code) {
+        return ContentBlobService.hash(String.join(" ", OPTIONS) + "\0" + fileName + "\0" + code);
+    }
+
+    private List<Analysis> compile(List<JavaSourceFromString> files, SizedTimer timer, boolean queued) {
+        return compileEngine.execute((compiler, fileManager) -> analyzeFiles(compiler, fileManager, files, timer),
+                queued);
+    }
+
+    private List<Analysis> analyzeFiles(JavaCompiler compiler, StandardJavaFileManager fileManager,
+            List<JavaSourceFromString> files, SizedTimer timer) throws IOException {
+        long started = System.nanoTime();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        // analyze() stops after attribution and flow analysis, so no class files are generated
+        JavacTask task = (JavacTask) compiler.getTask(
                 null,
+                fileManager,
                 diagnostics,
-                options,
+                OPTIONS,
                 null,
-                Collections.singletonList(file));
+                files);
+
+        Iterable<? extends CompilationUnitTree> units = task.parse();
+        task.analyze();
+
+        SourcePositions positions = Trees.instance(task).getSourcePositions();
+        // javac wraps the file objects it hands back in trees, so units are matched by URI
+        Map<URI, SourceMetrics> metricsByFile = new HashMap<>();
+        for (CompilationUnitTree unit : units) {
+            metricsByFile.put(unit.getSourceFile().toUri(), AstMetricsScanner.measure(unit, positions));
+        }
+
+        Map<JavaFileObject, List<String>> errorsByFile = new IdentityHashMap<>();
+        List<String> globalErrors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+            if (d.getKind() != Diagnostic.Kind.ERROR)
+                continue;
+            String message = "Line " + d.getLineNumber() + ": " + d.getMessage(null);
+            if (d.getSource() == null) {
+                globalErrors.add(message);
+            } else {
+                errorsByFile.computeIfAbsent(d.getSource(), f -> new ArrayList<>()).add(message);
+            }
+        }
+
+        List<Analysis> results = new ArrayList<>(files.size());
+        for (JavaSourceFromString file : files) {
+            List<String> errors = new ArrayList<>(errorsByFile.getOrDefault(file, List.of()));
+            errors.addAll(globalErrors);
+            results.add(new Analysis(List.copyOf(errors), metricsByFile.get(file.toUri())));
+        }
+        timer.record(files.stream().mapToLong(file -> file.code.length()).sum(), started);
+        return results;
+    }
+
+    private static Optional<String> publicTypeName(String code) {
+        Matcher matcher = PUBLIC_TYPE.matcher(code);
+        return matcher.find() ? Optional.of(matcher.group(1)) : Optional.empty();
+    }
+
+    // The type declared last before the first main method; good enough for single-file snippets
+    private static Optional<String> mainTypeName(String code) {
+        Matcher main = MAIN_METHOD.matcher(code);
+        if (!main.find()) {
+            return Optional.empty();
+        }
+        // The innermost type whose body is still open at main; braces are counted naively
+        Matcher type = ANY_TYPE.matcher(code).region(0, main.start());
+        String name = null;
+        while (type.find()) {
+            if (closingBrace(code, type.end()) > main.start()) {
+                name = type.group(1);
+            }
+        }
+        return Optional.ofNullable(name);
+    }
+
+    private static int closingBrace(String code, int from) {
+        int depth = 0;
+        for (int i = code.indexOf('{', from); i >= 0 && i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return code.length();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Analysis {
+        private final List<String> errors;
+        private final SourceMetrics metrics;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Compilation {
+        private final List<String> errors;
+        private final Map<String, byte[]> classes;
+        private final String mainClass;
+    }
+
+    // Keeps generated class files in memory instead of writing them to disk
+    private static class ClassCollector extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private final Map<String, ByteArrayOutputStream> outputs = new LinkedHashMap<>();
+
+        ClassCollector(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
 
-        task.call();
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                FileObject sibling) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            outputs.put(className, output);
+            return new SimpleJavaFileObject(URI.create("bytes:///" + className.replace('.', '/') + kind.extension),
+                    kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return output;
+                }
+            };
+        }
 
-        return diagnostics.getDiagnostics().stream()
-                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
-                .map(d -> "Line " + d.getLineNumber() + ": " + d.getMessage(null))
-                .collect(Collectors.toList());
+        // The pooled file manager is shared, so closing the wrapper must not close it
+        @Override
+        public void close() {
+        }
+
+        Map<String, byte[]> classes() {
+            Map<String, byte[]> classes = new LinkedHashMap<>();
+            outputs.forEach((name, output) -> classes.put(name, output.toByteArray()));
+            return classes;
+        }
     }
 
     // Inner class to hold source code in memory
     static class JavaSourceFromString extends SimpleJavaFileObject {
 
+        final String fileName;
         final String code;
 
         JavaSourceFromString(String name, String code) {
-            super(URI.create("string:///" + name.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this(name, code, null);
+        }
+
+        JavaSourceFromString(String name, String code, String directory) {
+            super(URI.create("string:///" + (directory == null ? "" : directory + "/") + name.replace('.', '/')
+                    + Kind.SOURCE.extension), Kind.SOURCE);
+            this.fileName = name;
             this.code = code;
         }
 
@@ -57,4 +417,4 @@ public class CompilerService {
             return code;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,64 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.entity.ContentBlob;
+import com.enterprise.codeplatform.repository.ContentBlobRepository;
+import com.enterprise.codeplatform.storage.ContentCodec;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Reference-counted access to the content-addressed blob table. Every entity column
+ * pointing at a blob owns exactly one reference: take it with {@link #store} or
+ * {@link #retain} and give it back with {@link #release} once the pointer is gone.
+ */
+@Service
+@RequiredArgsConstructor
+public class ContentBlobService {
+
+    private final ContentBlobRepository blobRepository;
+
+    @Value("${app.storage.compression:DEFLATE}")
+    private ContentCodec codec;
+
+    public ContentBlob store(String content) {
+        String hash = hash(content);
+        // Only compress and ship the content when no blob with this hash exists yet
+        if (blobRepository.retain(hash) == 0) {
+            byte[] data = codec.encode(content);
+            blobRepository.insertOrRetain(hash, data, codec.name(), ContentCodec.rawLength(data), data.length);
+        }
+        return blobRepository.getReferenceById(hash);
+    }
+
+    public ContentBlob retain(ContentBlob blob) {
+        blobRepository.retain(blob.getHash());
+        return blob;
+    }
+
+    public void release(ContentBlob blob) {
+        if (blob == null) {
+            return;
+        }
+        blobRepository.release(blob.getHash());
+        blobRepository.deleteIfUnreferenced(blob.getHash());
+    }
+
+    public ContentCodec getCodec() {
+        return codec;
+    }
+
+    public static String hash(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
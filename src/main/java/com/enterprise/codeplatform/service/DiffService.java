@@ -1,41 +1,147 @@
 package com.enterprise.codeplatform.service;
 
-import com.github.difflib.DiffUtils;
-import com.github.difflib.patch.AbstractDelta;
-import com.github.difflib.patch.Patch;
-import lombok.Builder;
-import lombok.Data;
+import com.enterprise.codeplatform.cache.BoundedCache;
+import com.enterprise.codeplatform.cache.CacheRegistry;
+import com.enterprise.codeplatform.dto.DiffHunk;
+import com.enterprise.codeplatform.dto.DiffResponse;
+import com.enterprise.codeplatform.monitoring.SizedTimer;
+import com.github.difflib.algorithm.Change;
+import com.github.difflib.algorithm.DiffAlgorithmI;
+import com.github.difflib.algorithm.myers.MeyersDiff;
+import com.github.difflib.algorithm.myers.MeyersDiffWithLinearSpace;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Arrays;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * Line diffs between versions of a snippet. Versions never change once written, so hunks
+ * are cached per (snippet, from, to, algorithm); a cache hit only needs a cheap ownership
+ * and existence check. Lines are interned to integers before diffing, so the algorithms
+ * compare ints instead of strings.
+ */
 @Service
 public class DiffService {
 
-    @Data
-    @Builder
-    public static class DiffResult {
-        private String original;
-        private String revised;
-        private List<String> deltas;
+    public enum Algorithm {
+        MYERS, MYERS_LINEAR_SPACE, HISTOGRAM
     }
 
-    public DiffResult compare(String originalContent, String revisedContent) {
-        List<String> originalLines = Arrays.asList(originalContent.split("\n"));
-        List<String> revisedLines = Arrays.asList(revisedContent.split("\n"));
+    private static final long ENTRY_OVERHEAD = 200;
+    private static final long HUNK_OVERHEAD = 96;
 
-        Patch<String> patch = DiffUtils.diff(originalLines, revisedLines);
+    private final SnippetService snippetService;
+    private final BoundedCache<String, List<DiffHunk>> hunkCache;
+    private final Map<Algorithm, SizedTimer> timers = new EnumMap<>(Algorithm.class);
 
-        List<String> deltas = patch.getDeltas().stream()
-                .map(AbstractDelta::toString)
-                .collect(Collectors.toList());
+    public DiffService(SnippetService snippetService, CacheRegistry cacheRegistry, MeterRegistry meterRegistry,
+            @Value("${app.diff.cache.max-bytes:33554432}") long maxBytes,
+            @Value("${app.diff.cache.ttl-minutes:60}") long ttlMinutes) {
+        this.snippetService = snippetService;
+        this.hunkCache = cacheRegistry.create("diff-hunks", maxBytes, Duration.ofMinutes(ttlMinutes),
+                (key, hunks) -> ENTRY_OVERHEAD + hunks.stream()
+                        .mapToLong(h -> HUNK_OVERHEAD + 2L * (length(h.getRemoved()) + length(h.getAdded())))
+                        .sum());
+        for (Algorithm algorithm : Algorithm.values()) {
+            timers.put(algorithm, new SizedTimer(meterRegistry, "diff.compare", "Time to diff two versions",
+                    Duration.ofMillis(1), Duration.ofSeconds(10), "algorithm", algorithm.name()));
+        }
+    }
+
+    public DiffResponse diff(Long snippetId, int fromVersion, int toVersion, Algorithm algorithm,
+            boolean includeText, String username) {
+        String key = snippetId + ":" + fromVersion + ":" + toVersion + ":" + algorithm;
+        Set<Integer> versions = Set.of(fromVersion, toVersion);
+
+        List<DiffHunk> hunks = hunkCache.get(key);
+        if (hunks != null && !includeText && snippetService.hasVersions(snippetId, versions, username)) {
+            return toResponse(snippetId, fromVersion, toVersion, algorithm, hunks, null, null);
+        }
+
+        Map<Integer, String> contents = snippetService.getVersionContents(snippetId, versions, username);
+        String original = contents.get(fromVersion);
+        String revised = contents.get(toVersion);
+        if (hunks == null) {
+            hunks = compare(original, revised, algorithm);
+            hunkCache.put(key, hunks);
+        }
+        return toResponse(snippetId, fromVersion, toVersion, algorithm, hunks,
+                includeText ? original : null, includeText ? revised : null);
+    }
+
+    public List<DiffHunk> compare(String originalContent, String revisedContent, Algorithm algorithm) {
+        long started = System.nanoTime();
+        List<String> originalLines = LineDeltaCodec.splitLines(originalContent);
+        List<String> revisedLines = LineDeltaCodec.splitLines(revisedContent);
+
+        // Equal lines get equal ids, so the algorithms only compare ints
+        Map<String, Integer> ids = new HashMap<>();
+        List<Integer> source = intern(originalLines, ids);
+        List<Integer> target = intern(revisedLines, ids);
+
+        // Myers reports changes from the end of the file backwards
+        List<Change> changes = new ArrayList<>(algorithm(algorithm).computeDiff(source, target, null));
+        changes.sort(Comparator.comparingInt(c -> c.startOriginal));
 
-        return DiffResult.builder()
-                .original(originalContent)
-                .revised(revisedContent)
-                .deltas(deltas)
+        List<DiffHunk> hunks = new ArrayList<>();
+        for (Change change : changes) {
+            hunks.add(DiffHunk.builder()
+                    .type(change.deltaType.name())
+                    .sourceStart(change.startOriginal + 1)
+                    .sourceLines(change.endOriginal - change.startOriginal)
+                    .targetStart(change.startRevised + 1)
+                    .targetLines(change.endRevised - change.startRevised)
+                    .removed(List.copyOf(originalLines.subList(change.startOriginal, change.endOriginal)))
+                    .added(List.copyOf(revisedLines.subList(change.startRevised, change.endRevised)))
+                    .build());
+        }
+        timers.get(algorithm).record((long) originalContent.length() + revisedContent.length(), started);
+        return List.copyOf(hunks);
+    }
+
+    private static DiffAlgorithmI<Integer> algorithm(Algorithm algorithm) {
+        switch (algorithm) {
+            case MYERS:
+                return new MeyersDiff<>(Integer::equals);
+            case MYERS_LINEAR_SPACE:
+                return new MeyersDiffWithLinearSpace<>(Integer::equals);
+            default:
+                return new HistogramDiff<>();
+        }
+    }
+
+    private static List<Integer> intern(List<String> lines, Map<String, Integer> ids) {
+        List<Integer> result = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            result.add(ids.computeIfAbsent(line, k -> ids.size()));
+        }
+        return result;
+    }
+
+    private static DiffResponse toResponse(Long snippetId, int fromVersion, int toVersion, Algorithm algorithm,
+            List<DiffHunk> hunks, String original, String revised) {
+        return DiffResponse.builder()
+                .snippetId(snippetId)
+                .fromVersion(fromVersion)
+                .toVersion(toVersion)
+                .algorithm(algorithm.name())
+                .linesAdded(hunks.stream().mapToInt(DiffHunk::getTargetLines).sum())
+                .linesRemoved(hunks.stream().mapToInt(DiffHunk::getSourceLines).sum())
+                .hunks(hunks)
+                .original(original)
+                .revised(revised)
                 .build();
     }
+
+    private static long length(List<String> lines) {
+        return lines.stream().mapToLong(String::length).sum();
+    }
 }
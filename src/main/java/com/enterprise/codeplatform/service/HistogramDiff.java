@@ -0,0 +1,175 @@
+package com.enterprise.codeplatform.service;
+
+import com.github.difflib.algorithm.Change;
+import com.github.difflib.algorithm.DiffAlgorithmI;
+import com.github.difflib.algorithm.DiffAlgorithmListener;
+import com.github.difflib.algorithm.myers.MeyersDiff;
+import com.github.difflib.patch.DeltaType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Histogram diff in the style of JGit: after trimming the common prefix and suffix, the
+ * region is split around the longest common run that contains the source line occurring
+ * least often, and both sides are diffed the same way. Rare lines such as declarations make
+ * better anchors than braces and blank lines, which gives more readable hunks than plain
+ * Myers on code. Regions without an anchor fall back to Myers.
+ */
+class HistogramDiff<T> implements DiffAlgorithmI<T> {
+
+    // Lines occurring more often than this in a region are never used as anchors
+    private static final int MAX_CHAIN = 64;
+
+    @Override
+    public List<Change> computeDiff(List<T> source, List<T> target, DiffAlgorithmListener progress) {
+        if (progress != null) {
+            progress.diffStart();
+        }
+        Map<T, Integer> ids = new HashMap<>();
+        int[] a = intern(source, ids);
+        int[] b = intern(target, ids);
+
+        List<Change> changes = new Regions(a, b, ids.size()).diff();
+        changes.sort(Comparator.comparingInt(c -> c.startOriginal));
+
+        if (progress != null) {
+            progress.diffEnd();
+        }
+        return changes;
+    }
+
+    private static <T> int[] intern(List<T> lines, Map<T, Integer> ids) {
+        int[] result = new int[lines.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.computeIfAbsent(lines.get(i), k -> ids.size());
+        }
+        return result;
+    }
+
+    private static final class Regions {
+        final int[] a;
+        final int[] b;
+        // Per-region histogram of source lines: occurrence count and chain of positions
+        final int[] count;
+        final int[] head;
+        final int[] next;
+        final List<Change> changes = new ArrayList<>();
+
+        Regions(int[] a, int[] b, int symbols) {
+            this.a = a;
+            this.b = b;
+            this.count = new int[symbols];
+            this.head = new int[symbols];
+            this.next = new int[a.length];
+        }
+
+        // Regions are processed from an explicit stack, so deep splits cannot overflow the call stack
+        List<Change> diff() {
+            Deque<int[]> pending = new ArrayDeque<>();
+            pending.push(new int[] { 0, a.length, 0, b.length });
+            while (!pending.isEmpty()) {
+                int[] region = pending.pop();
+                split(region[0], region[1], region[2], region[3], pending);
+            }
+            return changes;
+        }
+
+        private void split(int aLo, int aHi, int bLo, int bHi, Deque<int[]> pending) {
+            while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+                aLo++;
+                bLo++;
+            }
+            while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+                aHi--;
+                bHi--;
+            }
+            if (aLo == aHi && bLo == bHi) {
+                return;
+            }
+            if (aLo == aHi) {
+                changes.add(new Change(DeltaType.INSERT, aLo, aHi, bLo, bHi));
+                return;
+            }
+            if (bLo == bHi) {
+                changes.add(new Change(DeltaType.DELETE, aLo, aHi, bLo, bHi));
+                return;
+            }
+
+            for (int i = aLo; i < aHi; i++) {
+                count[a[i]] = 0;
+                head[a[i]] = -1;
+            }
+            for (int i = bLo; i < bHi; i++) {
+                count[b[i]] = 0;
+                head[b[i]] = -1;
+            }
+            for (int i = aHi - 1; i >= aLo; i--) {
+                next[i] = head[a[i]];
+                head[a[i]] = i;
+                count[a[i]]++;
+            }
+
+            int bestCount = MAX_CHAIN + 1;
+            int bestLength = 0;
+            int bestA = -1;
+            int bestB = -1;
+            for (int bi = bLo; bi < bHi;) {
+                int occurrences = count[b[bi]];
+                int nextB = bi + 1;
+                if (occurrences == 0 || occurrences > bestCount) {
+                    bi = nextB;
+                    continue;
+                }
+                for (int ai = head[b[bi]]; ai != -1; ai = next[ai]) {
+                    int as = ai;
+                    int bs = bi;
+                    while (as > aLo && bs > bLo && a[as - 1] == b[bs - 1]) {
+                        as--;
+                        bs--;
+                    }
+                    int ae = ai + 1;
+                    int be = bi + 1;
+                    while (ae < aHi && be < bHi && a[ae] == b[be]) {
+                        ae++;
+                        be++;
+                    }
+                    int runCount = occurrences;
+                    for (int k = as; k < ae; k++) {
+                        runCount = Math.min(runCount, count[a[k]]);
+                    }
+                    if (runCount < bestCount || (runCount == bestCount && ae - as > bestLength)) {
+                        bestCount = runCount;
+                        bestLength = ae - as;
+                        bestA = as;
+                        bestB = bs;
+                    }
+                    nextB = Math.max(nextB, be);
+                }
+                bi = nextB;
+            }
+
+            if (bestA < 0) {
+                fallback(aLo, aHi, bLo, bHi);
+                return;
+            }
+            pending.push(new int[] { bestA + bestLength, aHi, bestB + bestLength, bHi });
+            pending.push(new int[] { aLo, bestA, bLo, bestB });
+        }
+
+        private void fallback(int aLo, int aHi, int bLo, int bHi) {
+            List<Integer> source = Arrays.stream(a, aLo, aHi).boxed().toList();
+            List<Integer> target = Arrays.stream(b, bLo, bHi).boxed().toList();
+            for (Change c : new MeyersDiff<Integer>(Integer::equals).computeDiff(source, target, null)) {
+                changes.add(new Change(c.deltaType, c.startOriginal + aLo, c.endOriginal + aLo,
+                        c.startRevised + bLo, c.endRevised + bLo));
+            }
+        }
+    }
+}
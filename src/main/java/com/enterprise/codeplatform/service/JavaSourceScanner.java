@@ -0,0 +1,214 @@
+package com.enterprise.codeplatform.service;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Single pass, allocation-free scanner computing line count, keyword count and decision
+ * points of Java source. Comments, string, char and text block literals are skipped, and
+ * keywords are recognised by walking a lowercase trie while the identifier is read. The
+ * same pass can collect the names of declared types.
+ */
+public final class JavaSourceScanner {
+
+    public static final class Counts {
+        public int lines;
+        public int keywords;
+        public int decisionPoints;
+    }
+
+    static final String[] KEYWORDS = {
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+            "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+            "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp", "super",
+            "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while" };
+
+    private static final String[] DECISION_KEYWORDS = { "if", "for", "while", "case", "catch" };
+
+    private static final String[] TYPE_KEYWORDS = { "class", "interface", "enum" };
+
+    private static final byte KEYWORD = 1;
+    private static final byte DECISION = 2;
+    private static final byte TYPE = 4;
+
+    // Trie over 'a'..'z': NEXT[node * 26 + letter] is the child node, 0 meaning none (root is never a child)
+    private static final int[] NEXT;
+    private static final byte[] FLAGS;
+
+    static {
+        int capacity = 1;
+        for (String keyword : KEYWORDS) {
+            capacity += keyword.length();
+        }
+        int[] next = new int[capacity * 26];
+        byte[] flags = new byte[capacity];
+        int nodes = 1;
+        for (String keyword : KEYWORDS) {
+            int node = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int slot = node * 26 + (keyword.charAt(i) - 'a');
+                if (next[slot] == 0) {
+                    next[slot] = nodes++;
+                }
+                node = next[slot];
+            }
+            flags[node] |= KEYWORD;
+        }
+        for (String keyword : DECISION_KEYWORDS) {
+            flags[find(next, keyword)] |= DECISION;
+        }
+        for (String keyword : TYPE_KEYWORDS) {
+            flags[find(next, keyword)] |= TYPE;
+        }
+        NEXT = next;
+        FLAGS = flags;
+    }
+
+    private static int find(int[] next, String keyword) {
+        int node = 0;
+        for (int i = 0; i < keyword.length(); i++) {
+            node = next[node * 26 + (keyword.charAt(i) - 'a')];
+        }
+        return node;
+    }
+
+    private JavaSourceScanner() {
+    }
+
+    public static Counts scan(CharSequence src) {
+        return scan(src, null, null);
+    }
+
+    /**
+     * Names following {@code class}, {@code interface}, {@code enum} or {@code record} in
+     * code, ignoring comments and literals. Nested and local types are included.
+     */
+    public static Set<String> declaredTypeNames(CharSequence src) {
+        Set<String> names = new HashSet<>();
+        scan(src, names, null);
+        return names;
+    }
+
+    /**
+     * Every identifier in code that is not a keyword, ignoring comments and literals.
+     */
+    public static Set<String> identifiers(CharSequence src) {
+        Set<String> identifiers = new HashSet<>();
+        scan(src, null, identifiers);
+        return identifiers;
+    }
+
+    private static Counts scan(CharSequence src, Set<String> typeNames, Set<String> identifiers) {
+        Counts counts = new Counts();
+        // Set after a type keyword; the next identifier is the declared name unless other code comes first
+        boolean typeNameNext = false;
+        int n = src.length();
+        int lineBreaks = 0;
+        int i = 0;
+
+        while (i < n) {
+            char c = src.charAt(i);
+
+            if (c == '\n') {
+                lineBreaks++;
+                i++;
+            } else if (c == '\r') {
+                lineBreaks++;
+                i += (i + 1 < n && src.charAt(i + 1) == '\n') ? 2 : 1;
+            } else if (c == '/' && i + 1 < n && src.charAt(i + 1) == '/') {
+                i += 2;
+                while (i < n && src.charAt(i) != '\n' && src.charAt(i) != '\r') {
+                    i++;
+                }
+            } else if (c == '/' && i + 1 < n && src.charAt(i + 1) == '*') {
+                i += 2;
+                while (i < n && !(src.charAt(i) == '*' && i + 1 < n && src.charAt(i + 1) == '/')) {
+                    lineBreaks += lineBreakAt(src, i);
+                    i++;
+                }
+                i += 2;
+            } else if (c == '"' && i + 2 < n && src.charAt(i + 1) == '"' && src.charAt(i + 2) == '"') {
+                typeNameNext = false;
+                i += 3;
+                while (i < n && !(src.charAt(i) == '"' && i + 2 < n && src.charAt(i + 1) == '"'
+                        && src.charAt(i + 2) == '"')) {
+                    if (src.charAt(i) == '\\' && i + 1 < n) {
+                        // An escaped line terminator joins lines of the value but still ends a source line
+                        lineBreaks += lineBreakAt(src, i + 1);
+                        i += 2;
+                    } else {
+                        lineBreaks += lineBreakAt(src, i);
+                        i++;
+                    }
+                }
+                i += 3;
+            } else if (c == '"' || c == '\'') {
+                typeNameNext = false;
+                i++;
+                while (i < n && src.charAt(i) != c && src.charAt(i) != '\n') {
+                    i += src.charAt(i) == '\\' ? 2 : 1;
+                }
+                i++;
+            } else if ((c == '&' || c == '|') && i + 1 < n && src.charAt(i + 1) == c) {
+                typeNameNext = false;
+                counts.decisionPoints++;
+                i += 2;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                int node = 0;
+                while (i < n && Character.isJavaIdentifierPart(src.charAt(i))) {
+                    char ch = src.charAt(i);
+                    if (node >= 0) {
+                        node = (ch >= 'a' && ch <= 'z') ? NEXT[node * 26 + (ch - 'a')] : 0;
+                        if (node == 0) {
+                            node = -1;
+                        }
+                    }
+                    i++;
+                }
+                byte flags = node > 0 ? FLAGS[node] : 0;
+                if ((flags & KEYWORD) != 0)
+                    counts.keywords++;
+                if ((flags & DECISION) != 0)
+                    counts.decisionPoints++;
+                if (identifiers != null && flags == 0) {
+                    identifiers.add(src.subSequence(start, i).toString());
+                }
+                if (typeNames != null) {
+                    if (typeNameNext && flags == 0) {
+                        typeNames.add(src.subSequence(start, i).toString());
+                    }
+                    // record is a contextual keyword, so it is not in the trie
+                    typeNameNext = (flags & TYPE) != 0
+                            || (i - start == 6 && "record".contentEquals(src.subSequence(start, i)));
+                }
+            } else if (Character.isDigit(c)) {
+                typeNameNext = false;
+                // Skip numeric literals so suffixes like 10L or 0x1F are not read as identifiers
+                while (i < n && (Character.isLetterOrDigit(src.charAt(i)) || src.charAt(i) == '_'
+                        || src.charAt(i) == '.')) {
+                    i++;
+                }
+            } else {
+                if (!Character.isWhitespace(c)) {
+                    typeNameNext = false;
+                }
+                i++;
+            }
+        }
+
+        // Same as String.lines().count(): a final line without terminator still counts
+        char last = n == 0 ? '\n' : src.charAt(n - 1);
+        counts.lines = lineBreaks + (last == '\n' || last == '\r' ? 0 : 1);
+        return counts;
+    }
+
+    private static int lineBreakAt(CharSequence src, int i) {
+        char c = src.charAt(i);
+        if (c == '\n') {
+            return (i > 0 && src.charAt(i - 1) == '\r') ? 0 : 1;
+        }
+        return c == '\r' ? 1 : 0;
+    }
+}
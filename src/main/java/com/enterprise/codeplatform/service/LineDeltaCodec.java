@@ -0,0 +1,68 @@
+package com.enterprise.codeplatform.service;
+
+import com.github.difflib.DiffUtils;
+import com.github.difflib.patch.AbstractDelta;
+import com.github.difflib.patch.Patch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lossless line-level delta between two texts.
+ *
+ * Encoded form: for every change a header line "position deleteCount insertCount"
+ * followed by the inserted lines. Positions refer to the base text, so a delta is
+ * applied in a single forward pass without verifying the removed lines.
+ */
+public final class LineDeltaCodec {
+
+    private LineDeltaCodec() {
+    }
+
+    public static List<String> splitLines(String content) {
+        return Arrays.asList(content.split("\n", -1));
+    }
+
+    public static String joinLines(List<String> lines) {
+        return String.join("\n", lines);
+    }
+
+    public static String encode(String base, String target) {
+        Patch<String> patch = DiffUtils.diff(splitLines(base), splitLines(target));
+        StringBuilder out = new StringBuilder();
+        for (AbstractDelta<String> delta : patch.getDeltas()) {
+            List<String> inserted = delta.getTarget().getLines();
+            out.append(delta.getSource().getPosition()).append(' ')
+                    .append(delta.getSource().size()).append(' ')
+                    .append(inserted.size()).append('\n');
+            for (String line : inserted) {
+                out.append(line).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    public static String apply(String base, String delta) {
+        List<String> baseLines = splitLines(base);
+        List<String> result = new ArrayList<>(baseLines.size());
+        String[] deltaLines = delta.split("\n", -1);
+
+        int cursor = 0;
+        int i = 0;
+        while (i < deltaLines.length && !deltaLines[i].isEmpty()) {
+            String[] header = deltaLines[i++].split(" ");
+            int position = Integer.parseInt(header[0]);
+            int deleteCount = Integer.parseInt(header[1]);
+            int insertCount = Integer.parseInt(header[2]);
+
+            result.addAll(baseLines.subList(cursor, position));
+            for (int n = 0; n < insertCount; n++) {
+                result.add(deltaLines[i++]);
+            }
+            cursor = position + deleteCount;
+        }
+        result.addAll(baseLines.subList(cursor, baseLines.size()));
+        return joinLines(result);
+    }
+}
@@ -0,0 +1,272 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.entity.CodeMetrics;
+import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.entity.MetricsTask;
+import com.enterprise.codeplatform.exception.TooManyRequestsException;
+import com.enterprise.codeplatform.repository.CodeMetricsRepository;
+import com.enterprise.codeplatform.repository.MetricsTaskRepository;
+import com.enterprise.codeplatform.repository.VersionSignatureRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Computes metrics for versions recorded in the metrics_tasks outbox, so saving a version
+ * does not pay for analysis inside its transaction. A poller claims due tasks in batches
+ * by pushing their next attempt past a lease; the batch is split across a worker pool that
+ * reads content, analyzes it without holding a connection and stores the results. Failed
+ * tasks are retried with exponential backoff and marked failed after the last attempt;
+ * tasks claimed by a worker that died become due again once the lease expires.
+ */
+@Slf4j
+@Service
+public class MetricsOutboxService {
+
+    private static final class Work {
+        final Long taskId;
+        final Long versionId;
+        final Long snippetId;
+        final Long ownerId;
+        final String content;
+        CodeMetrics metrics;
+        MinHash.Signature signature;
+        String error;
+        boolean deferred;
+        boolean stored;
+
+        Work(Long taskId, Long versionId, Long snippetId, Long ownerId, String content) {
+            this.taskId = taskId;
+            this.versionId = versionId;
+            this.snippetId = snippetId;
+            this.ownerId = ownerId;
+            this.content = content;
+        }
+
+        static Work failed(Long taskId, RuntimeException e) {
+            Work work = new Work(taskId, null, null, null, null);
+            work.error = String.valueOf(e.getMessage());
+            return work;
+        }
+    }
+
+    private final MetricsTaskRepository taskRepository;
+    private final CodeMetricsRepository metricsRepository;
+    private final VersionSignatureRepository signatureRepository;
+    private final VersionStorageService versionStorageService;
+    private final MetricsService metricsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+    private final int workers;
+
+    @Value("${app.metrics.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.metrics.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.metrics.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${app.metrics.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.metrics.outbox.retry-base-seconds:5}")
+    private long retryBaseSeconds;
+
+    public MetricsOutboxService(MetricsTaskRepository taskRepository, CodeMetricsRepository metricsRepository,
+            VersionSignatureRepository signatureRepository, VersionStorageService versionStorageService,
+            MetricsService metricsService, ApplicationEventPublisher eventPublisher,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.metrics.outbox.workers:2}") int workers) {
+        this.taskRepository = taskRepository;
+        this.metricsRepository = metricsRepository;
+        this.signatureRepository = signatureRepository;
+        this.versionStorageService = versionStorageService;
+        this.metricsService = metricsService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.workers = Math.max(1, workers);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.workers, runnable -> {
+            Thread thread = new Thread(runnable, "metrics-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Records that the version needs metrics. Must run in the transaction that saves it.
+     */
+    public void enqueue(CodeVersion version) {
+        taskRepository.save(MetricsTask.builder()
+                .version(version)
+                .nextAttemptAt(LocalDateTime.now())
+                .build());
+    }
+
+    @Scheduled(fixedDelayString = "${app.metrics.outbox.poll-ms:500}")
+    public void drain() {
+        if (!enabled) {
+            return;
+        }
+        List<Long> claimed;
+        do {
+            claimed = transactionTemplate.execute(status -> claim());
+            if (!claimed.isEmpty()) {
+                runPartitioned(claimed);
+            }
+        } while (claimed.size() == batchSize);
+    }
+
+    private List<Long> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = taskRepository.findDueIds(now, batchSize);
+        if (!ids.isEmpty()) {
+            taskRepository.claim(ids, now.plusSeconds(leaseSeconds));
+        }
+        return ids;
+    }
+
+    private void runPartitioned(List<Long> taskIds) {
+        int chunk = (taskIds.size() + workers - 1) / workers;
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < taskIds.size(); from += chunk) {
+            List<Long> part = taskIds.subList(from, Math.min(from + chunk, taskIds.size()));
+            futures.add(executor.submit(() -> process(part)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // The claim lease expires and the tasks are picked up again
+                log.warn("Metrics batch failed", e.getCause());
+            }
+        }
+    }
+
+    private void process(List<Long> taskIds) {
+        List<Work> batch = loadIsolated(taskIds);
+
+        for (Work work : batch) {
+            if (work.error != null) {
+                continue;
+            }
+            try {
+                work.metrics = metricsService.calculateMetrics(null, work.content);
+            } catch (TooManyRequestsException e) {
+                // Not a failure of the task: it stays claimed and is retried once the lease expires
+                log.debug("Compiler busy, deferring metrics for version {}", work.versionId);
+                work.deferred = true;
+            } catch (RuntimeException e) {
+                log.warn("Metrics computation failed for version {}", work.versionId, e);
+                work.error = String.valueOf(e.getMessage());
+            }
+            if (work.metrics != null) {
+                sign(work);
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> complete(batch));
+        batch.stream().filter(work -> work.stored && work.signature != null).forEach(work -> eventPublisher
+                .publishEvent(new VersionSignedEvent(work.versionId, work.snippetId, work.ownerId, work.signature)));
+    }
+
+    // A version left unsigned is signed by the clone detection backfill, so it does not fail the metrics
+    private static void sign(Work work) {
+        try {
+            work.signature = MinHash.of(work.content);
+        } catch (RuntimeException e) {
+            log.warn("Signing failed for version {}, leaving it to the backfill", work.versionId, e);
+        }
+    }
+
+    /**
+     * Loads the batch, or each task on its own when that fails, so content that cannot be
+     * read fails only its own task and goes through the same retry bookkeeping as analysis.
+     */
+    private List<Work> loadIsolated(List<Long> taskIds) {
+        try {
+            return transactionTemplate.execute(status -> load(taskIds));
+        } catch (RuntimeException e) {
+            if (taskIds.size() == 1) {
+                log.warn("Loading content failed for metrics task {}", taskIds.get(0), e);
+                return List.of(Work.failed(taskIds.get(0), e));
+            }
+            List<Work> batch = new ArrayList<>(taskIds.size());
+            for (Long taskId : taskIds) {
+                batch.addAll(loadIsolated(List.of(taskId)));
+            }
+            return batch;
+        }
+    }
+
+    // Versions are resolved per snippet since delta bases are addressed by version number
+    private List<Work> load(List<Long> taskIds) {
+        Map<Long, List<MetricsTask>> bySnippet = taskRepository.findWithVersions(taskIds).stream()
+                .collect(Collectors.groupingBy(t -> t.getVersion().getSnippet().getId()));
+
+        List<Work> batch = new ArrayList<>();
+        for (List<MetricsTask> tasks : bySnippet.values()) {
+            Map<Long, String> contents = versionStorageService.resolveAll(
+                    tasks.stream().map(MetricsTask::getVersion).collect(Collectors.toList()));
+            for (MetricsTask task : tasks) {
+                CodeVersion version = task.getVersion();
+                batch.add(new Work(task.getId(), version.getId(), version.getSnippet().getId(),
+                        version.getSnippet().getAuthor().getId(), contents.get(version.getId())));
+            }
+        }
+        return batch;
+    }
+
+    private void complete(List<Work> batch) {
+        Map<Long, Work> byTask = new HashMap<>();
+        batch.stream().filter(work -> !work.deferred).forEach(work -> byTask.put(work.taskId, work));
+
+        // Tasks deleted meanwhile belong to deleted versions and are skipped
+        for (MetricsTask task : taskRepository.lockAll(byTask.keySet())) {
+            Work work = byTask.get(task.getId());
+            if (work.metrics != null) {
+                work.metrics.setVersion(task.getVersion());
+                metricsRepository.save(work.metrics);
+                if (work.signature != null) {
+                    signatureRepository.insertIfAbsent(work.versionId, work.signature.shingles(),
+                            MinHash.toBytes(work.signature.values()));
+                }
+                taskRepository.delete(task);
+                work.stored = true;
+            } else {
+                int attempts = task.getAttempts() + 1;
+                task.setAttempts(attempts);
+                task.setLastError(work.error.length() > 1000 ? work.error.substring(0, 1000) : work.error);
+                task.setFailed(attempts >= maxAttempts);
+                task.setNextAttemptAt(LocalDateTime.now().plusSeconds(retryBaseSeconds << Math.min(attempts, 16)));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -2,57 +2,80 @@ package com.enterprise.codeplatform.service;
 
 import com.enterprise.codeplatform.entity.CodeMetrics;
 import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.entity.MethodMetrics;
+import com.enterprise.codeplatform.monitoring.SizedTimer;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.time.Duration;
+import java.util.stream.Collectors;
 
 @Service
 public class MetricsService {
 
-    private static final Set<String> JAVA_KEYWORDS = new HashSet<>(Arrays.asList(
-            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
-            "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
-            "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
-            "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp", "super",
-            "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while"));
+    private final CompilerService compilerService;
+    private final SizedTimer timer;
 
-    public CodeMetrics calculateMetrics(CodeVersion version) {
-        String content = version.getContent();
-        int loc = (int) content.lines().count();
-        int keywordCount = countKeywords(content);
-        int complexity = estimateComplexity(content);
+    public MetricsService(CompilerService compilerService, MeterRegistry meterRegistry) {
+        this.compilerService = compilerService;
+        this.timer = new SizedTimer(meterRegistry, "metrics.calculate", "Time to compute the metrics of a source",
+                Duration.ofMillis(1), Duration.ofSeconds(30));
+    }
+
+    public CodeMetrics calculateMetrics(CodeVersion version, String content) {
+        long started = System.nanoTime();
+        // LOC and keywords are collected in one pass over the source
+        JavaSourceScanner.Counts counts = JavaSourceScanner.scan(content);
 
-        return CodeMetrics.builder()
+        CodeMetrics metrics = CodeMetrics.builder()
                 .version(version)
-                .loc(loc)
-                .keywordCount(keywordCount)
-                .cyclomaticComplexity(complexity)
+                .loc(counts.lines)
+                .keywordCount(counts.keywords)
+                // Simplified Cyclomatic Complexity: 1 + control flow statements and && / ||
+                .cyclomaticComplexity(1 + counts.decisionPoints)
                 .build();
-    }
 
-    private int countKeywords(String content) {
-        String[] words = content.split("\\W+");
-        int count = 0;
-        for (String word : words) {
-            if (JAVA_KEYWORDS.contains(word)) {
-                count++;
-            }
+        SourceMetrics tree = measure(content);
+        if (tree != null) {
+            applyTreeMetrics(metrics, tree);
         }
-        return count;
+        timer.record(content.length(), started);
+        return metrics;
     }
 
-    private int estimateComplexity(String content) {
-        // Simplified Cyclomatic Complexity: count control flow statements
-        String[] controlFlow = { "if", "for", "while", "case", "&&", "||", "catch" };
-        int count = 1; // Base complexity
-        for (String word : content.split("\\W+")) {
-            for (String ctrl : controlFlow) {
-                if (word.equals(ctrl))
-                    count++;
-            }
-        }
-        return count;
+    /**
+     * Parses the source when a compiler is available. A busy compiler is not a reason to
+     * store lexical metrics for good, so its TooManyRequestsException reaches the caller.
+     */
+    private SourceMetrics measure(String content) {
+        return compilerService.isAvailable() ? compilerService.measure(content) : null;
+    }
+
+    private void applyTreeMetrics(CodeMetrics metrics, SourceMetrics tree) {
+        double volume = tree.getHalsteadVolume();
+        double difficulty = tree.getHalsteadDifficulty();
+
+        metrics.setCyclomaticComplexity(1 + tree.getDecisionPoints());
+        metrics.setMethodCount(tree.getMethodCount());
+        metrics.setDecisionPoints(tree.getDecisionPoints());
+        metrics.setMaxNestingDepth(tree.getMaxNestingDepth());
+        metrics.setMaxMethodLength(tree.getMaxMethodLength());
+        metrics.setHalsteadDistinctOperators(tree.getDistinctOperators());
+        metrics.setHalsteadDistinctOperands(tree.getDistinctOperands());
+        metrics.setHalsteadTotalOperators(tree.getTotalOperators());
+        metrics.setHalsteadTotalOperands(tree.getTotalOperands());
+        metrics.setHalsteadVolume(volume);
+        metrics.setHalsteadDifficulty(difficulty);
+        metrics.setHalsteadEffort(volume * difficulty);
+        metrics.setMethods(tree.getMethods().stream()
+                .map(m -> MethodMetrics.builder()
+                        .name(m.getName())
+                        .startLine(m.getStartLine())
+                        .length(m.getLength())
+                        .cyclomaticComplexity(m.getCyclomaticComplexity())
+                        .maxNestingDepth(m.getMaxNestingDepth())
+                        .halsteadVolume(m.getHalsteadVolume())
+                        .build())
+                .collect(Collectors.toList()));
     }
 }
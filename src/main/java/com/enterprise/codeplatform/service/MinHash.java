@@ -0,0 +1,168 @@
+package com.enterprise.codeplatform.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * MinHash signatures over shingles of normalized tokens. Comments and whitespace are
+ * dropped, identifiers and literals are replaced by their kind and keywords and symbols are
+ * kept, so renaming variables or changing constants does not hide a copy. The fraction of
+ * equal signature values estimates the Jaccard similarity of two shingle sets.
+ */
+final class MinHash {
+
+    static final int SIZE = 128;
+    static final int SHINGLE = 5;
+
+    private static final int IDENTIFIER = 1;
+    private static final int NUMBER = 2;
+    private static final int STRING = 3;
+    private static final int SYMBOL = 0x10000;
+
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(JavaSourceScanner.KEYWORDS));
+
+    // Multiply-shift hash functions; fixed seed, so stored signatures stay comparable
+    private static final long[] MULTIPLIERS = new long[SIZE];
+    private static final long[] OFFSETS = new long[SIZE];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C10EL);
+        for (int i = 0; i < SIZE; i++) {
+            MULTIPLIERS[i] = random.nextLong() | 1;
+            OFFSETS[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Values are empty when the source has no tokens.
+     */
+    record Signature(int shingles, int[] values) {
+    }
+
+    private MinHash() {
+    }
+
+    static Signature of(CharSequence source) {
+        long[] shingles = shingles(tokens(source));
+        if (shingles.length == 0) {
+            return new Signature(0, new int[0]);
+        }
+        int[] values = new int[SIZE];
+        Arrays.fill(values, Integer.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < SIZE; i++) {
+                int value = (int) ((MULTIPLIERS[i] * shingle + OFFSETS[i]) >>> 33);
+                if (value < values[i]) {
+                    values[i] = value;
+                }
+            }
+        }
+        return new Signature(shingles.length, values);
+    }
+
+    static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < SIZE; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIZE;
+    }
+
+    static byte[] toBytes(int[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+        buffer.asIntBuffer().put(values);
+        return buffer.array();
+    }
+
+    static int[] fromBytes(byte[] data) {
+        int[] values = new int[data.length / 4];
+        ByteBuffer.wrap(data).asIntBuffer().get(values);
+        return values;
+    }
+
+    // Distinct hashes of every run of SHINGLE tokens; shorter sources form a single shingle
+    static long[] shingles(int[] tokens) {
+        if (tokens.length == 0) {
+            return new long[0];
+        }
+        int width = Math.min(SHINGLE, tokens.length);
+        long[] shingles = new long[tokens.length - width + 1];
+        for (int i = 0; i < shingles.length; i++) {
+            long hash = 0;
+            for (int j = i; j < i + width; j++) {
+                hash = (hash + tokens[j]) * 0x9E3779B97F4A7C15L;
+                hash ^= hash >>> 29;
+            }
+            shingles[i] = hash;
+        }
+        return Arrays.stream(shingles).sorted().distinct().toArray();
+    }
+
+    static int[] tokens(CharSequence src) {
+        int n = src.length();
+        int[] tokens = new int[Math.max(16, n / 4)];
+        int count = 0;
+        int i = 0;
+        while (i < n) {
+            char c = src.charAt(i);
+            int token;
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            } else if (c == '/' && i + 1 < n && src.charAt(i + 1) == '/') {
+                while (i < n && src.charAt(i) != '\n') {
+                    i++;
+                }
+                continue;
+            } else if (c == '/' && i + 1 < n && src.charAt(i + 1) == '*') {
+                i += 2;
+                while (i < n && !(src.charAt(i) == '*' && i + 1 < n && src.charAt(i + 1) == '/')) {
+                    i++;
+                }
+                i += 2;
+                continue;
+            } else if (c == '"' && i + 2 < n && src.charAt(i + 1) == '"' && src.charAt(i + 2) == '"') {
+                i += 3;
+                while (i < n && !(src.charAt(i) == '"' && i + 2 < n && src.charAt(i + 1) == '"'
+                        && src.charAt(i + 2) == '"')) {
+                    i += src.charAt(i) == '\\' ? 2 : 1;
+                }
+                i += 3;
+                token = STRING;
+            } else if (c == '"' || c == '\'') {
+                i++;
+                while (i < n && src.charAt(i) != c && src.charAt(i) != '\n') {
+                    i += src.charAt(i) == '\\' ? 2 : 1;
+                }
+                i++;
+                token = STRING;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < n && Character.isJavaIdentifierPart(src.charAt(i))) {
+                    i++;
+                }
+                String word = src.subSequence(start, i).toString();
+                token = KEYWORDS.contains(word) ? word.hashCode() : IDENTIFIER;
+            } else if (Character.isDigit(c)) {
+                while (i < n && (Character.isLetterOrDigit(src.charAt(i)) || src.charAt(i) == '_'
+                        || src.charAt(i) == '.')) {
+                    i++;
+                }
+                token = NUMBER;
+            } else {
+                i++;
+                token = SYMBOL + c;
+            }
+            if (count == tokens.length) {
+                tokens = Arrays.copyOf(tokens, count * 2);
+            }
+            tokens[count++] = token;
+        }
+        return Arrays.copyOf(tokens, count);
+    }
+}
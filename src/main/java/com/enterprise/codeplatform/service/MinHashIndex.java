@@ -0,0 +1,153 @@
+package com.enterprise.codeplatform.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Locality-sensitive hashing over MinHash signatures. Each signature is cut into bands of
+ * {@link #ROWS} values and filed under the hash of every band, so two versions become
+ * candidates when any band agrees. With 32 bands of 4 rows a pair at similarity 0.5 is a
+ * candidate with probability 0.87, and at 0.7 or above nearly always.
+ */
+final class MinHashIndex {
+
+    static final int ROWS = 4;
+    static final int BANDS = MinHash.SIZE / ROWS;
+
+    record Match(long versionId, long snippetId, long ownerId, double similarity) {
+    }
+
+    private static final class Entry {
+        final long snippetId;
+        final long ownerId;
+        final int[] signature;
+
+        Entry(long snippetId, long ownerId, int[] signature) {
+            this.snippetId = snippetId;
+            this.ownerId = ownerId;
+            this.signature = signature;
+        }
+    }
+
+    private static final class Bucket {
+        long[] versionIds = new long[2];
+        int size;
+
+        void add(long versionId) {
+            if (size == versionIds.length) {
+                versionIds = Arrays.copyOf(versionIds, size * 2);
+            }
+            versionIds[size++] = versionId;
+        }
+
+        void remove(long versionId) {
+            for (int i = 0; i < size; i++) {
+                if (versionIds[i] == versionId) {
+                    versionIds[i] = versionIds[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<Long, Bucket> buckets = new HashMap<>();
+
+    void put(long versionId, long snippetId, long ownerId, int[] signature) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(versionId);
+            entries.put(versionId, new Entry(snippetId, ownerId, signature));
+            for (int band = 0; band < BANDS; band++) {
+                buckets.computeIfAbsent(bandKey(signature, band), k -> new Bucket()).add(versionId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long versionId) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(versionId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeEntry(long versionId) {
+        Entry entry = entries.remove(versionId);
+        if (entry == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            long key = bandKey(entry.signature, band);
+            Bucket bucket = buckets.get(key);
+            bucket.remove(versionId);
+            if (bucket.size == 0) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Versions of other snippets whose estimated similarity reaches the threshold, limited to
+     * one owner unless {@code ownerId} is null, most similar first.
+     */
+    List<Match> similar(int[] signature, double threshold, long excludeSnippetId, Long ownerId) {
+        lock.readLock().lock();
+        try {
+            Set<Long> seen = new HashSet<>();
+            List<Match> matches = new ArrayList<>();
+            for (int band = 0; band < BANDS; band++) {
+                Bucket bucket = buckets.get(bandKey(signature, band));
+                if (bucket == null) {
+                    continue;
+                }
+                for (int i = 0; i < bucket.size; i++) {
+                    long versionId = bucket.versionIds[i];
+                    if (!seen.add(versionId)) {
+                        continue;
+                    }
+                    Entry entry = entries.get(versionId);
+                    if (entry.snippetId == excludeSnippetId || (ownerId != null && entry.ownerId != ownerId)) {
+                        continue;
+                    }
+                    double similarity = MinHash.similarity(signature, entry.signature);
+                    if (similarity >= threshold) {
+                        matches.add(new Match(versionId, entry.snippetId, entry.ownerId, similarity));
+                    }
+                }
+            }
+            matches.sort((a, b) -> Double.compare(b.similarity(), a.similarity()));
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long hash = band;
+        for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+            hash = (hash ^ signature[i]) * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 31;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,116 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.SnippetPatchRequest;
+import com.github.difflib.UnifiedDiffUtils;
+import com.github.difflib.algorithm.Change;
+import com.github.difflib.algorithm.myers.MeyersDiff;
+import com.github.difflib.patch.Patch;
+import com.github.difflib.patch.PatchFailedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Applies patch requests to version content and rebases them onto a newer version when
+ * the client edited an older one.
+ */
+@Service
+public class PatchService {
+
+    public String apply(String base, SnippetPatchRequest request) {
+        boolean hasDiff = request.getUnifiedDiff() != null;
+        boolean hasEdits = request.getEdits() != null;
+        if (hasDiff == hasEdits) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Provide either unifiedDiff or edits");
+        }
+        return hasDiff ? applyUnifiedDiff(base, request.getUnifiedDiff()) : applyEdits(base, request.getEdits());
+    }
+
+    private String applyUnifiedDiff(String base, String unifiedDiff) {
+        Patch<String> patch;
+        try {
+            patch = UnifiedDiffUtils.parseUnifiedDiff(LineDeltaCodec.splitLines(unifiedDiff));
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed unifiedDiff: " + e.getMessage());
+        }
+        // Text without hunk headers parses to an empty patch, which would silently save an unchanged version
+        if (patch.getDeltas().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unifiedDiff contains no hunks");
+        }
+        try {
+            return LineDeltaCodec.joinLines(patch.applyTo(LineDeltaCodec.splitLines(base)));
+        } catch (PatchFailedException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Patch does not apply to the base version: " + e.getMessage());
+        }
+    }
+
+    private String applyEdits(String base, List<SnippetPatchRequest.RangeEdit> edits) {
+        List<SnippetPatchRequest.RangeEdit> sorted = new ArrayList<>(edits);
+        sorted.sort(Comparator.comparingInt(SnippetPatchRequest.RangeEdit::getStart));
+
+        StringBuilder result = new StringBuilder(base.length());
+        int position = 0;
+        for (SnippetPatchRequest.RangeEdit edit : sorted) {
+            if (edit.getStart() < position || edit.getEnd() < edit.getStart() || edit.getEnd() > base.length()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Edit ranges must be ordered, disjoint and within the base content");
+            }
+            result.append(base, position, edit.getStart());
+            if (edit.getText() != null) {
+                result.append(edit.getText());
+            }
+            position = edit.getEnd();
+        }
+        return result.append(base, position, base.length()).toString();
+    }
+
+    /**
+     * Three-way line merge: the changes from base to mine are replayed on theirs. Changes
+     * touching a region that theirs also changed are a conflict.
+     */
+    public String rebase(String base, String mine, String theirs) {
+        List<String> baseLines = LineDeltaCodec.splitLines(base);
+        List<String> mineLines = LineDeltaCodec.splitLines(mine);
+        List<String> theirLines = LineDeltaCodec.splitLines(theirs);
+        List<Change> ours = changes(baseLines, mineLines);
+        List<Change> their = changes(baseLines, theirLines);
+
+        for (Change o : ours) {
+            for (Change t : their) {
+                // Adjacent changes conflict too, as their order would be ambiguous
+                if (o.startOriginal <= t.endOriginal && t.startOriginal <= o.endOriginal) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "Edit conflicts with changes made since the base version near line "
+                                    + (o.startOriginal + 1));
+                }
+            }
+        }
+
+        List<String> merged = new ArrayList<>(theirLines.size());
+        int basePos = 0;
+        int ourIdx = 0;
+        int theirIdx = 0;
+        while (ourIdx < ours.size() || theirIdx < their.size()) {
+            boolean takeOurs = theirIdx == their.size()
+                    || (ourIdx < ours.size() && ours.get(ourIdx).startOriginal < their.get(theirIdx).startOriginal);
+            Change change = takeOurs ? ours.get(ourIdx++) : their.get(theirIdx++);
+            List<String> revised = takeOurs ? mineLines : theirLines;
+            merged.addAll(baseLines.subList(basePos, change.startOriginal));
+            merged.addAll(revised.subList(change.startRevised, change.endRevised));
+            basePos = change.endOriginal;
+        }
+        merged.addAll(baseLines.subList(basePos, baseLines.size()));
+        return LineDeltaCodec.joinLines(merged);
+    }
+
+    private static List<Change> changes(List<String> from, List<String> to) {
+        List<Change> changes = new ArrayList<>(new MeyersDiff<String>().computeDiff(from, to, null));
+        changes.sort(Comparator.comparingInt(c -> c.startOriginal));
+        return changes;
+    }
+}
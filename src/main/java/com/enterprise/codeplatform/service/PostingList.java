@@ -0,0 +1,119 @@
+package com.enterprise.codeplatform.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Ascending document ids stored as varint-encoded gaps. Ids are only ever appended, so
+ * adding a document never rewrites the list.
+ */
+final class PostingList {
+
+    private byte[] data;
+    private int length;
+    private int count;
+    private int last = -1;
+
+    PostingList() {
+        this.data = new byte[4];
+    }
+
+    private PostingList(byte[] data, int count, int last) {
+        this.data = data;
+        this.length = data.length;
+        this.count = count;
+        this.last = last;
+    }
+
+    void add(int id) {
+        if (id <= last) {
+            throw new IllegalArgumentException("Posting ids must increase: " + id + " after " + last);
+        }
+        if (length + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(length + 5, data.length * 2));
+        }
+        int gap = id - last;
+        while ((gap & ~0x7F) != 0) {
+            data[length++] = (byte) ((gap & 0x7F) | 0x80);
+            gap >>>= 7;
+        }
+        data[length++] = (byte) gap;
+        last = id;
+        count++;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int sizeBytes() {
+        return length;
+    }
+
+    int[] decode() {
+        int[] ids = new int[count];
+        int id = -1;
+        int pos = 0;
+        for (int i = 0; i < count; i++) {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            id += gap;
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Ids of the ascending array that are also in this list, read without decoding it whole.
+     */
+    int[] retain(int[] ids) {
+        int[] result = new int[ids.length];
+        int n = 0;
+        int id = -1;
+        int pos = 0;
+        int read = 0;
+        for (int i = 0; i < ids.length; i++) {
+            while (id < ids[i] && read < count) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[pos++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += gap;
+                read++;
+            }
+            if (id == ids[i]) {
+                result[n++] = id;
+            } else if (id < ids[i]) {
+                break;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(count);
+        out.writeInt(last);
+        out.writeInt(length);
+        out.write(data, 0, length);
+    }
+
+    static PostingList readFrom(DataInput in) throws IOException {
+        int count = in.readInt();
+        int last = in.readInt();
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new PostingList(data, count, last);
+    }
+}
@@ -0,0 +1,365 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.SearchHit;
+import com.enterprise.codeplatform.dto.SearchResponse;
+import com.enterprise.codeplatform.entity.ContentBlob;
+import com.enterprise.codeplatform.repository.CodeSnippetRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Substring and regex search over snippet titles, descriptions and current content. A
+ * trigram index narrows the search to the caller's snippets that may match, and only those
+ * are read and checked. The index is kept current by a single indexer thread fed from
+ * {@link SnippetChangedEvent}s after commit, and saved to a file with the newest indexed
+ * update time; on startup the file is loaded and only snippets changed since are indexed.
+ */
+@Slf4j
+@Service
+public class SearchService {
+
+    private static final int FORMAT = 1;
+    private static final int MAX_LINE_PREVIEW = 200;
+    // Re-index a little before the watermark, in case an older update committed late
+    private static final long WATERMARK_SLACK_MINUTES = 1;
+
+    private final CodeSnippetRepository snippetRepository;
+    private final SnippetService snippetService;
+    private final ExecutorService indexer;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private volatile TrigramIndex index = new TrigramIndex();
+    private volatile boolean ready;
+    private volatile LocalDateTime watermark;
+
+    @Value("${app.search.index-file:./data/search/trigram.idx}")
+    private Path indexFile;
+
+    @Value("${app.search.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.search.max-results:100}")
+    private int maxResults;
+
+    @Value("${app.search.timeout-ms:2000}")
+    private long timeoutMs;
+
+    @Value("${app.search.compact-ratio:0.5}")
+    private double compactRatio;
+
+    public SearchService(CodeSnippetRepository snippetRepository, SnippetService snippetService) {
+        this.snippetRepository = snippetRepository;
+        this.snippetService = snippetService;
+        this.indexer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SearchResponse search(String query, boolean regex, boolean caseSensitive, int limit, String username) {
+        if (!ready)
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Search index is still building");
+        if (query == null || query.isEmpty())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Query is required");
+
+        int flags = caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex ? query : Pattern.quote(query), flags);
+        } catch (PatternSyntaxException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid regex: " + e.getDescription());
+        }
+        TrigramQuery plan = regex ? TrigramQuery.regex(query) : TrigramQuery.literal(query);
+        if (plan.op == TrigramQuery.Op.ALL)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Query must contain at least 3 consecutive literal characters");
+
+        List<Long> candidates = index.candidates(plan, snippetService.currentUserId(username));
+        int max = Math.max(1, Math.min(limit, maxResults));
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        List<SearchHit> hits = new ArrayList<>();
+        boolean truncated = false;
+        try {
+            for (int start = 0; start < candidates.size() && !truncated; start += batchSize) {
+                List<Long> batch = candidates.subList(start, Math.min(start + batchSize, candidates.size()));
+                Map<Long, Object[]> rows = new HashMap<>();
+                snippetRepository.findSearchRows(batch).forEach(row -> rows.put((Long) row[0], row));
+                for (Long id : batch) {
+                    Object[] row = rows.get(id);
+                    SearchHit hit = row == null ? null : match(row, pattern, deadline);
+                    if (hit != null && hits.size() == max) {
+                        truncated = true;
+                        break;
+                    }
+                    if (hit != null) {
+                        hits.add(hit);
+                    }
+                }
+            }
+        } catch (DeadlineExceeded e) {
+            truncated = true;
+        }
+
+        return SearchResponse.builder()
+                .query(query)
+                .regex(regex)
+                .hits(hits)
+                .candidates(candidates.size())
+                .truncated(truncated)
+                .build();
+    }
+
+    private static SearchHit match(Object[] row, Pattern pattern, long deadline) {
+        String title = (String) row[2];
+        String description = (String) row[3];
+        String content = ((ContentBlob) row[6]).getContent();
+        String text = text(title, description, content);
+
+        Matcher matcher = pattern.matcher(new DeadlineCharSequence(text, deadline));
+        if (!matcher.find()) {
+            return null;
+        }
+        SearchHit.SearchHitBuilder hit = SearchHit.builder()
+                .snippetId((Long) row[0])
+                .title(title)
+                .language((String) row[4])
+                .updatedAt((LocalDateTime) row[5]);
+
+        // A match that starts in the title or description has no content line
+        int contentStart = text.length() - content.length();
+        int offset = matcher.start();
+        if (offset < contentStart && matcher.find(contentStart)) {
+            offset = matcher.start();
+        }
+        if (offset >= contentStart) {
+            int lineStart = content.lastIndexOf('\n', offset - contentStart - 1) + 1;
+            int lineEnd = content.indexOf('\n', offset - contentStart);
+            String line = content.substring(lineStart, lineEnd < 0 ? content.length() : lineEnd);
+            int lineNumber = 1;
+            for (int i = 0; i < lineStart; i++) {
+                if (content.charAt(i) == '\n') {
+                    lineNumber++;
+                }
+            }
+            hit.lineNumber(lineNumber)
+                    .line(line.length() > MAX_LINE_PREVIEW ? line.substring(0, MAX_LINE_PREVIEW) : line);
+        }
+        return hit.build();
+    }
+
+    private static String text(String title, String description, String content) {
+        return title + "\n" + (description == null ? "" : description) + "\n" + content;
+    }
+
+    // Imports commit through plain JDBC and publish without a surrounding transaction
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSnippetChanged(SnippetChangedEvent event) {
+        indexer.execute(() -> {
+            try {
+                reindex(List.of(event.snippetId()));
+            } catch (RuntimeException e) {
+                log.warn("Could not index snippet {}", event.snippetId(), e);
+            }
+        });
+    }
+
+    // Runs on the indexer thread, so changes committed meanwhile are applied after it
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        indexer.execute(() -> {
+            try {
+                if (!load()) {
+                    rebuild();
+                }
+                ready = true;
+            } catch (RuntimeException e) {
+                log.error("Could not build the search index", e);
+            }
+        });
+    }
+
+    private boolean load() {
+        if (!Files.exists(indexFile)) {
+            return false;
+        }
+        long started = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != FORMAT) {
+                return false;
+            }
+            String saved = in.readUTF();
+            watermark = saved.isEmpty() ? null : LocalDateTime.parse(saved);
+            index = TrigramIndex.readFrom(in);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Discarding unreadable search index {}", indexFile, e);
+            index = new TrigramIndex();
+            watermark = null;
+            return false;
+        }
+
+        // Snippets changed or deleted while the index was not running
+        Set<Long> stale = new HashSet<>(watermark == null ? List.of()
+                : snippetRepository.findIdsUpdatedSince(watermark.minusMinutes(WATERMARK_SLACK_MINUTES)));
+        Set<Long> existing = new HashSet<>(snippetRepository.findAllIds());
+        Set<Long> indexed = index.snippetIds();
+        for (Long id : indexed) {
+            if (!existing.contains(id)) {
+                index.remove(id);
+                dirty.set(true);
+            }
+        }
+        for (Long id : existing) {
+            if (!indexed.contains(id)) {
+                stale.add(id);
+            }
+        }
+        reindex(stale);
+        log.info("Loaded search index with {} snippets, {} re-indexed, in {} ms", index.size(), stale.size(),
+                System.currentTimeMillis() - started);
+        return true;
+    }
+
+    private void rebuild() {
+        long started = System.currentTimeMillis();
+        Long after = 0L;
+        List<Long> ids;
+        do {
+            ids = snippetRepository.findIdsAfter(after, PageRequest.of(0, batchSize));
+            if (!ids.isEmpty()) {
+                reindex(ids);
+                after = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == batchSize);
+        log.info("Built search index with {} snippets in {} ms", index.size(), System.currentTimeMillis() - started);
+    }
+
+    private void reindex(Collection<Long> ids) {
+        List<Long> all = List.copyOf(ids);
+        for (int start = 0; start < all.size(); start += batchSize) {
+            List<Long> batch = all.subList(start, Math.min(start + batchSize, all.size()));
+            Set<Long> missing = new HashSet<>(batch);
+            for (Object[] row : snippetRepository.findSearchRows(batch)) {
+                Long id = (Long) row[0];
+                LocalDateTime updatedAt = (LocalDateTime) row[5];
+                index.put(id, (Long) row[1], text((String) row[2], (String) row[3],
+                        ((ContentBlob) row[6]).getContent()));
+                missing.remove(id);
+                if (updatedAt != null && (watermark == null || updatedAt.isAfter(watermark))) {
+                    watermark = updatedAt;
+                }
+            }
+            missing.forEach(index::remove);
+            dirty.set(true);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.persist-interval-ms:60000}")
+    public void persist() {
+        if (!ready || !dirty.getAndSet(false)) {
+            return;
+        }
+        TrigramIndex current = index;
+        if (current.retired() > current.size() * compactRatio) {
+            current.compact();
+        }
+        // Read before writing, so the saved watermark never runs ahead of the saved index
+        LocalDateTime saved = watermark;
+        try {
+            Files.createDirectories(indexFile.toAbsolutePath().getParent());
+            Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FORMAT);
+                out.writeUTF(saved == null ? "" : saved.toString());
+                current.writeTo(out);
+            }
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("Could not save search index to {}", indexFile, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        indexer.shutdown();
+        indexer.awaitTermination(10, TimeUnit.SECONDS);
+        persist();
+    }
+
+    private static final class DeadlineExceeded extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        DeadlineExceeded() {
+            super(null, null, false, false);
+        }
+    }
+
+    // Lets a pathological regex give up instead of backtracking for minutes
+    private static final class DeadlineCharSequence implements CharSequence {
+        private final CharSequence text;
+        private final long deadline;
+        private int reads;
+
+        DeadlineCharSequence(CharSequence text, long deadline) {
+            this.text = text;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if ((++reads & 0xFFFF) == 0 && System.currentTimeMillis() > deadline) {
+                throw new DeadlineExceeded();
+            }
+            return text.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new DeadlineCharSequence(text.subSequence(start, end), deadline);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.enterprise.codeplatform.service;
+
+/**
+ * Published when a snippet's title, description or current content changes, or when it is
+ * deleted. Listeners read the committed state themselves.
+ */
+public record SnippetChangedEvent(Long snippetId) {
+}
@@ -0,0 +1,287 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.storage.ContentCodec;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a user's snippets with their full version history and metrics as NDJSON: a
+ * "snippet" line followed by one "version" line per version in ascending order, and a final
+ * "summary" line. The export holds a single connection. Snippets are read in id pages; per
+ * page the keyframes that deltas cannot take from the stream are fetched in one query, and
+ * then one forward-only MySQL cursor (fetch size Integer.MIN_VALUE) reads the versions with
+ * their snippet columns in (snippet, version) index order, so memory stays flat however
+ * much history is exported.
+ */
+@Slf4j
+@Service
+public class SnippetExportService {
+
+    private static final String PAGE_SQL =
+            "SELECT s.id FROM code_snippets s WHERE s.user_id = ? AND s.id > ? ORDER BY s.id LIMIT ?";
+
+    // A delta is stored against the latest keyframe before it, which the cursor has just passed,
+    // unless it shares the payload of an older version; only those older keyframes are fetched
+    private static final String KEYFRAME_SQL = "SELECT k.snippet_id, k.version_number, b.data FROM code_versions k "
+            + "JOIN content_blobs b ON b.hash = k.blob_hash WHERE k.snippet_id IN (%s) AND k.storage_type = 'FULL' "
+            + "AND EXISTS (SELECT 1 FROM code_versions d WHERE d.snippet_id = k.snippet_id "
+            + "AND d.storage_type = 'DELTA' AND d.base_version_number = k.version_number "
+            + "AND EXISTS (SELECT 1 FROM code_versions n WHERE n.snippet_id = k.snippet_id "
+            + "AND n.storage_type = 'FULL' AND n.version_number > k.version_number "
+            + "AND n.version_number < d.version_number))";
+
+    // Snippet columns repeat on every row, but the current content is only read for the first
+    // version; method metrics are aggregated per row, so they stream with the version instead of
+    // multiplying it. Every snippet has at least one version.
+    private static final String ROW_SQL = "SELECT s.id, s.title, s.description, s.language, s.active_version_number, "
+            + "s.created_at, s.updated_at, CASE WHEN v.version_number = (SELECT MIN(f.version_number) "
+            + "FROM code_versions f WHERE f.snippet_id = v.snippet_id) THEN (SELECT c.data FROM content_blobs c "
+            + "WHERE c.hash = s.current_blob_hash) END, "
+            + "v.version_number, v.commit_message, v.storage_type, v.base_version_number, v.created_at, b.data, "
+            + "m.id, m.loc, m.cyclomatic_complexity, m.keyword_count, m.method_count, m.decision_points, "
+            + "m.max_nesting_depth, m.max_method_length, m.halstead_distinct_operators, "
+            + "m.halstead_distinct_operands, m.halstead_total_operators, m.halstead_total_operands, "
+            + "m.halstead_volume, m.halstead_difficulty, m.halstead_effort, "
+            + "(SELECT JSON_ARRAYAGG(JSON_OBJECT('index', mm.method_index, 'name', mm.method_name, "
+            + "'startLine', mm.start_line, 'length', mm.length, 'cyclomaticComplexity', mm.cyclomatic_complexity, "
+            + "'maxNestingDepth', mm.max_nesting_depth, 'halsteadVolume', mm.halstead_volume)) "
+            + "FROM code_method_metrics mm WHERE mm.metrics_id = m.id) "
+            + "FROM code_versions v JOIN code_snippets s ON s.id = v.snippet_id "
+            + "JOIN content_blobs b ON b.hash = v.blob_hash LEFT JOIN code_metrics m ON m.version_id = v.id "
+            + "WHERE v.snippet_id IN (%s) ORDER BY v.snippet_id, v.version_number";
+
+    private static final String[] METRIC_FIELDS = { "loc", "cyclomaticComplexity", "keywordCount", "methodCount",
+            "decisionPoints", "maxNestingDepth", "maxMethodLength", "halsteadDistinctOperators",
+            "halsteadDistinctOperands", "halsteadTotalOperators", "halsteadTotalOperands", "halsteadVolume",
+            "halsteadDifficulty", "halsteadEffort" };
+
+    /**
+     * Keyframes a delta of the snippet under the cursor can be stored against.
+     */
+    private static final class Keyframes {
+        final Map<Long, Map<Integer, String>> older;
+        long snippetId;
+        int latestNumber;
+        String latest;
+
+        Keyframes(Map<Long, Map<Integer, String>> older) {
+            this.older = older;
+        }
+
+        void snippet(long snippetId) {
+            this.snippetId = snippetId;
+            latest = null;
+        }
+
+        void keyframe(int number, String content) {
+            latestNumber = number;
+            latest = content;
+        }
+
+        String base(int number) {
+            if (latest != null && latestNumber == number) {
+                return latest;
+            }
+            String keyframe = older.getOrDefault(snippetId, Map.of()).get(number);
+            if (keyframe == null) {
+                throw new IllegalStateException("Keyframe version " + number + " of snippet " + snippetId
+                        + " not found");
+            }
+            return keyframe;
+        }
+    }
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.transfer.page-size:200}")
+    private int pageSize;
+
+    @Value("${app.transfer.flush-every:500}")
+    private int flushEvery;
+
+    public SnippetExportService(DataSource dataSource, ObjectMapper objectMapper) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+    }
+
+    public void export(Long userId, OutputStream out) throws IOException {
+        long started = System.currentTimeMillis();
+        long snippets = 0;
+        long versions = 0;
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement page = connection.prepareStatement(PAGE_SQL);
+                JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.setRootValueSeparator(new SerializedString("\n"));
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            long after = 0;
+            List<Long> ids;
+            do {
+                ids = pageIds(page, userId, after);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                after = ids.get(ids.size() - 1);
+
+                // The streaming cursor must be the only open result on the connection, so the
+                // keyframe lookup is fully read before it starts
+                Keyframes keyframes = new Keyframes(olderKeyframes(connection, ids));
+                try (PreparedStatement rows = streaming(connection, ROW_SQL, ids);
+                        ResultSet row = rows.executeQuery()) {
+                    while (row.next()) {
+                        long snippetId = row.getLong(1);
+                        if (snippetId != keyframes.snippetId) {
+                            keyframes.snippet(snippetId);
+                            writeSnippet(json, row);
+                            snippets++;
+                        }
+                        writeVersion(json, row, keyframes);
+                        versions++;
+                        if (versions % flushEvery == 0) {
+                            json.flush();
+                        }
+                    }
+                }
+                json.flush();
+            } while (ids.size() == pageSize);
+
+            long elapsed = Math.max(1, System.currentTimeMillis() - started);
+            json.writeStartObject();
+            json.writeStringField("type", "summary");
+            json.writeNumberField("snippets", snippets);
+            json.writeNumberField("versions", versions);
+            json.writeNumberField("elapsedMs", elapsed);
+            json.writeNumberField("rowsPerSecond", (snippets + versions) * 1000 / elapsed);
+            json.writeEndObject();
+            json.writeRaw('\n');
+            log.info("Exported {} snippets and {} versions for user {} in {} ms ({} rows/s)", snippets, versions,
+                    userId, elapsed, (snippets + versions) * 1000 / elapsed);
+        } catch (SQLException e) {
+            // The response is already committed, so the client sees a truncated stream without a summary
+            throw new IllegalStateException("Export failed after " + snippets + " snippets", e);
+        }
+    }
+
+    private List<Long> pageIds(PreparedStatement page, Long userId, long after) throws SQLException {
+        page.setLong(1, userId);
+        page.setLong(2, after);
+        page.setInt(3, pageSize);
+        List<Long> ids = new ArrayList<>(pageSize);
+        try (ResultSet rs = page.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private static Map<Long, Map<Integer, String>> olderKeyframes(Connection connection, List<Long> ids)
+            throws SQLException {
+        Map<Long, Map<Integer, String>> keyframes = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                String.format(KEYFRAME_SQL, String.join(",", Collections.nCopies(ids.size(), "?"))))) {
+            for (int i = 0; i < ids.size(); i++) {
+                statement.setLong(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    keyframes.computeIfAbsent(rs.getLong(1), id -> new HashMap<>())
+                            .put(rs.getInt(2), ContentCodec.decode(rs.getBytes(3)));
+                }
+            }
+        }
+        return keyframes;
+    }
+
+    private static PreparedStatement streaming(Connection connection, String sql, List<Long> ids)
+            throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(
+                String.format(sql, String.join(",", Collections.nCopies(ids.size(), "?"))),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(Integer.MIN_VALUE);
+        for (int i = 0; i < ids.size(); i++) {
+            statement.setLong(i + 1, ids.get(i));
+        }
+        return statement;
+    }
+
+    private static void writeSnippet(JsonGenerator json, ResultSet rs) throws SQLException, IOException {
+        json.writeStartObject();
+        json.writeStringField("type", "snippet");
+        json.writeNumberField("id", rs.getLong(1));
+        json.writeStringField("title", rs.getString(2));
+        json.writeStringField("description", rs.getString(3));
+        json.writeStringField("language", rs.getString(4));
+        json.writeNumberField("activeVersion", rs.getInt(5));
+        writeTimestamp(json, "createdAt", rs.getTimestamp(6));
+        writeTimestamp(json, "updatedAt", rs.getTimestamp(7));
+        json.writeStringField("content", ContentCodec.decode(rs.getBytes(8)));
+        json.writeEndObject();
+    }
+
+    private static void writeVersion(JsonGenerator json, ResultSet rs, Keyframes keyframes)
+            throws SQLException, IOException {
+        int number = rs.getInt(9);
+        String payload = ContentCodec.decode(rs.getBytes(14));
+        String content;
+        if ("DELTA".equals(rs.getString(11))) {
+            content = LineDeltaCodec.apply(keyframes.base(rs.getInt(12)), payload);
+        } else {
+            content = payload;
+            keyframes.keyframe(number, content);
+        }
+
+        json.writeStartObject();
+        json.writeStringField("type", "version");
+        json.writeNumberField("snippet", rs.getLong(1));
+        json.writeNumberField("number", number);
+        json.writeStringField("message", rs.getString(10));
+        writeTimestamp(json, "createdAt", rs.getTimestamp(13));
+        json.writeStringField("content", content);
+        rs.getLong(15);
+        if (!rs.wasNull()) {
+            json.writeObjectFieldStart("metrics");
+            for (int i = 0; i < METRIC_FIELDS.length; i++) {
+                Object value = rs.getObject(16 + i);
+                if (value != null) {
+                    json.writeFieldName(METRIC_FIELDS[i]);
+                    json.writeNumber(((Number) value).toString());
+                }
+            }
+            String methods = rs.getString(16 + METRIC_FIELDS.length);
+            if (methods != null) {
+                json.writeFieldName("methods");
+                json.writeRawValue(methods);
+            }
+            json.writeEndObject();
+        }
+        json.writeEndObject();
+    }
+
+    private static void writeTimestamp(JsonGenerator json, String field, Timestamp timestamp) throws IOException {
+        if (timestamp == null) {
+            json.writeNullField(field);
+        } else {
+            json.writeStringField(field, timestamp.toLocalDateTime().toString());
+        }
+    }
+}
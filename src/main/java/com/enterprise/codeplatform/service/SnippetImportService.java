@@ -0,0 +1,467 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.ImportReport;
+import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.storage.ContentCodec;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports the NDJSON produced by {@link SnippetExportService} as new snippets of the caller.
+ * Lines are parsed one at a time and rows are written with JDBC batches. Each version is
+ * encoded with the configured storage policy, payloads are shared through the
+ * content-addressed blob table with their reference counts, and versions that arrive
+ * without metrics get a metrics task. Flushes keep memory bounded; they commit only between
+ * snippets, so a failed import keeps the snippets completed before the failure and never
+ * part of one.
+ */
+@Slf4j
+@Service
+public class SnippetImportService {
+
+    private static final String BLOB_SQL = "INSERT INTO content_blobs (hash, data, codec, size, stored_size, "
+            + "ref_count) VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE ref_count = ref_count + VALUES(ref_count)";
+
+    private static final String SNIPPET_SQL = "INSERT INTO code_snippets (title, description, current_blob_hash, "
+            + "language, user_id, created_at, updated_at, active_version_number) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String VERSION_SQL = "INSERT INTO code_versions (snippet_id, blob_hash, content_hash, "
+            + "content_size, version_number, commit_message, storage_type, base_version_number, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String METRICS_SQL = "INSERT INTO code_metrics (version_id, loc, cyclomatic_complexity, "
+            + "keyword_count, method_count, decision_points, max_nesting_depth, max_method_length, "
+            + "halstead_distinct_operators, halstead_distinct_operands, halstead_total_operators, "
+            + "halstead_total_operands, halstead_volume, halstead_difficulty, halstead_effort) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String METHOD_SQL = "INSERT INTO code_method_metrics (metrics_id, method_index, "
+            + "method_name, start_line, length, cyclomatic_complexity, max_nesting_depth, halstead_volume) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String TASK_SQL = "INSERT INTO metrics_tasks (version_id, attempts, next_attempt_at, "
+            + "failed, created_at) VALUES (?, 0, ?, false, ?)";
+
+    private static final String AUDIT_SQL =
+            "INSERT INTO audit_logs (action, entity_name, entity_id, perform_by, timestamp) VALUES (?, ?, ?, ?, ?)";
+
+    // Integer columns of code_metrics in insert order, followed by the three double columns
+    private static final String[] INT_METRICS = { "loc", "cyclomaticComplexity", "keywordCount", "methodCount",
+            "decisionPoints", "maxNestingDepth", "maxMethodLength", "halsteadDistinctOperators",
+            "halsteadDistinctOperands", "halsteadTotalOperators", "halsteadTotalOperands" };
+    private static final String[] DOUBLE_METRICS = { "halsteadVolume", "halsteadDifficulty", "halsteadEffort" };
+
+    private static final class PendingBlob {
+        final byte[] data;
+        final String codec;
+        final long size;
+        int references;
+
+        PendingBlob(byte[] data, String codec, long size) {
+            this.data = data;
+            this.codec = codec;
+            this.size = size;
+        }
+    }
+
+    private static final class PendingSnippet {
+        final JsonNode record;
+        final String currentBlobHash;
+        Long id;
+
+        PendingSnippet(JsonNode record, String currentBlobHash) {
+            this.record = record;
+            this.currentBlobHash = currentBlobHash;
+        }
+    }
+
+    private static final class PendingVersion {
+        final PendingSnippet snippet;
+        final JsonNode record;
+        final String contentHash;
+        final long contentSize;
+        final String blobHash;
+        final VersionStorageService.Payload payload;
+        Long id;
+
+        PendingVersion(PendingSnippet snippet, JsonNode record, String contentHash, long contentSize,
+                String blobHash, VersionStorageService.Payload payload) {
+            this.snippet = snippet;
+            this.record = record;
+            this.contentHash = contentHash;
+            this.contentSize = contentSize;
+            this.blobHash = blobHash;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Rows parsed since the last flush, and the storage state of the snippet being read.
+     */
+    private final class Batch {
+        final Long userId;
+        final String username;
+        final Map<String, PendingBlob> blobs = new LinkedHashMap<>();
+        final List<PendingSnippet> snippets = new ArrayList<>();
+        final List<PendingVersion> versions = new ArrayList<>();
+        final List<Long> imported = new ArrayList<>();
+        long snippetCount;
+        long versionCount;
+        long metricsCount;
+
+        PendingSnippet current;
+        Integer keyframeNumber;
+        String keyframeContent;
+        // Payload planned for each content hash of the current snippet; identical content shares it
+        final Map<String, VersionStorageService.Payload> byContentHash = new HashMap<>();
+        final Set<Integer> numbers = new HashSet<>();
+        // Snippets written since the last commit
+        final List<Long> written = new ArrayList<>();
+        boolean uncommitted;
+
+        Batch(Long userId, String username) {
+            this.userId = userId;
+            this.username = username;
+        }
+
+        void snippet(JsonNode record) {
+            current = new PendingSnippet(record, blob(text(record, "content")));
+            snippets.add(current);
+            keyframeNumber = null;
+            keyframeContent = null;
+            byContentHash.clear();
+            numbers.clear();
+        }
+
+        // The active version must be one of the snippet's versions, or reads of it would fail
+        void endSnippet() {
+            if (current != null && !numbers.contains(activeVersion(current.record))) {
+                throw new IllegalArgumentException("activeVersion " + activeVersion(current.record)
+                        + " is not one of the versions of snippet \"" + current.record.path("title").asText() + "\"");
+            }
+            current = null;
+        }
+
+        void version(JsonNode record) {
+            if (current == null) {
+                throw new IllegalArgumentException("version line before any snippet line");
+            }
+            int number = record.path("number").asInt();
+            numbers.add(number);
+            String content = text(record, "content");
+            String contentHash = ContentBlobService.hash(content);
+
+            VersionStorageService.Payload payload = byContentHash.get(contentHash);
+            if (payload == null) {
+                payload = versionStorageService.plan(number, content, keyframeNumber, keyframeContent);
+                byContentHash.put(contentHash, payload);
+                if (payload.storageType() == CodeVersion.StorageType.FULL) {
+                    keyframeNumber = number;
+                    keyframeContent = content;
+                }
+            }
+            versions.add(new PendingVersion(current, record, contentHash, content.length(), blob(payload.text()),
+                    payload));
+        }
+
+        // Takes one reference; blobs written by an earlier flush get theirs through the upsert
+        private String blob(String payload) {
+            String hash = ContentBlobService.hash(payload);
+            blobs.computeIfAbsent(hash, h -> {
+                byte[] data = blobService.getCodec().encode(payload);
+                return new PendingBlob(data, blobService.getCodec().name(), ContentCodec.rawLength(data));
+            }).references++;
+            return hash;
+        }
+
+        boolean full() {
+            return versions.size() + snippets.size() >= batchSize;
+        }
+    }
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final VersionStorageService versionStorageService;
+    private final ContentBlobService blobService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.transfer.batch-size:500}")
+    private int batchSize;
+
+    public SnippetImportService(DataSource dataSource, ObjectMapper objectMapper,
+            VersionStorageService versionStorageService, ContentBlobService blobService,
+            ApplicationEventPublisher eventPublisher) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.versionStorageService = versionStorageService;
+        this.blobService = blobService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public ImportReport importSnippets(InputStream in, Long userId, String username) {
+        long started = System.currentTimeMillis();
+        Batch batch = new Batch(userId, username);
+        long line = 0;
+        try (Connection connection = dataSource.getConnection();
+                JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            connection.setAutoCommit(false);
+            try {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    line++;
+                    JsonNode record = objectMapper.readTree(parser);
+                    switch (record.path("type").asText()) {
+                        case "snippet" -> {
+                            // Keep a snippet's first rows together with its header where possible,
+                            // and commit a snippet that was written in several flushes
+                            batch.endSnippet();
+                            if (batch.full() || batch.uncommitted) {
+                                flush(connection, batch);
+                            }
+                            batch.snippet(record);
+                        }
+                        case "version" -> {
+                            batch.version(record);
+                            if (batch.full()) {
+                                flush(connection, batch);
+                            }
+                        }
+                        case "summary" -> batch.endSnippet();
+                        default -> throw new IllegalArgumentException("unknown record type");
+                    }
+                }
+                batch.endSnippet();
+                flush(connection, batch);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (IOException | RuntimeException | SQLException e) {
+            log.warn("Import for user {} failed at record {}", userId, line, e);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Import failed at record " + line + " ("
+                    + e.getMessage() + "); " + batch.imported.size() + " snippets were imported before it");
+        } finally {
+            batch.imported.forEach(id -> eventPublisher.publishEvent(new SnippetChangedEvent(id)));
+        }
+
+        long elapsed = Math.max(1, System.currentTimeMillis() - started);
+        long rows = batch.snippetCount + batch.versionCount + batch.metricsCount;
+        log.info("Imported {} snippets, {} versions and {} metrics for user {} in {} ms ({} rows/s)",
+                batch.snippetCount, batch.versionCount, batch.metricsCount, userId, elapsed, rows * 1000 / elapsed);
+        return ImportReport.builder()
+                .snippets(batch.snippetCount)
+                .versions(batch.versionCount)
+                .metrics(batch.metricsCount)
+                .elapsedMs(elapsed)
+                .rowsPerSecond(rows * 1000 / elapsed)
+                .build();
+    }
+
+    private void flush(Connection connection, Batch batch) throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp nowTimestamp = Timestamp.valueOf(now);
+
+        // Blobs first: snippets and versions reference them
+        try (PreparedStatement ps = connection.prepareStatement(BLOB_SQL)) {
+            for (Map.Entry<String, PendingBlob> entry : batch.blobs.entrySet()) {
+                PendingBlob blob = entry.getValue();
+                ps.setString(1, entry.getKey());
+                ps.setBytes(2, blob.data);
+                ps.setString(3, blob.codec);
+                ps.setLong(4, blob.size);
+                ps.setLong(5, blob.data.length);
+                ps.setInt(6, blob.references);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        List<PendingSnippet> newSnippets = batch.snippets.stream().filter(s -> s.id == null).toList();
+        try (PreparedStatement ps = connection.prepareStatement(SNIPPET_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (PendingSnippet snippet : newSnippets) {
+                JsonNode r = snippet.record;
+                ps.setString(1, text(r, "title"));
+                ps.setString(2, r.path("description").isTextual() ? r.get("description").asText() : null);
+                ps.setString(3, snippet.currentBlobHash);
+                ps.setString(4, text(r, "language"));
+                ps.setLong(5, batch.userId);
+                ps.setTimestamp(6, timestamp(r, "createdAt", nowTimestamp));
+                ps.setTimestamp(7, timestamp(r, "updatedAt", nowTimestamp));
+                ps.setInt(8, activeVersion(r));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            assignKeys(ps, newSnippets, (snippet, id) -> snippet.id = id);
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement(VERSION_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (PendingVersion version : batch.versions) {
+                JsonNode r = version.record;
+                ps.setLong(1, version.snippet.id);
+                ps.setString(2, version.blobHash);
+                ps.setString(3, version.contentHash);
+                ps.setLong(4, version.contentSize);
+                ps.setInt(5, r.path("number").asInt());
+                ps.setString(6, r.path("message").isTextual() ? r.get("message").asText() : null);
+                ps.setString(7, version.payload.storageType().name());
+                if (version.payload.baseVersionNumber() == null) {
+                    ps.setNull(8, Types.INTEGER);
+                } else {
+                    ps.setInt(8, version.payload.baseVersionNumber());
+                }
+                ps.setTimestamp(9, timestamp(r, "createdAt", nowTimestamp));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            assignKeys(ps, batch.versions, (version, id) -> version.id = id);
+        }
+
+        List<PendingVersion> withMetrics = batch.versions.stream()
+                .filter(v -> v.record.path("metrics").isObject()).toList();
+        List<Long> metricIds = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(METRICS_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (PendingVersion version : withMetrics) {
+                JsonNode metrics = version.record.get("metrics");
+                ps.setLong(1, version.id);
+                for (int i = 0; i < INT_METRICS.length; i++) {
+                    JsonNode value = metrics.path(INT_METRICS[i]);
+                    if (value.isNumber()) {
+                        ps.setInt(2 + i, value.asInt());
+                    } else {
+                        ps.setNull(2 + i, Types.INTEGER);
+                    }
+                }
+                for (int i = 0; i < DOUBLE_METRICS.length; i++) {
+                    JsonNode value = metrics.path(DOUBLE_METRICS[i]);
+                    if (value.isNumber()) {
+                        ps.setDouble(2 + INT_METRICS.length + i, value.asDouble());
+                    } else {
+                        ps.setNull(2 + INT_METRICS.length + i, Types.DOUBLE);
+                    }
+                }
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            assignKeys(ps, withMetrics, (version, id) -> metricIds.add(id));
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement(METHOD_SQL)) {
+            for (int m = 0; m < withMetrics.size(); m++) {
+                for (JsonNode method : withMetrics.get(m).record.get("metrics").path("methods")) {
+                    ps.setLong(1, metricIds.get(m));
+                    ps.setInt(2, method.path("index").asInt());
+                    ps.setString(3, method.path("name").asText());
+                    ps.setInt(4, method.path("startLine").asInt());
+                    ps.setInt(5, method.path("length").asInt());
+                    ps.setInt(6, method.path("cyclomaticComplexity").asInt());
+                    ps.setInt(7, method.path("maxNestingDepth").asInt());
+                    ps.setDouble(8, method.path("halsteadVolume").asDouble());
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement(TASK_SQL)) {
+            for (PendingVersion version : batch.versions) {
+                if (!version.record.path("metrics").isObject()) {
+                    ps.setLong(1, version.id);
+                    ps.setTimestamp(2, nowTimestamp);
+                    ps.setTimestamp(3, nowTimestamp);
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement(AUDIT_SQL)) {
+            for (PendingSnippet snippet : newSnippets) {
+                ps.setString(1, "SNIPPET_IMPORTED");
+                ps.setString(2, "CodeSnippet");
+                ps.setLong(3, snippet.id);
+                ps.setString(4, batch.username);
+                ps.setTimestamp(5, nowTimestamp);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        newSnippets.forEach(snippet -> batch.written.add(snippet.id));
+        batch.uncommitted = batch.current != null;
+        if (!batch.uncommitted) {
+            connection.commit();
+            batch.imported.addAll(batch.written);
+            batch.written.clear();
+        }
+        batch.snippetCount += newSnippets.size();
+        batch.versionCount += batch.versions.size();
+        batch.metricsCount += withMetrics.size();
+
+        // Blobs of this flush are now written; later versions that share them only add references
+        batch.blobs.clear();
+        batch.snippets.clear();
+        batch.versions.clear();
+        if (batch.current != null) {
+            batch.snippets.add(batch.current);
+        }
+    }
+
+    private interface KeyConsumer<T> {
+        void accept(T row, long id);
+    }
+
+    private static <T> void assignKeys(PreparedStatement ps, List<T> rows, KeyConsumer<T> consumer)
+            throws SQLException {
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            for (T row : rows) {
+                if (!keys.next()) {
+                    throw new SQLException("Missing generated key");
+                }
+                consumer.accept(row, keys.getLong(1));
+            }
+        }
+    }
+
+    private static int activeVersion(JsonNode record) {
+        return record.path("activeVersion").asInt(1);
+    }
+
+    private static String text(JsonNode record, String field) {
+        JsonNode value = record.get(field);
+        if (value == null || !value.isTextual()) {
+            throw new IllegalArgumentException("missing " + field);
+        }
+        return value.asText();
+    }
+
+    private static Timestamp timestamp(JsonNode record, String field, Timestamp fallback) {
+        JsonNode value = record.get(field);
+        return value == null || !value.isTextual() ? fallback : Timestamp.valueOf(LocalDateTime.parse(value.asText()));
+    }
+}
@@ -0,0 +1,66 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.RunResponse;
+import com.enterprise.codeplatform.sandbox.SandboxPool;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiles snippets in memory and runs them in the sandbox worker pool.
+ */
+@Service
+@RequiredArgsConstructor
+public class SnippetRunService {
+
+    private final CompilerService compilerService;
+    private final SandboxPool sandboxPool;
+    private final SnippetService snippetService;
+
+    @Value("${app.sandbox.max-stdin-bytes:65536}")
+    private int maxStdinBytes;
+
+    public RunResponse run(String code, String stdin) {
+        if (code == null || code.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "content is required");
+        }
+        String input = stdin == null ? "" : stdin;
+        if (input.getBytes(StandardCharsets.UTF_8).length > maxStdinBytes) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "stdin is limited to " + maxStdinBytes + " bytes");
+        }
+
+        long started = System.nanoTime();
+        CompilerService.Compilation compilation = compilerService.compileClasses(code);
+        long compileTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        if (!compilation.getErrors().isEmpty()) {
+            return RunResponse.builder()
+                    .status("COMPILE_ERROR")
+                    .compileErrors(compilation.getErrors())
+                    .compileTimeMs(compileTimeMs)
+                    .build();
+        }
+
+        SandboxPool.Result result = sandboxPool.run(compilation.getClasses(), compilation.getMainClass(), input);
+        return RunResponse.builder()
+                .status(result.status().name())
+                .compileErrors(List.of())
+                .stdout(result.stdout())
+                .stderr(result.stderr())
+                .error(result.error().isEmpty() ? null : result.error())
+                .compileTimeMs(compileTimeMs)
+                .cpuTimeMs(TimeUnit.NANOSECONDS.toMillis(result.cpuNanos()))
+                .wallTimeMs(TimeUnit.NANOSECONDS.toMillis(result.wallNanos()))
+                .build();
+    }
+
+    public RunResponse runSnippet(Long id, String stdin, String username) {
+        return run(snippetService.getSnippet(id, username).getCurrentContent(), stdin);
+    }
+}
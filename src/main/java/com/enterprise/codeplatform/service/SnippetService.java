@@ -1,41 +1,81 @@
 package com.enterprise.codeplatform.service;
 
 import com.enterprise.codeplatform.dto.SnippetRequest;
+import com.enterprise.codeplatform.dto.SnippetPage;
+import com.enterprise.codeplatform.dto.SnippetPatchRequest;
 import com.enterprise.codeplatform.dto.SnippetResponse;
+import com.enterprise.codeplatform.dto.SnippetSummary;
+import com.enterprise.codeplatform.dto.VersionPage;
+import com.enterprise.codeplatform.dto.VersionSummary;
 import com.enterprise.codeplatform.entity.CodeSnippet;
 import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.entity.ContentBlob;
 import com.enterprise.codeplatform.entity.User;
-import com.enterprise.codeplatform.repository.AuditLogRepository;
 import com.enterprise.codeplatform.repository.CodeMetricsRepository;
 import com.enterprise.codeplatform.repository.CodeSnippetRepository;
 import com.enterprise.codeplatform.repository.CodeVersionRepository;
+import com.enterprise.codeplatform.repository.MetricsTaskRepository;
 import com.enterprise.codeplatform.repository.UserRepository;
+import com.enterprise.codeplatform.repository.VersionBlameRepository;
+import com.enterprise.codeplatform.repository.VersionSignatureRepository;
+import com.enterprise.codeplatform.security.AuthenticatedUser;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class SnippetService {
 
+    // Upper bound for the first updatedAt page that still fits a MySQL DATETIME
+    private static final LocalDateTime LISTING_START = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
     private final CodeSnippetRepository snippetRepository;
     private final CodeVersionRepository versionRepository;
     private final UserRepository userRepository;
-    private final MetricsService metricsService;
     private final CodeMetricsRepository metricsRepository;
-    private final AuditLogRepository auditLogRepository;
+    private final MetricsTaskRepository metricsTaskRepository;
+    private final MetricsOutboxService metricsOutboxService;
+    private final VersionBlameRepository blameRepository;
+    private final VersionSignatureRepository signatureRepository;
+    private final AuditService auditService;
+    private final PatchService patchService;
+    private final VersionStorageService versionStorageService;
+    private final ContentBlobService blobService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.versions.max-history-page-size:200}")
+    private int maxHistoryPageSize;
+
+    @Value("${app.snippets.max-page-size:100}")
+    private int maxSnippetPageSize;
 
     @Transactional
     public SnippetResponse createSnippet(SnippetRequest request, String username) {
-        User author = userRepository.findByEmail(username).orElseThrow();
+        User author = currentUser(username);
 
         CodeSnippet snippet = CodeSnippet.builder()
                 .title(request.getTitle())
                 .description(request.getDescription())
-                .currentContent(request.getContent())
+                .currentBlob(blobService.store(request.getContent()))
                 .language(request.getLanguage())
                 .author(author)
                 .activeVersionNumber(1)
@@ -44,33 +84,77 @@ public class SnippetService {
         snippet = snippetRepository.save(snippet);
 
         createVersionEntry(snippet, request.getContent(), 1, "Initial version", username);
+        eventPublisher.publishEvent(new SnippetChangedEvent(snippet.getId()));
 
         return mapToResponse(snippet);
     }
 
     @Transactional
     public SnippetResponse updateSnippet(Long id, SnippetRequest request, String username) {
-        CodeSnippet snippet = snippetRepository.findById(id).orElseThrow();
+        CodeSnippet snippet = snippetRepository.findByIdForUpdate(id).orElseThrow();
+        checkOwnership(snippet, username);
+
+        return saveNewContent(snippet, request.getContent(), request.getTitle(), request.getDescription(), username);
+    }
+
+    /**
+     * Applies a patch made against {@code baseVersion}. If another save happened since, the
+     * patch is rebased onto the active version, or rejected with 409 when the edits overlap.
+     * The content is only returned when it differs from what the client computed locally.
+     */
+    @Transactional
+    public SnippetResponse patchSnippet(Long id, SnippetPatchRequest request, boolean includeContent,
+            String username) {
+        if (request.getBaseVersion() == null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "baseVersion is required");
+
+        CodeSnippet snippet = snippetRepository.findByIdForUpdate(id).orElseThrow();
         checkOwnership(snippet, username);
 
+        String active = snippet.getCurrentBlob().getContent();
+        boolean rebased = request.getBaseVersion() != snippet.getActiveVersionNumber();
+        String content;
+        if (!rebased) {
+            content = patchService.apply(active, request);
+        } else {
+            CodeVersion base = versionRepository.findBySnippetIdAndVersionNumber(id, request.getBaseVersion());
+            if (base == null)
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Base version no longer exists");
+            String baseContent = versionStorageService.resolve(base);
+            content = patchService.rebase(baseContent, patchService.apply(baseContent, request), active);
+        }
+
+        SnippetResponse response = saveNewContent(snippet, content, request.getTitle(), request.getDescription(),
+                username);
+        if (!includeContent && !rebased) {
+            response.setCurrentContent(null);
+        }
+        return response;
+    }
+
+    private SnippetResponse saveNewContent(CodeSnippet snippet, String content, String title, String description,
+            String username) {
         int nextVersion = snippet.getActiveVersionNumber() + 1;
-        snippet.setCurrentContent(request.getContent());
+        ContentBlob previousContent = snippet.getCurrentBlob();
+        snippet.setCurrentBlob(blobService.store(content));
         snippet.setActiveVersionNumber(nextVersion);
-        if (request.getTitle() != null)
-            snippet.setTitle(request.getTitle());
-        if (request.getDescription() != null)
-            snippet.setDescription(request.getDescription());
+        if (title != null)
+            snippet.setTitle(title);
+        if (description != null)
+            snippet.setDescription(description);
 
         snippet = snippetRepository.save(snippet);
+        blobService.release(previousContent);
 
-        createVersionEntry(snippet, request.getContent(), nextVersion, "Updated version " + nextVersion, username);
+        createVersionEntry(snippet, content, nextVersion, "Updated version " + nextVersion, username);
+        eventPublisher.publishEvent(new SnippetChangedEvent(snippet.getId()));
 
         return mapToResponse(snippet);
     }
 
     @Transactional
     public SnippetResponse rollback(Long id, int versionNumber, String username) {
-        CodeSnippet snippet = snippetRepository.findById(id).orElseThrow();
+        CodeSnippet snippet = snippetRepository.findByIdForUpdate(id).orElseThrow();
         checkOwnership(snippet, username);
 
         CodeVersion version = versionRepository.findBySnippetIdAndVersionNumber(id, versionNumber);
@@ -78,31 +162,144 @@ public class SnippetService {
         if (version == null)
             throw new RuntimeException("Version not found");
 
+        String content = versionStorageService.resolve(version);
         int nextVersion = snippet.getActiveVersionNumber() + 1;
-        snippet.setCurrentContent(version.getContent());
+        ContentBlob previousContent = snippet.getCurrentBlob();
+        snippet.setCurrentBlob(blobService.store(content));
         snippet.setActiveVersionNumber(nextVersion);
 
         snippet = snippetRepository.save(snippet);
+        blobService.release(previousContent);
 
-        createVersionEntry(snippet, version.getContent(), nextVersion, "Rolled back to version " + versionNumber,
-                username);
+        createVersionEntry(snippet, content, nextVersion, "Rolled back to version " + versionNumber, username);
+        eventPublisher.publishEvent(new SnippetChangedEvent(snippet.getId()));
 
         return mapToResponse(snippet);
     }
 
     public List<SnippetResponse> getAllSnippets(String username) {
-        User user = userRepository.findByEmail(username).orElseThrow();
+        User user = currentUser(username);
         return snippetRepository.findByAuthorId(user.getId()).stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    public SnippetPage getSnippetPage(String username, String cursor, int size, String sort,
+            boolean includeContent) {
+        int pageSize = Math.max(1, Math.min(size, maxSnippetPageSize));
+        boolean byTitle = "title".equalsIgnoreCase(sort);
+        String[] position = cursor == null ? null : decodeCursor(cursor, byTitle);
+
+        List<SnippetSummary> snippets;
+        if (byTitle) {
+            snippets = snippetRepository.findSummariesByTitle(username,
+                    position == null ? "" : position[0],
+                    position == null ? 0L : Long.parseLong(position[1]),
+                    PageRequest.of(0, pageSize));
+        } else {
+            snippets = snippetRepository.findSummariesByUpdatedAt(username,
+                    position == null ? LISTING_START : LocalDateTime.parse(position[0]),
+                    position == null ? Long.MAX_VALUE : Long.parseLong(position[1]),
+                    PageRequest.of(0, pageSize));
+        }
+
+        if (includeContent && !snippets.isEmpty()) {
+            Map<Long, String> contents = new HashMap<>();
+            List<Long> ids = snippets.stream().map(SnippetSummary::getId).collect(Collectors.toList());
+            for (Object[] row : snippetRepository.findCurrentBlobs(ids)) {
+                contents.put((Long) row[0], ((ContentBlob) row[1]).getContent());
+            }
+            snippets.forEach(summary -> summary.setCurrentContent(contents.get(summary.getId())));
+        }
+
+        String nextCursor = null;
+        if (snippets.size() == pageSize) {
+            SnippetSummary last = snippets.get(pageSize - 1);
+            nextCursor = encodeCursor(byTitle ? last.getTitle() : last.getUpdatedAt().toString(), last.getId());
+        }
+        return SnippetPage.builder()
+                .snippets(snippets)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Current content of the given snippets that belong to the user; other ids are left out.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, String> getCurrentContents(List<Long> ids, String username) {
+        Map<Long, String> contents = new HashMap<>();
+        for (Object[] row : snippetRepository.findCurrentBlobsOwnedBy(ids, username)) {
+            contents.put((Long) row[0], ((ContentBlob) row[1]).getContent());
+        }
+        return contents;
+    }
+
     public SnippetResponse getSnippet(Long id, String username) {
         CodeSnippet snippet = snippetRepository.findById(id).orElseThrow();
         checkOwnership(snippet, username);
         return mapToResponse(snippet);
     }
 
+    /**
+     * ETags for conditional reads, computed from a single indexed row before any content is
+     * loaded. Null when the row is missing or not owned by the caller, so the regular read
+     * reports the error. The matching overloads tag a loaded response the same way.
+     */
+    public String snippetETag(Long id, String username) {
+        List<Object[]> rows = snippetRepository.findValidators(id);
+        if (rows.isEmpty() || !username.equals(rows.get(0)[0]))
+            return null;
+        Object[] row = rows.get(0);
+        return snippetETag(id, (Integer) row[1], (String) row[2], (LocalDateTime) row[3]);
+    }
+
+    public String snippetETag(SnippetResponse snippet) {
+        return snippetETag(snippet.getId(), snippet.getActiveVersionNumber(),
+                ContentBlobService.hash(snippet.getCurrentContent()), snippet.getUpdatedAt());
+    }
+
+    // The blob hash is the SHA-256 of the content; updatedAt covers title and description edits
+    private static String snippetETag(Long id, int activeVersionNumber, String blobHash, LocalDateTime updatedAt) {
+        return "s" + id + "-" + activeVersionNumber + "-"
+                + ContentBlobService.hash(blobHash + "|" + updatedAt).substring(0, 16);
+    }
+
+    public String versionsETag(Long snippetId, String username) {
+        List<Object[]> rows = versionRepository.findListValidators(snippetId);
+        if (rows.isEmpty() || !username.equals(rows.get(0)[0]))
+            return null;
+        Object[] row = rows.get(0);
+        return versionsETag(snippetId, (Long) row[1], (Long) row[2], ((Number) row[3]).longValue());
+    }
+
+    public String versionsETag(Long snippetId, List<com.enterprise.codeplatform.dto.VersionResponse> versions) {
+        long max = 0;
+        long sum = 0;
+        for (com.enterprise.codeplatform.dto.VersionResponse version : versions) {
+            max = Math.max(max, version.getId());
+            sum += version.getId();
+        }
+        return versionsETag(snippetId, versions.size(), max, sum);
+    }
+
+    private static String versionsETag(Long snippetId, long count, long maxId, long idSum) {
+        return "l" + snippetId + "-" + count + "-" + maxId + "-" + Long.toString(idSum, 36);
+    }
+
+    public String versionETag(Long snippetId, int versionNumber, String username) {
+        List<Object[]> rows = versionRepository.findVersionValidator(snippetId, versionNumber);
+        if (rows.isEmpty() || !username.equals(rows.get(0)[0]))
+            return null;
+        return versionETag((Long) rows.get(0)[1]);
+    }
+
+    // Version numbers are never reused, and a version's content and message never change
+    public static String versionETag(Long versionId) {
+        return "v" + versionId;
+    }
+
     public String getVersionContent(Long snippetId, int versionNumber, String username) {
         CodeSnippet snippet = snippetRepository.findById(snippetId).orElseThrow();
         checkOwnership(snippet, username);
@@ -110,36 +307,56 @@ public class SnippetService {
         CodeVersion version = versionRepository.findBySnippetIdAndVersionNumber(snippetId, versionNumber);
         if (version == null)
             throw new RuntimeException("Version not found");
-        return version.getContent();
+        return versionStorageService.resolve(version);
+    }
+
+    /**
+     * Content of several versions of one snippet, checking ownership once and resolving
+     * shared delta bases once.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, String> getVersionContents(Long snippetId, Collection<Integer> versionNumbers,
+            String username) {
+        CodeSnippet snippet = snippetRepository.findById(snippetId).orElseThrow();
+        checkOwnership(snippet, username);
+
+        List<CodeVersion> versions = versionRepository.findBySnippetIdAndVersionNumberIn(snippetId, versionNumbers);
+        if (versions.size() != new HashSet<>(versionNumbers).size())
+            throw new RuntimeException("Version not found");
+
+        Map<Long, String> contents = versionStorageService.resolveAll(versions);
+        Map<Integer, String> byNumber = new HashMap<>();
+        versions.forEach(v -> byNumber.put(v.getVersionNumber(), contents.get(v.getId())));
+        return byNumber;
+    }
+
+    // Ownership and existence in one count query, without loading the snippet or any content
+    @Transactional(readOnly = true)
+    public boolean hasVersions(Long snippetId, Collection<Integer> versionNumbers, String username) {
+        return versionRepository.countOwnedVersions(snippetId, versionNumbers, username)
+                == new HashSet<>(versionNumbers).size();
     }
 
     private void createVersionEntry(CodeSnippet snippet, String content, int versionNum, String message,
             String username) {
         CodeVersion version = CodeVersion.builder()
                 .snippet(snippet)
-                .content(content)
                 .versionNumber(versionNum)
                 .commitMessage(message)
                 .build();
+        versionStorageService.store(version, content);
         version = versionRepository.save(version);
 
-        // Calculate and save metrics
-        com.enterprise.codeplatform.entity.CodeMetrics metrics = metricsService.calculateMetrics(version);
-        metricsRepository.save(metrics);
+        // Metrics are computed in the background; only the outbox entry is written here
+        metricsOutboxService.enqueue(version);
 
         // Log audit trail
-        com.enterprise.codeplatform.entity.AuditLog log = com.enterprise.codeplatform.entity.AuditLog.builder()
-                .action("VERSION_CREATED")
-                .entityName("CodeSnippet")
-                .entityId(snippet.getId())
-                .performBy(username)
-                .build();
-        auditLogRepository.save(log);
+        auditService.record("VERSION_CREATED", "CodeSnippet", snippet.getId(), username);
     }
 
     @Transactional
     public void deleteVersion(Long snippetId, int versionNumber, String username) {
-        CodeSnippet snippet = snippetRepository.findById(snippetId).orElseThrow();
+        CodeSnippet snippet = snippetRepository.findByIdForUpdate(snippetId).orElseThrow();
         checkOwnership(snippet, username);
 
         CodeVersion version = versionRepository.findBySnippetIdAndVersionNumber(snippetId, versionNumber);
@@ -151,46 +368,48 @@ public class SnippetService {
             throw new RuntimeException("Cannot delete the active version. Rollback to another version first.");
         }
 
-        // Delete associated metrics first to avoid FK constraint violation
+        // Delete the pending metrics task and derived rows first to avoid FK constraint violation
+        metricsTaskRepository.deleteByVersion(version);
         metricsRepository.deleteByVersion(version);
+        blameRepository.deleteByVersion(version);
+        signatureRepository.deleteByVersion(version);
 
+        versionStorageService.releaseKeyframe(version);
         versionRepository.delete(version);
+        versionStorageService.discard(version);
 
         // Log audit trail for deletion
-        com.enterprise.codeplatform.entity.AuditLog log = com.enterprise.codeplatform.entity.AuditLog.builder()
-                .action("VERSION_DELETED")
-                .entityName("CodeVersion")
-                .entityId(version.getId())
-                .performBy(username)
-                .build();
-        auditLogRepository.save(log);
+        auditService.record("VERSION_DELETED", "CodeVersion", version.getId(), username);
+        eventPublisher.publishEvent(new VersionsDeletedEvent(List.of(version.getId())));
     }
 
     @Transactional
     public void deleteVersionById(Long versionId, String username) {
-        CodeVersion version = versionRepository.findById(versionId)
+        Long snippetId = versionRepository.findSnippetIdById(versionId)
                 .orElseThrow(() -> new RuntimeException("Version not found"));
-
-        CodeSnippet snippet = version.getSnippet();
+        CodeSnippet snippet = snippetRepository.findByIdForUpdate(snippetId).orElseThrow();
         checkOwnership(snippet, username);
 
+        CodeVersion version = versionRepository.findById(versionId)
+                .orElseThrow(() -> new RuntimeException("Version not found"));
+
         if (snippet.getActiveVersionNumber() == version.getVersionNumber()) {
             throw new RuntimeException("Cannot delete the active version. Rollback to another version first.");
         }
 
-        // Delete associated metrics first to avoid FK constraint violation
+        // Delete the pending metrics task and derived rows first to avoid FK constraint violation
+        metricsTaskRepository.deleteByVersion(version);
         metricsRepository.deleteByVersion(version);
+        blameRepository.deleteByVersion(version);
+        signatureRepository.deleteByVersion(version);
 
+        versionStorageService.releaseKeyframe(version);
         versionRepository.delete(version);
+        versionStorageService.discard(version);
 
         // Log audit trail for deletion
-        com.enterprise.codeplatform.entity.AuditLog log = com.enterprise.codeplatform.entity.AuditLog.builder()
-                .action("VERSION_DELETED_BY_ID")
-                .entityName("CodeVersion")
-                .entityId(versionId)
-                .performBy(username)
-                .build();
-        auditLogRepository.save(log);
+        auditService.record("VERSION_DELETED_BY_ID", "CodeVersion", versionId, username);
+        eventPublisher.publishEvent(new VersionsDeletedEvent(List.of(versionId)));
     }
 
     @Transactional(readOnly = true)
@@ -198,37 +417,127 @@ public class SnippetService {
         CodeSnippet snippet = snippetRepository.findById(snippetId).orElseThrow();
         checkOwnership(snippet, username);
 
-        return versionRepository.findBySnippetIdOrderByVersionNumberDesc(snippetId).stream()
+        List<CodeVersion> versions = versionRepository.findBySnippetIdOrderByVersionNumberDesc(snippetId);
+        java.util.Map<Long, String> contents = versionStorageService.resolveAll(versions);
+
+        return versions.stream()
                 .map(v -> com.enterprise.codeplatform.dto.VersionResponse.builder()
                         .id(v.getId())
                         .versionNumber(v.getVersionNumber())
-                        .content(v.getContent())
+                        .content(contents.get(v.getId()))
                         .commitMessage(v.getCommitMessage())
                         .createdAt(v.getCreatedAt())
                         .build())
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    public VersionPage getVersionHistory(Long snippetId, Integer before, int size, String username) {
+        CodeSnippet snippet = snippetRepository.findById(snippetId).orElseThrow();
+        checkOwnership(snippet, username);
+
+        int pageSize = Math.max(1, Math.min(size, maxHistoryPageSize));
+        List<VersionSummary> versions = versionRepository.findSummaries(snippetId,
+                before == null ? Integer.MAX_VALUE : before, PageRequest.of(0, pageSize));
+
+        return VersionPage.builder()
+                .versions(versions)
+                .activeVersionNumber(snippet.getActiveVersionNumber())
+                .nextCursor(versions.size() == pageSize ? versions.get(pageSize - 1).getVersionNumber() : null)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public com.enterprise.codeplatform.dto.VersionResponse getVersion(Long snippetId, int versionNumber,
+            String username) {
+        CodeSnippet snippet = snippetRepository.findById(snippetId).orElseThrow();
+        checkOwnership(snippet, username);
+
+        CodeVersion version = versionRepository.findBySnippetIdAndVersionNumber(snippetId, versionNumber);
+        if (version == null)
+            throw new RuntimeException("Version not found");
+
+        return com.enterprise.codeplatform.dto.VersionResponse.builder()
+                .id(version.getId())
+                .versionNumber(version.getVersionNumber())
+                .content(versionStorageService.resolve(version))
+                .commitMessage(version.getCommitMessage())
+                .createdAt(version.getCreatedAt())
+                .build();
+    }
+
     @Transactional
     public void deleteSnippet(Long id, String username) {
-        CodeSnippet snippet = snippetRepository.findById(id).orElseThrow();
+        CodeSnippet snippet = snippetRepository.findByIdForUpdate(id).orElseThrow();
         checkOwnership(snippet, username);
 
-        // Delete all metrics associated with all versions of this snippet
+        // Delete all pending tasks and derived rows associated with all versions of this snippet
         for (CodeVersion version : snippet.getVersions()) {
+            metricsTaskRepository.deleteByVersion(version);
             metricsRepository.deleteByVersion(version);
+            blameRepository.deleteByVersion(version);
+            signatureRepository.deleteByVersion(version);
         }
 
+        List<CodeVersion> versions = List.copyOf(snippet.getVersions());
+        ContentBlob currentContent = snippet.getCurrentBlob();
         snippetRepository.delete(snippet);
 
+        // Blob references are dropped after the rows pointing at them are gone
+        blobService.release(currentContent);
+        for (CodeVersion version : versions) {
+            versionStorageService.discard(version);
+        }
+
         // Log audit trail for snippet deletion
-        com.enterprise.codeplatform.entity.AuditLog log = com.enterprise.codeplatform.entity.AuditLog.builder()
-                .action("SNIPPET_DELETED")
-                .entityName("CodeSnippet")
-                .entityId(id)
-                .performBy(username)
-                .build();
-        auditLogRepository.save(log);
+        auditService.record("SNIPPET_DELETED", "CodeSnippet", id, username);
+        eventPublisher.publishEvent(new SnippetChangedEvent(id));
+        eventPublisher.publishEvent(new VersionsDeletedEvent(versions.stream().map(CodeVersion::getId).toList()));
+    }
+
+    // Cursor is "<sort value>|<id>"; the id never contains '|' so the last separator splits it
+    private String encodeCursor(String value, Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((value + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Cursors come from clients, so anything that does not decode to a valid position is a 400
+    static String[] decodeCursor(String cursor, boolean byTitle) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("No separator");
+            }
+            String[] position = { decoded.substring(0, separator), decoded.substring(separator + 1) };
+            Long.parseLong(position[1]);
+            if (!byTitle) {
+                LocalDateTime.parse(position[0]);
+            }
+            return position;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    // The authenticated principal already carries the id, so no user lookup is needed
+    private User currentUser(String email) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user
+                && email.equals(user.email())) {
+            return userRepository.getReferenceById(user.id());
+        }
+        return userRepository.findByEmail(email).orElseThrow();
+    }
+
+    public Long currentUserId(String email) {
+        return currentUser(email).getId();
+    }
+
+    public CodeSnippet getOwnedSnippet(Long id, String username) {
+        CodeSnippet snippet = snippetRepository.findById(id).orElseThrow();
+        checkOwnership(snippet, username);
+        return snippet;
     }
 
     private void checkOwnership(CodeSnippet snippet, String email) {
@@ -242,7 +551,7 @@ public class SnippetService {
                 .id(s.getId())
                 .title(s.getTitle())
                 .description(s.getDescription())
-                .currentContent(s.getCurrentContent())
+                .currentContent(s.getCurrentBlob().getContent())
                 .language(s.getLanguage())
                 .activeVersionNumber(s.getActiveVersionNumber())
                 .authorName(s.getAuthor().getDisplayUsername())
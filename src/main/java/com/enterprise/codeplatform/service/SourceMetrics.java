@@ -0,0 +1,48 @@
+package com.enterprise.codeplatform.service;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Structural metrics of one compilation unit, computed from its javac syntax tree.
+ */
+@Data
+@Builder
+public class SourceMetrics {
+
+    private int methodCount;
+    private int decisionPoints;
+    private int maxNestingDepth;
+    private int maxMethodLength;
+    private int distinctOperators;
+    private int distinctOperands;
+    private int totalOperators;
+    private int totalOperands;
+    private List<MethodInfo> methods;
+
+    @Data
+    @Builder
+    public static class MethodInfo {
+        private String name;
+        private int startLine;
+        private int length;
+        private int cyclomaticComplexity;
+        private int maxNestingDepth;
+        private double halsteadVolume;
+    }
+
+    public double getHalsteadVolume() {
+        return volume(distinctOperators, distinctOperands, totalOperators, totalOperands);
+    }
+
+    public double getHalsteadDifficulty() {
+        return distinctOperands == 0 ? 0 : (distinctOperators / 2.0) * ((double) totalOperands / distinctOperands);
+    }
+
+    static double volume(int distinctOperators, int distinctOperands, int totalOperators, int totalOperands) {
+        int vocabulary = distinctOperators + distinctOperands;
+        return vocabulary == 0 ? 0 : (totalOperators + totalOperands) * (Math.log(vocabulary) / Math.log(2));
+    }
+}
@@ -0,0 +1,316 @@
+package com.enterprise.codeplatform.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from case-folded character trigrams to the documents containing them.
+ * Every put gives the snippet a new, higher document id and retires the old one, so
+ * posting lists are append-only; retired ids are filtered out of results and dropped by
+ * {@link #compact()}. Reads share a lock and writes take it exclusively.
+ */
+final class TrigramIndex {
+
+    private static final int FORMAT = 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, PostingList> postings = new HashMap<>();
+    private Map<Long, Integer> documents = new HashMap<>();
+    private long[] snippetIds = new long[1024];
+    private long[] owners = new long[1024];
+    private BitSet live = new BitSet();
+    private int nextId;
+
+    void put(long snippetId, long ownerId, String text) {
+        long[] trigrams = trigrams(text);
+        lock.writeLock().lock();
+        try {
+            retire(snippetId);
+            int id = nextId++;
+            if (id == snippetIds.length) {
+                snippetIds = Arrays.copyOf(snippetIds, id * 2);
+                owners = Arrays.copyOf(owners, id * 2);
+            }
+            snippetIds[id] = snippetId;
+            owners[id] = ownerId;
+            live.set(id);
+            documents.put(snippetId, id);
+            for (long trigram : trigrams) {
+                postings.computeIfAbsent(trigram, t -> new PostingList()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long snippetId) {
+        lock.writeLock().lock();
+        try {
+            retire(snippetId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void retire(long snippetId) {
+        Integer previous = documents.remove(snippetId);
+        if (previous != null) {
+            live.clear(previous);
+        }
+    }
+
+    /**
+     * Snippets of the owner that may match the query, most recently indexed first.
+     */
+    List<Long> candidates(TrigramQuery query, long ownerId) {
+        if (query.op == TrigramQuery.Op.ALL) {
+            throw new IllegalArgumentException("Query does not narrow the search");
+        }
+        lock.readLock().lock();
+        try {
+            int[] ids = evaluate(query);
+            List<Long> result = new ArrayList<>();
+            for (int i = ids.length - 1; i >= 0; i--) {
+                int id = ids[i];
+                if (live.get(id) && owners[id] == ownerId) {
+                    result.add(snippetIds[id]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] evaluate(TrigramQuery query) {
+        if (query.op == TrigramQuery.Op.OR) {
+            int[] result = new int[0];
+            for (TrigramQuery child : query.children) {
+                result = union(result, evaluate(child));
+            }
+            return result;
+        }
+
+        // Intersect the shortest lists first so the running result shrinks quickly
+        List<PostingList> lists = new ArrayList<>();
+        for (long trigram : query.trigrams) {
+            PostingList list = postings.get(trigram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.count(), b.count()));
+        int[] result = null;
+        for (PostingList list : lists) {
+            result = result == null ? list.decode() : list.retain(result);
+            if (result.length == 0) {
+                return result;
+            }
+        }
+        for (TrigramQuery child : query.children) {
+            int[] ids = evaluate(child);
+            result = result == null ? ids : intersect(result, ids);
+            if (result.length == 0) {
+                return result;
+            }
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length;) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                result[n++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                result[n++] = b[j++];
+            } else {
+                result[n++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    Set<Long> snippetIds() {
+        lock.readLock().lock();
+        try {
+            return Set.copyOf(documents.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int retired() {
+        lock.readLock().lock();
+        try {
+            return nextId - documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Renumbers live documents densely, keeping their order, and rewrites every posting list
+     * without retired ids.
+     */
+    void compact() {
+        lock.writeLock().lock();
+        try {
+            int[] renumbered = new int[nextId];
+            int count = 0;
+            for (int id = 0; id < nextId; id++) {
+                renumbered[id] = live.get(id) ? count++ : -1;
+            }
+            Map<Long, PostingList> compacted = new HashMap<>();
+            for (Map.Entry<Long, PostingList> entry : postings.entrySet()) {
+                PostingList list = null;
+                for (int id : entry.getValue().decode()) {
+                    if (renumbered[id] >= 0) {
+                        if (list == null) {
+                            list = new PostingList();
+                        }
+                        list.add(renumbered[id]);
+                    }
+                }
+                if (list != null) {
+                    compacted.put(entry.getKey(), list);
+                }
+            }
+            long[] compactedSnippets = new long[Math.max(1024, count * 2)];
+            long[] compactedOwners = new long[compactedSnippets.length];
+            Map<Long, Integer> compactedDocuments = new HashMap<>();
+            for (int id = 0; id < nextId; id++) {
+                if (renumbered[id] >= 0) {
+                    compactedSnippets[renumbered[id]] = snippetIds[id];
+                    compactedOwners[renumbered[id]] = owners[id];
+                    compactedDocuments.put(snippetIds[id], renumbered[id]);
+                }
+            }
+            postings = compacted;
+            documents = compactedDocuments;
+            snippetIds = compactedSnippets;
+            owners = compactedOwners;
+            live = new BitSet(count);
+            live.set(0, count);
+            nextId = count;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(FORMAT);
+            out.writeInt(nextId);
+            for (int id = 0; id < nextId; id++) {
+                out.writeBoolean(live.get(id));
+                out.writeLong(snippetIds[id]);
+                out.writeLong(owners[id]);
+            }
+            out.writeInt(postings.size());
+            for (Map.Entry<Long, PostingList> entry : postings.entrySet()) {
+                out.writeLong(entry.getKey());
+                entry.getValue().writeTo(out);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static TrigramIndex readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != FORMAT) {
+            throw new IOException("Unsupported index format");
+        }
+        TrigramIndex index = new TrigramIndex();
+        index.nextId = in.readInt();
+        index.snippetIds = new long[Math.max(1024, index.nextId * 2)];
+        index.owners = new long[index.snippetIds.length];
+        for (int id = 0; id < index.nextId; id++) {
+            boolean live = in.readBoolean();
+            index.snippetIds[id] = in.readLong();
+            index.owners[id] = in.readLong();
+            if (live) {
+                index.live.set(id);
+                index.documents.put(index.snippetIds[id], id);
+            }
+        }
+        int trigrams = in.readInt();
+        for (int i = 0; i < trigrams; i++) {
+            index.postings.put(in.readLong(), PostingList.readFrom(in));
+        }
+        return index;
+    }
+
+    // Lower case of the upper case, so characters the regex engine matches case-insensitively
+    // (such as both Greek small sigmas) fold to the same value
+    private static long fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Distinct trigrams of the case-folded text, each packed into a long, in ascending order.
+     */
+    static long[] trigrams(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+        long[] trigrams = new long[text.length() - 2];
+        long c0 = fold(text.charAt(0));
+        long c1 = fold(text.charAt(1));
+        for (int i = 2; i < text.length(); i++) {
+            long c2 = fold(text.charAt(i));
+            trigrams[i - 2] = (c0 << 32) | (c1 << 16) | c2;
+            c0 = c1;
+            c1 = c2;
+        }
+        Arrays.sort(trigrams);
+        int n = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (n == 0 || trigrams[i] != trigrams[n - 1]) {
+                trigrams[n++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, n);
+    }
+}
@@ -0,0 +1,324 @@
+package com.enterprise.codeplatform.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Trigrams a document must contain to possibly match a search: an AND of trigrams and
+ * sub-queries, an OR of sub-queries, or ALL when the index cannot narrow the search.
+ * Planning only ever drops requirements it cannot prove, so every match is a candidate;
+ * candidates still have to be checked against the text.
+ */
+final class TrigramQuery {
+
+    enum Op {
+        ALL, AND, OR
+    }
+
+    static final TrigramQuery ALL = new TrigramQuery(Op.ALL, new long[0], List.of());
+
+    final Op op;
+    final long[] trigrams;
+    final List<TrigramQuery> children;
+
+    private TrigramQuery(Op op, long[] trigrams, List<TrigramQuery> children) {
+        this.op = op;
+        this.trigrams = trigrams;
+        this.children = children;
+    }
+
+    static TrigramQuery literal(String text) {
+        long[] trigrams = TrigramIndex.trigrams(text);
+        return trigrams.length == 0 ? ALL : new TrigramQuery(Op.AND, trigrams, List.of());
+    }
+
+    static TrigramQuery regex(String pattern) {
+        try {
+            RegexPlanner planner = new RegexPlanner(pattern);
+            TrigramQuery query = planner.alternation();
+            return planner.pos == pattern.length() ? query : ALL;
+        } catch (Unplannable e) {
+            return ALL;
+        }
+    }
+
+    static TrigramQuery and(List<TrigramQuery> queries) {
+        List<TrigramQuery> children = new ArrayList<>();
+        long[] trigrams = new long[0];
+        for (TrigramQuery query : queries) {
+            if (query.op == Op.AND) {
+                trigrams = concat(trigrams, query.trigrams);
+                children.addAll(query.children);
+            } else if (query.op == Op.OR) {
+                children.add(query);
+            }
+        }
+        if (trigrams.length == 0 && children.isEmpty()) {
+            return ALL;
+        }
+        if (trigrams.length == 0 && children.size() == 1) {
+            return children.get(0);
+        }
+        return new TrigramQuery(Op.AND, Arrays.stream(trigrams).sorted().distinct().toArray(), children);
+    }
+
+    static TrigramQuery or(List<TrigramQuery> queries) {
+        if (queries.stream().anyMatch(q -> q.op == Op.ALL)) {
+            return ALL;
+        }
+        return queries.size() == 1 ? queries.get(0) : new TrigramQuery(Op.OR, new long[0], List.copyOf(queries));
+    }
+
+    private static long[] concat(long[] a, long[] b) {
+        long[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static final class Unplannable extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unplannable() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Recursive descent over java.util.regex syntax that keeps runs of mandatory literal
+     * characters. Optional atoms, classes and anything it does not understand break a run.
+     * The pattern is validated by Pattern.compile before planning.
+     */
+    private static final class RegexPlanner {
+
+        private final String pattern;
+        private int pos;
+
+        RegexPlanner(String pattern) {
+            this.pattern = pattern;
+        }
+
+        TrigramQuery alternation() {
+            List<TrigramQuery> branches = new ArrayList<>();
+            branches.add(concatenation());
+            while (peek() == '|') {
+                pos++;
+                branches.add(concatenation());
+            }
+            return or(branches);
+        }
+
+        private TrigramQuery concatenation() {
+            List<TrigramQuery> parts = new ArrayList<>();
+            StringBuilder run = new StringBuilder();
+            while (pos < pattern.length() && peek() != '|' && peek() != ')') {
+                int literal = -1;
+                TrigramQuery group = null;
+                char c = pattern.charAt(pos++);
+                switch (c) {
+                    case '(' -> group = group();
+                    case '[' -> skipClass();
+                    case '\\' -> {
+                        if (peek() == 'Q') {
+                            String quoted = quoted();
+                            if (quoted.isEmpty()) {
+                                continue;
+                            }
+                            run.append(quoted, 0, quoted.length() - 1);
+                            literal = quoted.charAt(quoted.length() - 1);
+                        } else {
+                            literal = escape();
+                        }
+                    }
+                    case '.', '^', '$' -> {
+                    }
+                    default -> literal = c;
+                }
+
+                int min = quantifier();
+                if (literal >= 0 && min > 0) {
+                    run.append((char) literal);
+                }
+                if (literal < 0 || min != 1) {
+                    flush(run, parts);
+                }
+                if (group != null && min > 0) {
+                    parts.add(group);
+                }
+            }
+            flush(run, parts);
+            return and(parts);
+        }
+
+        private static void flush(StringBuilder run, List<TrigramQuery> parts) {
+            if (run.length() > 0) {
+                parts.add(literal(run.toString()));
+                run.setLength(0);
+            }
+        }
+
+        // 0 when the preceding atom is optional, 1 when it occurs once, 2 when it may repeat
+        private int quantifier() {
+            int min;
+            char c = peek();
+            if (c == '*' || c == '?') {
+                min = 0;
+                pos++;
+            } else if (c == '+') {
+                min = 2;
+                pos++;
+            } else if (c == '{' && pos + 1 < pattern.length() && Character.isDigit(pattern.charAt(pos + 1))) {
+                int close = pattern.indexOf('}', pos);
+                if (close < 0) {
+                    throw new Unplannable();
+                }
+                String bounds = pattern.substring(pos + 1, close);
+                int comma = bounds.indexOf(',');
+                int lower = Integer.parseInt(comma < 0 ? bounds : bounds.substring(0, comma));
+                // Only an exact single repetition keeps the run going
+                min = lower == 0 ? 0 : bounds.equals("1") ? 1 : 2;
+                pos = close + 1;
+            } else {
+                return 1;
+            }
+            if (peek() == '?' || peek() == '+') {
+                pos++;
+            }
+            return min;
+        }
+
+        private TrigramQuery group() {
+            boolean keep = true;
+            if (peek() == '?') {
+                pos++;
+                char kind = next();
+                if (kind == ':') {
+                    // non-capturing
+                } else if (kind == '<' && peek() != '=' && peek() != '!') {
+                    skipPast('>');
+                } else if (kind == '=' || kind == '!' || kind == '>' || kind == '<') {
+                    if (kind == '<') {
+                        pos++;
+                    }
+                    keep = kind == '>';
+                } else {
+                    // Inline flags: (?i) or (?i:...); comments mode changes what a literal is
+                    pos--;
+                    while (peek() != ':' && peek() != ')') {
+                        if (next() == 'x') {
+                            throw new Unplannable();
+                        }
+                    }
+                    if (next() == ')') {
+                        return ALL;
+                    }
+                }
+            }
+            TrigramQuery inner = alternation();
+            if (next() != ')') {
+                throw new Unplannable();
+            }
+            return keep ? inner : ALL;
+        }
+
+        private void skipClass() {
+            int depth = 1;
+            if (peek() == '^') {
+                pos++;
+            }
+            if (peek() == ']') {
+                pos++;
+            }
+            while (depth > 0) {
+                char c = next();
+                if (c == '\\') {
+                    next();
+                } else if (c == '[') {
+                    depth++;
+                } else if (c == ']') {
+                    depth--;
+                }
+            }
+        }
+
+        // Returns the escaped character, or -1 for classes, anchors and back-references
+        private int escape() {
+            char c = next();
+            switch (c) {
+                case 't':
+                    return '\t';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 'f':
+                    return '\f';
+                case 'a':
+                    return '\u0007';
+                case 'e':
+                    return '\u001B';
+                case 'x':
+                    if (peek() == '{') {
+                        int close = pattern.indexOf('}', pos);
+                        int code = Integer.parseInt(pattern.substring(pos + 1, close), 16);
+                        pos = close + 1;
+                        return Character.isBmpCodePoint(code) ? code : -1;
+                    }
+                    pos += 2;
+                    return Integer.parseInt(pattern.substring(pos - 2, pos), 16);
+                case 'u':
+                    pos += 4;
+                    return Integer.parseInt(pattern.substring(pos - 4, pos), 16);
+                case 'c':
+                    return next() ^ 64;
+                case 'p', 'P':
+                    if (peek() == '{') {
+                        skipPast('}');
+                    } else {
+                        pos++;
+                    }
+                    return -1;
+                case 'k':
+                    skipPast('>');
+                    return -1;
+                case 'N':
+                    skipPast('}');
+                    return -1;
+                default:
+                    if (Character.isLetterOrDigit(c)) {
+                        while (c >= '0' && c <= '9' && Character.isDigit(peek())) {
+                            pos++;
+                        }
+                        return -1;
+                    }
+                    return c;
+            }
+        }
+
+        // Text between \Q and \E (or the end of the pattern) is literal
+        private String quoted() {
+            pos++;
+            int end = pattern.indexOf("\\E", pos);
+            String quoted = pattern.substring(pos, end < 0 ? pattern.length() : end);
+            pos = end < 0 ? pattern.length() : end + 2;
+            return quoted;
+        }
+
+        private void skipPast(char end) {
+            while (next() != end) {
+                // skip
+            }
+        }
+
+        private char peek() {
+            return pos < pattern.length() ? pattern.charAt(pos) : '\0';
+        }
+
+        private char next() {
+            if (pos >= pattern.length()) {
+                throw new Unplannable();
+            }
+            return pattern.charAt(pos++);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.ValidationJobResponse;
+import com.enterprise.codeplatform.exception.TooManyRequestsException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs syntax validations off the request threads. Jobs wait in a bounded queue and are
+ * executed by a fixed worker pool sized to the compiler slots, and a running job waits for
+ * a free compiler rather than failing; when the queue is full the submission is rejected
+ * with 429 instead of piling up. Results are kept for a while so clients can poll for them
+ * or receive them as a server-sent event. Each user holds at most {@code max-per-user}
+ * jobs; their oldest finished jobs are dropped to make room for new ones.
+ */
+@Slf4j
+@Service
+public class ValidationJobService {
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final String owner;
+        final LocalDateTime submittedAt = LocalDateTime.now();
+        final List<SseEmitter> listeners = new CopyOnWriteArrayList<>();
+        volatile Status status = Status.QUEUED;
+        volatile List<String> errors;
+        volatile String failure;
+        volatile LocalDateTime finishedAt;
+
+        Job(String owner) {
+            this.owner = owner;
+        }
+
+        boolean isFinished() {
+            return status == Status.DONE || status == Status.FAILED;
+        }
+    }
+
+    private final CompilerService compilerService;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    // Jobs of each user in submission order; a user's deque is only touched inside compute
+    private final Map<String, Deque<Job>> jobsByOwner = new ConcurrentHashMap<>();
+
+    @Value("${app.validation.jobs.retention-minutes:10}")
+    private long retentionMinutes;
+
+    @Value("${app.validation.jobs.sse-timeout-ms:60000}")
+    private long sseTimeoutMs;
+
+    @Value("${app.validation.jobs.retry-after-seconds:2}")
+    private long retryAfterSeconds;
+
+    @Value("${app.validation.jobs.max-per-user:20}")
+    private int maxJobsPerUser;
+
+    public ValidationJobService(CompilerService compilerService,
+            @Value("${app.validation.jobs.workers:0}") int workers,
+            @Value("${app.validation.jobs.queue-capacity:100}") int queueCapacity) {
+        this.compilerService = compilerService;
+        int threads = workers > 0 ? workers : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "validation-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public ValidationJobResponse submit(String code, String username) {
+        Job job = new Job(username);
+        jobsByOwner.compute(username, (owner, owned) -> {
+            Deque<Job> userJobs = owned == null ? new ArrayDeque<>() : owned;
+            Iterator<Job> oldest = userJobs.iterator();
+            while (userJobs.size() >= maxJobsPerUser && oldest.hasNext()) {
+                Job previous = oldest.next();
+                if (previous.isFinished()) {
+                    oldest.remove();
+                    jobs.remove(previous.id);
+                }
+            }
+            if (userJobs.size() >= maxJobsPerUser) {
+                throw new TooManyRequestsException("Too many validation jobs in progress, please retry shortly",
+                        retryAfterSeconds);
+            }
+            userJobs.add(job);
+            return userJobs;
+        });
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, code));
+        } catch (RejectedExecutionException e) {
+            forget(job);
+            throw new TooManyRequestsException("Validation queue is full, please retry shortly", retryAfterSeconds);
+        }
+        return toResponse(job);
+    }
+
+    public ValidationJobResponse getJob(String jobId, String username) {
+        return toResponse(findJob(jobId, username));
+    }
+
+    public SseEmitter subscribe(String jobId, String username) {
+        Job job = findJob(jobId, username);
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        job.listeners.add(emitter);
+        emitter.onCompletion(() -> job.listeners.remove(emitter));
+        emitter.onTimeout(() -> job.listeners.remove(emitter));
+
+        // The job may have finished before the listener was registered
+        if (job.isFinished() && job.listeners.remove(emitter)) {
+            send(emitter, job);
+        }
+        return emitter;
+    }
+
+    private void run(Job job, String code) {
+        job.status = Status.RUNNING;
+        Status status = Status.DONE;
+        try {
+            job.errors = compilerService.validateSyntaxQueued(code);
+        } catch (Exception e) {
+            job.failure = e.getMessage();
+            status = Status.FAILED;
+        }
+        // finishedAt is set first, since eviction reads it for any job that reports finished
+        job.finishedAt = LocalDateTime.now();
+        job.status = status;
+
+        for (SseEmitter emitter : job.listeners) {
+            if (job.listeners.remove(emitter)) {
+                send(emitter, job);
+            }
+        }
+    }
+
+    private void send(SseEmitter emitter, Job job) {
+        try {
+            emitter.send(SseEmitter.event().name("result").data(toResponse(job)));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private Job findJob(String jobId, String username) {
+        Job job = jobs.get(jobId);
+        if (job == null || !job.owner.equals(username)) {
+            throw new RuntimeException("Validation job not found");
+        }
+        return job;
+    }
+
+    private void forget(Job job) {
+        jobs.remove(job.id);
+        jobsByOwner.computeIfPresent(job.owner, (owner, owned) -> {
+            owned.remove(job);
+            return owned.isEmpty() ? null : owned;
+        });
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().stream()
+                .filter(job -> job.isFinished() && job.finishedAt.isBefore(cutoff))
+                .forEach(this::forget);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private ValidationJobResponse toResponse(Job job) {
+        return ValidationJobResponse.builder()
+                .jobId(job.id)
+                .status(job.status.name())
+                .errors(job.errors)
+                .failure(job.failure)
+                .submittedAt(job.submittedAt)
+                .finishedAt(job.finishedAt)
+                .build();
+    }
+}
@@ -0,0 +1,7 @@
+package com.enterprise.codeplatform.service;
+
+/**
+ * Published by the metrics outbox once the MinHash signature of a new version is stored.
+ */
+record VersionSignedEvent(Long versionId, Long snippetId, Long ownerId, MinHash.Signature signature) {
+}
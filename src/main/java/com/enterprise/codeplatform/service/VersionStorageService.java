@@ -0,0 +1,188 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.entity.ContentBlob;
+import com.enterprise.codeplatform.repository.CodeVersionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides how version content is persisted. In DELTA mode every version is stored as a
+ * line delta against the latest keyframe of its snippet, and a new full keyframe is
+ * written once the keyframe is {@code keyframeInterval} versions old. Content is always
+ * rebuilt from a keyframe plus at most one delta.
+ *
+ * Payloads live in the content-addressed blob table. A version whose content already
+ * exists in the snippet (rollbacks, saves without changes) shares that version's payload.
+ */
+@Service
+@RequiredArgsConstructor
+public class VersionStorageService {
+
+    public enum StorageMode {
+        FULL, DELTA
+    }
+
+    public record Payload(String text, CodeVersion.StorageType storageType, Integer baseVersionNumber) {
+    }
+
+    private final CodeVersionRepository versionRepository;
+    private final ContentBlobService blobService;
+
+    @Value("${app.versions.storage-mode:DELTA}")
+    private StorageMode storageMode;
+
+    @Value("${app.versions.keyframe-interval:20}")
+    private int keyframeInterval;
+
+    public void store(CodeVersion version, String content) {
+        Long snippetId = version.getSnippet().getId();
+        String contentHash = ContentBlobService.hash(content);
+        version.setContentHash(contentHash);
+        version.setContentSize((long) content.length());
+
+        CodeVersion identical = versionRepository
+                .findFirstBySnippetIdAndContentHashOrderByVersionNumberDesc(snippetId, contentHash)
+                .orElse(null);
+        if (identical != null) {
+            version.setBlob(blobService.retain(identical.getBlob()));
+            version.setStorageType(identical.getStorageType());
+            version.setBaseVersionNumber(identical.getBaseVersionNumber());
+            return;
+        }
+
+        CodeVersion keyframe = versionRepository
+                .findFirstBySnippetIdAndStorageTypeOrderByVersionNumberDesc(snippetId, CodeVersion.StorageType.FULL)
+                .orElse(null);
+        encode(version, content, keyframe, keyframe == null ? null : payload(keyframe));
+    }
+
+    public String resolve(CodeVersion version) {
+        if (version.isKeyframe()) {
+            return payload(version);
+        }
+        return LineDeltaCodec.apply(payload(loadKeyframe(version)), payload(version));
+    }
+
+    /**
+     * Resolves a batch of versions of one snippet, loading each referenced keyframe once.
+     */
+    public Map<Long, String> resolveAll(List<CodeVersion> versions) {
+        Map<Integer, String> keyframes = new HashMap<>();
+        for (CodeVersion v : versions) {
+            if (v.isKeyframe()) {
+                keyframes.put(v.getVersionNumber(), payload(v));
+            }
+        }
+
+        Map<Long, String> contents = new HashMap<>();
+        for (CodeVersion v : versions) {
+            if (v.isKeyframe()) {
+                contents.put(v.getId(), payload(v));
+            } else {
+                String base = keyframes.computeIfAbsent(v.getBaseVersionNumber(),
+                        n -> payload(loadKeyframe(v)));
+                contents.put(v.getId(), LineDeltaCodec.apply(base, payload(v)));
+            }
+        }
+        return contents;
+    }
+
+    /**
+     * Must be called before a keyframe is deleted: the oldest dependent delta is promoted
+     * to a keyframe and the remaining dependents are re-encoded against it.
+     */
+    public void releaseKeyframe(CodeVersion keyframe) {
+        if (!keyframe.isKeyframe()) {
+            return;
+        }
+        List<CodeVersion> dependents = versionRepository.findBySnippetIdAndBaseVersionNumberOrderByVersionNumberAsc(
+                keyframe.getSnippet().getId(), keyframe.getVersionNumber());
+        if (dependents.isEmpty()) {
+            return;
+        }
+
+        String baseContent = payload(keyframe);
+        CodeVersion promoted = dependents.get(0);
+        String promotedContent = LineDeltaCodec.apply(baseContent, payload(promoted));
+        setPayload(promoted, promotedContent, CodeVersion.StorageType.FULL, null);
+
+        for (CodeVersion dependent : dependents.subList(1, dependents.size())) {
+            String content = LineDeltaCodec.apply(baseContent, payload(dependent));
+            encode(dependent, content, promoted, promotedContent);
+        }
+        versionRepository.saveAll(dependents);
+    }
+
+    /**
+     * Drops the payload reference of a version that is about to be deleted.
+     */
+    public void discard(CodeVersion version) {
+        blobService.release(version.getBlob());
+    }
+
+    /**
+     * Re-encodes all versions of a snippet with the configured storage policy.
+     * Versions must be ordered by ascending version number.
+     */
+    public void reencode(List<CodeVersion> versions) {
+        Map<Long, String> contents = resolveAll(versions);
+        CodeVersion keyframe = null;
+        for (CodeVersion version : versions) {
+            String content = contents.get(version.getId());
+            version.setContentSize((long) content.length());
+            encode(version, content, keyframe, keyframe == null ? null : contents.get(keyframe.getId()));
+            if (version.isKeyframe()) {
+                keyframe = version;
+            }
+        }
+        versionRepository.saveAll(versions);
+    }
+
+    /**
+     * What the storage policy stores for a version: a delta against the keyframe when the
+     * keyframe is recent enough and the delta is smaller, otherwise the full content.
+     */
+    public Payload plan(int versionNumber, String content, Integer keyframeNumber, String keyframeContent) {
+        if (storageMode == StorageMode.DELTA && keyframeNumber != null
+                && versionNumber - keyframeNumber < keyframeInterval) {
+            String delta = LineDeltaCodec.encode(keyframeContent, content);
+            if (delta.length() < content.length()) {
+                return new Payload(delta, CodeVersion.StorageType.DELTA, keyframeNumber);
+            }
+        }
+        return new Payload(content, CodeVersion.StorageType.FULL, null);
+    }
+
+    private void encode(CodeVersion version, String content, CodeVersion keyframe, String keyframeContent) {
+        Payload payload = plan(version.getVersionNumber(), content,
+                keyframe == null ? null : keyframe.getVersionNumber(), keyframeContent);
+        setPayload(version, payload.text(), payload.storageType(), payload.baseVersionNumber());
+    }
+
+    private void setPayload(CodeVersion version, String payload, CodeVersion.StorageType storageType,
+            Integer baseVersionNumber) {
+        ContentBlob previous = version.getBlob();
+        version.setBlob(blobService.store(payload));
+        version.setStorageType(storageType);
+        version.setBaseVersionNumber(baseVersionNumber);
+        blobService.release(previous);
+    }
+
+    private String payload(CodeVersion version) {
+        return version.getBlob().getContent();
+    }
+
+    private CodeVersion loadKeyframe(CodeVersion version) {
+        CodeVersion keyframe = versionRepository.findBySnippetIdAndVersionNumber(version.getSnippet().getId(),
+                version.getBaseVersionNumber());
+        if (keyframe == null)
+            throw new RuntimeException("Keyframe version " + version.getBaseVersionNumber() + " not found");
+        return keyframe;
+    }
+}
@@ -0,0 +1,10 @@
+package com.enterprise.codeplatform.service;
+
+import java.util.List;
+
+/**
+ * Published when versions are deleted, alone or with their snippet. Listeners drop what
+ * they hold for those versions once the deletion commits.
+ */
+public record VersionsDeletedEvent(List<Long> versionIds) {
+}
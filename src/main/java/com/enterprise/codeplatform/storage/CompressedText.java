@@ -0,0 +1,32 @@
+package com.enterprise.codeplatform.storage;
+
+/**
+ * Encoded content as read from the database. The text is only decompressed the first
+ * time {@link #text()} is called.
+ */
+public final class CompressedText {
+
+    private final byte[] encoded;
+    private volatile String text;
+
+    public CompressedText(byte[] encoded) {
+        this.encoded = encoded;
+    }
+
+    public String text() {
+        String result = text;
+        if (result == null) {
+            result = ContentCodec.decode(encoded);
+            text = result;
+        }
+        return result;
+    }
+
+    public byte[] encoded() {
+        return encoded;
+    }
+
+    public ContentCodec codec() {
+        return ContentCodec.of(encoded);
+    }
+}
@@ -0,0 +1,124 @@
+package com.enterprise.codeplatform.storage;
+
+import net.jpountz.lz4.LZ4Factory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression formats for stored content. Encoded values start with a one byte codec id;
+ * compressed codecs follow it with the uncompressed UTF-8 length, so rows written with
+ * different codecs can be mixed in one column and decoded without configuration.
+ */
+public enum ContentCodec {
+
+    NONE(0),
+    DEFLATE(1),
+    LZ4(2);
+
+    private static final int HEADER_LENGTH = 5;
+
+    private final byte id;
+
+    ContentCodec(int id) {
+        this.id = (byte) id;
+    }
+
+    public byte[] encode(String text) {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        if (this == NONE) {
+            return ByteBuffer.allocate(1 + raw.length).put(id).put(raw).array();
+        }
+        byte[] compressed = this == DEFLATE ? deflate(raw)
+                : LZ4Factory.fastestInstance().fastCompressor().compress(raw);
+        return ByteBuffer.allocate(HEADER_LENGTH + compressed.length)
+                .put(id).putInt(raw.length).put(compressed).array();
+    }
+
+    public static ContentCodec of(byte[] encoded) {
+        for (ContentCodec codec : values()) {
+            if (codec.id == encoded[0]) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown content codec " + encoded[0]);
+    }
+
+    public static int rawLength(byte[] encoded) {
+        return of(encoded) == NONE ? encoded.length - 1 : ByteBuffer.wrap(encoded, 1, 4).getInt();
+    }
+
+    public static String decode(byte[] encoded) {
+        ContentCodec codec = of(encoded);
+        if (codec == NONE) {
+            return new String(encoded, 1, encoded.length - 1, StandardCharsets.UTF_8);
+        }
+        if (encoded.length < HEADER_LENGTH) {
+            throw new IllegalStateException("Truncated " + codec + " content header");
+        }
+        int rawLength = ByteBuffer.wrap(encoded, 1, 4).getInt();
+        if (rawLength < 0) {
+            throw new IllegalStateException("Corrupt " + codec + " content length " + rawLength);
+        }
+        byte[] raw;
+        if (codec == DEFLATE) {
+            raw = inflate(encoded, rawLength);
+        } else {
+            raw = new byte[rawLength];
+            LZ4Factory.fastestInstance().fastDecompressor().decompress(encoded, HEADER_LENGTH, raw, 0, rawLength);
+        }
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] encoded, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(encoded, HEADER_LENGTH, encoded.length - HEADER_LENGTH);
+            byte[] raw = new byte[rawLength];
+            int offset = 0;
+            // Runs to the end of the stream so the trailing checksum is verified too
+            while (!inflater.finished()) {
+                int inflated = offset < rawLength
+                        ? inflater.inflate(raw, offset, rawLength - offset)
+                        : inflater.inflate(new byte[1]);
+                if (offset == rawLength && inflated > 0) {
+                    throw new IllegalStateException("Deflate content is longer than " + rawLength + " bytes");
+                }
+                // Truncated input or a preset dictionary would otherwise never make progress
+                if (inflated == 0 && !inflater.finished()
+                        && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated deflate content");
+                }
+                offset += inflated;
+            }
+            if (offset != rawLength) {
+                throw new IllegalStateException("Deflate content is " + offset + " bytes, expected " + rawLength);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt deflate content", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
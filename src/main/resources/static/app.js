@@ -1,6 +1,9 @@
 const API_BASE = '/api/v1';
 let currentToken = localStorage.getItem('token');
 let currentSnippetId = null;
+// Content and version the editor was loaded from; saves are sent as edits against them
+let baseContent = null;
+let baseVersion = null;
 
 async function safeParse(res) {
     const text = await res.text();
@@ -190,20 +193,29 @@ function logout() {
 }
 
 // Snippets
-async function loadSnippets() {
+async function loadSnippets(cursor = null) {
     if (!currentToken) return;
     try {
-        const res = await fetch(`${API_BASE}/snippets`, {
+        const query = cursor ? `&cursor=${encodeURIComponent(cursor)}` : '';
+        const res = await fetch(`${API_BASE}/snippets/page?size=100${query}`, {
             headers: { 'Authorization': `Bearer ${currentToken}` }
         });
-        const data = await safeParse(res);
+        const page = await safeParse(res);
         const list = document.getElementById('snippet-list');
-        list.innerHTML = data.map(s => `
+        const more = document.getElementById('s-load-more');
+        if (more) more.remove();
+
+        let html = page.snippets.map(s => `
             <div class="snippet-item ${currentSnippetId == s.id ? 'active' : ''}" onclick="selectSnippet(${s.id})">
                 <div style="font-weight: 600;">${s.title}</div>
                 <div style="font-size: 0.7rem; color: var(--text-muted);">${s.language} | v${s.activeVersionNumber}</div>
             </div>
         `).join('');
+        if (page.nextCursor) {
+            html += `<button class="btn btn-outline" id="s-load-more" style="width: 100%; font-size: 0.7rem;" onclick="loadSnippets('${page.nextCursor}')">Load more</button>`;
+        }
+        if (cursor) list.insertAdjacentHTML('beforeend', html);
+        else list.innerHTML = html;
     } catch (e) {
         showNotification('Failed to load snippets', 'error');
     }
@@ -218,6 +230,8 @@ async function selectSnippet(id) {
         const s = await safeParse(res);
         document.getElementById('snippet-title').value = s.title;
         document.getElementById('code-editor').value = s.currentContent;
+        baseContent = s.currentContent;
+        baseVersion = s.activeVersionNumber;
         document.getElementById('btn-delete-snippet').style.display = 'inline-flex';
         loadSnippets(); // refresh list to show active
         loadVersions(id);
@@ -234,6 +248,10 @@ async function saveSnippet() {
         return;
     }
 
+    if (currentSnippetId && baseContent !== null) {
+        return patchSnippet(title, content);
+    }
+
     const url = currentSnippetId ? `${API_BASE}/snippets/${currentSnippetId}` : `${API_BASE}/snippets`;
     const method = currentSnippetId ? 'PUT' : 'POST';
 
@@ -249,6 +267,49 @@ async function saveSnippet() {
         const data = await safeParse(res);
         if (!res.ok) throw new Error(data.message || 'Save failed');
         currentSnippetId = data.id;
+        baseContent = content;
+        baseVersion = data.activeVersionNumber;
+        showNotification('Snippet saved successfully!');
+        loadSnippets();
+        loadVersions(currentSnippetId);
+    } catch (e) {
+        showNotification('Save failed', 'error');
+    }
+}
+
+// Sends only the changed range: everything between the common prefix and suffix
+function rangeEdit(before, after) {
+    let start = 0;
+    const max = Math.min(before.length, after.length);
+    while (start < max && before[start] === after[start]) start++;
+    let tail = 0;
+    while (tail < max - start && before[before.length - 1 - tail] === after[after.length - 1 - tail]) tail++;
+    return { start, end: before.length - tail, text: after.substring(start, after.length - tail) };
+}
+
+async function patchSnippet(title, content) {
+    try {
+        const res = await fetch(`${API_BASE}/snippets/${currentSnippetId}`, {
+            method: 'PATCH',
+            headers: {
+                'Content-Type': 'application/json',
+                'Authorization': `Bearer ${currentToken}`
+            },
+            body: JSON.stringify({ baseVersion, title, edits: [rangeEdit(baseContent, content)] })
+        });
+        const data = await safeParse(res);
+        if (res.status === 409) {
+            showNotification('Snippet was changed elsewhere and your edit overlaps. Reload it to continue.', 'error');
+            return;
+        }
+        if (!res.ok) throw new Error(data.message || 'Save failed');
+        // The server only returns content when it merged the edit onto a newer version
+        if (data.currentContent != null) {
+            document.getElementById('code-editor').value = data.currentContent;
+            content = data.currentContent;
+        }
+        baseContent = content;
+        baseVersion = data.activeVersionNumber;
         showNotification('Snippet saved successfully!');
         loadSnippets();
         loadVersions(currentSnippetId);
@@ -257,6 +318,28 @@ async function saveSnippet() {
     }
 }
 
+// Large sources are validated as a background job; poll until it finishes
+async function validateAsJob(content) {
+    const res = await fetch(`${API_BASE}/snippets/validate/jobs`, {
+        method: 'POST',
+        headers: {
+            'Content-Type': 'application/json',
+            'Authorization': `Bearer ${currentToken}`
+        },
+        body: JSON.stringify({ content })
+    });
+    let job = await safeParse(res);
+    if (!res.ok) return job;
+    while (job.status === 'QUEUED' || job.status === 'RUNNING') {
+        await new Promise(resolve => setTimeout(resolve, 500));
+        const poll = await fetch(`${API_BASE}/snippets/validate/jobs/${job.jobId}`, {
+            headers: { 'Authorization': `Bearer ${currentToken}` }
+        });
+        job = await safeParse(poll);
+    }
+    return job.status === 'DONE' ? job.errors : { message: job.failure || 'Validation failed' };
+}
+
 async function validateCode() {
     const content = document.getElementById('code-editor').value;
     try {
@@ -268,7 +351,7 @@ async function validateCode() {
             },
             body: JSON.stringify({ content })
         });
-        const errors = await safeParse(res);
+        const errors = res.status === 413 ? await validateAsJob(content) : await safeParse(res);
         if (Array.isArray(errors)) {
             if (errors.length === 0) {
                 showModal('<div style="color: var(--success); text-align: center;"><h3 style="margin-bottom: 0.5rem;">Syntax Valid!</h3>No errors found in your Java code.</div>');
@@ -284,34 +367,35 @@ async function validateCode() {
     }
 }
 
-async function loadVersions(id) {
-    const res = await fetch(`${API_BASE}/snippets/${id}/versions`, {
+async function loadVersions(id, before = null) {
+    const query = before ? `?before=${before}` : '';
+    const res = await fetch(`${API_BASE}/snippets/${id}/history${query}`, {
         headers: { 'Authorization': `Bearer ${currentToken}` }
     });
-    const versions = await safeParse(res);
-
-    // Also need snippet for active version check
-    const sRes = await fetch(`${API_BASE}/snippets/${id}`, {
-        headers: { 'Authorization': `Bearer ${currentToken}` }
-    });
-    const snippet = await safeParse(sRes);
+    const page = await safeParse(res);
 
     const list = document.getElementById('version-list');
+    const more = document.getElementById('v-load-more');
+    if (more) more.remove();
 
     let html = '';
-    versions.forEach(v => {
+    page.versions.forEach(v => {
         html += `
             <div class="version-item" id="v-item-${v.versionNumber}">
                 <span>Version ${v.versionNumber}</span>
                 <div style="display: flex; gap: 0.5rem;">
                     <button class="btn btn-outline" style="padding: 0.2rem 0.4rem; font-size: 0.7rem;" onclick="rollback(${id}, ${v.versionNumber})">Restore</button>
-                    ${v.versionNumber !== snippet.activeVersionNumber ?
+                    ${v.versionNumber !== page.activeVersionNumber ?
                 `<button class="btn btn-danger" style="padding: 0.2rem 0.4rem; font-size: 0.7rem;" onclick="confirmDeleteEnhanced(${v.id}, ${v.versionNumber})">Delete</button>` : ''}
                 </div>
             </div>
         `;
     });
-    list.innerHTML = html;
+    if (page.nextCursor) {
+        html += `<button class="btn btn-outline" id="v-load-more" style="width: 100%; font-size: 0.7rem;" onclick="loadVersions(${id}, ${page.nextCursor})">Load older versions</button>`;
+    }
+    if (before) list.insertAdjacentHTML('beforeend', html);
+    else list.innerHTML = html;
 }
 
 function confirmDeleteEnhanced(versionId, vNum) {
@@ -400,6 +484,8 @@ function confirmDeleteSnippet() {
 
 function newSnippet() {
     currentSnippetId = null;
+    baseContent = null;
+    baseVersion = null;
     document.getElementById('snippet-title').value = '';
     document.getElementById('code-editor').value = '';
     document.getElementById('version-list').innerHTML = '';
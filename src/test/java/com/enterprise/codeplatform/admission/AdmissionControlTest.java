@@ -0,0 +1,93 @@
+package com.enterprise.codeplatform.admission;
+
+import com.enterprise.codeplatform.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControlTest {
+
+    private static final int BURST = 3;
+
+    // Compile buckets hold BURST tokens and never refill, so only eviction can hand out more
+    private final AdmissionControl admission = new AdmissionControl(new SimpleMeterRegistry(),
+            64, BURST, 0, 0, 60, 10, 2, 4, 0.1, 0, 20, 1);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(admission, "enabled", true);
+        ReflectionTestUtils.setField(admission, "bytesPerToken", 8192L);
+        ReflectionTestUtils.setField(admission, "queueTimeoutMs", 100L);
+        ReflectionTestUtils.setField(admission, "bucketIdleMs", 0L);
+    }
+
+    @Test
+    void rateLimitsOnceTheBucketIsEmpty() {
+        for (int i = 0; i < BURST; i++) {
+            admission.admit(Workload.COMPILE, "POST /validate", "dev", -1).release();
+        }
+
+        assertThatThrownBy(() -> admission.admit(Workload.COMPILE, "POST /validate", "dev", -1))
+                .isInstanceOf(TooManyRequestsException.class);
+        assertThat(admission.stats()).singleElement().satisfies(stats -> {
+            assertThat(stats.getAdmitted()).isEqualTo(BURST);
+            assertThat(stats.getRateLimited()).isEqualTo(1);
+            assertThat(stats.getInFlight()).isZero();
+        });
+    }
+
+    @Test
+    void evictionRacingWithTakesNeverLosesATake() throws Exception {
+        int users = 20_000;
+        int takers = 4;
+        AtomicIntegerArray admitted = new AtomicIntegerArray(users);
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(takers + 1);
+        try {
+            Future<?> evictor = pool.submit(() -> {
+                while (!done.get()) {
+                    admission.evictIdleBuckets();
+                }
+            });
+            List<Future<?>> takes = new ArrayList<>();
+            for (int t = 0; t < takers; t++) {
+                takes.add(pool.submit(() -> {
+                    for (int user = 0; user < users; user++) {
+                        try {
+                            admission.admit(Workload.COMPILE, "POST /validate", "user" + user, -1).release();
+                            admitted.incrementAndGet(user);
+                        } catch (TooManyRequestsException e) {
+                            // Expected once the user's bucket is empty
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> take : takes) {
+                take.get(60, TimeUnit.SECONDS);
+            }
+            done.set(true);
+            evictor.get(10, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdown();
+        }
+
+        // Only a bucket nobody has taken from is evicted, so a user never gets more than one burst
+        for (int user = 0; user < users; user++) {
+            assertThat(admitted.get(user)).as("user %d", user).isEqualTo(BURST);
+        }
+    }
+}
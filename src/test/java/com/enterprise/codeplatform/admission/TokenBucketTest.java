@@ -0,0 +1,87 @@
+package com.enterprise.codeplatform.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double ONE_PER_SECOND = 1.0 / SECOND;
+
+    @Test
+    void refillsAtTheRateUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(4, 0);
+
+        assertThat(bucket.tryTake(4, 4, ONE_PER_SECOND, 0)).isZero();
+        assertThat(bucket.tryTake(1, 4, ONE_PER_SECOND, 0)).isEqualTo(SECOND);
+        assertThat(bucket.tryTake(1, 4, ONE_PER_SECOND, SECOND / 4)).isEqualTo(3 * SECOND / 4);
+        assertThat(bucket.tryTake(1, 4, ONE_PER_SECOND, SECOND)).isZero();
+
+        // A long pause refills no more than the capacity
+        assertThat(bucket.tryTake(4, 4, ONE_PER_SECOND, 100 * SECOND)).isZero();
+        assertThat(bucket.tryTake(0.5, 4, ONE_PER_SECOND, 100 * SECOND)).isEqualTo(SECOND / 2);
+    }
+
+    @Test
+    void rejectedTakeDoesNotSpendTokens() {
+        TokenBucket bucket = new TokenBucket(2, 0);
+
+        assertThat(bucket.tryTake(3, 2, ONE_PER_SECOND, 0)).isEqualTo(SECOND);
+        assertThat(bucket.tryTake(2, 2, ONE_PER_SECOND, 0)).isZero();
+    }
+
+    @Test
+    void concurrentTakesSpendEveryTokenExactlyOnce() throws Exception {
+        int capacity = 100_000;
+        int threads = 8;
+        for (int round = 0; round < 5; round++) {
+            TokenBucket bucket = new TokenBucket(capacity, 0);
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<Integer>> taken = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                taken.add(pool.submit(() -> {
+                    start.await();
+                    int count = 0;
+                    // No refill, so the bucket empties and every later take is refused
+                    while (bucket.tryTake(1, capacity, 0, 0) == 0) {
+                        count++;
+                    }
+                    return count;
+                }));
+            }
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> future : taken) {
+                total += future.get(30, TimeUnit.SECONDS);
+            }
+            pool.shutdown();
+
+            assertThat(total).isEqualTo(capacity);
+        }
+    }
+
+    @Test
+    void retiresOnlyFullIdleBuckets() {
+        TokenBucket bucket = new TokenBucket(4, 0);
+        assertThat(bucket.tryTake(1, 4, ONE_PER_SECOND, 0)).isZero();
+
+        // Not full yet, then full but taken from too recently
+        assertThat(bucket.retireIfIdle(4, ONE_PER_SECOND, SECOND / 2, SECOND / 4)).isFalse();
+        assertThat(bucket.retireIfIdle(4, ONE_PER_SECOND, 2 * SECOND, 3 * SECOND)).isFalse();
+        assertThat(bucket.tryTake(1, 4, ONE_PER_SECOND, 2 * SECOND)).isZero();
+
+        assertThat(bucket.retireIfIdle(4, ONE_PER_SECOND, 4 * SECOND, SECOND)).isTrue();
+        assertThat(bucket.tryTake(1, 4, ONE_PER_SECOND, 4 * SECOND)).isEqualTo(TokenBucket.RETIRED);
+        assertThat(bucket.retireIfIdle(4, ONE_PER_SECOND, 4 * SECOND, SECOND)).isTrue();
+    }
+}
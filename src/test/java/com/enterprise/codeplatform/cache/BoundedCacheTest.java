@@ -0,0 +1,243 @@
+package com.enterprise.codeplatform.cache;
+
+import com.enterprise.codeplatform.dto.CacheStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedCacheTest {
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        BoundedCache<String, String> cache = cache(3, 60_000);
+        cache.put("a", "1");
+        cache.put("b", "1");
+        cache.put("c", "1");
+
+        cache.get("a");
+        cache.put("d", "1");
+
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("c")).isNotNull();
+        assertThat(cache.get("d")).isNotNull();
+    }
+
+    @Test
+    void largeEntryDisplacesSeveralSmallOnes() {
+        BoundedCache<String, String> cache = cache(10, 60_000);
+        for (String key : List.of("a", "b", "c", "d")) {
+            cache.put(key, "xx");
+        }
+
+        cache.put("big", "x".repeat(7));
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isNull();
+        assertThat(cache.get("d")).isEqualTo("xx");
+        assertThat(cache.get("big")).hasSize(7);
+        CacheStats stats = cache.stats();
+        assertThat(stats.getWeight()).isEqualTo(9);
+        assertThat(stats.getEvictions()).isEqualTo(3);
+
+        // An entry heavier than the whole cache is not kept and displaces nothing
+        cache.put("huge", "x".repeat(11));
+        assertThat(cache.get("huge")).isNull();
+        assertThat(cache.get("big")).isNotNull();
+    }
+
+    @Test
+    void entriesExpireAfterTheTtlOrTheirOwnExpiry() throws InterruptedException {
+        BoundedCache<String, String> cache = cache(100, 300);
+        long now = System.currentTimeMillis();
+        cache.put("ttl", "1");
+        cache.put("short", "1", now + 50);
+        cache.put("long", "1", now + 3_600_000);
+
+        Thread.sleep(150);
+        assertThat(cache.get("short")).isNull();
+        assertThat(cache.get("ttl")).isNotNull();
+        assertThat(cache.get("long")).isNotNull();
+
+        // A per-entry expiry never outlives the cache TTL
+        Thread.sleep(300);
+        assertThat(cache.get("ttl")).isNull();
+        assertThat(cache.get("long")).isNull();
+        assertThat(cache.stats().getWeight()).isZero();
+    }
+
+    @Test
+    void countsHitsMissesAndEvictions() throws InterruptedException {
+        BoundedCache<String, String> cache = cache(2, 60_000);
+        cache.put("a", "1");
+        cache.get("a");
+        cache.get("a");
+        cache.get("missing");
+        cache.put("b", "1");
+        cache.put("c", "1");
+        cache.put("short", "1", System.currentTimeMillis() + 20);
+        Thread.sleep(50);
+        cache.get("short");
+
+        CacheStats stats = cache.stats();
+        assertThat(stats.getHits()).isEqualTo(2);
+        assertThat(stats.getMisses()).isEqualTo(2);
+        // "a" and "b" for capacity, "short" on the read after its expiry
+        assertThat(stats.getEvictions()).isEqualTo(3);
+        assertThat(stats.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentMissesShareOneLoadPerKey() throws Exception {
+        BoundedCache<Integer, String> cache = cache(1_000_000, 60_000);
+        ConcurrentHashMap<Integer, AtomicInteger> loads = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int key = 0; key < 50; key++) {
+                        String value = cache.get(key, k -> {
+                            loads.computeIfAbsent(k, x -> new AtomicInteger()).incrementAndGet();
+                            sleep(2);
+                            return "v" + k;
+                        });
+                        assertThat(value).isEqualTo("v" + key);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(loads).hasSize(50);
+        assertThat(loads.values()).allSatisfy(count -> assertThat(count.get()).isEqualTo(1));
+    }
+
+    @Test
+    void weightNeverExceedsTheBoundUnderConcurrentUse() throws Exception {
+        BoundedCache<Integer, String> cache = cache(500, 60_000);
+        AtomicLong heaviest = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int seed = thread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 20_000; i++) {
+                        int key = (i * 31 + seed) % 400;
+                        cache.get(key, k -> "x".repeat(1 + k % 60));
+                        if (i % 100 == 0) {
+                            heaviest.accumulateAndGet(cache.stats().getWeight(), Math::max);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(heaviest.get()).isBetween(1L, 500L);
+        assertThat(cache.stats().getWeight()).isLessThanOrEqualTo(500);
+        assertThat(cache.stats().getEvictions()).isPositive();
+    }
+
+    @Test
+    void loadOverlappingAnInvalidationIsNotCached() throws Exception {
+        BoundedCache<String, String> cache = cache(100, 60_000);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> load = executor.submit(() -> cache.get("k", k -> {
+                loading.countDown();
+                await(invalidated);
+                return "stale";
+            }));
+            loading.await();
+            cache.invalidate("k");
+            invalidated.countDown();
+
+            assertThat(load.get(10, TimeUnit.SECONDS)).isEqualTo("stale");
+            assertThat(cache.get("k")).isNull();
+            assertThat(cache.get("k", k -> "fresh")).isEqualTo("fresh");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedLoadReachesWaitersAndIsNotCached() throws Exception {
+        BoundedCache<String, String> cache = cache(100, 60_000);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> cache.get("k", k -> {
+                loading.countDown();
+                await(fail);
+                throw new IllegalStateException("load failed");
+            }));
+            loading.await();
+            Future<String> waiter = executor.submit(() -> cache.get("k", k -> "second loader"));
+            // Gives the second caller time to find the running load and wait for it
+            Thread.sleep(200);
+            fail.countDown();
+
+            for (Future<String> future : List.of(first, waiter)) {
+                assertThatThrownBy(() -> future.get(10, TimeUnit.SECONDS))
+                        .hasCauseInstanceOf(IllegalStateException.class);
+            }
+            assertThat(cache.get("k", k -> "retried")).isEqualTo("retried");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <K> BoundedCache<K, String> cache(long maxWeight, long ttlMillis) {
+        return new BoundedCache<>("test", maxWeight, ttlMillis, (key, value) -> value.length());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.enterprise.codeplatform.monitoring;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording a sample into a Prometheus histogram through the pre-registered size buckets,
+ * against looking the timer up in the registry on every call, from four threads; and one
+ * scrape of the registry holding those histograms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SizedTimerBenchmark {
+
+    private static final Duration MIN = Duration.ofMillis(1);
+    private static final Duration MAX = Duration.ofSeconds(30);
+
+    private PrometheusMeterRegistry registry;
+    private SizedTimer timer;
+
+    @Setup
+    public void setUp() {
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        timer = new SizedTimer(registry, "sized", "Sized timer", MIN, MAX, "operation", "bench");
+        for (String size : new String[] { "0-1k", "1k-10k", "10k-100k", "100k+" }) {
+            lookup(size).record(1, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void sizedRecord() {
+        timer.record(ThreadLocalRandom.current().nextInt(200_000), System.nanoTime() - 5_000_000);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void lookupRecord() {
+        int size = ThreadLocalRandom.current().nextInt(200_000);
+        String label = size <= 1024 ? "0-1k" : size <= 10 * 1024 ? "1k-10k" : size <= 100 * 1024 ? "10k-100k" : "100k+";
+        lookup(label).record(5, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    public String scrape() {
+        return registry.scrape();
+    }
+
+    private Timer lookup(String size) {
+        return Timer.builder("looked.up")
+                .tags("operation", "bench", "size", size)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN)
+                .maximumExpectedValue(MAX)
+                .register(registry);
+    }
+}
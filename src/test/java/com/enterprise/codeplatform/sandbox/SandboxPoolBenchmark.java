@@ -0,0 +1,114 @@
+package com.enterprise.codeplatform.sandbox;
+
+import com.enterprise.codeplatform.cache.CacheRegistry;
+import com.enterprise.codeplatform.service.CompileEngine;
+import com.enterprise.codeplatform.service.CompilerService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of a snippet through a warm worker, with and without the OS-level isolation,
+ * for a snippet that only prints and one that starts and joins eight threads under the
+ * guard. The isolated case needs root, util-linux and a JDK readable by the sandbox user;
+ * pass one with -Dsandbox.java=/path/to/bin/java when the default is not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SandboxPoolBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean osIsolation;
+
+    private CompileEngine engine;
+    private SandboxPool pool;
+    private CompilerService.Compilation print;
+    private CompilerService.Compilation threads;
+
+    @Setup
+    public void setUp() {
+        engine = new CompileEngine(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CompilerService compiler = new CompilerService(engine, new CacheRegistry(meterRegistry), meterRegistry,
+                1 << 20, 30);
+        print = compiler.compileClasses(
+                "public class Main { public static void main(String[] a) { System.out.print(\"ok\"); } }");
+        threads = compiler.compileClasses("""
+                public class Main {
+                    public static void main(String[] args) throws Exception {
+                        Thread[] threads = new Thread[8];
+                        for (int i = 0; i < threads.length; i++) {
+                            threads[i] = new Thread(() -> { });
+                            threads[i].start();
+                        }
+                        for (Thread thread : threads) {
+                            thread.join();
+                        }
+                        System.out.print("ok");
+                    }
+                }
+                """);
+
+        pool = new SandboxPool(meterRegistry);
+        ReflectionTestUtils.setField(pool, "enabled", true);
+        ReflectionTestUtils.setField(pool, "poolSize", 2);
+        ReflectionTestUtils.setField(pool, "maxRunsPerWorker", 1_000_000);
+        ReflectionTestUtils.setField(pool, "heapMb", 64);
+        ReflectionTestUtils.setField(pool, "cpuTimeMs", 2000L);
+        ReflectionTestUtils.setField(pool, "wallTimeMs", 5000L);
+        ReflectionTestUtils.setField(pool, "outputLimitBytes", 65536);
+        ReflectionTestUtils.setField(pool, "acquireTimeoutMs", 60000L);
+        ReflectionTestUtils.setField(pool, "javaCommand", System.getProperty("sandbox.java", ""));
+        ReflectionTestUtils.setField(pool, "maxThreads", 16);
+        ReflectionTestUtils.setField(pool, "osIsolation", osIsolation);
+        ReflectionTestUtils.setField(pool, "namespaces", true);
+        ReflectionTestUtils.setField(pool, "user", "nobody");
+        ReflectionTestUtils.setField(pool, "group", "nogroup");
+        ReflectionTestUtils.setField(pool, "maxOpenFiles", 128);
+        ReflectionTestUtils.setField(pool, "maxProcesses", 256);
+        pool.start();
+        // Waits for the workers to come up
+        run(print);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.close();
+        engine.close();
+    }
+
+    @Benchmark
+    public SandboxPool.Result printRun() {
+        return run(print);
+    }
+
+    @Benchmark
+    public SandboxPool.Result threadedRun() {
+        return run(threads);
+    }
+
+    private SandboxPool.Result run(CompilerService.Compilation compilation) {
+        SandboxPool.Result result = pool.run(compilation.getClasses(), compilation.getMainClass(), "");
+        if (result.status() != SandboxPool.Status.OK) {
+            throw new IllegalStateException(result.status() + " " + result.error());
+        }
+        return result;
+    }
+}
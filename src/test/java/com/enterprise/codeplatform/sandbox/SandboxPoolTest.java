@@ -0,0 +1,439 @@
+package com.enterprise.codeplatform.sandbox;
+
+import com.enterprise.codeplatform.cache.CacheRegistry;
+import com.enterprise.codeplatform.service.CompileEngine;
+import com.enterprise.codeplatform.service.CompilerService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs snippets in real worker JVMs. The escape attempts print "denied" or "ALLOWED" per
+ * attempt, so a regression names the escape that worked.
+ */
+class SandboxPoolTest {
+
+    private static final String ATTEMPT = """
+                static void attempt(String name, java.util.concurrent.Callable<?> action) {
+                    try {
+                        action.call();
+                        System.out.println(name + " ALLOWED");
+                    } catch (SecurityException e) {
+                        System.out.println(name + " denied");
+                    } catch (Throwable e) {
+                        System.out.println(name + " failed " + e);
+                    }
+                }
+            """;
+
+    private static CompileEngine engine;
+    private static CompilerService compiler;
+    private static SandboxPool pool;
+    private static Path target;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        engine = new CompileEngine(2);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        compiler = new CompilerService(engine, new CacheRegistry(meterRegistry), meterRegistry, 1 << 20, 30);
+        // The JVM-level checks alone, so these tests run wherever a JDK does
+        pool = pool(false);
+        target = Files.createTempDirectory("sandbox-test").resolve("escaped");
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        pool.close();
+        engine.close();
+        Files.deleteIfExists(target);
+        Files.deleteIfExists(target.getParent());
+    }
+
+    @Test
+    void runsSnippetsUsingCommonLibraryFeatures() {
+        SandboxPool.Result result = run("""
+                import java.time.LocalDate;
+                import java.util.*;
+                import java.util.concurrent.*;
+                import java.util.stream.*;
+
+                public class Main {
+                    record Point(int x, int y) {}
+
+                    public static void main(String[] args) throws Exception {
+                        String name = new Scanner(System.in).nextLine();
+                        List<Integer> squares = IntStream.rangeClosed(1, 4).map(i -> i * i).boxed().toList();
+                        long sum = LongStream.rangeClosed(1, 100_000).parallel().sum();
+                        ExecutorService executor = Executors.newFixedThreadPool(2);
+                        Future<String> task = executor.submit(() -> "task");
+                        String async = CompletableFuture.supplyAsync(() -> "async").get();
+                        executor.shutdown();
+                        System.out.println("hello " + name + " " + squares + " " + sum + " " + task.get() + " " + async);
+                        System.out.println(String.format(Locale.US, "%,d %s %s", 1234567, new Point(1, 2),
+                                LocalDate.of(2024, 2, 28).plusDays(1)));
+                        System.out.println("a1b22".replaceAll("\\\\d+", "#") + System.getProperty("line.separator").length());
+                        new IllegalStateException("logged").printStackTrace();
+                    }
+                }
+                """, "world\n");
+
+        assertThat(result.status()).as(result.error()).isEqualTo(SandboxPool.Status.OK);
+        assertThat(result.stdout()).isEqualTo("hello world [1, 4, 9, 16] 5000050000 task async\n"
+                + "1,234,567 Point[x=1, y=2] 2024-02-29\n" + "a#b#1\n");
+        assertThat(result.stderr()).contains("java.lang.IllegalStateException: logged");
+    }
+
+    @Test
+    void reflectionCannotTurnTheGuardOff() {
+        SandboxPool.Result result = run("""
+                import java.lang.invoke.MethodHandles;
+                import java.lang.reflect.Field;
+                import java.nio.file.*;
+
+                public class Main {
+                    public static void main(String[] args) {
+                        Object guard = System.getSecurityManager();
+                        attempt("guard fields", () -> {
+                            for (Field field : guard.getClass().getDeclaredFields()) {
+                                field.setAccessible(true);
+                            }
+                            return null;
+                        });
+                        attempt("private lookup", () -> MethodHandles.privateLookupIn(guard.getClass(),
+                                MethodHandles.lookup()));
+                        attempt("unsafe", () -> {
+                            Field unsafe = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+                            unsafe.setAccessible(true);
+                            return unsafe.get(null);
+                        });
+                        attempt("accessible system field", () -> {
+                            System.class.getDeclaredField("security").setAccessible(true);
+                            return null;
+                        });
+                        attempt("replace security manager", () -> {
+                            System.setSecurityManager(null);
+                            return null;
+                        });
+                        attempt("replace policy", () -> {
+                            java.security.Policy.setPolicy(null);
+                            return null;
+                        });
+                        attempt("write", () -> Files.writeString(Path.of("%s"), "x"));
+                    }
+                %s
+                }
+                """.formatted(target, ATTEMPT), "");
+
+        assertDenied(result, 7);
+    }
+
+    @Test
+    void threadsCannotLeaveTheGroupOfTheirRun() throws Exception {
+        SandboxPool.Result result = run("""
+                import java.nio.file.*;
+
+                public class Main {
+                    public static void main(String[] args) throws Exception {
+                        attempt("parent group", () -> Thread.currentThread().getThreadGroup().getParent());
+                        attempt("thread in parent group", () -> {
+                            ThreadGroup group = Thread.currentThread().getThreadGroup();
+                            while (group.getParent() != null) {
+                                group = group.getParent();
+                            }
+                            return new Thread(group, () -> { });
+                        });
+                        attempt("all stack traces", Thread::getAllStackTraces);
+                        attempt("context class loader", () -> {
+                            Thread.currentThread().setContextClassLoader(ClassLoader.getSystemClassLoader());
+                            return null;
+                        });
+                        Thread writer = new Thread(() -> attempt("write from thread",
+                                () -> Files.writeString(Path.of("%s"), "x")));
+                        writer.start();
+                        writer.join();
+                    }
+                %s
+                }
+                """.formatted(target, ATTEMPT), "");
+
+        assertDenied(result, 5);
+    }
+
+    @Test
+    void threadsLeftBehindStayGuardedAfterTheRun() throws Exception {
+        SandboxPool.Result result = run("""
+                import java.nio.file.*;
+
+                public class Main {
+                    public static void main(String[] args) {
+                        Thread daemon = new Thread(() -> {
+                            // Keeps trying while the worker reports the run and halts
+                            while (true) {
+                                try {
+                                    Files.writeString(Path.of("%s"), "x");
+                                    System.out.println("ALLOWED");
+                                    return;
+                                } catch (Exception e) {
+                                    System.out.print("");
+                                }
+                            }
+                        });
+                        daemon.setDaemon(true);
+                        daemon.start();
+                    }
+                }
+                """.formatted(target), "");
+
+        assertThat(result.status()).isEqualTo(SandboxPool.Status.OK);
+        Thread.sleep(200);
+        assertThat(target).doesNotExist();
+        // The worker was retired; its replacement answers normally
+        assertThat(run("public class Main { public static void main(String[] a) { System.out.print(1); } }", "")
+                .stdout()).isEqualTo("1");
+    }
+
+    @Test
+    void limitsTheThreadsOfARun() {
+        SandboxPool.Result result = run("""
+                public class Main {
+                    public static void main(String[] args) throws Exception {
+                        int started = 0;
+                        try {
+                            for (int i = 0; i < 1000; i++) {
+                                Thread thread = new Thread(() -> { });
+                                thread.start();
+                                thread.join();
+                                started++;
+                            }
+                        } catch (SecurityException e) {
+                            System.out.println("limited after " + started + ": " + e.getMessage());
+                        }
+                    }
+                }
+                """, "");
+
+        assertThat(result.stdout()).isEqualTo("limited after 15: A run may not create more than 16 threads\n");
+    }
+
+    @Test
+    void deniesFilesNetworkProcessesAndExit() {
+        SandboxPool.Result result = run("""
+                import java.io.*;
+                import java.net.Socket;
+                import java.nio.file.*;
+
+                public class Main {
+                    public static void main(String[] args) {
+                        attempt("read", () -> Files.readString(Path.of("/etc/passwd")));
+                        attempt("write", () -> new FileOutputStream("%s"));
+                        attempt("socket", () -> new Socket("127.0.0.1", 9));
+                        attempt("exec", () -> new ProcessBuilder("true").start());
+                        attempt("exit", () -> {
+                            System.exit(3);
+                            return null;
+                        });
+                        attempt("halt", () -> {
+                            Runtime.getRuntime().halt(3);
+                            return null;
+                        });
+                        attempt("protocol stream", () -> new FileOutputStream(FileDescriptor.out));
+                        attempt("native library", () -> {
+                            System.loadLibrary("net");
+                            return null;
+                        });
+                        attempt("environment", System::getenv);
+                        attempt("user home", () -> System.getProperty("user.home"));
+                    }
+                %s
+                }
+                """.formatted(target, ATTEMPT), "");
+
+        assertDenied(result, 10);
+    }
+
+    @Test
+    void launcherAppliesLimitsNamespacesAndUser() {
+        SandboxPool isolated = new SandboxPool(new SimpleMeterRegistry());
+        configure(isolated, true);
+
+        assertThat(isolated.launcher()).containsExactly("prlimit", "--nofile=128", "--fsize=0", "--core=0",
+                "--nproc=256", "--", "unshare", "--net", "--ipc", "--uts", "--pid", "--fork", "--kill-child", "--",
+                "setpriv", "--reuid=nobody", "--regid=nogroup", "--clear-groups", "--no-new-privs", "--");
+
+        ReflectionTestUtils.setField(isolated, "user", "");
+        assertThat(isolated.launcher()).containsExactly("prlimit", "--nofile=128", "--fsize=0", "--core=0", "--",
+                "unshare", "--user", "--net", "--ipc", "--uts", "--pid", "--fork", "--kill-child", "--");
+    }
+
+    @Test
+    void isolatedWorkerRunsAsItsOwnUserInItsOwnNamespaces() throws Exception {
+        assumeTrue("root".equals(System.getProperty("user.name")) && Files.isExecutable(Path.of("/usr/bin/unshare"))
+                && Files.isExecutable(Path.of("/usr/bin/setpriv")) && Files.isExecutable(Path.of("/usr/bin/prlimit")),
+                "needs root and util-linux");
+        assumeTrue(openToOthers(Path.of(System.getProperty("java.home"))), "the JDK must be readable by nobody");
+        SandboxPool isolated = pool(true);
+        try {
+            SandboxPool.Result result = isolated.run(compile(
+                    "public class Main { public static void main(String[] a) { System.out.print(\"ok\"); } }")
+                    .getClasses(), "Main", "");
+            assertThat(result.status()).as(result.error()).isEqualTo(SandboxPool.Status.OK);
+
+            Queue<?> idle = (Queue<?>) ReflectionTestUtils.getField(isolated, "idle");
+            Process process = (Process) ReflectionTestUtils.getField(idle.peek(), "process");
+            ProcessHandle worker = process.descendants()
+                    .filter(handle -> handle.info().command().orElse("").endsWith("/java"))
+                    .findFirst().orElseThrow();
+            assertThat(worker.info().user()).hasValue("nobody");
+            assertThat(Files.readString(Path.of("/proc", worker.pid() + "", "limits")))
+                    .containsPattern("Max file size\\s+0\\s+0")
+                    .containsPattern("Max processes\\s+256\\s+256");
+            for (String namespace : List.of("net", "pid", "ipc", "uts")) {
+                assertThat(Files.readSymbolicLink(Path.of("/proc", worker.pid() + "", "ns", namespace)))
+                        .isNotEqualTo(Files.readSymbolicLink(Path.of("/proc/self/ns", namespace)));
+            }
+        } finally {
+            isolated.close();
+        }
+    }
+
+    @Test
+    void launcherThatCannotStartDisablesThePoolWithItsReason() {
+        SandboxPool broken = new SandboxPool(new SimpleMeterRegistry());
+        configure(broken, true);
+        ReflectionTestUtils.setField(broken, "user", "no-such-sandbox-user");
+        try {
+            broken.start();
+
+            assertThat(broken.isEnabled()).isFalse();
+            assertThatThrownBy(() -> broken.run(Map.of(), "Main", ""))
+                    .isInstanceOfSatisfying(ResponseStatusException.class, e -> {
+                        assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                        assertThat(e.getReason()).startsWith("Snippet execution is unavailable: ");
+                    });
+        } finally {
+            broken.close();
+        }
+    }
+
+    @Test
+    void workerRuntimeWithoutASecurityManagerIsRejected() throws IOException {
+        Path java = fakeJava("openjdk version \"24\" 2025-03-18");
+        SandboxPool newer = new SandboxPool(new SimpleMeterRegistry());
+        configure(newer, false);
+        ReflectionTestUtils.setField(newer, "javaCommand", java.toString());
+        try {
+            assertThat(newer.probe()).contains("Java 24", "security manager");
+
+            ReflectionTestUtils.setField(newer, "javaCommand", fakeJava("openjdk version \"23.0.1\"").toString());
+            assertThat(newer.probe()).isNull();
+            ReflectionTestUtils.setField(newer, "javaCommand", fakeJava("java version \"1.8.0_402\"").toString());
+            assertThat(newer.probe()).isNull();
+        } finally {
+            newer.close();
+        }
+    }
+
+    @Test
+    void workersThatKeepFailingToStartAnswerUnavailableInsteadOfBusy() throws Exception {
+        // Passes the probe, then exits at once instead of serving as a worker
+        Path java = fakeJava("openjdk version \"17.0.9\"");
+        SandboxPool failing = new SandboxPool(new SimpleMeterRegistry());
+        configure(failing, false);
+        ReflectionTestUtils.setField(failing, "javaCommand", java.toString());
+        try {
+            failing.start();
+            assertThat(failing.isEnabled()).isTrue();
+            for (int i = 0; i < 100 && ReflectionTestUtils.getField(failing, "launchFailure") == null; i++) {
+                Thread.sleep(100);
+            }
+
+            long started = System.nanoTime();
+            assertThatThrownBy(() -> failing.run(Map.of(), "Main", ""))
+                    .isInstanceOfSatisfying(ResponseStatusException.class, e -> {
+                        assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                        assertThat(e.getReason()).startsWith("No sandbox worker can be started");
+                    });
+            // Answered at once rather than after the acquire timeout
+            assertThat(System.nanoTime() - started).isLessThan(5_000_000_000L);
+        } finally {
+            failing.close();
+        }
+    }
+
+    private static Path fakeJava(String versionLine) throws IOException {
+        Path script = Files.createTempFile("java", ".sh");
+        Files.writeString(script, "#!/bin/sh\necho '" + versionLine + "' >&2\n");
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwx------"));
+        script.toFile().deleteOnExit();
+        return script;
+    }
+
+    private static boolean openToOthers(Path path) throws IOException {
+        for (Path dir = path; dir != null; dir = dir.getParent()) {
+            if (!Files.getPosixFilePermissions(dir).contains(PosixFilePermission.OTHERS_EXECUTE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void assertDenied(SandboxPool.Result result, int attempts) {
+        assertThat(result.status()).as(result.error()).isEqualTo(SandboxPool.Status.OK);
+        assertThat(result.stdout().lines()).hasSize(attempts).allSatisfy(line -> assertThat(line).endsWith(" denied"));
+        assertThat(target).doesNotExist();
+    }
+
+    private static SandboxPool.Result run(String source, String stdin) {
+        CompilerService.Compilation compilation = compile(source);
+        return pool.run(compilation.getClasses(), compilation.getMainClass(), stdin);
+    }
+
+    private static CompilerService.Compilation compile(String source) {
+        CompilerService.Compilation compilation = compiler.compileClasses(source);
+        assertThat(compilation.getErrors()).isEmpty();
+        return compilation;
+    }
+
+    private static SandboxPool pool(boolean osIsolation) {
+        SandboxPool sandboxPool = new SandboxPool(new SimpleMeterRegistry());
+        configure(sandboxPool, osIsolation);
+        sandboxPool.start();
+        return sandboxPool;
+    }
+
+    private static void configure(SandboxPool sandboxPool, boolean osIsolation) {
+        ReflectionTestUtils.setField(sandboxPool, "enabled", true);
+        ReflectionTestUtils.setField(sandboxPool, "poolSize", 2);
+        ReflectionTestUtils.setField(sandboxPool, "maxRunsPerWorker", 100);
+        ReflectionTestUtils.setField(sandboxPool, "heapMb", 64);
+        ReflectionTestUtils.setField(sandboxPool, "cpuTimeMs", 5000L);
+        ReflectionTestUtils.setField(sandboxPool, "wallTimeMs", 10000L);
+        ReflectionTestUtils.setField(sandboxPool, "outputLimitBytes", 65536);
+        ReflectionTestUtils.setField(sandboxPool, "acquireTimeoutMs", 60000L);
+        ReflectionTestUtils.setField(sandboxPool, "javaCommand", "");
+        ReflectionTestUtils.setField(sandboxPool, "maxThreads", 16);
+        ReflectionTestUtils.setField(sandboxPool, "osIsolation", osIsolation);
+        ReflectionTestUtils.setField(sandboxPool, "namespaces", true);
+        ReflectionTestUtils.setField(sandboxPool, "user", "nobody");
+        ReflectionTestUtils.setField(sandboxPool, "group", "nogroup");
+        ReflectionTestUtils.setField(sandboxPool, "maxOpenFiles", 128);
+        ReflectionTestUtils.setField(sandboxPool, "maxProcesses", 256);
+    }
+}
@@ -0,0 +1,79 @@
+package com.enterprise.codeplatform.security;
+
+import com.enterprise.codeplatform.cache.CacheRegistry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request token handling: the original filter path (extractUsername plus
+ * validateToken, three parses each rebuilding the key and parser) against one verify
+ * with the prebuilt parser and against a cached verify.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilsBenchmark {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private JwtUtils cachingUtils;
+    private JwtUtils uncachedUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachingUtils = jwtUtils(4 << 20);
+        // A zero byte budget keeps nothing, so every call parses and checks the signature
+        uncachedUtils = jwtUtils(0);
+        token = cachingUtils.generateToken(new User("dev@example.com", "x", List.of()));
+        cachingUtils.verify(token);
+    }
+
+    @Benchmark
+    public boolean parsePerClaim() {
+        String username = parse(token).getSubject();
+        return username.equals("dev@example.com") && parse(token).getSubject() != null
+                && !parse(token).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public Claims verify() {
+        return uncachedUtils.verify(token);
+    }
+
+    @Benchmark
+    public Claims verifyCached() {
+        return cachingUtils.verify(token);
+    }
+
+    private static JwtUtils jwtUtils(long cacheMaxBytes) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new JwtUtils(new CacheRegistry(meterRegistry), meterRegistry, SECRET, 86_400_000, cacheMaxBytes);
+    }
+
+    private static Claims parse(String token) {
+        Key key = Keys.hmacShaKeyFor(io.jsonwebtoken.io.Decoders.BASE64.decode(SECRET));
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+    }
+}
@@ -0,0 +1,109 @@
+package com.enterprise.codeplatform.security;
+
+import com.enterprise.codeplatform.cache.CacheRegistry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtUtilsTest {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+    private static final String OTHER_SECRET = "5A7134743777217A25432A462D4A614E645267556B58703272357538782F413F";
+
+    private final CacheRegistry cacheRegistry = new CacheRegistry(new SimpleMeterRegistry());
+    private final JwtUtils jwtUtils = new JwtUtils(cacheRegistry, new SimpleMeterRegistry(), SECRET, 86_400_000,
+            4 << 20);
+
+    @Test
+    void cachedTokenIsRejectedOnceItExpires() throws InterruptedException {
+        String token = token(SECRET, "dev@example.com", System.currentTimeMillis() + 1_500);
+        assertThat(jwtUtils.verify(token).getSubject()).isEqualTo("dev@example.com");
+        assertThat(jwtUtils.verify(token).getSubject()).isEqualTo("dev@example.com");
+        assertThat(cacheRegistry.stats().get(0).getHits()).isEqualTo(1);
+
+        Thread.sleep(1_600);
+
+        assertThatThrownBy(() -> jwtUtils.verify(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    void tamperedOrResignedTokenIsNeverServedFromTheCache() {
+        String token = jwtUtils.generateToken(new User("dev@example.com", "x", List.of()));
+        jwtUtils.verify(token);
+
+        String[] parts = token.split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+        String forged = parts[0] + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(
+                payload.replace("dev@example.com", "admin@example.com").getBytes(StandardCharsets.UTF_8))
+                + "." + parts[2];
+        assertThatThrownBy(() -> jwtUtils.verify(forged)).isInstanceOf(SignatureException.class);
+
+        String resigned = token(OTHER_SECRET, "dev@example.com", System.currentTimeMillis() + 60_000);
+        assertThatThrownBy(() -> jwtUtils.verify(resigned)).isInstanceOf(SignatureException.class);
+
+        // A trailing change to the signature is a different token, not a cache hit
+        assertThatThrownBy(() -> jwtUtils.verify(token + "A")).isInstanceOf(RuntimeException.class);
+        assertThat(cacheRegistry.stats().get(0).getHits()).isZero();
+    }
+
+    @Test
+    void malformedAndExpiredTokensAreRejected() {
+        assertThatThrownBy(() -> jwtUtils.verify("not-a-token")).isInstanceOf(MalformedJwtException.class);
+        assertThatThrownBy(() -> jwtUtils.verify("a.b.c")).isInstanceOf(MalformedJwtException.class);
+
+        String expired = token(SECRET, "dev@example.com", System.currentTimeMillis() - 60_000);
+        assertThatThrownBy(() -> jwtUtils.verify(expired)).isInstanceOf(ExpiredJwtException.class);
+
+        String anonymous = token(SECRET, null, System.currentTimeMillis() + 60_000);
+        assertThatThrownBy(() -> jwtUtils.verify(anonymous)).isInstanceOf(MalformedJwtException.class);
+
+        String endless = Jwts.builder().setSubject("dev@example.com").signWith(key(SECRET), SignatureAlgorithm.HS256)
+                .compact();
+        assertThatThrownBy(() -> jwtUtils.verify(endless)).isInstanceOf(MalformedJwtException.class);
+
+        assertThat(cacheRegistry.stats().get(0).getSize()).isZero();
+    }
+
+    @Test
+    void cacheStaysWithinItsByteBudget() {
+        CacheRegistry registry = new CacheRegistry(new SimpleMeterRegistry());
+        JwtUtils bounded = new JwtUtils(registry, new SimpleMeterRegistry(), SECRET, 86_400_000, 8_192);
+
+        for (int i = 0; i < 200; i++) {
+            String subject = "user" + i + "@example.com";
+            Claims claims = bounded.verify(token(SECRET, subject, System.currentTimeMillis() + 60_000));
+            assertThat(claims.getSubject()).isEqualTo(subject);
+            assertThat(registry.stats().get(0).getWeight()).isLessThanOrEqualTo(8_192);
+        }
+        assertThat(registry.stats().get(0).getEvictions()).isPositive();
+    }
+
+    private static String token(String secret, String subject, long expiresAt) {
+        return Jwts.builder()
+                .setSubject(subject)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(expiresAt))
+                .signWith(key(secret), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    private static Key key(String secret) {
+        return Keys.hmacShaKeyFor(io.jsonwebtoken.io.Decoders.BASE64.decode(secret));
+    }
+}
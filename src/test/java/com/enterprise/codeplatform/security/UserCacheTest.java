@@ -0,0 +1,140 @@
+package com.enterprise.codeplatform.security;
+
+import com.enterprise.codeplatform.cache.CacheRegistry;
+import com.enterprise.codeplatform.entity.User;
+import com.enterprise.codeplatform.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserCacheTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final Map<Long, User> rows = new HashMap<>();
+    private final UserCache userCache = new UserCache(new CacheRegistry(new SimpleMeterRegistry()), 100,
+            Duration.ofMillis(300));
+    private final UserDetailsServiceImpl userDetailsService = new UserDetailsServiceImpl(userRepository, userCache);
+    private final UserCacheListener listener = new UserCacheListener(userCache);
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findByEmail(anyString())).thenAnswer(inv -> rows.values().stream()
+                .filter(user -> user.getEmail().equals(inv.getArgument(0))).findFirst().map(UserCacheTest::copy));
+        when(userRepository.findByUsername(anyString())).thenAnswer(inv -> rows.values().stream()
+                .filter(user -> user.getDisplayUsername().equals(inv.getArgument(0))).findFirst().map(UserCacheTest::copy));
+        save(user("dev@example.com", "dev", "{noop}one", User.Role.DEVELOPER));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void cacheHitReturnsTheSamePrincipalWithoutALookup() {
+        UserDetails first = userDetailsService.loadUserByUsername("dev@example.com");
+        UserDetails second = userDetailsService.loadUserByUsername("dev@example.com");
+
+        assertThat(second).isSameAs(first);
+        assertThat(second).isEqualTo(new AuthenticatedUser(1L, "dev@example.com", "dev", "{noop}one",
+                User.Role.DEVELOPER));
+        assertThat(second.getUsername()).isEqualTo("dev@example.com");
+        assertThat(second.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_DEVELOPER");
+        verify(userRepository, times(1)).findByEmail("dev@example.com");
+    }
+
+    @Test
+    void unknownUserIsNotCached() {
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("nobody"))
+                .isInstanceOf(UsernameNotFoundException.class);
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("nobody"))
+                .isInstanceOf(UsernameNotFoundException.class);
+
+        verify(userRepository, times(2)).findByUsername("nobody");
+    }
+
+    @Test
+    void updateOrRemovalEvictsEveryIdentifierTheUserIsCachedUnder() {
+        userDetailsService.loadUserByUsername("dev@example.com");
+        userDetailsService.loadUserByUsername("dev");
+
+        // The new row no longer matches either identifier, so eviction has to go by id
+        User renamed = save(user("lead@example.com", "lead", "{noop}one", User.Role.ADMIN));
+        listener.evict(renamed);
+
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("dev@example.com"))
+                .isInstanceOf(UsernameNotFoundException.class);
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("dev"))
+                .isInstanceOf(UsernameNotFoundException.class);
+        assertThat(((AuthenticatedUser) userDetailsService.loadUserByUsername("lead")).role())
+                .isEqualTo(User.Role.ADMIN);
+
+        rows.remove(1L);
+        listener.evict(renamed);
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("lead"))
+                .isInstanceOf(UsernameNotFoundException.class);
+    }
+
+    @Test
+    void rowReloadedBeforeTheRollbackIsEvictedAfterIt() {
+        TransactionSynchronizationManager.initSynchronization();
+        User committed = rows.get(1L);
+        listener.evict(save(user("dev@example.com", "dev", "{noop}two", User.Role.DEVELOPER)));
+
+        // A concurrent request caches the uncommitted row before the transaction rolls back
+        assertThat(userDetailsService.loadUserByUsername("dev").getPassword()).isEqualTo("{noop}two");
+        save(committed);
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertThat(userDetailsService.loadUserByUsername("dev").getPassword()).isEqualTo("{noop}one");
+    }
+
+    @Test
+    void entriesExpireAfterTheTtl() throws InterruptedException {
+        userDetailsService.loadUserByUsername("dev");
+        save(user("dev@example.com", "dev", "{noop}one", User.Role.ADMIN));
+        assertThat(((AuthenticatedUser) userDetailsService.loadUserByUsername("dev")).role())
+                .isEqualTo(User.Role.DEVELOPER);
+
+        Thread.sleep(400);
+
+        assertThat(((AuthenticatedUser) userDetailsService.loadUserByUsername("dev")).role())
+                .isEqualTo(User.Role.ADMIN);
+    }
+
+    private User save(User user) {
+        rows.put(user.getId(), user);
+        return user;
+    }
+
+    private static User user(String email, String username, String password, User.Role role) {
+        return User.builder().id(1L).name("Dev").email(email).username(username).password(password).role(role)
+                .build();
+    }
+
+    // The repository hands out a fresh entity per lookup, like a new persistence context
+    private static User copy(User user) {
+        return user(user.getEmail(), user.getDisplayUsername(), user.getPassword(), user.getRole());
+    }
+}
@@ -0,0 +1,164 @@
+package com.enterprise.codeplatform.service;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.Trees;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class AstMetricsScannerTest {
+
+    @Test
+    void countsBranchesShortCircuitOperatorsTernariesAndCatches() {
+        SourceMetrics metrics = measure("""
+                class A {
+                    int f(int a, boolean b) {
+                        if (a > 0 && b || a < -5) {
+                            return a > 10 ? 1 : 2;
+                        }
+                        try {
+                            g();
+                        } catch (IllegalStateException e) {
+                            return 3;
+                        } catch (RuntimeException e) {
+                            return 4;
+                        }
+                        return 0;
+                    }
+                    void g() {
+                    }
+                }
+                """);
+
+        // if, &&, ||, ?: and two catches
+        assertThat(metrics.getDecisionPoints()).isEqualTo(6);
+        assertThat(metrics.getMethods()).extracting(SourceMetrics.MethodInfo::getName,
+                SourceMetrics.MethodInfo::getCyclomaticComplexity)
+                .containsExactly(tuple("A.f", 7), tuple("A.g", 1));
+    }
+
+    @Test
+    void countsLoopsAndEveryCaseLabel() {
+        SourceMetrics metrics = measure("""
+                class A {
+                    int f(int[] xs) {
+                        int n = 0;
+                        for (int i = 0; i < xs.length; i++) n++;
+                        for (int x : xs) n += x;
+                        while (n > 100) n--;
+                        do n++; while (n < 0);
+                        switch (n) {
+                            case 1, 2: return 1;
+                            case 3: return 2;
+                            default: return n;
+                        }
+                    }
+                }
+                """);
+
+        // four loops and three case labels; default is not a decision
+        assertThat(metrics.getDecisionPoints()).isEqualTo(7);
+        assertThat(metrics.getMethods().get(0).getCyclomaticComplexity()).isEqualTo(8);
+    }
+
+    @Test
+    void measuresTheDeepestNestingPerMethod() {
+        SourceMetrics metrics = measure("""
+                class A {
+                    void deep(int[] xs) {
+                        while (true) {
+                            for (int x : xs) {
+                                if (x > 0) {
+                                    return;
+                                }
+                            }
+                        }
+                    }
+                    void flat(boolean a, boolean b) {
+                        if (a) {
+                            return;
+                        }
+                        if (b) {
+                            return;
+                        }
+                    }
+                    void lambda(java.util.List<String> xs) {
+                        xs.forEach(x -> {
+                            try {
+                                x.length();
+                            } catch (RuntimeException e) {
+                                if (x.isEmpty()) {
+                                    return;
+                                }
+                            }
+                        });
+                    }
+                }
+                """);
+
+        assertThat(metrics.getMethods()).extracting(SourceMetrics.MethodInfo::getMaxNestingDepth)
+                .containsExactly(3, 1, 4);
+        assertThat(metrics.getMaxNestingDepth()).isEqualTo(4);
+    }
+
+    @Test
+    void measuresMethodLengthInLinesFromDeclarationToClosingBrace() {
+        SourceMetrics metrics = measure("""
+                class A {
+                    int one() { return 1; }
+
+                    int three() {
+                        return 3;
+                    }
+                    abstract static class B {
+                        abstract void none();
+                    }
+                }
+                """);
+
+        assertThat(metrics.getMethodCount()).isEqualTo(3);
+        assertThat(metrics.getMethods()).extracting(SourceMetrics.MethodInfo::getName,
+                SourceMetrics.MethodInfo::getStartLine, SourceMetrics.MethodInfo::getLength)
+                .containsExactly(tuple("A.one", 2, 1), tuple("A.three", 4, 3), tuple("B.none", 8, 1));
+        assertThat(metrics.getMaxMethodLength()).isEqualTo(3);
+    }
+
+    @Test
+    void countsHalsteadOperatorsAndOperands() {
+        SourceMetrics metrics = measure("""
+                class A {
+                    int f(int a) {
+                        return a + 1;
+                    }
+                }
+                """);
+
+        // Operators: return, +. Operands: a (declared and read) and 1
+        assertThat(metrics.getDistinctOperators()).isEqualTo(2);
+        assertThat(metrics.getTotalOperators()).isEqualTo(2);
+        assertThat(metrics.getDistinctOperands()).isEqualTo(2);
+        assertThat(metrics.getTotalOperands()).isEqualTo(3);
+        // (2 + 3) * log2(2 + 2) and (2 / 2) * (3 / 2)
+        assertThat(metrics.getHalsteadVolume()).isEqualTo(10.0);
+        assertThat(metrics.getHalsteadDifficulty()).isEqualTo(1.5);
+    }
+
+    private static SourceMetrics measure(String code) {
+        JavacTask task = (JavacTask) ToolProvider.getSystemJavaCompiler().getTask(null, null,
+                new DiagnosticCollector<>(), List.of("-proc:none"), null,
+                List.of(new CompilerService.JavaSourceFromString("Test", code)));
+        try {
+            CompilationUnitTree unit = task.parse().iterator().next();
+            return AstMetricsScanner.measure(unit, Trees.instance(task).getSourcePositions());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
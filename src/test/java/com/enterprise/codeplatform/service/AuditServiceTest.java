@@ -0,0 +1,88 @@
+package com.enterprise.codeplatform.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AuditServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AtomicInteger inserted = new AtomicInteger();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void asyncModeUsesConfiguredBatchingWithoutOpeningTheLog() throws Exception {
+        countInserts();
+        Path walDir = tempDir.resolve("wal");
+        AuditService audit = service(AuditService.Mode.ASYNC, walDir);
+
+        for (int i = 0; i < 5; i++) {
+            audit.record("CREATE", "Snippet", (long) i, "dev@example.com");
+        }
+        audit.shutdown();
+
+        assertThat(inserted).hasValue(5);
+        assertThat(audit.stats().getWritten()).isEqualTo(5);
+        assertThat(audit.stats().getFlushes()).isGreaterThanOrEqualTo(3);
+        assertThat(walDir).doesNotExist();
+    }
+
+    @Test
+    void leftoverSegmentsAreReplayedAfterLeavingWalMode() throws Exception {
+        countInserts();
+        Path walDir = Files.createDirectories(tempDir.resolve("wal"));
+        Path segment = walDir.resolve("audit-1.wal");
+        StringBuilder lines = new StringBuilder();
+        for (long seq = 1; seq <= 3; seq++) {
+            lines.append(objectMapper.writeValueAsString(
+                    new AuditEvent(seq, "DELETE", "Snippet", seq, "dev@example.com", LocalDateTime.now())))
+                    .append('\n');
+        }
+        Files.writeString(segment, lines, StandardCharsets.UTF_8);
+
+        AuditService audit = service(AuditService.Mode.ASYNC, walDir);
+        audit.replayWriteAheadLog();
+        audit.shutdown();
+
+        assertThat(inserted).hasValue(3);
+        assertThat(segment).doesNotExist();
+        try (var files = Files.list(walDir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void countInserts() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenAnswer(inv -> {
+                    Collection<?> events = inv.getArgument(1);
+                    inserted.addAndGet(events.size());
+                    return new int[0][];
+                });
+    }
+
+    private AuditService service(AuditService.Mode mode, Path walDir) {
+        return new AuditService(jdbcTemplate, objectMapper, new SimpleMeterRegistry(), mode, 100, 2, 20, 3,
+                walDir.toString(), 1 << 20);
+    }
+}
@@ -0,0 +1,31 @@
+package com.enterprise.codeplatform.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BlameRunsTest {
+
+    @Test
+    void roundTripsRandomOrigins() {
+        Random random = new Random(11);
+        for (int run = 0; run < 500; run++) {
+            int[] origins = new int[random.nextInt(200)];
+            for (int i = 0; i < origins.length; i++) {
+                // Mostly repeats of the previous line, with origins large enough for multi-byte varints
+                origins[i] = i > 0 && random.nextInt(4) > 0 ? origins[i - 1] : 1 + random.nextInt(1 << 20);
+            }
+            assertThat(BlameRuns.decode(BlameRuns.encode(origins), origins.length)).isEqualTo(origins);
+        }
+    }
+
+    @Test
+    void storesOnePairPerRun() {
+        int[] origins = { 3, 3, 3, 1, 1, 3, 3 };
+
+        assertThat(BlameRuns.encode(origins)).containsExactly(3, 3, 1, 2, 3, 2);
+        assertThat(BlameRuns.encode(new int[0])).isEmpty();
+    }
+}
@@ -0,0 +1,142 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.BlameRange;
+import com.enterprise.codeplatform.dto.BlameResponse;
+import com.enterprise.codeplatform.entity.CodeSnippet;
+import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.entity.VersionBlame;
+import com.enterprise.codeplatform.repository.CodeVersionRepository;
+import com.enterprise.codeplatform.repository.VersionBlameRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BlameServiceTest {
+
+    private static final Long SNIPPET_ID = 7L;
+
+    private final SnippetService snippetService = mock(SnippetService.class);
+    private final CodeVersionRepository versionRepository = mock(CodeVersionRepository.class);
+    private final VersionBlameRepository blameRepository = mock(VersionBlameRepository.class);
+    private final VersionStorageService storage = mock(VersionStorageService.class);
+    private final BlameService blameService = new BlameService(snippetService, versionRepository, blameRepository,
+            storage);
+
+    private final CodeSnippet snippet = CodeSnippet.builder().id(SNIPPET_ID).build();
+    private final TreeMap<Integer, CodeVersion> versions = new TreeMap<>();
+    private final Map<Long, String> contents = new TreeMap<>();
+    private final TreeMap<Integer, VersionBlame> stored = new TreeMap<>();
+
+    @SuppressWarnings("unchecked")
+    BlameServiceTest() {
+        when(snippetService.getOwnedSnippet(SNIPPET_ID, "dev")).thenReturn(snippet);
+        when(versionRepository.findBySnippetIdAndVersionNumber(eq(SNIPPET_ID), anyInt()))
+                .thenAnswer(inv -> versions.get((int) inv.getArgument(1)));
+        when(versionRepository.findBySnippetIdAndVersionNumberIn(eq(SNIPPET_ID), any()))
+                .thenAnswer(inv -> ((Collection<Integer>) inv.getArgument(1)).stream()
+                        .map(versions::get).filter(v -> v != null).collect(Collectors.toList()));
+        when(versionRepository.findBySnippetIdAndVersionNumberBetweenOrderByVersionNumberAsc(eq(SNIPPET_ID),
+                anyInt(), anyInt())).thenAnswer(inv -> new ArrayList<>(versions
+                        .subMap(inv.getArgument(1), true, inv.getArgument(2), true).values()));
+        when(blameRepository.findLatest(eq(SNIPPET_ID), anyInt(), any())).thenAnswer(inv -> {
+            Map.Entry<Integer, VersionBlame> latest = stored.floorEntry(inv.getArgument(1));
+            return latest == null ? List.of() : List.of(latest.getValue());
+        });
+        doAnswer(inv -> {
+            CodeVersion version = versions.values().stream()
+                    .filter(v -> v.getId().equals(inv.getArgument(0))).findFirst().orElseThrow();
+            stored.putIfAbsent(version.getVersionNumber(), VersionBlame.builder().version(version)
+                    .lineCount(inv.getArgument(1)).data(inv.getArgument(2)).build());
+            return null;
+        }).when(blameRepository).insertIfAbsent(anyLong(), anyInt(), any());
+        when(storage.resolveAll(anyList())).thenAnswer(inv -> ((List<CodeVersion>) inv.getArgument(0)).stream()
+                .collect(Collectors.toMap(CodeVersion::getId, v -> contents.get(v.getId()))));
+    }
+
+    @Test
+    void rollbackRemovingLinesMergesTheSurroundingRuns() {
+        commit("a\nb\nc");
+        commit("a\nb\nnew\nc");
+        commit("a\nb\nc");
+
+        assertThat(blame(3).getRanges())
+                .extracting(BlameRange::getStartLine, BlameRange::getLineCount, BlameRange::getOriginVersion)
+                .containsExactly(tuple(1, 3, 1));
+    }
+
+    @Test
+    void rollbackRestoringChangedLinesAttributesThemToTheRollback() {
+        commit("a\nb\nc\nd");
+        commit("a\nX\nY\nd");
+        commit("a\nb\nc\nd");
+        commit("a\nb\nc\nd\ne");
+
+        assertThat(blame(4).getRanges())
+                .extracting(BlameRange::getStartLine, BlameRange::getLineCount, BlameRange::getOriginVersion)
+                .containsExactly(tuple(1, 1, 1), tuple(2, 2, 3), tuple(4, 1, 1), tuple(5, 1, 4));
+    }
+
+    @Test
+    void continuingFromStoredBlamesMatchesAFreshWalk() {
+        Random random = new Random(3);
+        List<String> lines = new ArrayList<>(List.of("a", "b", "c"));
+        commit(String.join("\n", lines));
+        for (int n = 2; n <= 30; n++) {
+            if (n % 7 == 0) {
+                // Roll back to an earlier version
+                commit(contents.get(versions.get(random.nextInt(n - 1) + 1).getId()));
+                lines = new ArrayList<>(List.of(contents.get(versions.get(n).getId()).split("\n", -1)));
+                continue;
+            }
+            int at = random.nextInt(lines.size() + 1);
+            if (random.nextBoolean() || lines.size() < 2) {
+                lines.add(at, "line " + n);
+            } else {
+                lines.remove(Math.min(at, lines.size() - 1));
+            }
+            commit(String.join("\n", lines));
+        }
+
+        List<BlameRange> fresh = blame(30).getRanges();
+        stored.clear();
+        for (int n = 1; n <= 30; n += 4) {
+            blame(n);
+        }
+
+        assertThat(blame(30).getRanges()).isEqualTo(fresh);
+        assertThat(fresh).allSatisfy(range -> assertThat(range.getLineCount()).isPositive());
+        for (int i = 1; i < fresh.size(); i++) {
+            assertThat(fresh.get(i).getOriginVersion()).isNotEqualTo(fresh.get(i - 1).getOriginVersion());
+        }
+    }
+
+    private BlameResponse blame(int versionNumber) {
+        return blameService.blame(SNIPPET_ID, versionNumber, "dev");
+    }
+
+    private void commit(String content) {
+        int number = versions.size() + 1;
+        CodeVersion version = CodeVersion.builder().id(100L + number).snippet(snippet).versionNumber(number)
+                .build();
+        versions.put(number, version);
+        contents.put(version.getId(), content);
+        snippet.setActiveVersionNumber(number);
+    }
+}
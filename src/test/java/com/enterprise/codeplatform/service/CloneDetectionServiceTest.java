@@ -0,0 +1,90 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.SimilarSnippet;
+import com.enterprise.codeplatform.entity.CodeSnippet;
+import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.entity.User;
+import com.enterprise.codeplatform.repository.CodeVersionRepository;
+import com.enterprise.codeplatform.repository.VersionSignatureRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CloneDetectionServiceTest {
+
+    private static final String EMAIL = "dev@example.com";
+    private static final String CODE = """
+            class Sum {
+                int sum(int[] xs) {
+                    int total = 0;
+                    for (int x : xs) {
+                        total += x;
+                    }
+                    return total;
+                }
+            }
+            """;
+
+    private final SnippetService snippetService = mock(SnippetService.class);
+    private final CodeVersionRepository versionRepository = mock(CodeVersionRepository.class);
+    private final VersionStorageService storage = mock(VersionStorageService.class);
+    private final VersionSignatureRepository signatureRepository = mock(VersionSignatureRepository.class);
+    private final CloneDetectionService clones = new CloneDetectionService(signatureRepository, snippetService,
+            versionRepository, storage, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    private final Set<Long> deleted = new HashSet<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(clones, "ready", true);
+        ReflectionTestUtils.setField(clones, "maxResults", 100);
+
+        CodeSnippet source = CodeSnippet.builder().id(1L).activeVersionNumber(1)
+                .author(User.builder().id(7L).email(EMAIL).build()).build();
+        CodeVersion version = CodeVersion.builder().id(10L).versionNumber(1).snippet(source).build();
+        when(snippetService.getOwnedSnippet(1L, EMAIL)).thenReturn(source);
+        when(versionRepository.findBySnippetIdAndVersionNumber(1L, 1)).thenReturn(version);
+        when(signatureRepository.findByVersionId(anyLong())).thenReturn(Optional.empty());
+        when(storage.resolve(version)).thenReturn(CODE);
+        when(versionRepository.findCloneRows(any())).thenAnswer(inv -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (Long id : inv.<Collection<Long>>getArgument(0)) {
+                if (!deleted.contains(id)) {
+                    rows.add(new Object[] { id, 1, id / 10, "Snippet " + id / 10, "dev" });
+                }
+            }
+            return rows;
+        });
+
+        for (long snippetId = 2; snippetId <= 4; snippetId++) {
+            clones.onVersionSigned(new VersionSignedEvent(snippetId * 10, snippetId, 7L, MinHash.of(CODE)));
+        }
+    }
+
+    @Test
+    void deletedVersionsLeaveTheIndexOnceTheDeletionCommits() {
+        deleted.add(20L);
+        clones.onVersionsDeleted(new VersionsDeletedEvent(List.of(20L)));
+
+        assertThat(((MinHashIndex) ReflectionTestUtils.getField(clones, "index")).size()).isEqualTo(2);
+
+        // The deleted version no longer takes one of the two result slots
+        assertThat(clones.findSimilar(1L, null, 0.8, 2, false, EMAIL).getMatches())
+                .extracting(SimilarSnippet::getSnippetId)
+                .containsExactlyInAnyOrder(3L, 4L);
+    }
+}
@@ -0,0 +1,78 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.cache.CacheRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Syntax validation of a small class on the pooled, warmed compiler against the original
+ * path, which created a file manager per call and ran code generation. The result cache is
+ * sized to zero so every call runs javac.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CompileEngineBenchmark {
+
+    private static final String SOURCE = "public class Test {\n"
+            + "    int max(int[] values) {\n"
+            + "        int best = Integer.MIN_VALUE;\n"
+            + "        for (int v : values) { if (v > best) best = v; }\n"
+            + "        return best;\n"
+            + "    }\n"
+            + "}\n";
+
+    private CompileEngine engine;
+    private CompilerService compilerService;
+    private JavaCompiler javac;
+    private Path output;
+
+    @Setup
+    public void setUp() throws IOException {
+        engine = new CompileEngine(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        compilerService = new CompilerService(engine, new CacheRegistry(meterRegistry), meterRegistry, 0, 30);
+        javac = ToolProvider.getSystemJavaCompiler();
+        output = Files.createTempDirectory("compile-benchmark");
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public List<String> pooledAnalyze() {
+        return compilerService.validateSyntax(SOURCE);
+    }
+
+    @Benchmark
+    public Boolean freshFileManagerCall() {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        return javac.getTask(null, null, diagnostics, List.of("-proc:none", "-d", output.toString()), null,
+                List.of(new CompilerService.JavaSourceFromString("Test", SOURCE))).call();
+    }
+}
@@ -0,0 +1,88 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.cache.CacheRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompilerServiceTest {
+
+    private static CompileEngine engine;
+
+    @BeforeAll
+    static void setUp() {
+        engine = new CompileEngine(2);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    void batchVerdictsEqualSingleValidations() {
+        List<String> sources = List.of(
+                "class Client { Helper helper = new Helper(); }",
+                "class Helper { }",
+                "// Replaces the old class Helper\nclass Consumer { String s = \"enum Helper\"; }",
+                "public class Named { }",
+                "public class Test { int a; }",
+                "public class Test { int b; }",
+                "class Broken { int x = ; }",
+                "class Typo { void f() { int x = \"s\"; } }",
+                "package shared; class Exported { }",
+                "import shared.*; class Importer { Exported e; }",
+                "class Clean { int f(int a) { return a > 0 ? a : -a; } }");
+        CompilerService single = compiler();
+        List<List<String>> expected = sources.stream().map(single::validateSyntax).toList();
+        assertThat(expected.get(0)).isNotEmpty();
+        assertThat(expected.get(3)).isNotEmpty();
+        assertThat(expected.get(9)).isNotEmpty();
+        assertThat(expected.get(10)).isEmpty();
+
+        assertThat(compiler().validateBatch(sources)).isEqualTo(expected);
+        List<String> reversed = new ArrayList<>(sources);
+        Collections.reverse(reversed);
+        List<List<String>> reversedExpected = new ArrayList<>(expected);
+        Collections.reverse(reversedExpected);
+        assertThat(compiler().validateBatch(reversed)).isEqualTo(reversedExpected);
+    }
+
+    @Test
+    void batchAndSingleValidationShareCachedVerdicts() {
+        CompilerService service = compiler();
+        String source = "class Client { Helper helper; }";
+
+        List<String> batch = service.validateBatch(List.of(source, "class Helper { }")).get(0);
+
+        assertThat(batch).isNotEmpty();
+        assertThat(service.validateSyntax(source)).isEqualTo(batch);
+    }
+
+    @Test
+    void independentCleanSourcesShareOneTask() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CompilerService service = new CompilerService(engine, new CacheRegistry(meterRegistry), meterRegistry,
+                1 << 20, 30);
+
+        List<List<String>> results = service.validateBatch(List.of("class A { int a; }", "class B { int b; }",
+                "class C { String c() { return \"B\"; } }"));
+
+        assertThat(results).containsOnly(List.of());
+        assertThat(meterRegistry.find("compiler.javac").tag("operation", "batch").timers().stream()
+                .mapToLong(Timer::count).sum()).isEqualTo(1);
+    }
+
+    private static CompilerService compiler() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new CompilerService(engine, new CacheRegistry(meterRegistry), meterRegistry, 1 << 20, 30);
+    }
+}
@@ -0,0 +1,54 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.entity.ContentBlob;
+import com.enterprise.codeplatform.storage.ContentCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentBlobServiceTest {
+
+    private final InMemoryBlobs blobs = new InMemoryBlobs();
+    private final ContentBlobService blobService = new ContentBlobService(blobs.repository());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(blobService, "codec", ContentCodec.DEFLATE);
+    }
+
+    @Test
+    void storingTheSameContentTakesAnotherReferenceToOneBlob() {
+        ContentBlob first = blobService.store("class A {}");
+        ContentBlob second = blobService.store("class A {}");
+
+        assertThat(second.getHash()).isEqualTo(first.getHash());
+        assertThat(second.getContent()).isEqualTo("class A {}");
+        assertThat(blobs.inserts()).isEqualTo(1);
+        assertThat(blobs.count("class A {}")).isEqualTo(2);
+    }
+
+    @Test
+    void retainTakesAReference() {
+        ContentBlob blob = blobService.store("class A {}");
+
+        assertThat(blobService.retain(blob)).isSameAs(blob);
+        assertThat(blobs.count("class A {}")).isEqualTo(2);
+    }
+
+    @Test
+    void releaseDeletesTheBlobWithItsLastReference() {
+        ContentBlob blob = blobService.store("class A {}");
+        blobService.store("class A {}");
+
+        blobService.release(blob);
+        assertThat(blobs.count("class A {}")).isEqualTo(1);
+
+        blobService.release(blob);
+        assertThat(blobs.count("class A {}")).isNull();
+        assertThat(blobs.size()).isZero();
+
+        blobService.release(null);
+    }
+}
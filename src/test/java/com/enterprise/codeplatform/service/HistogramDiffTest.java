@@ -0,0 +1,101 @@
+package com.enterprise.codeplatform.service;
+
+import com.github.difflib.algorithm.Change;
+import com.github.difflib.patch.DeltaType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistogramDiffTest {
+
+    private static final String[] LINES = { "", "{", "}", "int x = 1;", "return x;", "// note", "x++;" };
+
+    static Stream<Arguments> edgeCases() {
+        return Stream.of(
+                Arguments.of(List.of(), List.of()),
+                Arguments.of(List.of(), List.of("a", "b")),
+                Arguments.of(List.of("a", "b"), List.of()),
+                Arguments.of(List.of("a", "b", "c"), List.of("a", "b", "c")),
+                Arguments.of(List.of("a", "b", "c"), List.of("c", "b", "a")),
+                Arguments.of(List.of("{", "}", "{", "}"), List.of("}", "{", "}", "{")),
+                Arguments.of(List.of("a", "a", "a"), List.of("a", "b", "a", "b", "a")));
+    }
+
+    @ParameterizedTest
+    @MethodSource("edgeCases")
+    void hunksReproduceTargetForEdgeCases(List<String> source, List<String> target) {
+        assertThat(apply(source, target, diff(source, target))).isEqualTo(target);
+    }
+
+    @Test
+    void hunksReproduceTargetForRandomEdits() {
+        Random random = new Random(42);
+        for (int run = 0; run < 2000; run++) {
+            List<String> source = randomLines(random, random.nextInt(40));
+            List<String> target = new ArrayList<>(source);
+            for (int edit = random.nextInt(6); edit > 0; edit--) {
+                int at = target.isEmpty() ? 0 : random.nextInt(target.size() + 1);
+                switch (random.nextInt(3)) {
+                    case 0 -> target.addAll(at, randomLines(random, 1 + random.nextInt(4)));
+                    case 1 -> target.subList(at, Math.min(target.size(), at + 1 + random.nextInt(4))).clear();
+                    default -> {
+                        if (at < target.size()) {
+                            target.set(at, LINES[random.nextInt(LINES.length)]);
+                        }
+                    }
+                }
+            }
+            assertThat(apply(source, target, diff(source, target))).as("run %d", run).isEqualTo(target);
+        }
+    }
+
+    @Test
+    void anchorsOnRareLinesInsteadOfBraces() {
+        List<String> source = List.of("void a() {", "  run();", "}", "", "void b() {", "  stop();", "}");
+        List<String> target = List.of("void a() {", "  run();", "}", "", "void c() {", "  wait();", "}", "",
+                "void b() {", "  stop();", "}");
+
+        List<Change> changes = diff(source, target);
+
+        assertThat(changes).hasSize(1);
+        Change change = changes.get(0);
+        assertThat(change.deltaType).isEqualTo(DeltaType.INSERT);
+        assertThat(target.subList(change.startRevised, change.endRevised))
+                .containsExactly("void c() {", "  wait();", "}", "");
+    }
+
+    private static List<Change> diff(List<String> source, List<String> target) {
+        return new HistogramDiff<String>().computeDiff(source, target, null);
+    }
+
+    // Copies unchanged runs from the source and changed runs from the target, checking the hunks line up
+    private static List<String> apply(List<String> source, List<String> target, List<Change> changes) {
+        List<String> result = new ArrayList<>();
+        int ai = 0;
+        for (Change change : changes) {
+            assertThat(change.startOriginal).isGreaterThanOrEqualTo(ai);
+            result.addAll(source.subList(ai, change.startOriginal));
+            assertThat(change.startRevised).isEqualTo(result.size());
+            result.addAll(target.subList(change.startRevised, change.endRevised));
+            ai = change.endOriginal;
+        }
+        result.addAll(source.subList(ai, source.size()));
+        return result;
+    }
+
+    private static List<String> randomLines(Random random, int count) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add(LINES[random.nextInt(LINES.length)]);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,89 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.entity.ContentBlob;
+import com.enterprise.codeplatform.repository.ContentBlobRepository;
+import com.enterprise.codeplatform.storage.CompressedText;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A ContentBlobRepository whose native reference-count queries run against maps, so tests
+ * can follow the count of every blob.
+ */
+final class InMemoryBlobs {
+
+    private final Map<String, byte[]> data = new HashMap<>();
+    private final Map<String, Integer> counts = new HashMap<>();
+    private final ContentBlobRepository repository = mock(ContentBlobRepository.class);
+    private int inserts;
+
+    InMemoryBlobs() {
+        when(repository.retain(anyString())).thenAnswer(inv -> {
+            String hash = inv.getArgument(0);
+            if (!counts.containsKey(hash)) {
+                return 0;
+            }
+            counts.merge(hash, 1, Integer::sum);
+            return 1;
+        });
+        when(repository.release(anyString())).thenAnswer(inv -> {
+            String hash = inv.getArgument(0);
+            if (!counts.containsKey(hash)) {
+                return 0;
+            }
+            counts.merge(hash, -1, Integer::sum);
+            return 1;
+        });
+        when(repository.deleteIfUnreferenced(anyString())).thenAnswer(inv -> {
+            String hash = inv.getArgument(0);
+            if (counts.getOrDefault(hash, 1) > 0) {
+                return 0;
+            }
+            counts.remove(hash);
+            data.remove(hash);
+            return 1;
+        });
+        when(repository.getReferenceById(anyString())).thenAnswer(inv -> {
+            String hash = inv.getArgument(0);
+            return ContentBlob.builder().hash(hash).data(new CompressedText(data.get(hash))).build();
+        });
+        doAnswer(inv -> {
+            String hash = inv.getArgument(0);
+            if (counts.containsKey(hash)) {
+                counts.merge(hash, 1, Integer::sum);
+            } else {
+                inserts++;
+                data.put(hash, inv.getArgument(1));
+                counts.put(hash, 1);
+            }
+            return null;
+        }).when(repository).insertOrRetain(anyString(), any(), anyString(), anyLong(), anyLong());
+    }
+
+    ContentBlobRepository repository() {
+        return repository;
+    }
+
+    /**
+     * Reference count of the blob holding {@code content}, or null when no such blob exists.
+     */
+    Integer count(String content) {
+        return counts.get(ContentBlobService.hash(content));
+    }
+
+    int size() {
+        return counts.size();
+    }
+
+    int inserts() {
+        return inserts;
+    }
+}
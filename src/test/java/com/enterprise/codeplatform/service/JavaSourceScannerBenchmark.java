@@ -0,0 +1,83 @@
+package com.enterprise.codeplatform.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Lexical metrics of this repository's main sources repeated to about 5 MB: the single
+ * pass scanner against the original String.lines() plus two regex split passes.
+ * Run from the project root.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JavaSourceScannerBenchmark {
+
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(JavaSourceScanner.KEYWORDS));
+    private static final String[] CONTROL_FLOW = { "if", "for", "while", "case", "&&", "||", "catch" };
+
+    private String corpus;
+
+    @Setup
+    public void setUp() throws IOException {
+        String sources;
+        try (Stream<Path> files = Files.walk(Path.of("src/main/java"))) {
+            sources = files.filter(f -> f.toString().endsWith(".java"))
+                    .map(f -> {
+                        try {
+                            return Files.readString(f);
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    })
+                    .collect(Collectors.joining("\n"));
+        }
+        corpus = sources.repeat(Math.max(1, 5_000_000 / sources.length()));
+    }
+
+    @Benchmark
+    public JavaSourceScanner.Counts singlePass() {
+        return JavaSourceScanner.scan(corpus);
+    }
+
+    @Benchmark
+    public int linesAndSplits() {
+        int loc = (int) corpus.lines().count();
+        int keywords = 0;
+        for (String word : corpus.split("\\W+")) {
+            if (KEYWORDS.contains(word)) {
+                keywords++;
+            }
+        }
+        int complexity = 1;
+        for (String word : corpus.split("\\W+")) {
+            for (String control : CONTROL_FLOW) {
+                if (word.equals(control)) {
+                    complexity++;
+                }
+            }
+        }
+        return loc + keywords + complexity;
+    }
+}
@@ -0,0 +1,58 @@
+package com.enterprise.codeplatform.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JavaSourceScannerTest {
+
+    @Test
+    void countsLinesLikeStringLines() {
+        for (String source : new String[] { "", "a", "a\n", "a\nb", "a\r\nb\r\n", "\n\n", "a\rb" }) {
+            assertThat(JavaSourceScanner.scan(source).lines).as(source).isEqualTo((int) source.lines().count());
+        }
+    }
+
+    @Test
+    void countsTextBlockLinesEndingInLineContinuation() {
+        for (String eol : new String[] { "\n", "\r\n", "\r" }) {
+            String source = String.join(eol, "String s = \"\"\"", "    one \\", "    two \\", "    three",
+                    "    \"\"\";", "int x;");
+            assertThat(JavaSourceScanner.scan(source).lines).as(source).isEqualTo(6);
+        }
+    }
+
+    @Test
+    void skipsKeywordsInCommentsAndLiterals() {
+        JavaSourceScanner.Counts counts = JavaSourceScanner.scan(
+                "// if for while\n/* case catch */ String s = \"if (x)\"; char c = 'i';\nif (a && b) { return; }");
+        assertThat(counts.decisionPoints).isEqualTo(2);
+        assertThat(counts.keywords).isEqualTo(3);
+    }
+
+    @Test
+    void collectsDeclaredTypeNamesOutsideCommentsAndLiterals() {
+        String source = "// class InComment\n"
+                + "/* interface InBlock */\n"
+                + "public final class Outer {\n"
+                + "  String s = \"enum InString\";\n"
+                + "  String t = \"\"\"\n    record InTextBlock\n    \"\"\";\n"
+                + "  Class<?> k = String.class;\n"
+                + "  interface Inner { }\n"
+                + "  enum Color { RED }\n"
+                + "  record Point(int x, int y) { }\n"
+                + "  @interface Marker { }\n"
+                + "  int record = 1;\n"
+                + "}\n";
+        assertThat(JavaSourceScanner.declaredTypeNames(source))
+                .containsExactlyInAnyOrder("Outer", "Inner", "Color", "Point", "Marker");
+    }
+
+    @Test
+    void identifiersSkipKeywordsCommentsAndLiterals() {
+        String source = "// uses Hidden\nimport shared.*;\nclass A extends B { String s = \"C\"; long n = 10L; D d; }";
+
+        assertThat(JavaSourceScanner.identifiers(source))
+                .containsExactlyInAnyOrder("shared", "A", "B", "String", "s", "n", "D", "d");
+    }
+}
@@ -0,0 +1,86 @@
+package com.enterprise.codeplatform.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LineDeltaCodecTest {
+
+    private static final String[] LINES = { "", "\r", "class A {", "}", "int x = 1;\r", "  return x;", "// note" };
+
+    static Stream<Arguments> edgeCases() {
+        return Stream.of(
+                Arguments.of("", ""),
+                Arguments.of("", "a"),
+                Arguments.of("a", ""),
+                Arguments.of("a\nb\n", "a\nb"),
+                Arguments.of("a\nb", "a\nb\n"),
+                Arguments.of("a\r\nb\r\n", "a\r\nc\r\n"),
+                Arguments.of("a\r\nb", "a\nb"),
+                Arguments.of("\n\n\n", "\n"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("edgeCases")
+    void roundTripsEdgeCases(String base, String target) {
+        assertThat(LineDeltaCodec.apply(base, LineDeltaCodec.encode(base, target))).isEqualTo(target);
+    }
+
+    @Test
+    void roundTripsRandomEdits() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            String base = randomText(random);
+            String target = mutate(random, base);
+            String delta = LineDeltaCodec.encode(base, target);
+            assertThat(LineDeltaCodec.apply(base, delta)).as("base %s target %s", base, target).isEqualTo(target);
+        }
+    }
+
+    @Test
+    void identicalTextsEncodeToEmptyDelta() {
+        assertThat(LineDeltaCodec.encode("a\nb\n", "a\nb\n")).isEmpty();
+    }
+
+    private static String randomText(Random random) {
+        int count = random.nextInt(12);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(LINES[random.nextInt(LINES.length)]);
+            if (i < count - 1 || random.nextBoolean()) {
+                text.append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    private static String mutate(Random random, String base) {
+        List<String> lines = new ArrayList<>(LineDeltaCodec.splitLines(base));
+        int edits = random.nextInt(5);
+        for (int i = 0; i < edits; i++) {
+            int at = random.nextInt(lines.size() + 1);
+            switch (random.nextInt(3)) {
+                case 0 -> lines.add(at, LINES[random.nextInt(LINES.length)]);
+                case 1 -> {
+                    if (at < lines.size()) {
+                        lines.remove(at);
+                    }
+                }
+                default -> {
+                    if (at < lines.size()) {
+                        lines.set(at, LINES[random.nextInt(LINES.length)]);
+                    }
+                }
+            }
+        }
+        return LineDeltaCodec.joinLines(lines);
+    }
+}
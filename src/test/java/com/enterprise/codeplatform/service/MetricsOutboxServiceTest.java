@@ -0,0 +1,156 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.entity.CodeMetrics;
+import com.enterprise.codeplatform.entity.CodeSnippet;
+import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.entity.MetricsTask;
+import com.enterprise.codeplatform.entity.User;
+import com.enterprise.codeplatform.exception.TooManyRequestsException;
+import com.enterprise.codeplatform.repository.CodeMetricsRepository;
+import com.enterprise.codeplatform.repository.MetricsTaskRepository;
+import com.enterprise.codeplatform.repository.VersionSignatureRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MetricsOutboxServiceTest {
+
+    private final MetricsTaskRepository taskRepository = mock(MetricsTaskRepository.class);
+    private final CodeMetricsRepository metricsRepository = mock(CodeMetricsRepository.class);
+    private final VersionStorageService storage = mock(VersionStorageService.class);
+    private final MetricsService metricsService = mock(MetricsService.class);
+    private final VersionSignatureRepository signatureRepository = mock(VersionSignatureRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private MetricsOutboxService outbox;
+    private MetricsTask good;
+    private MetricsTask corrupt;
+
+    @BeforeEach
+    void setUp() {
+        outbox = new MetricsOutboxService(taskRepository, metricsRepository, signatureRepository, storage,
+                metricsService, eventPublisher, new TransactionTemplate(mock(PlatformTransactionManager.class)), 1);
+        ReflectionTestUtils.setField(outbox, "enabled", true);
+        ReflectionTestUtils.setField(outbox, "batchSize", 50);
+        ReflectionTestUtils.setField(outbox, "maxAttempts", 2);
+        ReflectionTestUtils.setField(outbox, "retryBaseSeconds", 5L);
+
+        good = task(1L, 10L, 100L);
+        corrupt = task(2L, 20L, 200L);
+        List<MetricsTask> tasks = List.of(good, corrupt);
+
+        when(taskRepository.findDueIds(any(), anyInt())).thenReturn(List.of(1L, 2L));
+        when(taskRepository.findWithVersions(any())).thenAnswer(inv -> select(tasks, inv.getArgument(0)));
+        when(taskRepository.lockAll(any())).thenAnswer(inv -> select(tasks, inv.getArgument(0)));
+        when(storage.resolveAll(anyList())).thenAnswer(inv -> {
+            List<CodeVersion> versions = inv.getArgument(0);
+            if (versions.stream().anyMatch(v -> v.getId() == 20L)) {
+                throw new IllegalStateException("Truncated deflate content");
+            }
+            return versions.stream().collect(Collectors.toMap(CodeVersion::getId, v -> "class A {}"));
+        });
+        when(metricsService.calculateMetrics(any(), any())).thenAnswer(inv -> CodeMetrics.builder().loc(1).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        outbox.shutdown();
+    }
+
+    @Test
+    void corruptContentFailsOnlyItsOwnTask() {
+        outbox.drain();
+
+        verify(metricsRepository).save(any());
+        verify(taskRepository).delete(good);
+        verify(taskRepository, never()).delete(corrupt);
+        assertThat(corrupt.getAttempts()).isEqualTo(1);
+        assertThat(corrupt.getLastError()).contains("Truncated");
+        assertThat(corrupt.isFailed()).isFalse();
+        assertThat(corrupt.getNextAttemptAt()).isAfter(LocalDateTime.now());
+    }
+
+    @Test
+    void storedSignatureIsPublishedForTheCloneIndex() {
+        outbox.drain();
+
+        verify(signatureRepository).insertIfAbsent(eq(10L), anyInt(), any());
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof VersionSignedEvent signed
+                && signed.versionId() == 10L && signed.snippetId() == 100L));
+    }
+
+    @Test
+    void signingFailureDoesNotFailTheMetrics() {
+        // Signing null content throws, while the mocked metrics still succeed
+        when(storage.resolveAll(anyList())).thenAnswer(inv -> {
+            Map<Long, String> contents = new HashMap<>();
+            contents.put(10L, null);
+            return contents;
+        });
+        when(taskRepository.findDueIds(any(), anyInt())).thenReturn(List.of(1L));
+
+        outbox.drain();
+
+        verify(metricsRepository).save(any());
+        verify(taskRepository).delete(good);
+        assertThat(good.getAttempts()).isZero();
+        verify(signatureRepository, never()).insertIfAbsent(any(), anyInt(), any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void corruptContentIsMarkedFailedAfterLastAttempt() {
+        outbox.drain();
+        outbox.drain();
+
+        assertThat(corrupt.getAttempts()).isEqualTo(2);
+        assertThat(corrupt.isFailed()).isTrue();
+    }
+
+    @Test
+    void busyCompilerLeavesTheTaskForTheNextLease() {
+        when(metricsService.calculateMetrics(any(), any()))
+                .thenThrow(new TooManyRequestsException("Compiler is busy, please retry shortly", 1));
+        LocalDateTime due = good.getNextAttemptAt();
+
+        outbox.drain();
+
+        verify(metricsRepository, never()).save(any());
+        verify(taskRepository, never()).delete(good);
+        assertThat(good.getAttempts()).isZero();
+        assertThat(good.getLastError()).isNull();
+        assertThat(good.getNextAttemptAt()).isEqualTo(due);
+    }
+
+    private static List<MetricsTask> select(List<MetricsTask> tasks, Collection<Long> ids) {
+        return tasks.stream().filter(t -> ids.contains(t.getId())).collect(Collectors.toList());
+    }
+
+    private static MetricsTask task(Long taskId, Long versionId, Long snippetId) {
+        CodeSnippet snippet = CodeSnippet.builder().id(snippetId).author(User.builder().id(1L).build()).build();
+        CodeVersion version = CodeVersion.builder().id(versionId).snippet(snippet).build();
+        return MetricsTask.builder().id(taskId).version(version).nextAttemptAt(LocalDateTime.now()).build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.enterprise.codeplatform.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing a source file of this repository, and finding versions similar to it among 100k
+ * indexed signatures through LSH banding against comparing it with every signature.
+ * Run from the project root.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class MinHashIndexBenchmark {
+
+    private static final int VERSIONS = 100_000;
+
+    private String source;
+    private int[] query;
+    private int[][] signatures;
+    private MinHashIndex index;
+
+    @Setup
+    public void setUp() throws IOException {
+        source = Files.readString(Path.of("src/main/java/com/enterprise/codeplatform/service/SnippetService.java"));
+        query = MinHash.of(source).values();
+
+        // Random signatures stand in for unrelated versions; a few edited copies are near duplicates
+        Random random = new Random(20);
+        signatures = new int[VERSIONS][];
+        index = new MinHashIndex();
+        for (int i = 0; i < VERSIONS; i++) {
+            int[] signature = new int[MinHash.SIZE];
+            if (i % 1000 == 0) {
+                signature = query.clone();
+                for (int k = 0; k < MinHash.SIZE / 5; k++) {
+                    signature[random.nextInt(MinHash.SIZE)] = random.nextInt();
+                }
+            } else {
+                for (int k = 0; k < MinHash.SIZE; k++) {
+                    signature[k] = random.nextInt(1 << 16);
+                }
+            }
+            signatures[i] = signature;
+            index.put(i, i, 1, signature);
+        }
+    }
+
+    @Benchmark
+    public MinHash.Signature sign() {
+        return MinHash.of(source);
+    }
+
+    @Benchmark
+    public List<MinHashIndex.Match> lshLookup() {
+        return index.similar(query, 0.5, -1, null);
+    }
+
+    @Benchmark
+    public int scanAll() {
+        int matches = 0;
+        for (int[] signature : signatures) {
+            if (MinHash.similarity(query, signature) >= 0.5) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,102 @@
+package com.enterprise.codeplatform.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MinHashIndexTest {
+
+    private static final String[] TOKENS = { "if", "for", "while", "return", "new", "int", "long", "void", "class",
+            "x", "42", "\"s\"", "(", ")", "{", "}", ";", "=", "+", "<", ".", ",", "try", "catch", "throw" };
+
+    private final Random random = new Random(23);
+    private final MinHashIndex index = new MinHashIndex();
+    private String[] original;
+
+    @BeforeEach
+    void setUp() {
+        // Unrelated snippets from the same small vocabulary, each its own owner
+        for (long id = 1; id <= 1000; id++) {
+            index.put(id, id, id % 10, signature(randomTokens(300)));
+        }
+        original = randomTokens(300);
+        index.put(5000, 5000, 1, signature(original));
+    }
+
+    @Test
+    void bandingRecallsNearDuplicate() {
+        String[] copy = edit(original, 0.03);
+        int[] query = signature(copy);
+
+        List<MinHashIndex.Match> matches = index.similar(query, 0.5, 9999, null);
+
+        assertThat(matches).isNotEmpty();
+        assertThat(matches.get(0).versionId()).isEqualTo(5000);
+        assertThat(matches.get(0).similarity()).isGreaterThanOrEqualTo(0.5);
+        assertThat(matches).allSatisfy(m -> assertThat(m.similarity()).isGreaterThanOrEqualTo(0.5));
+    }
+
+    @Test
+    void recallsMostModeratelyEditedCopies() {
+        int recalled = 0;
+        int trials = 50;
+        for (int trial = 0; trial < trials; trial++) {
+            String[] copy = edit(original, 0.05);
+            boolean found = index.similar(signature(copy), 0.5, 9999, null).stream()
+                    .anyMatch(m -> m.versionId() == 5000);
+            if (found) {
+                recalled++;
+            }
+        }
+        assertThat(recalled).isGreaterThanOrEqualTo(trials - 2);
+    }
+
+    @Test
+    void filtersOwnSnippetAndOtherOwners() {
+        int[] query = signature(original);
+
+        assertThat(index.similar(query, 0.9, 5000, null)).isEmpty();
+        assertThat(index.similar(query, 0.9, 9999, 2L)).isEmpty();
+        assertThat(index.similar(query, 0.9, 9999, 1L)).extracting(MinHashIndex.Match::versionId)
+                .containsExactly(5000L);
+    }
+
+    @Test
+    void removedAndReplacedVersionsAreNotReturned() {
+        int[] query = signature(original);
+
+        index.put(5000, 5000, 1, signature(randomTokens(300)));
+        assertThat(index.similar(query, 0.9, 9999, null)).isEmpty();
+
+        index.put(5000, 5000, 1, query);
+        index.remove(5000);
+        assertThat(index.similar(query, 0.9, 9999, null)).isEmpty();
+        assertThat(index.size()).isEqualTo(1000);
+    }
+
+    private String[] edit(String[] tokens, double rate) {
+        String[] copy = tokens.clone();
+        for (int i = 0; i < copy.length; i++) {
+            if (random.nextDouble() < rate) {
+                copy[i] = TOKENS[random.nextInt(TOKENS.length)];
+            }
+        }
+        return copy;
+    }
+
+    private String[] randomTokens(int count) {
+        String[] tokens = new String[count];
+        for (int i = 0; i < count; i++) {
+            tokens[i] = TOKENS[random.nextInt(TOKENS.length)];
+        }
+        return tokens;
+    }
+
+    private static int[] signature(String[] tokens) {
+        return MinHash.of(String.join(" ", tokens)).values();
+    }
+}
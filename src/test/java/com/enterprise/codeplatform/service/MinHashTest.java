@@ -0,0 +1,80 @@
+package com.enterprise.codeplatform.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MinHashTest {
+
+    private static final String[] TOKENS = { "if", "for", "while", "return", "new", "int", "long", "void", "class",
+            "x", "y", "42", "\"s\"", "(", ")", "{", "}", ";", "=", "+", "<", ".", "," };
+
+    @Test
+    void ignoresNamesConstantsCommentsAndLayout() {
+        String original = "int total(int[] values) {\n  int sum = 0; // running\n  for (int v : values) sum += v;\n"
+                + "  return sum;\n}";
+        String renamed = "int add(int[] xs) { /* renamed */ int acc = 10;\n\n for (int x : xs) acc += x; return acc; }";
+
+        assertThat(MinHash.similarity(MinHash.of(original).values(), MinHash.of(renamed).values())).isEqualTo(1.0);
+    }
+
+    @Test
+    void sourceWithoutTokensHasNoValues() {
+        MinHash.Signature signature = MinHash.of("  // only a comment\n/* and another */ ");
+
+        assertThat(signature.shingles()).isZero();
+        assertThat(signature.values()).isEmpty();
+    }
+
+    @Test
+    void estimateStaysWithinStatisticalBoundsOfJaccard() {
+        Random random = new Random(20);
+        double totalError = 0;
+        int pairs = 300;
+        for (int pair = 0; pair < pairs; pair++) {
+            String[] base = randomTokens(random, 100 + random.nextInt(400));
+            String[] edited = base.clone();
+            double editRate = random.nextDouble() * 0.3;
+            for (int i = 0; i < edited.length; i++) {
+                if (random.nextDouble() < editRate) {
+                    edited[i] = TOKENS[random.nextInt(TOKENS.length)];
+                }
+            }
+            String a = String.join(" ", base);
+            String b = String.join(" ", edited);
+
+            double jaccard = jaccard(MinHash.shingles(MinHash.tokens(a)), MinHash.shingles(MinHash.tokens(b)));
+            double estimate = MinHash.similarity(MinHash.of(a).values(), MinHash.of(b).values());
+            // The estimate is binomial over SIZE hash functions; allow 5 standard deviations
+            double sigma = Math.sqrt(jaccard * (1 - jaccard) / MinHash.SIZE);
+            assertThat(Math.abs(estimate - jaccard)).as("pair %d, jaccard %.3f", pair, jaccard)
+                    .isLessThanOrEqualTo(5 * sigma + 1e-9);
+            totalError += estimate - jaccard;
+        }
+        // Unbiased: the mean error over many pairs is close to zero
+        assertThat(Math.abs(totalError / pairs)).isLessThan(0.01);
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        int[] values = MinHash.of("class A { void run() { go(1); } }").values();
+
+        assertThat(MinHash.fromBytes(MinHash.toBytes(values))).isEqualTo(values);
+    }
+
+    private static double jaccard(long[] a, long[] b) {
+        long common = Arrays.stream(a).filter(x -> Arrays.binarySearch(b, x) >= 0).count();
+        return (double) common / (a.length + b.length - common);
+    }
+
+    private static String[] randomTokens(Random random, int count) {
+        String[] tokens = new String[count];
+        for (int i = 0; i < count; i++) {
+            tokens[i] = TOKENS[random.nextInt(TOKENS.length)];
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,136 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.SnippetPatchRequest;
+import com.github.difflib.DiffUtils;
+import com.github.difflib.UnifiedDiffUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PatchServiceTest {
+
+    private static final String BASE = "class A {\n  int a;\n  int b;\n  int c;\n  int d;\n  int e;\n}\n";
+
+    private final PatchService patches = new PatchService();
+
+    @Test
+    void appliesUnifiedDiff() {
+        String target = BASE.replace("int c;", "long c;");
+
+        assertThat(patches.apply(BASE, diffRequest(unifiedDiff(BASE, target)))).isEqualTo(target);
+    }
+
+    @Test
+    void rejectsDiffWithoutHunks() {
+        assertStatus(() -> patches.apply(BASE, diffRequest("this is not a diff\nat all")), HttpStatus.BAD_REQUEST);
+        assertStatus(() -> patches.apply(BASE, diffRequest("")), HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void rejectsDiffThatDoesNotApply() {
+        String other = BASE.replace("int a;", "int z;");
+        String diff = unifiedDiff(other, other.replace("int z;", "int y;"));
+
+        assertStatus(() -> patches.apply(BASE, diffRequest(diff)), HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void appliesRangeEditsInAnyOrder() {
+        int a = BASE.indexOf("a;");
+        int e = BASE.indexOf("e;");
+        SnippetPatchRequest request = SnippetPatchRequest.builder()
+                .edits(List.of(new SnippetPatchRequest.RangeEdit(e, e + 1, "ee"),
+                        new SnippetPatchRequest.RangeEdit(a, a + 1, "aa")))
+                .build();
+
+        assertThat(patches.apply(BASE, request)).isEqualTo(BASE.replace("a;", "aa;").replace("e;", "ee;"));
+    }
+
+    @Test
+    void rejectsOverlappingOrOutOfRangeEdits() {
+        SnippetPatchRequest overlapping = SnippetPatchRequest.builder()
+                .edits(List.of(new SnippetPatchRequest.RangeEdit(0, 5, "x"),
+                        new SnippetPatchRequest.RangeEdit(3, 8, "y")))
+                .build();
+        SnippetPatchRequest outOfRange = SnippetPatchRequest.builder()
+                .edits(List.of(new SnippetPatchRequest.RangeEdit(0, BASE.length() + 1, "x")))
+                .build();
+
+        assertStatus(() -> patches.apply(BASE, overlapping), HttpStatus.BAD_REQUEST);
+        assertStatus(() -> patches.apply(BASE, outOfRange), HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void requiresExactlyOneKindOfChange() {
+        SnippetPatchRequest both = SnippetPatchRequest.builder()
+                .unifiedDiff(unifiedDiff(BASE, BASE + "\n"))
+                .edits(List.of())
+                .build();
+
+        assertStatus(() -> patches.apply(BASE, both), HttpStatus.BAD_REQUEST);
+        assertStatus(() -> patches.apply(BASE, new SnippetPatchRequest()), HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void rebaseKeepsBothSidesOfDisjointChanges() {
+        String mine = BASE.replace("int a;", "int mine;");
+        String theirs = BASE.replace("int e;", "int theirs;\n  int more;");
+
+        assertThat(patches.rebase(BASE, mine, theirs))
+                .isEqualTo(BASE.replace("int a;", "int mine;").replace("int e;", "int theirs;\n  int more;"));
+    }
+
+    @Test
+    void rebaseKeepsInsertionsAndDeletions() {
+        String mine = BASE.replace("  int b;\n", "");
+        String theirs = BASE.replace("  int e;\n", "  int e;\n  int f;\n");
+
+        assertThat(patches.rebase(BASE, mine, theirs))
+                .isEqualTo(BASE.replace("  int b;\n", "").replace("  int e;\n", "  int e;\n  int f;\n"));
+    }
+
+    @Test
+    void rebaseOfUnchangedSideIsTheOtherSide() {
+        String theirs = BASE.replace("int c;", "int changed;");
+
+        assertThat(patches.rebase(BASE, BASE, theirs)).isEqualTo(theirs);
+        assertThat(patches.rebase(BASE, theirs, BASE)).isEqualTo(theirs);
+    }
+
+    @Test
+    void rebaseRejectsOverlappingChanges() {
+        String mine = BASE.replace("int c;", "int mine;");
+        String theirs = BASE.replace("int c;", "int theirs;");
+
+        assertStatus(() -> patches.rebase(BASE, mine, theirs), HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void rebaseRejectsAdjacentChanges() {
+        String mine = BASE.replace("int c;", "int mine;");
+        String theirs = BASE.replace("  int d;\n", "  int d;\n  int theirs;\n").replace("int d;", "int dd;");
+
+        assertStatus(() -> patches.rebase(BASE, mine, theirs), HttpStatus.CONFLICT);
+    }
+
+    private static SnippetPatchRequest diffRequest(String diff) {
+        return SnippetPatchRequest.builder().unifiedDiff(diff).build();
+    }
+
+    private static String unifiedDiff(String from, String to) {
+        List<String> fromLines = LineDeltaCodec.splitLines(from);
+        return String.join("\n", UnifiedDiffUtils.generateUnifiedDiff("a", "b", fromLines,
+                DiffUtils.diff(fromLines, LineDeltaCodec.splitLines(to)), 3));
+    }
+
+    private static void assertStatus(Runnable call, HttpStatus status) {
+        assertThatThrownBy(call::run)
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(status));
+    }
+}
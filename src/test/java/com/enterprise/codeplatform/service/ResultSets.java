@@ -0,0 +1,35 @@
+package com.enterprise.codeplatform.service;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * Read-only result sets over in-memory rows, for code that reads JDBC results by column index.
+ */
+final class ResultSets {
+
+    private ResultSets() {
+    }
+
+    static ResultSet of(List<Object[]> rows) {
+        int[] position = { -1 };
+        boolean[] wasNull = { false };
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "next" -> ++position[0] < rows.size();
+                    case "wasNull" -> wasNull[0];
+                    case "close" -> null;
+                    case "getLong", "getInt", "getString", "getBytes", "getTimestamp", "getObject" -> {
+                        Object value = rows.get(position[0])[(Integer) args[0] - 1];
+                        wasNull[0] = value == null;
+                        yield switch (method.getName()) {
+                            case "getLong" -> value == null ? 0L : ((Number) value).longValue();
+                            case "getInt" -> value == null ? 0 : ((Number) value).intValue();
+                            default -> value;
+                        };
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,128 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.SearchResponse;
+import com.enterprise.codeplatform.entity.ContentBlob;
+import com.enterprise.codeplatform.repository.CodeSnippetRepository;
+import com.enterprise.codeplatform.storage.CompressedText;
+import com.enterprise.codeplatform.storage.ContentCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SearchServiceTest {
+
+    private static final long OWNER = 1L;
+
+    private final CodeSnippetRepository snippetRepository = mock(CodeSnippetRepository.class);
+    private final SnippetService snippetService = mock(SnippetService.class);
+    private final SearchService search = new SearchService(snippetRepository, snippetService);
+    private final TrigramIndex index = new TrigramIndex();
+    private final Map<Long, Object[]> rows = new HashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ReflectionTestUtils.setField(search, "index", index);
+        ReflectionTestUtils.setField(search, "ready", true);
+        ReflectionTestUtils.setField(search, "batchSize", 2);
+        ReflectionTestUtils.setField(search, "maxResults", 100);
+        ReflectionTestUtils.setField(search, "timeoutMs", 2000L);
+        when(snippetService.currentUserId("dev")).thenReturn(OWNER);
+        when(snippetRepository.findSearchRows(any())).thenAnswer(inv -> ((Collection<Long>) inv.getArgument(0))
+                .stream().map(rows::get).filter(row -> row != null).collect(Collectors.toList()));
+    }
+
+    @Test
+    void findsMatchingLineOfOwnSnippets() {
+        add(1L, OWNER, "Greeter", "class Greeter {\n  void hello() {}\n}");
+        add(2L, OWNER, "Other", "class Other {}");
+        add(3L, 2L, "Foreign", "void hello() {}");
+
+        SearchResponse response = search.search("HELLO", false, false, 10, "dev");
+
+        assertThat(response.getHits()).singleElement().satisfies(hit -> {
+            assertThat(hit.getSnippetId()).isEqualTo(1L);
+            assertThat(hit.getLineNumber()).isEqualTo(2);
+            assertThat(hit.getLine()).isEqualTo("  void hello() {}");
+        });
+        assertThat(response.isTruncated()).isFalse();
+    }
+
+    @Test
+    void caseSensitiveSearchChecksCandidatesAgainstTheText() {
+        add(1L, OWNER, "a", "HELLO world");
+
+        assertThat(search.search("hello", false, true, 10, "dev").getHits()).isEmpty();
+        assertThat(search.search("h[e]LLO", true, true, 10, "dev").getHits()).isEmpty();
+        assertThat(search.search("HEL+O", true, true, 10, "dev").getHits()).hasSize(1);
+    }
+
+    @Test
+    void rejectsQueriesThatCannotUseTheIndex() {
+        assertStatus(() -> search.search("ab", false, false, 10, "dev"), HttpStatus.BAD_REQUEST);
+        assertStatus(() -> search.search("[a-z]+", true, false, 10, "dev"), HttpStatus.BAD_REQUEST);
+        assertStatus(() -> search.search("(?x)foo bar", true, false, 10, "dev"), HttpStatus.BAD_REQUEST);
+        assertStatus(() -> search.search("foo(", true, false, 10, "dev"), HttpStatus.BAD_REQUEST);
+        assertStatus(() -> search.search("", false, false, 10, "dev"), HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void answersUnavailableUntilTheIndexIsReady() {
+        ReflectionTestUtils.setField(search, "ready", false);
+
+        assertStatus(() -> search.search("hello", false, false, 10, "dev"), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void truncatesAtTheResultLimit() {
+        for (long id = 1; id <= 5; id++) {
+            add(id, OWNER, "s" + id, "int counter = " + id + ";");
+        }
+
+        SearchResponse response = search.search("counter", false, false, 3, "dev");
+
+        assertThat(response.getHits()).hasSize(3);
+        assertThat(response.isTruncated()).isTrue();
+    }
+
+    @Test
+    void catastrophicBacktrackingStopsAtTheDeadline() {
+        ReflectionTestUtils.setField(search, "timeoutMs", 100L);
+        add(1L, OWNER, "slow", "a".repeat(40) + "!");
+
+        // The back-reference defeats the matcher's loop memoization, so this backtracks exponentially
+        long started = System.nanoTime();
+        SearchResponse response = search.search("aaa(a|a)*\\1b", true, false, 10, "dev");
+
+        assertThat(response.getHits()).isEmpty();
+        assertThat(response.isTruncated()).isTrue();
+        assertThat(System.nanoTime() - started).isLessThan(10_000_000_000L);
+    }
+
+    private void add(Long id, Long owner, String title, String content) {
+        ContentBlob blob = new ContentBlob();
+        blob.setData(new CompressedText(ContentCodec.NONE.encode(content)));
+        rows.put(id, new Object[] { id, owner, title, null, "java", LocalDateTime.now(), blob });
+        index.put(id, owner, title + "\n\n" + content);
+    }
+
+    private static void assertStatus(Runnable call, HttpStatus status) {
+        assertThatThrownBy(call::run)
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(status));
+    }
+}
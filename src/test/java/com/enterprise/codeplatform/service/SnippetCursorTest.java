@@ -0,0 +1,45 @@
+package com.enterprise.codeplatform.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnippetCursorTest {
+
+    @Test
+    void decodesValidCursors() {
+        assertThat(SnippetService.decodeCursor(cursor("2024-05-01T10:15:30|42"), false))
+                .containsExactly("2024-05-01T10:15:30", "42");
+        assertThat(SnippetService.decodeCursor(cursor("a|b title|7"), true)).containsExactly("a|b title", "7");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "not base64!", "%%%", "" })
+    void rejectsUndecodableCursors(String cursor) {
+        assertBadRequest(cursor, true);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "no separator", "title|x", "yesterday|1", "2024-05-01T10:15:30|" })
+    void rejectsMalformedPositions(String position) {
+        assertBadRequest(cursor(position), false);
+    }
+
+    private static void assertBadRequest(String cursor, boolean byTitle) {
+        assertThatThrownBy(() -> SnippetService.decodeCursor(cursor, byTitle))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    private static String cursor(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+}
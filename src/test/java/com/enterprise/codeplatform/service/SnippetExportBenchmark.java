@@ -0,0 +1,121 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.storage.ContentCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Exporting one page of 200 snippets with 50 versions each, stored as deltas against a
+ * keyframe every 20 versions, with the cursor rows served from memory. Measures what the
+ * export adds on top of the database: delta application and NDJSON encoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnippetExportBenchmark {
+
+    private static final int SNIPPETS = 200;
+    private static final int VERSIONS = 50;
+    private static final int KEYFRAME_INTERVAL = 20;
+
+    private SnippetExportService export;
+
+    @Setup
+    public void setUp() throws SQLException {
+        Random random = new Random(21);
+        Timestamp created = new Timestamp(System.currentTimeMillis());
+        List<Object[]> ids = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= SNIPPETS; id++) {
+            ids.add(new Object[] { id });
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < 80; i++) {
+                lines.add("    int field" + i + " = " + random.nextInt(1000) + ";");
+            }
+            String keyframe = null;
+            int keyframeNumber = 0;
+            for (int number = 1; number <= VERSIONS; number++) {
+                lines.set(random.nextInt(lines.size()), "    long changed" + number + " = " + number + "L;");
+                String content = "class S" + id + " {\n" + String.join("\n", lines) + "\n}\n";
+                Object[] row = new Object[30];
+                row[0] = id;
+                row[1] = "Snippet " + id;
+                row[3] = "java";
+                row[4] = VERSIONS;
+                row[5] = created;
+                row[6] = created;
+                row[8] = number;
+                row[9] = "edit " + number;
+                row[12] = created;
+                if (keyframe == null || number - keyframeNumber >= KEYFRAME_INTERVAL) {
+                    keyframe = content;
+                    keyframeNumber = number;
+                    row[10] = "FULL";
+                    row[13] = ContentCodec.NONE.encode(content);
+                } else {
+                    row[10] = "DELTA";
+                    row[11] = keyframeNumber;
+                    row[13] = ContentCodec.NONE.encode(LineDeltaCodec.encode(keyframe, content));
+                }
+                row[14] = (long) number;
+                for (int m = 15; m < 29; m++) {
+                    row[m] = random.nextInt(100);
+                }
+                rows.add(row);
+            }
+            rows.get(rows.size() - VERSIONS)[7] = rows.get(rows.size() - 1)[13];
+        }
+
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement page = mock(PreparedStatement.class);
+        PreparedStatement keyframes = mock(PreparedStatement.class);
+        PreparedStatement cursor = mock(PreparedStatement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString()))
+                .thenAnswer(inv -> ((String) inv.getArgument(0)).contains("LIMIT") ? page : keyframes);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(cursor);
+        when(page.executeQuery()).thenAnswer(inv -> ResultSets.of(ids));
+        when(keyframes.executeQuery()).thenAnswer(inv -> ResultSets.of(List.of()));
+        when(cursor.executeQuery()).thenAnswer(inv -> ResultSets.of(rows));
+
+        export = new SnippetExportService(dataSource, new ObjectMapper());
+        ReflectionTestUtils.setField(export, "pageSize", SNIPPETS + 1);
+        ReflectionTestUtils.setField(export, "flushEvery", 500);
+    }
+
+    @Benchmark
+    public void exportPage() throws IOException {
+        export.export(1L, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,140 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.storage.ContentCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SnippetExportServiceTest {
+
+    private static final Timestamp CREATED = Timestamp.valueOf(LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DataSource dataSource = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement page = mock(PreparedStatement.class);
+    private final PreparedStatement keyframes = mock(PreparedStatement.class);
+    private final PreparedStatement rows = mock(PreparedStatement.class);
+    private final SnippetExportService export = new SnippetExportService(dataSource, objectMapper);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(export, "pageSize", 2);
+        ReflectionTestUtils.setField(export, "flushEvery", 500);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString()))
+                .thenAnswer(inv -> ((String) inv.getArgument(0)).contains("LIMIT") ? page : keyframes);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(rows);
+    }
+
+    @Test
+    void streamsEverySnippetAndVersionFromOneConnection() throws Exception {
+        String v1 = "class A {\n  int x;\n}\n";
+        String v2 = "class A {\n  int x;\n  int y;\n}\n";
+        String v3 = "class B {\n}\n";
+        String v4 = v2;
+        List<Object[]> firstPage = new ArrayList<>();
+        firstPage.add(row(1, v4, 1, "FULL", null, v1));
+        firstPage.add(row(1, null, 2, "DELTA", 1, LineDeltaCodec.encode(v1, v2)));
+        firstPage.add(row(1, null, 3, "FULL", null, v3));
+        // A rollback to version 2 shares its delta, stored against a keyframe the cursor has passed
+        firstPage.add(row(1, null, 4, "DELTA", 1, LineDeltaCodec.encode(v1, v2)));
+        Object[] withMetrics = row(2, "x", 1, "FULL", null, "x");
+        withMetrics[14] = 7L;
+        withMetrics[15] = 3;
+        withMetrics[26] = 12.5;
+        withMetrics[29] = "[{\"index\":0,\"name\":\"run\"}]";
+        firstPage.add(withMetrics);
+        List<Object[]> secondPage = List.<Object[]>of(row(3, "y", 1, "FULL", null, "y"));
+
+        when(page.executeQuery()).thenReturn(ResultSets.of(List.of(new Object[] { 1L }, new Object[] { 2L })),
+                ResultSets.of(List.<Object[]>of(new Object[] { 3L })));
+        when(keyframes.executeQuery()).thenReturn(ResultSets.of(List.<Object[]>of(new Object[] { 1L, 1, data(v1) })),
+                ResultSets.of(List.of()));
+        when(rows.executeQuery()).thenReturn(ResultSets.of(firstPage), ResultSets.of(secondPage));
+
+        List<JsonNode> lines = export(7L);
+
+        assertThat(lines).extracting(line -> line.get("type").asText()).containsExactly("snippet", "version",
+                "version", "version", "version", "snippet", "version", "snippet", "version", "summary");
+        assertThat(lines.get(0).get("content").asText()).isEqualTo(v4);
+        assertThat(lines.get(0).get("createdAt").asText()).isEqualTo("2024-01-02T03:04:05");
+        assertThat(lines.subList(1, 5)).extracting(line -> line.get("content").asText())
+                .containsExactly(v1, v2, v3, v4);
+        assertThat(lines.get(1).has("metrics")).isFalse();
+        JsonNode metrics = lines.get(6).get("metrics");
+        assertThat(metrics.get("loc").asInt()).isEqualTo(3);
+        assertThat(metrics.get("halsteadVolume").asDouble()).isEqualTo(12.5);
+        assertThat(metrics.has("halsteadEffort")).isFalse();
+        assertThat(metrics.get("methods").get(0).get("name").asText()).isEqualTo("run");
+        assertThat(lines.get(9).get("snippets").asLong()).isEqualTo(3);
+        assertThat(lines.get(9).get("versions").asLong()).isEqualTo(6);
+
+        verify(dataSource, times(1)).getConnection();
+        verify(rows, times(2)).setFetchSize(Integer.MIN_VALUE);
+    }
+
+    @Test
+    void failsOnDeltaWhoseKeyframeIsMissing() throws Exception {
+        when(page.executeQuery()).thenReturn(ResultSets.of(List.<Object[]>of(new Object[] { 1L })));
+        when(keyframes.executeQuery()).thenReturn(ResultSets.of(List.of()));
+        when(rows.executeQuery()).thenReturn(ResultSets.of(List.of(row(1, "a", 1, "FULL", null, "a"),
+                row(1, null, 3, "DELTA", 2, LineDeltaCodec.encode("a", "b")))));
+
+        assertThatThrownBy(() -> export(7L)).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Keyframe version 2 of snippet 1");
+    }
+
+    private List<JsonNode> export(Long userId) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        export.export(userId, out);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : out.toString().split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    private static Object[] row(long snippetId, String current, int number, String storageType, Integer base,
+            String payload) {
+        Object[] row = new Object[30];
+        row[0] = snippetId;
+        row[1] = "snippet " + snippetId;
+        row[3] = "java";
+        row[4] = 1;
+        row[5] = CREATED;
+        row[6] = CREATED;
+        row[7] = current == null ? null : data(current);
+        row[8] = number;
+        row[9] = "v" + number;
+        row[10] = storageType;
+        row[11] = base;
+        row[12] = CREATED;
+        row[13] = data(payload);
+        return row;
+    }
+
+    private static byte[] data(String text) {
+        return ContentCodec.NONE.encode(text);
+    }
+}
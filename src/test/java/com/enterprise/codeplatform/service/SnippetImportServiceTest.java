@@ -0,0 +1,121 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.ImportReport;
+import com.enterprise.codeplatform.repository.CodeVersionRepository;
+import com.enterprise.codeplatform.repository.ContentBlobRepository;
+import com.enterprise.codeplatform.storage.ContentCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SnippetImportServiceTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final AtomicLong keys = new AtomicLong();
+    private SnippetImportService importService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ContentBlobService blobService = new ContentBlobService(mock(ContentBlobRepository.class));
+        ReflectionTestUtils.setField(blobService, "codec", ContentCodec.NONE);
+        VersionStorageService versionStorageService =
+                new VersionStorageService(mock(CodeVersionRepository.class), blobService);
+        ReflectionTestUtils.setField(versionStorageService, "storageMode", VersionStorageService.StorageMode.DELTA);
+        ReflectionTestUtils.setField(versionStorageService, "keyframeInterval", 20);
+        importService = new SnippetImportService(dataSource, new ObjectMapper(), versionStorageService, blobService,
+                eventPublisher);
+        ReflectionTestUtils.setField(importService, "batchSize", 2);
+
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet generated = mock(ResultSet.class);
+        when(generated.next()).thenReturn(true);
+        when(generated.getLong(1)).thenAnswer(inv -> keys.incrementAndGet());
+        when(statement.getGeneratedKeys()).thenReturn(generated);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(connection.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(statement);
+    }
+
+    @Test
+    void importsSnippetsWrittenAcrossSeveralFlushes() throws Exception {
+        ImportReport report = importSnippets("""
+                {"type":"snippet","title":"A","language":"java","content":"a2","activeVersion":2}
+                {"type":"version","number":1,"content":"a1"}
+                {"type":"version","number":2,"content":"a2","metrics":{"loc":1}}
+                {"type":"snippet","title":"B","language":"java","content":"b"}
+                {"type":"version","number":1,"content":"b"}
+                {"type":"summary","snippets":2,"versions":3}
+                """);
+
+        assertThat(report.getSnippets()).isEqualTo(2);
+        assertThat(report.getVersions()).isEqualTo(3);
+        assertThat(report.getMetrics()).isEqualTo(1);
+        verify(eventPublisher, times(2)).publishEvent(any(SnippetChangedEvent.class));
+    }
+
+    @Test
+    void rejectsActiveVersionThatIsNotImportedWithoutKeepingPartOfTheSnippet() throws Exception {
+        assertThatThrownBy(() -> importSnippets("""
+                {"type":"snippet","title":"A","language":"java","content":"a","activeVersion":1}
+                {"type":"version","number":1,"content":"a"}
+                {"type":"snippet","title":"B","language":"java","content":"b3","activeVersion":5}
+                {"type":"version","number":1,"content":"b1"}
+                {"type":"version","number":2,"content":"b2"}
+                {"type":"version","number":3,"content":"b3"}
+                """)).isInstanceOfSatisfying(ResponseStatusException.class, e -> {
+                    assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+                    assertThat(e.getReason()).contains("activeVersion 5 is not one of the versions of snippet \"B\"")
+                            .contains("1 snippets were imported");
+                });
+
+        // B was written in flushes of two rows but never committed
+        verify(connection, times(1)).commit();
+        verify(connection).rollback();
+        ArgumentCaptor<SnippetChangedEvent> events = ArgumentCaptor.forClass(SnippetChangedEvent.class);
+        verify(eventPublisher).publishEvent(events.capture());
+        assertThat(events.getValue().snippetId()).isEqualTo(1L);
+    }
+
+    @Test
+    void rejectsSnippetWithoutVersions() throws Exception {
+        assertThatThrownBy(() -> importSnippets("""
+                {"type":"snippet","title":"A","language":"java","content":"a"}
+                """)).isInstanceOf(ResponseStatusException.class).hasMessageContaining("activeVersion 1");
+
+        verify(connection, never()).commit();
+        verify(connection, never()).prepareStatement(anyString(), anyInt());
+    }
+
+    private ImportReport importSnippets(String ndjson) {
+        return importService.importSnippets(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), 9L,
+                "dev");
+    }
+}
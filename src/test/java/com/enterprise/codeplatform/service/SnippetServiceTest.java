@@ -0,0 +1,274 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.dto.SnippetRequest;
+import com.enterprise.codeplatform.entity.CodeSnippet;
+import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.entity.User;
+import com.enterprise.codeplatform.repository.CodeMetricsRepository;
+import com.enterprise.codeplatform.repository.CodeSnippetRepository;
+import com.enterprise.codeplatform.repository.CodeVersionRepository;
+import com.enterprise.codeplatform.repository.MetricsTaskRepository;
+import com.enterprise.codeplatform.repository.UserRepository;
+import com.enterprise.codeplatform.repository.VersionBlameRepository;
+import com.enterprise.codeplatform.repository.VersionSignatureRepository;
+import com.enterprise.codeplatform.security.AuthenticatedUser;
+import com.enterprise.codeplatform.storage.ContentCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the save, rollback and delete paths against in-memory snippet, version and blob
+ * tables, following the reference count of every blob.
+ */
+class SnippetServiceTest {
+
+    private static final String EMAIL = "dev@example.com";
+    private static final String V1 = "class A {\n  int x = 1;\n}\n".repeat(5);
+    private static final String V2 = V1 + "class B {}\n";
+
+    private final CodeSnippetRepository snippetRepository = mock(CodeSnippetRepository.class);
+    private final CodeVersionRepository versionRepository = mock(CodeVersionRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final InMemoryBlobs blobs = new InMemoryBlobs();
+    private final ContentBlobService blobService = new ContentBlobService(blobs.repository());
+    private final VersionStorageService storage = new VersionStorageService(versionRepository, blobService);
+    private final SnippetService service = new SnippetService(snippetRepository, versionRepository, userRepository,
+            mock(CodeMetricsRepository.class), mock(MetricsTaskRepository.class), mock(MetricsOutboxService.class),
+            mock(VersionBlameRepository.class), mock(VersionSignatureRepository.class), mock(AuditService.class),
+            new PatchService(), storage, blobService, eventPublisher);
+
+    private final Map<Long, CodeSnippet> snippets = new HashMap<>();
+    private final List<CodeVersion> versions = new ArrayList<>();
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(blobService, "codec", ContentCodec.DEFLATE);
+        ReflectionTestUtils.setField(storage, "storageMode", VersionStorageService.StorageMode.DELTA);
+        ReflectionTestUtils.setField(storage, "keyframeInterval", 20);
+        User author = User.builder().id(1L).email(EMAIL).username("dev").role(User.Role.DEVELOPER).build();
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(author));
+        when(userRepository.getReferenceById(1L)).thenReturn(author);
+
+        when(snippetRepository.save(any())).thenAnswer(inv -> {
+            CodeSnippet snippet = inv.getArgument(0);
+            if (snippet.getId() == null) {
+                snippet.setId(nextId++);
+                snippet.setVersions(new ArrayList<>());
+            }
+            snippets.put(snippet.getId(), snippet);
+            return snippet;
+        });
+        when(snippetRepository.findById(anyLong()))
+                .thenAnswer(inv -> Optional.ofNullable(snippets.get(inv.getArgument(0))));
+        when(snippetRepository.findByIdForUpdate(anyLong()))
+                .thenAnswer(inv -> Optional.ofNullable(snippets.get(inv.getArgument(0))));
+        doAnswer(inv -> {
+            CodeSnippet snippet = inv.getArgument(0);
+            snippets.remove(snippet.getId());
+            versions.removeIf(v -> v.getSnippet() == snippet);
+            return null;
+        }).when(snippetRepository).delete(any());
+
+        when(versionRepository.save(any())).thenAnswer(inv -> {
+            CodeVersion version = inv.getArgument(0);
+            if (version.getId() == null) {
+                version.setId(nextId++);
+                versions.add(version);
+                version.getSnippet().getVersions().add(version);
+            }
+            return version;
+        });
+        when(versionRepository.saveAll(any())).thenAnswer(inv -> inv.getArgument(0));
+        doAnswer(inv -> {
+            CodeVersion version = inv.getArgument(0);
+            versions.removeIf(v -> v == version);
+            version.getSnippet().getVersions().removeIf(v -> v == version);
+            return null;
+        }).when(versionRepository).delete(any());
+        when(versionRepository.findSnippetIdById(anyLong())).thenAnswer(inv -> versions.stream()
+                .filter(v -> v.getId().equals(inv.getArgument(0))).findFirst().map(v -> v.getSnippet().getId()));
+        when(versionRepository.findById(anyLong())).thenAnswer(inv -> versions.stream()
+                .filter(v -> v.getId().equals(inv.getArgument(0))).findFirst());
+        when(versionRepository.findBySnippetIdAndVersionNumber(anyLong(), anyInt())).thenAnswer(inv -> latest(
+                inv.getArgument(0), v -> v.getVersionNumber() == (int) inv.getArgument(1)).orElse(null));
+        when(versionRepository.findFirstBySnippetIdAndContentHashOrderByVersionNumberDesc(anyLong(), anyString()))
+                .thenAnswer(inv -> latest(inv.getArgument(0), v -> v.getContentHash().equals(inv.getArgument(1))));
+        when(versionRepository.findFirstBySnippetIdAndStorageTypeOrderByVersionNumberDesc(anyLong(), any()))
+                .thenAnswer(inv -> latest(inv.getArgument(0), v -> v.getStorageType() == inv.getArgument(1)));
+        when(versionRepository.findBySnippetIdAndBaseVersionNumberOrderByVersionNumberAsc(anyLong(), anyInt()))
+                .thenAnswer(inv -> versions.stream()
+                        .filter(v -> v.getSnippet().getId().equals(inv.getArgument(0))
+                                && Integer.valueOf((int) inv.getArgument(1)).equals(v.getBaseVersionNumber()))
+                        .sorted(Comparator.comparingInt(CodeVersion::getVersionNumber))
+                        .toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void authenticatedPrincipalIsReattachedWithoutALookup() {
+        AuthenticatedUser principal = new AuthenticatedUser(1L, EMAIL, "dev", "x", User.Role.DEVELOPER);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        Long id = create(V1);
+
+        assertThat(snippets.get(id).getAuthor().getId()).isEqualTo(1L);
+        verify(userRepository).getReferenceById(1L);
+        verify(userRepository, never()).findByEmail(any());
+
+        // Another user's principal is not taken for the caller's
+        User other = User.builder().id(2L).email("other@example.com").username("other").build();
+        when(userRepository.findByEmail(other.getEmail())).thenReturn(Optional.of(other));
+        create(V1, other.getEmail());
+        verify(userRepository).findByEmail("other@example.com");
+    }
+
+    @Test
+    void everyWriteToTheHistoryLocksTheSnippetFirst() {
+        Long id = create(V1);
+
+        service.updateSnippet(id, request(V2), EMAIL);
+        service.rollback(id, 1, EMAIL);
+        service.deleteVersion(id, 1, EMAIL);
+        service.deleteVersionById(versions.get(0).getId(), EMAIL);
+        service.deleteSnippet(id, EMAIL);
+
+        // An unlocked read would let a concurrent save allocate the same version number
+        verify(snippetRepository, never()).findById(anyLong());
+        verify(snippetRepository, times(5)).findByIdForUpdate(id);
+    }
+
+    @Test
+    void everyDeletionNamesTheDeletedVersions() {
+        Long id = create(V1);
+        service.updateSnippet(id, request(V2), EMAIL);
+        service.updateSnippet(id, request(V1), EMAIL);
+        service.updateSnippet(id, request(V2), EMAIL);
+        List<Long> ids = versions.stream().map(CodeVersion::getId).toList();
+
+        service.deleteVersion(id, 1, EMAIL);
+        service.deleteVersionById(ids.get(1), EMAIL);
+        service.deleteSnippet(id, EMAIL);
+
+        verify(eventPublisher).publishEvent(new VersionsDeletedEvent(List.of(ids.get(0))));
+        verify(eventPublisher).publishEvent(new VersionsDeletedEvent(List.of(ids.get(1))));
+        verify(eventPublisher).publishEvent(new VersionsDeletedEvent(ids.subList(2, 4)));
+    }
+
+    @Test
+    void rollbackReusesTheBlobOfTheTargetVersion() {
+        Long id = create(V1);
+        service.updateSnippet(id, request(V2), EMAIL);
+        int inserts = blobs.inserts();
+
+        service.rollback(id, 1, EMAIL);
+
+        // Version 1, the rollback version and the snippet's current content share one blob
+        assertThat(blobs.count(V1)).isEqualTo(3);
+        assertThat(blobs.count(V2)).isNull();
+        assertThat(blobs.inserts()).isEqualTo(inserts);
+        assertThat(service.getVersionContent(id, 3, EMAIL)).isEqualTo(V1);
+    }
+
+    @Test
+    void saveWithoutChangesReusesTheCurrentBlob() {
+        Long id = create(V1);
+
+        service.updateSnippet(id, request(V1), EMAIL);
+
+        assertThat(blobs.count(V1)).isEqualTo(3);
+        assertThat(blobs.inserts()).isEqualTo(1);
+        assertThat(service.getVersionContent(id, 2, EMAIL)).isEqualTo(V1);
+    }
+
+    @Test
+    void deletingAVersionKeepsABlobOtherVersionsStillReference() {
+        Long id = create(V1);
+        service.updateSnippet(id, request(V2), EMAIL);
+        service.rollback(id, 1, EMAIL);
+
+        service.deleteVersion(id, 1, EMAIL);
+
+        assertThat(blobs.count(V1)).isEqualTo(2);
+        assertThat(service.getVersionContent(id, 2, EMAIL)).isEqualTo(V2);
+        assertThat(service.getVersionContent(id, 3, EMAIL)).isEqualTo(V1);
+    }
+
+    @Test
+    void deletingTheLastReferenceRemovesTheBlob() {
+        Long id = create(V1);
+        service.updateSnippet(id, request(V2), EMAIL);
+        Long versionOne = versions.get(0).getId();
+
+        service.deleteVersionById(versionOne, EMAIL);
+
+        // Version 2 was a delta against version 1 and is now a keyframe of its own
+        assertThat(blobs.count(V1)).isNull();
+        assertThat(blobs.count(V2)).isEqualTo(2);
+        assertThat(blobs.size()).isEqualTo(1);
+        assertThat(service.getVersionContent(id, 2, EMAIL)).isEqualTo(V2);
+    }
+
+    @Test
+    void blobSharedBetweenSnippetsOutlivesTheFirstDeletion() {
+        Long first = create(V1);
+        Long second = create(V1);
+        assertThat(blobs.count(V1)).isEqualTo(4);
+
+        service.deleteSnippet(first, EMAIL);
+        assertThat(blobs.count(V1)).isEqualTo(2);
+        assertThat(service.getVersionContent(second, 1, EMAIL)).isEqualTo(V1);
+
+        service.deleteSnippet(second, EMAIL);
+        assertThat(blobs.size()).isZero();
+    }
+
+    private Long create(String content) {
+        return create(content, EMAIL);
+    }
+
+    private Long create(String content, String email) {
+        return service.createSnippet(request(content), email).getId();
+    }
+
+    private static SnippetRequest request(String content) {
+        return SnippetRequest.builder().title("t").content(content).language("java").build();
+    }
+
+    private Optional<CodeVersion> latest(Long snippetId, Predicate<CodeVersion> filter) {
+        return versions.stream()
+                .filter(v -> v.getSnippet().getId().equals(snippetId) && filter.test(v))
+                .max(Comparator.comparingInt(CodeVersion::getVersionNumber));
+    }
+}
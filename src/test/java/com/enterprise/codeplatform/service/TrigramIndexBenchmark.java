@@ -0,0 +1,90 @@
+package com.enterprise.codeplatform.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Candidate lookup in a trigram index of 100k synthetic snippets drawn from a 40-word
+ * vocabulary, so most trigrams occur in nearly every document, against scanning every
+ * document with the compiled pattern.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class TrigramIndexBenchmark {
+
+    private static final String[] WORDS = { "public", "private", "static", "final", "class", "void", "int", "long",
+            "String", "return", "if", "else", "for", "while", "new", "this", "null", "true", "false", "try",
+            "catch", "throw", "import", "package", "List", "Map", "get", "put", "size", "value", "count", "index",
+            "result", "{", "}", "(", ")", ";", "=", "+" };
+    private static final int DOCUMENTS = 100_000;
+
+    @Param({ "value = count", "catch \\(\\w+Exception", "tokenBucket" })
+    public String query;
+
+    private TrigramIndex index;
+    private String[] documents;
+    private TrigramQuery plan;
+    private Pattern pattern;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        index = new TrigramIndex();
+        documents = new String[DOCUMENTS];
+        for (int i = 0; i < DOCUMENTS; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = 20 + random.nextInt(200); w > 0; w--) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(8) == 0 ? '\n' : ' ');
+            }
+            documents[i] = text.toString();
+            index.put(i, 1, documents[i]);
+        }
+        plan = TrigramQuery.regex(query);
+        pattern = Pattern.compile(query, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+
+    @Benchmark
+    public List<Long> candidates() {
+        return index.candidates(plan, 1);
+    }
+
+    @Benchmark
+    public int candidatesVerified() {
+        int matches = 0;
+        for (Long id : index.candidates(plan, 1)) {
+            if (pattern.matcher(documents[id.intValue()]).find()) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int scanAll() {
+        int matches = 0;
+        for (String document : documents) {
+            if (pattern.matcher(document).find()) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
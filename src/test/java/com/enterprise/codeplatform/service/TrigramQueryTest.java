@@ -0,0 +1,121 @@
+package com.enterprise.codeplatform.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrigramQueryTest {
+
+    private static final String[] WORDS = { "foo", "bar", "Foo", "baz", "fooBar", "a.b", "x", "\t", "(", "|",
+            "return", "int", "Abc", "abcabc", "\n" };
+
+    @Test
+    void literalNeedsEveryFoldedTrigram() {
+        TrigramQuery query = TrigramQuery.literal("fooBAR");
+
+        assertThat(query.op).isEqualTo(TrigramQuery.Op.AND);
+        assertThat(query.trigrams).containsExactly(TrigramIndex.trigrams("foobar"));
+        assertThat(TrigramQuery.literal("FooBar").trigrams).isEqualTo(query.trigrams);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "a", "ab" })
+    void shortLiteralCannotNarrow(String text) {
+        assertThat(TrigramQuery.literal(text)).isSameAs(TrigramQuery.ALL);
+    }
+
+    @Test
+    void regexKeepsMandatoryLiteralRuns() {
+        TrigramQuery query = TrigramQuery.regex("foo.*bar\\d+baz");
+
+        assertThat(query.op).isEqualTo(TrigramQuery.Op.AND);
+        // Runs separated by other atoms are required separately, not as one string
+        assertThat(query.trigrams).containsExactlyInAnyOrder(trigrams("foo")[0], trigrams("bar")[0],
+                trigrams("baz")[0]);
+        assertThat(query.children).isEmpty();
+    }
+
+    @Test
+    void alternationBecomesOr() {
+        TrigramQuery query = TrigramQuery.regex("int (foo|bar)");
+
+        assertThat(query.op).isEqualTo(TrigramQuery.Op.AND);
+        assertThat(query.trigrams).containsExactlyInAnyOrder(trigrams("int "));
+        assertThat(query.children).singleElement().satisfies(or -> {
+            assertThat(or.op).isEqualTo(TrigramQuery.Op.OR);
+            assertThat(or.children).hasSize(2);
+        });
+    }
+
+    @Test
+    void optionalAndRepeatedAtomsBreakRuns() {
+        assertThat(TrigramQuery.regex("abc?def").trigrams).containsExactlyInAnyOrder(trigrams("def"));
+        assertThat(TrigramQuery.regex("abcd?ef").trigrams).containsExactlyInAnyOrder(trigrams("abc"));
+        // "c+" may repeat, so "abc" is required but "cde" is not
+        assertThat(TrigramQuery.regex("abc+de").trigrams).containsExactlyInAnyOrder(trigrams("abc"));
+        assertThat(TrigramQuery.regex("ab{2}cde").trigrams).containsExactlyInAnyOrder(trigrams("cde"));
+    }
+
+    @Test
+    void quotedAndEscapedTextIsLiteral() {
+        assertThat(TrigramQuery.regex("\\Qa.b(\\E").trigrams).containsExactlyInAnyOrder(trigrams("a.b("));
+        assertThat(TrigramQuery.regex("a\\.b\\(").trigrams).containsExactlyInAnyOrder(trigrams("a.b("));
+    }
+
+    @Test
+    void lookaroundsAreNotRequired() {
+        assertThat(TrigramQuery.regex("foo(?=barbaz)").trigrams).containsExactlyInAnyOrder(trigrams("foo"));
+        assertThat(TrigramQuery.regex("foo(?!bar)").trigrams).containsExactlyInAnyOrder(trigrams("foo"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "(?x)foo bar", "(?x:foo bar)", "(foo", "[a-z]+", ".*", "a|foo", "fo?o", "ab\\w+" })
+    void unplannableOrUnnarrowedPatternsFallBackToAll(String pattern) {
+        assertThat(TrigramQuery.regex(pattern)).isSameAs(TrigramQuery.ALL);
+    }
+
+    @Test
+    void candidatesIncludeEveryMatch() {
+        List<String> patterns = List.of("foo", "foobar", "foo.*bar", "(foo|baz)bar", "a\\.b", "return\\s+int",
+                "(?i)abc", "abc(abc)+", "(?:fooBar){2}", "ba[rz]foo", "x?foo", "\\Q(|)\\E", "foo\\tbar", "int\\b",
+                "abc{1}abc", "(?<name>foo)bar", "(?>foo)bar", "bar(?!baz)foo", "\\x41bc", "\\u0061bc");
+        Random random = new Random(19);
+        TrigramIndex index = new TrigramIndex();
+        String[] documents = new String[400];
+        for (int i = 0; i < documents.length; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = random.nextInt(12); w > 0; w--) {
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+                if (random.nextBoolean()) {
+                    text.append(' ');
+                }
+            }
+            documents[i] = text.toString();
+            index.put(i, 1, documents[i]);
+        }
+
+        for (String source : patterns) {
+            TrigramQuery query = TrigramQuery.regex(source);
+            assertThat(query).as(source).isNotSameAs(TrigramQuery.ALL);
+            Pattern pattern = Pattern.compile(source, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            Set<Long> candidates = new HashSet<>(index.candidates(query, 1));
+            for (int i = 0; i < documents.length; i++) {
+                if (pattern.matcher(documents[i]).find()) {
+                    assertThat(candidates).as("%s on %s", source, documents[i]).contains((long) i);
+                }
+            }
+        }
+    }
+
+    private static long[] trigrams(String text) {
+        return TrigramIndex.trigrams(text);
+    }
+}
@@ -0,0 +1,110 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.cache.CacheRegistry;
+import com.enterprise.codeplatform.dto.ValidationJobResponse;
+import com.enterprise.codeplatform.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ValidationJobServiceTest {
+
+    private static final String VALID = "public class Test { int f() { return 1; } }";
+
+    private CompileEngine engine;
+    private ValidationJobService jobs;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private Thread holder;
+
+    @BeforeEach
+    void setUp() {
+        engine = new CompileEngine(1);
+        ReflectionTestUtils.setField(engine, "acquireTimeoutMs", 50L);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CompilerService compiler = new CompilerService(engine, new CacheRegistry(meterRegistry), meterRegistry,
+                1 << 20, 30);
+        jobs = new ValidationJobService(compiler, 1, 100);
+        ReflectionTestUtils.setField(jobs, "maxJobsPerUser", 2);
+        ReflectionTestUtils.setField(jobs, "retryAfterSeconds", 1L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        if (holder != null) {
+            holder.join();
+        }
+        jobs.shutdown();
+        engine.close();
+    }
+
+    @Test
+    void jobWaitsForBusyCompilerInsteadOfFailing() throws InterruptedException {
+        occupyCompiler();
+        ValidationJobResponse job = jobs.submit(VALID, "alice");
+
+        // Several acquire timeouts pass while the only compiler is taken
+        Thread.sleep(300);
+        assertThat(jobs.getJob(job.getJobId(), "alice").getStatus()).isEqualTo("RUNNING");
+
+        release.countDown();
+        ValidationJobResponse done = await(job.getJobId(), "alice");
+        assertThat(done.getStatus()).isEqualTo("DONE");
+        assertThat(done.getErrors()).isEmpty();
+    }
+
+    @Test
+    void capsUnfinishedJobsPerUser() throws InterruptedException {
+        occupyCompiler();
+        ValidationJobResponse first = jobs.submit(VALID, "alice");
+        ValidationJobResponse second = jobs.submit(VALID + " ", "alice");
+
+        assertThatThrownBy(() -> jobs.submit(VALID, "alice")).isInstanceOf(TooManyRequestsException.class);
+        jobs.submit(VALID, "bob");
+
+        release.countDown();
+        await(first.getJobId(), "alice");
+        await(second.getJobId(), "alice");
+
+        // Finished jobs make room, oldest first
+        ValidationJobResponse third = jobs.submit(VALID, "alice");
+        assertThatThrownBy(() -> jobs.getJob(first.getJobId(), "alice")).isInstanceOf(RuntimeException.class);
+        assertThat(jobs.getJob(second.getJobId(), "alice").getStatus()).isEqualTo("DONE");
+        assertThat(await(third.getJobId(), "alice").getStatus()).isEqualTo("DONE");
+    }
+
+    private void occupyCompiler() throws InterruptedException {
+        CountDownLatch taken = new CountDownLatch(1);
+        holder = new Thread(() -> engine.execute((compiler, fileManager) -> {
+            taken.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        holder.start();
+        assertThat(taken.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private ValidationJobResponse await(String jobId, String username) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < deadline) {
+            ValidationJobResponse job = jobs.getJob(jobId, username);
+            if (job.getFinishedAt() != null) {
+                return job;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Job " + jobId + " did not finish");
+    }
+}
@@ -0,0 +1,54 @@
+package com.enterprise.codeplatform.service;
+
+import com.enterprise.codeplatform.entity.CodeVersion;
+import com.enterprise.codeplatform.repository.CodeVersionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class VersionStorageServiceTest {
+
+    @Test
+    void plansDeltasAgainstRecentKeyframesOnly() {
+        VersionStorageService storage = storage(VersionStorageService.StorageMode.DELTA, 5);
+        String keyframe = "line\n".repeat(50);
+        String content = keyframe + "added\n";
+
+        VersionStorageService.Payload delta = storage.plan(3, content, 1, keyframe);
+        assertThat(delta.storageType()).isEqualTo(CodeVersion.StorageType.DELTA);
+        assertThat(delta.baseVersionNumber()).isEqualTo(1);
+        assertThat(LineDeltaCodec.apply(keyframe, delta.text())).isEqualTo(content);
+
+        VersionStorageService.Payload expired = storage.plan(6, content, 1, keyframe);
+        assertThat(expired.storageType()).isEqualTo(CodeVersion.StorageType.FULL);
+        assertThat(expired.text()).isEqualTo(content);
+    }
+
+    @Test
+    void plansKeyframeWhenDeltaIsNotSmaller() {
+        VersionStorageService storage = storage(VersionStorageService.StorageMode.DELTA, 20);
+
+        VersionStorageService.Payload payload = storage.plan(2, "b", 1, "a");
+        assertThat(payload.storageType()).isEqualTo(CodeVersion.StorageType.FULL);
+        assertThat(storage.plan(1, "a", null, null).storageType()).isEqualTo(CodeVersion.StorageType.FULL);
+    }
+
+    @Test
+    void fullModeNeverPlansDeltas() {
+        VersionStorageService storage = storage(VersionStorageService.StorageMode.FULL, 20);
+        String keyframe = "line\n".repeat(50);
+
+        assertThat(storage.plan(2, keyframe + "x", 1, keyframe).storageType())
+                .isEqualTo(CodeVersion.StorageType.FULL);
+    }
+
+    private static VersionStorageService storage(VersionStorageService.StorageMode mode, int interval) {
+        VersionStorageService storage = new VersionStorageService(mock(CodeVersionRepository.class),
+                mock(ContentBlobService.class));
+        ReflectionTestUtils.setField(storage, "storageMode", mode);
+        ReflectionTestUtils.setField(storage, "keyframeInterval", interval);
+        return storage;
+    }
+}
@@ -0,0 +1,84 @@
+package com.enterprise.codeplatform.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class ContentCodecTest {
+
+    private static final String SOURCE = "public class A {\r\n    String s = \"héllo 世界 😀\";\n}\n";
+
+    @ParameterizedTest
+    @EnumSource(ContentCodec.class)
+    void roundTrips(ContentCodec codec) {
+        for (String text : new String[] { "", "\n", SOURCE, SOURCE.repeat(500) }) {
+            byte[] encoded = codec.encode(text);
+            assertThat(ContentCodec.of(encoded)).isEqualTo(codec);
+            assertThat(ContentCodec.decode(encoded)).isEqualTo(text);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ContentCodec.class)
+    void roundTripsRandomText(ContentCodec codec) {
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(5000);
+            for (int n = 0; n < length; n++) {
+                text.append((char) (random.nextBoolean() ? 'a' + random.nextInt(4) : ' ' + random.nextInt(96)));
+            }
+            assertThat(ContentCodec.decode(codec.encode(text.toString()))).isEqualTo(text.toString());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ContentCodec.class)
+    void reportsRawLength(ContentCodec codec) {
+        assertThat(ContentCodec.rawLength(codec.encode(SOURCE))).isEqualTo(SOURCE.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void rejectsTruncatedDeflateInsteadOfSpinning() {
+        byte[] encoded = ContentCodec.DEFLATE.encode(SOURCE.repeat(200));
+        for (int cut : new int[] { 5, 6, encoded.length / 2, encoded.length - 1 }) {
+            byte[] truncated = Arrays.copyOf(encoded, cut);
+            assertThatThrownBy(() -> ContentCodec.decode(truncated)).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void rejectsDeflateLengthNotMatchingHeader() {
+        byte[] longer = ContentCodec.DEFLATE.encode(SOURCE);
+        longer[4]++;
+        assertThatThrownBy(() -> ContentCodec.decode(longer)).isInstanceOf(IllegalStateException.class);
+
+        byte[] shorter = ContentCodec.DEFLATE.encode(SOURCE);
+        shorter[4]--;
+        assertThatThrownBy(() -> ContentCodec.decode(shorter)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsCorruptDeflate() {
+        byte[] encoded = ContentCodec.DEFLATE.encode(SOURCE);
+        for (int i = 5; i < encoded.length; i++) {
+            encoded[i] = (byte) 0xff;
+        }
+        assertThatThrownBy(() -> ContentCodec.decode(encoded)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsTruncatedHeaderAndUnknownCodec() {
+        assertThatThrownBy(() -> ContentCodec.decode(new byte[] { 1, 0, 0 }))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatIllegalArgumentException().isThrownBy(() -> ContentCodec.decode(new byte[] { 9, 0 }));
+    }
+}